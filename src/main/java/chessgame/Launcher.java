@@ -0,0 +1,57 @@
+package chessgame;
+
+import chessgame.server.AnalysisServer;
+import chessgame.uci.UciEngine;
+import javafx.application.Application;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Точка входа в программу.
+ * Не наследует {@link Application}: иначе лаунчер Java поднимает JavaFX еще до {@code main}, и режимы
+ * без окна ({@code --uci}, {@code --http}) не стартуют на сервере без дисплея или без модулей JavaFX.
+ * Окно игры ({@link Main}) запускается только когда ни один из этих режимов не выбран.
+ */
+public final class Launcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(Launcher.class);
+
+    private Launcher() {
+    }
+
+    public static void main(String[] args) {
+        List<String> options = Arrays.asList(args);
+
+        // Режим UCI работает через stdin/stdout и не запускает JavaFX
+        if (options.contains("--uci")) {
+            try {
+                UciEngine.runStandardStreams();
+            } catch (IOException e) {
+                logger.error("Ошибка ввода-вывода в режиме UCI", e);
+                System.exit(1);
+            }
+            return;
+        }
+
+        // Локальный HTTP-сервис анализа: --http [порт]
+        int httpIndex = options.indexOf("--http");
+        if (httpIndex >= 0) {
+            int port = httpIndex + 1 < args.length ? Integer.parseInt(args[httpIndex + 1]) : AnalysisServer.DEFAULT_PORT;
+            try {
+                AnalysisServer.run(port, Runtime.getRuntime().availableProcessors());
+            } catch (IOException e) {
+                logger.error("Не удалось запустить сервис анализа", e);
+                System.exit(1);
+            }
+            return;
+        }
+
+        logger.info("Запуск шахматной игры с AI Bagatur");
+        logger.info("Версия Java: " + System.getProperty("java.version"));
+        Application.launch(Main.class, args);
+    }
+}
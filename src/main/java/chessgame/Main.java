@@ -1,14 +1,19 @@
 package chessgame;
 
 import chessgame.ui.ChessBoard;
+import chessgame.ui.StartupProfile;
 import javafx.application.Application;
 import javafx.stage.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
 /**
- * Главный класс приложения шахматной игры.
- * Точка входа в программу с инициализацией JavaFX и созданием игрового интерфейса.
+ * Главный класс приложения шахматной игры: окно JavaFX с игровым интерфейсом.
+ * Запускается из {@link Launcher}.
  */
 public class Main extends Application {
 
@@ -19,8 +24,18 @@ public class Main extends Application {
     @Override
     public void start(Stage primaryStage) {
         try {
+            // Режим проверки времени запуска: --startup-check <мс> или --startup-baseline <файл>
+            // завершает процесс после первого кадра
+            List<String> args = getParameters().getRaw();
+            StartupProfile startup = startupProfile(args);
+            if (args.contains("--startup-check") || args.contains("--startup-baseline")) {
+                // Фоновые этапы могут закончиться после первого кадра: их длительности тоже сверяются с эталоном
+                startup.getFirstFrame().thenCompose(firstFrameMs -> startup.allTracked().thenApply(ignored -> firstFrameMs))
+                        .thenAccept(firstFrameMs -> System.exit(checkStartup(startup, firstFrameMs)));
+            }
+
             // Создаем главное окно шахматной доски
-            chessBoard = new ChessBoard();
+            chessBoard = new ChessBoard(startup);
             Stage stage = chessBoard.createAndShowGUI();
 
             // Настраиваем главное окно
@@ -47,28 +62,50 @@ public class Main extends Application {
     }
 
     /**
-     * Главный метод для запуска приложения.
-     * Поддерживает запуск с параметрами командной строки.
+     * Профиль запуска: бюджет из {@code --startup-check <мс>} или из файла {@code --startup-baseline <файл>}.
      */
-    public static void main(String[] args) {
-        logger.info("Запуск шахматной игры с AI Bagatur");
-
-        // Проверяем версию Java
-        String javaVersion = System.getProperty("java.version");
-        logger.info("Версия Java: " + javaVersion);
+    private static StartupProfile startupProfile(List<String> args) throws IOException {
+        int index = args.indexOf("--startup-baseline");
+        if (index >= 0 && index + 1 < args.size()) {
+            return StartupProfile.fromBaseline(Paths.get(args.get(index + 1)));
+        }
+        index = args.indexOf("--startup-check");
+        return new StartupProfile(index >= 0 && index + 1 < args.size() ? Long.parseLong(args.get(index + 1)) : 0);
+    }
 
-        // Парсим аргументы командной строки (опционально)
-        boolean playerIsWhite = true; // По умолчанию игрок играет белыми
-        if (args.length > 0) {
-            if (args[0].equals("--black") || args[0].equals("-b")) {
-                playerIsWhite = false;
-            } else if (args[0].equals("--white") || args[0].equals("-w")) {
-                playerIsWhite = true;
+    /**
+     * Сравнивает время первого кадра и длительности этапов с бюджетом; без эталонного времени записывает их.
+     *
+     * @return код завершения процесса: 0 - в пределах бюджета, 1 - превышение или ошибка записи эталона
+     */
+    private static int checkStartup(StartupProfile startup, long firstFrameMs) {
+        if (startup.needsBaseline()) {
+            try {
+                startup.recordBaseline(firstFrameMs);
+                return 0;
+            } catch (IOException e) {
+                logger.error("Не удалось записать эталон запуска", e);
+                return 1;
             }
         }
+        int status = 0;
+        for (String phase : startup.phasesOverBudget()) {
+            logger.error("Этап запуска превышает бюджет: {}", phase);
+            status = 1;
+        }
+        if (startup.isWithinBudget(firstFrameMs)) {
+            logger.info("Первый кадр через {} мс, бюджет {} мс", firstFrameMs, startup.getBudgetMs());
+            return status;
+        }
+        logger.error("Первый кадр через {} мс превышает бюджет {} мс", firstFrameMs, startup.getBudgetMs());
+        return 1;
+    }
 
-        // Запускаем JavaFX приложение
-        launch(args);
+    /**
+     * Запуск из среды разработки; собранный jar стартует через {@link Launcher}.
+     */
+    public static void main(String[] args) {
+        Launcher.main(args);
     }
 
     /**
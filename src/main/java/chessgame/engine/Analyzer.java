@@ -0,0 +1,83 @@
+package chessgame.engine;
+
+import chessgame.engine.tablebase.TablebaseProber;
+import chessgame.logic.Position;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновый анализ позиции для панели анализа: бесконечный поиск в собственном потоке,
+ * отдельном от поиска хода соперника.
+ *
+ * <p>Поиск пишет в ту же таблицу транспозиций, что и {@link BagaturEngine}, поэтому после хода
+ * анализ продолжается с уже найденных оценок, а ход AI пользуется результатами анализа.
+ * Каждый вызов {@link #analyze} останавливает предыдущий поиск; из нескольких позиций, заданных
+ * подряд (например, при быстрой прокрутке истории), ищется только последняя.
+ */
+public final class Analyzer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Analyzer.class);
+
+    private final Search search;
+    private final ExecutorService executor;
+    // Номер последнего запроса: задачи и сведения устаревших запросов отбрасываются
+    private final AtomicLong generation = new AtomicLong();
+
+    Analyzer(TranspositionTable transpositionTable, TablebaseProber tablebases) {
+        this.search = new Search(transpositionTable);
+        this.search.setTablebases(tablebases);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "engine-analysis");
+            thread.setDaemon(true);
+            // Анализ не должен отнимать процессор у интерфейса и у поиска хода соперника
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Останавливает текущий анализ и начинает анализ новой позиции.
+     *
+     * @param position позиция (копируется)
+     * @param listener получатель сведений об итерациях; вызывается в потоке анализа
+     */
+    public void analyze(Position position, SearchListener listener) {
+        long request = generation.incrementAndGet();
+        search.stop();
+        Position root = position.copy();
+        executor.execute(() -> {
+            // Запрос остановки сбрасывается до проверки: остановка, пришедшая после проверки, не потеряется
+            search.clearStop();
+            if (generation.get() != request) {
+                return;
+            }
+            try {
+                search.think(root, SearchLimits.infinite(), info -> {
+                    if (generation.get() == request) {
+                        listener.onIteration(info);
+                    }
+                });
+            } catch (RuntimeException e) {
+                logger.error("Ошибка при анализе позиции", e);
+            }
+        });
+    }
+
+    /**
+     * Останавливает анализ; сведения остановленного поиска больше не приходят.
+     */
+    public void stop() {
+        generation.incrementAndGet();
+        search.stop();
+    }
+
+    @Override
+    public void close() {
+        stop();
+        executor.shutdownNow();
+    }
+}
@@ -1,11 +1,26 @@
 package chessgame.engine;
 
+import chessgame.engine.book.PolyglotBook;
+import chessgame.engine.tablebase.TablebaseGenerator;
+import chessgame.engine.tablebase.TablebaseProber;
+import chessgame.logic.Bitboards;
 import chessgame.logic.ChessGame;
+import chessgame.logic.Move;
+import chessgame.logic.Position;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Обертка для шахматного движка Bagatur.
@@ -23,11 +38,40 @@ public class BagaturEngine {
     // Текущая позиция в FEN формате
     private String currentPosition;
 
-    // Флаг инициализации движка
-    private boolean isInitialized;
+    // Флаг инициализации движка (движок инициализируется в фоне при запуске)
+    private volatile boolean isInitialized;
 
     // Время поиска по умолчанию (в миллисекундах)
-    private static final long SEARCH_TIME_MS = 2000;
+    private static final long SEARCH_TIME_MS = 800;
+
+    // Максимальная глубина итеративного углубления
+    private static final int MAX_SEARCH_DEPTH = 64;
+
+    // Дебютная книга по умолчанию
+    private static final String DEFAULT_BOOK = System.getProperty("user.home") + "/.chessgame/book.bin";
+
+    // Размер таблицы транспозиций по умолчанию (в мегабайтах)
+    private static final int DEFAULT_HASH_MB = 16;
+
+    // Наибольшее количество потоков поиска
+    public static final int MAX_THREADS = 64;
+
+    // Таблица транспозиций и потоки поиска (первый - главный), создаются при инициализации.
+    // Вспомогательные потоки ищут ту же позицию и делятся результатами через общую таблицу.
+    private TranspositionTable transpositionTable;
+    private volatile Search[] searches;
+    private final Object searchLock = new Object();
+    private ExecutorService searchExecutor;
+    private ExecutorService helperExecutor;
+
+    // Таблицы эндшпиля (null, если каталог не удалось открыть)
+    private TablebaseProber tablebases;
+
+    // Дебютная книга (null, если книги нет)
+    private volatile PolyglotBook openingBook;
+
+    // Получатели сведений о поиске хода для партии (getBestMove)
+    private final List<SearchListener> searchListeners = new CopyOnWriteArrayList<>();
 
     /**
      * Конструктор движка Bagatur.
@@ -45,8 +89,16 @@ public class BagaturEngine {
         try {
             logger.info("Инициализация движка Bagatur...");
 
-            // Имитируем инициализацию движка Bagatur
-            simulateEngineInitialization();
+            // Таблица транспозиций и битовая база KPK
+            transpositionTable = new TranspositionTable(DEFAULT_HASH_MB);
+            searches = new Search[] {new Search(transpositionTable)};
+            searchExecutor = Executors.newSingleThreadExecutor(daemonThreads("engine-search"));
+            helperExecutor = Executors.newCachedThreadPool(daemonThreads("engine-helper"));
+            KpkBitbase.initialize();
+            loadTablebases(TablebaseGenerator.DEFAULT_DIRECTORY);
+            if (Files.exists(Paths.get(DEFAULT_BOOK))) {
+                loadOpeningBook(DEFAULT_BOOK);
+            }
 
             this.isInitialized = true;
             logger.info("Движок Bagatur успешно инициализирован");
@@ -58,14 +110,45 @@ public class BagaturEngine {
     }
 
     /**
-     * Симуляция инициализации движка для демонстрации.
+     * Открывает таблицы эндшпиля из каталога и подключает их к поиску.
+     * Поврежденные таблицы не мешают игре: движок продолжает работать без них.
+     *
+     * @return true если таблицы открыты
      */
-    private void simulateEngineInitialization() {
-        // Имитация загрузки движка
+    public boolean loadTablebases(String directory) {
         try {
-            Thread.sleep(500); // Имитируем время загрузки
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            tablebases = TablebaseProber.open(Paths.get(directory));
+        } catch (IOException e) {
+            logger.warn("Не удалось открыть таблицы эндшпиля в {}: {}", directory, e.getMessage());
+            tablebases = null;
+        }
+        Search[] current = searches;
+        if (current != null) {
+            for (Search s : current) {
+                s.setTablebases(tablebases);
+            }
+        }
+        return tablebases != null;
+    }
+
+    /**
+     * Открывает дебютную книгу Polyglot; {@code null} отключает книгу.
+     *
+     * @return true если книга открыта
+     */
+    public boolean loadOpeningBook(String file) {
+        if (file == null) {
+            openingBook = null;
+            return false;
+        }
+        Path path = Paths.get(file);
+        try {
+            openingBook = PolyglotBook.open(path);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Не удалось открыть дебютную книгу {}: {}", path, e.getMessage());
+            openingBook = null;
+            return false;
         }
     }
 
@@ -87,28 +170,23 @@ public class BagaturEngine {
             // Обновляем текущую позицию
             this.currentPosition = fenPosition;
 
-            // Асинхронно ищем лучший ход
-            CompletableFuture<ChessMove> futureMove = CompletableFuture.supplyAsync(() -> {
-                try {
-                    // Имитируем время поиска
-                    Thread.sleep(Math.min(SEARCH_TIME_MS, 100));
-                    return findMove(fenPosition, playerColor);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    logger.error("Поиск хода был прерван", e);
-                    return null;
-                }
-            });
-
-            // Ожидаем результат
-            ChessMove bestMove = futureMove.get(SEARCH_TIME_MS, TimeUnit.MILLISECONDS);
+            Position position = Position.fromFen(fenPosition);
+            if ((playerColor == 'w') != position.isWhiteToMove()) {
+                logger.warn("Запрошен ход за {}, но в позиции ходит другая сторона", playerColor);
+                return null;
+            }
 
-            if (bestMove != null) {
-                logger.info("Найден лучший ход: {}", bestMove);
-            } else {
+            int move = search(position, SearchLimits.time(SEARCH_TIME_MS),
+                    searchListeners.isEmpty() ? null : this::publishSearchInfo);
+            if (move == Move.NONE) {
                 logger.warn("Движок не смог найти ход");
+                return null;
             }
 
+            ChessMove bestMove = toChessMove(position, move);
+            Search main = searches[0];
+            logger.info("Найден лучший ход: {} (глубина {}, оценка {}, узлов {}, попаданий в таблицы {})",
+                    bestMove, main.completedDepth(), main.bestScore(), main.nodes(), main.tablebaseHits());
             return bestMove;
 
         } catch (Exception e) {
@@ -118,108 +196,263 @@ public class BagaturEngine {
     }
 
     /**
-     * Симуляция поиска хода для демонстрации.
+     * Подписывает получателя на сведения об итерациях поиска хода в {@link #getBestMove}.
+     * Получатель вызывается в потоке поиска и не должен задерживать его: интерфейс
+     * должен передавать сведения в свой поток сам, объединяя частые обновления.
      */
-    private ChessMove findMove(String fenPosition, char playerColor) {
-        // Простая логика выбора хода для демонстрации
-        List<ChessMove> possibleMoves = generatePossibleMoves(fenPosition, playerColor);
+    public void addSearchListener(SearchListener listener) {
+        searchListeners.add(listener);
+    }
 
-        if (possibleMoves.isEmpty()) {
-            logger.warn("No possible moves found for color: {}", playerColor);
-            return null;
+    public void removeSearchListener(SearchListener listener) {
+        searchListeners.remove(listener);
+    }
+
+    private void publishSearchInfo(SearchInfo info) {
+        for (SearchListener listener : searchListeners) {
+            try {
+                listener.onIteration(info);
+            } catch (RuntimeException e) {
+                logger.warn("Ошибка в получателе сведений о поиске", e);
+            }
         }
+    }
 
-        // Выбираем случайный ход из возможных (в реальном движке здесь был бы анализ)
-        Random random = new Random();
-        ChessMove selectedMove = possibleMoves.get(random.nextInt(possibleMoves.size()));
-        
-        // Validate the selected move one more time before returning
-        boolean isWhite = playerColor == 'w';
-        if (!chessGame.isValidMove(selectedMove.getFrom(), selectedMove.getTo(), isWhite)) {
-            logger.warn("Selected move {} is invalid, trying to find alternative", selectedMove);
-            // Try to find a valid move
-            for (ChessMove move : possibleMoves) {
-                if (chessGame.isValidMove(move.getFrom(), move.getTo(), isWhite)) {
-                    logger.info("Found valid alternative move: {}", move);
-                    return move;
-                }
+    /**
+     * Ищет лучший ход в текущем потоке.
+     * Без ограничений ({@link SearchLimits#isInfinite()}) книга и таблицы эндшпиля не используются:
+     * такой поиск нужен для анализа.
+     *
+     * @param position позиция (после поиска возвращается в исходное состояние)
+     * @param listener получатель сведений об итерациях или {@code null}
+     * @return лучший ход или {@link Move#NONE}, если ходов нет
+     */
+    public int search(Position position, SearchLimits limits, SearchListener listener) {
+        checkInitialized();
+        synchronized (searchLock) {
+            clearStop();
+            return runSearch(position, limits, listener);
+        }
+    }
+
+    /**
+     * Запускает поиск в отдельном потоке движка. Флаг остановки сбрасывается до возврата,
+     * поэтому {@link #stopSearch()}, вызванный сразу после запуска, не потеряется.
+     * Предыдущий запущенный поиск к этому моменту должен завершиться.
+     *
+     * @return будущий лучший ход
+     */
+    public CompletableFuture<Integer> startSearch(Position position, SearchLimits limits, SearchListener listener) {
+        checkInitialized();
+        clearStop();
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized (searchLock) {
+                return runSearch(position, limits, listener);
+            }
+        }, searchExecutor);
+    }
+
+    /**
+     * Просит текущий поиск остановиться; лучший найденный ход будет возвращен.
+     */
+    public void stopSearch() {
+        Search[] current = searches;
+        if (current != null) {
+            for (Search s : current) {
+                s.stop();
             }
-            logger.error("No valid moves found in possible moves list!");
-            return null;
         }
-        
-        return selectedMove;
     }
 
     /**
-     * Генерирует список возможных ходов для демонстрации.
+     * Меняет лимит времени идущего поиска, отсчитывая его от текущего момента (0 - без лимита).
      */
-    private List<ChessMove> generatePossibleMoves(String fenPosition, char playerColor) {
-        List<ChessMove> moves = new ArrayList<>();
-
-        // Генерируем все возможные ходы для фигур игрока
-        boolean isWhite = playerColor == 'w';
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                String square = (char)('a' + col) + "" + (char)('8' - row);
-                List<String> possibleMovesFromSquare = chessGame.getPossibleMoves(square, isWhite);
-                for (String to : possibleMovesFromSquare) {
-                    ChessMove move = new ChessMove(square, to, "piece");
-                    moves.add(move);
-                    logger.debug("Generated move: {} -> {} for color {}", square, to, playerColor);
-                }
+    public void setSearchTimeLimit(long timeMs) {
+        Search[] current = searches;
+        if (current != null) {
+            for (Search s : current) {
+                s.setTimeLimit(timeMs);
             }
         }
+    }
 
-        if (moves.isEmpty()) {
-            logger.warn("No possible moves generated for color: {}", playerColor);
+    /**
+     * Создает фоновый анализатор со своим потоком, разделяющий с движком таблицу транспозиций и таблицы эндшпиля.
+     * Размер таблицы нельзя менять, пока анализ идет.
+     */
+    public Analyzer createAnalyzer() {
+        checkInitialized();
+        return new Analyzer(transpositionTable, tablebases);
+    }
+
+    /**
+     * Меняет размер таблицы транспозиций; содержимое теряется.
+     */
+    public void setHashSize(int sizeMb) {
+        checkInitialized();
+        synchronized (searchLock) {
+            transpositionTable.resize(sizeMb);
+        }
+        logger.info("Размер таблицы транспозиций: {} МБ", sizeMb);
+    }
+
+    /**
+     * Очищает таблицу транспозиций (новая партия).
+     */
+    public void clearHash() {
+        checkInitialized();
+        synchronized (searchLock) {
+            transpositionTable.clear();
+        }
+    }
+
+    /**
+     * Заполненность таблицы транспозиций в промилле.
+     */
+    public int getHashfull() {
+        return transpositionTable != null ? transpositionTable.hashfull() : 0;
+    }
+
+    /**
+     * Задает количество потоков поиска.
+     */
+    public void setThreads(int threads) {
+        checkInitialized();
+        int count = Math.max(1, Math.min(threads, MAX_THREADS));
+        synchronized (searchLock) {
+            Search[] created = new Search[count];
+            for (int i = 0; i < count; i++) {
+                created[i] = new Search(transpositionTable);
+                created[i].setTablebases(tablebases);
+            }
+            searches = created;
         }
+        logger.info("Потоков поиска: {}", count);
+    }
 
-        return moves;
+    public int getThreads() {
+        Search[] current = searches;
+        return current != null ? current.length : 1;
     }
 
     /**
-     * Проверяет, принадлежит ли ход указанному цвету.
+     * Количество узлов последнего поиска во всех потоках.
      */
-    private boolean isMoveForPlayerColor(String from, String to, char playerColor) {
-        // Простая проверка: для белых используем верхнюю часть доски, для черных - нижнюю
-        if (playerColor == 'w') {
-            return from.charAt(1) <= '4' || to.charAt(1) <= '4';
-        } else {
-            return from.charAt(1) >= '5' || to.charAt(1) >= '5';
+    public long getNodes() {
+        Search[] current = searches;
+        return current != null ? totalNodes(current) : 0;
+    }
+
+    private void checkInitialized() {
+        if (!isInitialized) {
+            throw new IllegalStateException("Движок не инициализирован");
+        }
+    }
+
+    private void clearStop() {
+        for (Search s : searches) {
+            s.clearStop();
         }
     }
 
     /**
-     * Генерирует запасные ходы, если основные не подходят.
+     * Поиск под блокировкой searchLock: книга, таблицы эндшпиля, затем перебор.
      */
-    private List<ChessMove> generateFallbackMoves(char playerColor) {
-        List<ChessMove> moves = new ArrayList<>();
-        String[] files = {"a", "b", "c", "d", "e", "f", "g", "h"};
-        String[] ranks = playerColor == 'w' ? new String[]{"3", "4"} : new String[]{"5", "6"};
-        
-        Random random = new Random();
-        for (int i = 0; i < 5; i++) {
-            String from = files[random.nextInt(8)] + ranks[random.nextInt(2)];
-            String to = files[random.nextInt(8)] + ranks[random.nextInt(2)];
-            if (!from.equals(to)) {
-                moves.add(new ChessMove(from, to, "piece"));
+    private int runSearch(Position position, SearchLimits limits, SearchListener listener) {
+        if (!limits.isInfinite()) {
+            // Ход из книги возвращается сразу, без поиска
+            PolyglotBook book = openingBook;
+            if (book != null) {
+                int bookMove = book.pickMove(position);
+                if (bookMove != Move.NONE) {
+                    logger.info("Ход из дебютной книги: {}", Move.toUci(bookMove));
+                    return bookMove;
+                }
+            }
+            // В выигранном или проигранном эндшпиле из таблиц ход выбирается по расстоянию до мата
+            if (tablebases != null) {
+                int tablebaseMove = tablebases.bestMove(position);
+                if (tablebaseMove != Move.NONE) {
+                    logger.info("Ход из таблиц эндшпиля: {}", Move.toUci(tablebaseMove));
+                    return tablebaseMove;
+                }
+            }
+        }
+
+        Search[] workers = searches;
+        List<Future<?>> helpers = new ArrayList<>(workers.length - 1);
+        for (int i = 1; i < workers.length; i++) {
+            Search helper = workers[i];
+            Position copy = position.copy();
+            helpers.add(helperExecutor.submit(() -> helper.think(copy, limits, null)));
+        }
+
+        SearchListener reporter = listener == null ? null : info -> listener.onIteration(new SearchInfo(
+                info.getDepth(), info.getScore(), info.getMateIn(), totalNodes(workers),
+                info.getTimeMs(), info.getPrincipalVariation()));
+        int move;
+        try {
+            move = workers[0].think(position, limits, reporter);
+        } finally {
+            for (int i = 1; i < workers.length; i++) {
+                workers[i].stop();
+            }
+            for (Future<?> helper : helpers) {
+                try {
+                    helper.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    logger.error("Ошибка во вспомогательном потоке поиска", e.getCause());
+                }
             }
         }
-        return moves;
+        return move;
+    }
+
+    private static long totalNodes(Search[] workers) {
+        long total = 0;
+        for (Search s : workers) {
+            total += s.nodes();
+        }
+        return total;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Переводит ход из внутреннего представления в ChessMove.
+     */
+    private ChessMove toChessMove(Position position, int move) {
+        int piece = position.pieceAt(Move.from(move));
+        String pieceType = (Position.colorOf(piece) == Position.WHITE ? "w" : "b")
+                + Character.toLowerCase(Position.pieceChar(piece));
+        int promotion = Move.promotion(move);
+        return new ChessMove(Bitboards.squareName(Move.from(move)), Bitboards.squareName(Move.to(move)), pieceType,
+                promotion == Move.PROMO_NONE ? ChessMove.NO_PROMOTION : "nbrq".charAt(promotion - 1));
     }
 
     /**
      * Оценивает текущую позицию.
      *
      * @param fenPosition позиция в формате FEN
-     * @return оценка позиции (положительная для белых, отрицательная для черных)
+     * @return оценка позиции в пешках (положительная для белых, отрицательная для черных)
      */
     public double evaluatePosition(String fenPosition) {
-        // Простая оценка для демонстрации
-        // В реальном движке здесь был бы сложный анализ
-        Random random = new Random();
-        return random.nextDouble() * 2 - 1; // Возвращает значение от -1 до 1
+        try {
+            Position position = Position.fromFen(fenPosition);
+            int score = Evaluator.evaluate(position);
+            return (position.isWhiteToMove() ? score : -score) / 100.0;
+        } catch (IllegalArgumentException e) {
+            logger.warn("Не удалось оценить позицию: {}", e.getMessage());
+            return 0;
+        }
     }
 
     /**
@@ -280,6 +513,9 @@ public class BagaturEngine {
     public void cleanup() {
         if (isInitialized) {
             logger.info("Очистка ресурсов движка Bagatur");
+            stopSearch();
+            searchExecutor.shutdownNow();
+            helperExecutor.shutdownNow();
             isInitialized = false;
         }
     }
@@ -288,14 +524,26 @@ public class BagaturEngine {
      * Класс для представления шахматного хода.
      */
     public static class ChessMove {
+        /** Ход без превращения пешки. */
+        public static final char NO_PROMOTION = 0;
+
         private final String from;
         private final String to;
         private final String pieceType;
+        private final char promotion;
 
         public ChessMove(String from, String to, String pieceType) {
+            this(from, to, pieceType, NO_PROMOTION);
+        }
+
+        /**
+         * @param promotion фигура превращения ('q', 'r', 'b', 'n') или {@link #NO_PROMOTION}
+         */
+        public ChessMove(String from, String to, String pieceType, char promotion) {
             this.from = from;
             this.to = to;
             this.pieceType = pieceType;
+            this.promotion = promotion;
         }
 
         public String getFrom() {
@@ -310,9 +558,20 @@ public class BagaturEngine {
             return pieceType;
         }
 
+        /**
+         * Фигура превращения ('q', 'r', 'b', 'n') или {@link #NO_PROMOTION}.
+         */
+        public char getPromotion() {
+            return promotion;
+        }
+
+        public boolean isPromotion() {
+            return promotion != NO_PROMOTION;
+        }
+
         @Override
         public String toString() {
-            return String.format("%s%s (%s)", from, to, pieceType);
+            return String.format("%s%s%s (%s)", from, to, isPromotion() ? String.valueOf(promotion) : "", pieceType);
         }
 
         @Override
@@ -322,12 +581,13 @@ public class BagaturEngine {
             ChessMove chessMove = (ChessMove) o;
             return Objects.equals(from, chessMove.from) &&
                    Objects.equals(to, chessMove.to) &&
-                   Objects.equals(pieceType, chessMove.pieceType);
+                   Objects.equals(pieceType, chessMove.pieceType) &&
+                   promotion == chessMove.promotion;
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(from, to, pieceType);
+            return Objects.hash(from, to, pieceType, promotion);
         }
     }
 }
\ No newline at end of file
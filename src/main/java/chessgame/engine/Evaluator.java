@@ -0,0 +1,232 @@
+package chessgame.engine;
+
+import chessgame.logic.Bitboards;
+import chessgame.logic.Position;
+
+/**
+ * Статическая оценка позиции: материал, таблицы позиционных бонусов
+ * и знания об эндшпилях (битовая база KPK, недостаточный материал).
+ * Оценка возвращается в сантипешках с точки зрения стороны, которая ходит.
+ */
+final class Evaluator {
+
+    /** Оценка заведомо выигранного эндшпиля (ниже любой оценки мата). */
+    static final int KNOWN_WIN = 10000;
+
+    static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    // Вклад фигур в стадию игры (24 - полный набор фигур)
+    private static final int[] PHASE_WEIGHTS = {0, 1, 1, 2, 4, 0};
+    private static final int MAX_PHASE = 24;
+
+    private static final int BISHOP_PAIR = 30;
+
+    // Таблицы записаны с точки зрения белых, первая строка - 8-я горизонталь
+    private static final int[] PAWN_TABLE = {
+         0,  0,  0,  0,  0,  0,  0,  0,
+        50, 50, 50, 50, 50, 50, 50, 50,
+        10, 10, 20, 30, 30, 20, 10, 10,
+         5,  5, 10, 25, 25, 10,  5,  5,
+         0,  0,  0, 20, 20,  0,  0,  0,
+         5, -5,-10,  0,  0,-10, -5,  5,
+         5, 10, 10,-20,-20, 10, 10,  5,
+         0,  0,  0,  0,  0,  0,  0,  0
+    };
+
+    private static final int[] KNIGHT_TABLE = {
+        -50,-40,-30,-30,-30,-30,-40,-50,
+        -40,-20,  0,  0,  0,  0,-20,-40,
+        -30,  0, 10, 15, 15, 10,  0,-30,
+        -30,  5, 15, 20, 20, 15,  5,-30,
+        -30,  0, 15, 20, 20, 15,  0,-30,
+        -30,  5, 10, 15, 15, 10,  5,-30,
+        -40,-20,  0,  5,  5,  0,-20,-40,
+        -50,-40,-30,-30,-30,-30,-40,-50
+    };
+
+    private static final int[] BISHOP_TABLE = {
+        -20,-10,-10,-10,-10,-10,-10,-20,
+        -10,  0,  0,  0,  0,  0,  0,-10,
+        -10,  0,  5, 10, 10,  5,  0,-10,
+        -10,  5,  5, 10, 10,  5,  5,-10,
+        -10,  0, 10, 10, 10, 10,  0,-10,
+        -10, 10, 10, 10, 10, 10, 10,-10,
+        -10,  5,  0,  0,  0,  0,  5,-10,
+        -20,-10,-10,-10,-10,-10,-10,-20
+    };
+
+    private static final int[] ROOK_TABLE = {
+         0,  0,  0,  0,  0,  0,  0,  0,
+         5, 10, 10, 10, 10, 10, 10,  5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+         0,  0,  0,  5,  5,  0,  0,  0
+    };
+
+    private static final int[] QUEEN_TABLE = {
+        -20,-10,-10, -5, -5,-10,-10,-20,
+        -10,  0,  0,  0,  0,  0,  0,-10,
+        -10,  0,  5,  5,  5,  5,  0,-10,
+         -5,  0,  5,  5,  5,  5,  0, -5,
+          0,  0,  5,  5,  5,  5,  0, -5,
+        -10,  5,  5,  5,  5,  5,  0,-10,
+        -10,  0,  5,  0,  0,  0,  0,-10,
+        -20,-10,-10, -5, -5,-10,-10,-20
+    };
+
+    private static final int[] KING_MIDDLEGAME_TABLE = {
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -20,-30,-30,-40,-40,-30,-30,-20,
+        -10,-20,-20,-20,-20,-20,-20,-10,
+         20, 20,  0,  0,  0,  0, 20, 20,
+         20, 30, 10,  0,  0, 10, 30, 20
+    };
+
+    private static final int[] KING_ENDGAME_TABLE = {
+        -50,-40,-30,-20,-20,-30,-40,-50,
+        -30,-20,-10,  0,  0,-10,-20,-30,
+        -30,-10, 20, 30, 30, 20,-10,-30,
+        -30,-10, 30, 40, 40, 30,-10,-30,
+        -30,-10, 30, 40, 40, 30,-10,-30,
+        -30,-10, 20, 30, 30, 20,-10,-30,
+        -30,-30,  0,  0,  0,  0,-30,-30,
+        -50,-30,-30,-30,-30,-30,-30,-50
+    };
+
+    private static final int[][] PIECE_TABLES = {
+        PAWN_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE
+    };
+
+    private Evaluator() {
+    }
+
+    /**
+     * Оценивает позицию с точки зрения стороны, которая ходит.
+     */
+    static int evaluate(Position position) {
+        int special = evaluateEndgame(position);
+        if (special != Integer.MIN_VALUE) {
+            return special;
+        }
+
+        int score = 0;
+        int phase = 0;
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            int sign = color == Position.WHITE ? 1 : -1;
+            // Для белых переворачиваем горизонтали, чтобы попасть в таблицу
+            int flip = color == Position.WHITE ? 56 : 0;
+
+            for (int type = Position.PAWN; type <= Position.QUEEN; type++) {
+                long bb = position.pieces(color, type);
+                phase += PHASE_WEIGHTS[type] * Long.bitCount(bb);
+                int[] table = PIECE_TABLES[type];
+                while (bb != 0) {
+                    int sq = Long.numberOfTrailingZeros(bb);
+                    bb &= bb - 1;
+                    score += sign * (PIECE_VALUES[type] + table[sq ^ flip]);
+                }
+            }
+            if (Long.bitCount(position.pieces(color, Position.BISHOP)) >= 2) {
+                score += sign * BISHOP_PAIR;
+            }
+        }
+
+        phase = Math.min(phase, MAX_PHASE);
+        int whiteKing = position.kingSquare(Position.WHITE) ^ 56;
+        int blackKing = position.kingSquare(Position.BLACK);
+        int kingMiddlegame = KING_MIDDLEGAME_TABLE[whiteKing] - KING_MIDDLEGAME_TABLE[blackKing];
+        int kingEndgame = KING_ENDGAME_TABLE[whiteKing] - KING_ENDGAME_TABLE[blackKing];
+        score += (kingMiddlegame * phase + kingEndgame * (MAX_PHASE - phase)) / MAX_PHASE;
+
+        return position.isWhiteToMove() ? score : -score;
+    }
+
+    /**
+     * Точный результат для позиций из трех и менее фигур: голые короли,
+     * лишняя легкая фигура и KPK по битовой базе. Поиск отсекает такие узлы сразу.
+     *
+     * @return оценка с точки зрения стороны, которая ходит, или {@code Integer.MIN_VALUE}
+     */
+    static int probeExact(Position position) {
+        int pieceCount = Long.bitCount(position.occupancy());
+        if (pieceCount > 3) {
+            return Integer.MIN_VALUE;
+        }
+        if (pieceCount == 2) {
+            return 0;
+        }
+        long pawns = position.pieces(Position.WHITE, Position.PAWN) | position.pieces(Position.BLACK, Position.PAWN);
+        if (pawns != 0) {
+            return probeKpk(position);
+        }
+        long minors = position.pieces(Position.WHITE, Position.KNIGHT) | position.pieces(Position.BLACK, Position.KNIGHT)
+                | position.pieces(Position.WHITE, Position.BISHOP) | position.pieces(Position.BLACK, Position.BISHOP);
+        return minors != 0 ? 0 : Integer.MIN_VALUE;
+    }
+
+    /**
+     * Оценка известных эндшпилей: точные результаты из {@link #probeExact}
+     * и матование одинокого короля.
+     *
+     * @return оценка с точки зрения стороны, которая ходит, или {@code Integer.MIN_VALUE}
+     */
+    static int evaluateEndgame(Position position) {
+        int exact = probeExact(position);
+        if (exact != Integer.MIN_VALUE) {
+            return exact;
+        }
+        int whiteCount = Long.bitCount(position.colorOccupancy(Position.WHITE));
+        int blackCount = Long.bitCount(position.colorOccupancy(Position.BLACK));
+        if (whiteCount > 1 && blackCount > 1) {
+            return Integer.MIN_VALUE;
+        }
+
+        int strong = whiteCount > 1 ? Position.WHITE : Position.BLACK;
+        boolean heavy = (position.pieces(strong, Position.QUEEN) | position.pieces(strong, Position.ROOK)) != 0;
+        boolean minorMate = position.pieces(strong, Position.BISHOP) != 0
+                && Long.bitCount(position.pieces(strong, Position.BISHOP) | position.pieces(strong, Position.KNIGHT)) >= 2;
+        if (!heavy && !minorMate) {
+            return Integer.MIN_VALUE;
+        }
+
+        // Одинокий король: гоним его к краю и приближаем своего короля
+        int material = 0;
+        for (int type = Position.PAWN; type <= Position.QUEEN; type++) {
+            material += PIECE_VALUES[type] * Long.bitCount(position.pieces(strong, type));
+        }
+        int weakKing = position.kingSquare(strong ^ 1);
+        int strongKing = position.kingSquare(strong);
+        int file = weakKing & 7;
+        int rank = weakKing >>> 3;
+        int edge = (3 - Math.min(file, 7 - file)) + (3 - Math.min(rank, 7 - rank));
+        int score = KNOWN_WIN + material + 20 * edge - 10 * Bitboards.distance(strongKing, weakKing);
+        return position.sideToMove() == strong ? score : -score;
+    }
+
+    /**
+     * Оценка позиции KPK по битовой базе. Вызывающий гарантирует материал K+P против K.
+     */
+    static int probeKpk(Position position) {
+        int strong = position.pieces(Position.WHITE, Position.PAWN) != 0 ? Position.WHITE : Position.BLACK;
+        // Приводим к виду "белые с пешкой": для черных отражаем горизонтали
+        int flip = strong == Position.WHITE ? 0 : 56;
+        int pawn = Long.numberOfTrailingZeros(position.pieces(strong, Position.PAWN)) ^ flip;
+        int strongKing = position.kingSquare(strong) ^ flip;
+        int weakKing = position.kingSquare(strong ^ 1) ^ flip;
+        boolean strongToMove = position.sideToMove() == strong;
+
+        if (!KpkBitbase.probe(strongKing, pawn, weakKing, strongToMove)) {
+            return 0;
+        }
+        // Чем дальше продвинута пешка, тем ближе превращение
+        int score = KNOWN_WIN + PIECE_VALUES[Position.PAWN] + 10 * (pawn >>> 3)
+                - Bitboards.distance(strongKing, pawn + 8);
+        return strongToMove ? score : -score;
+    }
+}
@@ -0,0 +1,237 @@
+package chessgame.engine;
+
+import chessgame.logic.Bitboards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Битовая база эндшпиля "король и пешка против короля" (KPK).
+ * Таблица выигрыш/ничья строится ретроградным анализом: сначала размечаются
+ * очевидные позиции (превращение, взятие пешки, пат), затем результат
+ * итеративно распространяется до неподвижной точки. Неразмеченные позиции - ничьи.
+ *
+ * <p>Индекс: клетки королей, очередь хода и клетка пешки на вертикалях a-d
+ * (остальные получаются отражением), всего 2 * 24 * 64 * 64 позиций по одному биту -
+ * 24 КБ. Таблица собирается при сборке в ресурс {@value #RESOURCE}; если ресурса нет,
+ * она генерируется при первом обращении.
+ */
+public final class KpkBitbase {
+
+    private static final Logger logger = LoggerFactory.getLogger(KpkBitbase.class);
+
+    /** Путь к ресурсу с готовой таблицей. */
+    public static final String RESOURCE = "/endgame/kpk.bin";
+
+    private static final int MAX_INDEX = 2 * 24 * 64 * 64;
+    private static final int BYTES = MAX_INDEX / 8;
+
+    private static final int WHITE = 0;
+    private static final int BLACK = 1;
+
+    // Результаты при генерации
+    private static final byte INVALID = 0;
+    private static final byte UNKNOWN = 1;
+    private static final byte DRAW = 2;
+    private static final byte WIN = 4;
+
+    private KpkBitbase() {
+    }
+
+    /**
+     * Ленивая загрузка таблицы при первом обращении.
+     */
+    private static final class Holder {
+        static final long[] TABLE = load();
+    }
+
+    /**
+     * Загружает таблицу заранее, чтобы первое обращение из поиска было мгновенным.
+     */
+    public static void initialize() {
+        if (Holder.TABLE.length == 0) {
+            throw new IllegalStateException("Пустая битовая база KPK");
+        }
+    }
+
+    /**
+     * Выигрывает ли сильнейшая сторона (с пешкой) в позиции KPK.
+     * Клетки заданы с точки зрения сильнейшей стороны: пешка идет к 8-й горизонтали.
+     *
+     * @param strongKing   клетка короля стороны с пешкой
+     * @param strongPawn   клетка пешки
+     * @param weakKing     клетка короля слабейшей стороны
+     * @param strongToMove ходит ли сторона с пешкой
+     */
+    public static boolean probe(int strongKing, int strongPawn, int weakKing, boolean strongToMove) {
+        if ((strongPawn & 7) > 3) {
+            strongKing ^= 7;
+            strongPawn ^= 7;
+            weakKing ^= 7;
+        }
+        int idx = index(strongToMove ? WHITE : BLACK, weakKing, strongKing, strongPawn);
+        return (Holder.TABLE[idx >>> 6] & (1L << idx)) != 0;
+    }
+
+    /**
+     * Индекс позиции: белый король, черный король, очередь хода,
+     * вертикаль пешки a-d и горизонталь пешки 2-7.
+     */
+    private static int index(int stm, int blackKing, int whiteKing, int pawn) {
+        return whiteKing | (blackKing << 6) | (stm << 12) | ((pawn & 7) << 13) | ((6 - (pawn >>> 3)) << 15);
+    }
+
+    private static long[] load() {
+        try (InputStream in = KpkBitbase.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                DataInputStream data = new DataInputStream(in);
+                long[] table = new long[BYTES / 8];
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = data.readLong();
+                }
+                logger.info("Битовая база KPK загружена из ресурса {}", RESOURCE);
+                return table;
+            }
+        } catch (IOException e) {
+            logger.warn("Не удалось прочитать битовую базу KPK, генерируем заново", e);
+        }
+
+        long start = System.nanoTime();
+        long[] table = generate();
+        logger.info("Битовая база KPK сгенерирована за {} мс", (System.nanoTime() - start) / 1_000_000);
+        return table;
+    }
+
+    /**
+     * Строит таблицу ретроградным анализом.
+     */
+    static long[] generate() {
+        byte[] db = new byte[MAX_INDEX];
+        for (int idx = 0; idx < MAX_INDEX; idx++) {
+            db[idx] = classifyInitial(idx);
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int idx = 0; idx < MAX_INDEX; idx++) {
+                if (db[idx] == UNKNOWN) {
+                    byte result = classify(db, idx);
+                    if (result != UNKNOWN) {
+                        db[idx] = result;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        long[] table = new long[BYTES / 8];
+        for (int idx = 0; idx < MAX_INDEX; idx++) {
+            if (db[idx] == WIN) {
+                table[idx >>> 6] |= 1L << idx;
+            }
+        }
+        return table;
+    }
+
+    private static int pawnSquare(int idx) {
+        int file = (idx >>> 13) & 3;
+        int rank = 6 - ((idx >>> 15) & 7);
+        return rank * 8 + file;
+    }
+
+    private static byte classifyInitial(int idx) {
+        int whiteKing = idx & 63;
+        int blackKing = (idx >>> 6) & 63;
+        int stm = (idx >>> 12) & 1;
+        int pawn = pawnSquare(idx);
+
+        // Невозможные позиции
+        if (Bitboards.distance(whiteKing, blackKing) <= 1
+                || whiteKing == pawn || blackKing == pawn
+                || (stm == WHITE && (Bitboards.PAWN_ATTACKS[WHITE][pawn] & (1L << blackKing)) != 0)) {
+            return INVALID;
+        }
+
+        // Пешка на 7-й горизонтали безопасно превращается
+        int promotion = pawn + 8;
+        if (stm == WHITE && (pawn >>> 3) == 6 && whiteKing != promotion
+                && (Bitboards.distance(blackKing, promotion) > 1
+                    || (Bitboards.KING_ATTACKS[whiteKing] & (1L << promotion)) != 0)) {
+            return WIN;
+        }
+
+        // Пат или взятие незащищенной пешки
+        if (stm == BLACK) {
+            long blackMoves = Bitboards.KING_ATTACKS[blackKing];
+            long guarded = Bitboards.KING_ATTACKS[whiteKing] | Bitboards.PAWN_ATTACKS[WHITE][pawn];
+            if ((blackMoves & ~guarded) == 0
+                    || (blackMoves & ~Bitboards.KING_ATTACKS[whiteKing] & (1L << pawn)) != 0) {
+                return DRAW;
+            }
+        }
+
+        return UNKNOWN;
+    }
+
+    private static byte classify(byte[] db, int idx) {
+        int whiteKing = idx & 63;
+        int blackKing = (idx >>> 6) & 63;
+        int stm = (idx >>> 12) & 1;
+        int pawn = pawnSquare(idx);
+
+        byte good = stm == WHITE ? WIN : DRAW;
+        byte bad = stm == WHITE ? DRAW : WIN;
+
+        int results = INVALID;
+        long kingMoves = Bitboards.KING_ATTACKS[stm == WHITE ? whiteKing : blackKing];
+        while (kingMoves != 0) {
+            int to = Long.numberOfTrailingZeros(kingMoves);
+            kingMoves &= kingMoves - 1;
+            results |= stm == WHITE
+                    ? db[index(BLACK, blackKing, to, pawn)]
+                    : db[index(WHITE, to, whiteKing, pawn)];
+        }
+
+        if (stm == WHITE) {
+            int push = pawn + 8;
+            if ((pawn >>> 3) < 6) {
+                results |= db[index(BLACK, blackKing, whiteKing, push)];
+            }
+            if ((pawn >>> 3) == 1 && push != whiteKing && push != blackKing) {
+                results |= db[index(BLACK, blackKing, whiteKing, push + 8)];
+            }
+        }
+
+        if ((results & good) != 0) {
+            return good;
+        }
+        return (results & UNKNOWN) != 0 ? UNKNOWN : bad;
+    }
+
+    /**
+     * Генерирует таблицу и записывает ее в файл. Вызывается при сборке.
+     *
+     * @param args путь к выходному файлу
+     */
+    public static void main(String[] args) throws IOException {
+        Path output = Paths.get(args.length > 0 ? args[0] : "kpk.bin");
+        long[] table = generate();
+        ByteBuffer buffer = ByteBuffer.allocate(BYTES);
+        for (long word : table) {
+            buffer.putLong(word);
+        }
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        Files.write(output, buffer.array());
+        logger.info("Битовая база KPK записана в {} ({} байт)", output, BYTES);
+    }
+}
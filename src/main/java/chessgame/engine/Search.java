@@ -0,0 +1,495 @@
+package chessgame.engine;
+
+import chessgame.engine.tablebase.TablebaseProber;
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+
+import java.util.Arrays;
+
+/**
+ * Поиск лучшего хода: итеративное углубление, альфа-бета с нулевым окном (PVS),
+ * форсированный поиск взятий, таблица транспозиций, киллер-ходы и история.
+ * Если подключены таблицы эндшпиля, узлы из них не перебираются, а получают точную оценку.
+ * Один экземпляр не потокобезопасен; остановить поиск можно из другого потока через {@link #stop()}.
+ */
+final class Search {
+
+    static final int INFINITY = 32000;
+    static final int MATE = 31000;
+    static final int MAX_PLY = 128;
+
+    // Расстояние до мата из таблиц эндшпиля может превышать глубину поиска
+    private static final int MATE_BOUND = MATE - 4 * MAX_PLY;
+
+    private final TranspositionTable tt;
+    private TablebaseProber tablebases;
+
+    private final int[][] moveBuffers = new int[MAX_PLY + 1][Position.MAX_MOVES];
+    private final int[][] scoreBuffers = new int[MAX_PLY + 1][Position.MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[][] history = new int[12][64];
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    private Position position;
+    private volatile boolean stopRequested;
+    private boolean stopped;
+    private volatile long deadline;
+    private long nodeLimit;
+    private long startTime;
+    private SearchListener listener;
+    // Читается другими потоками только для приблизительной статистики
+    private long nodes;
+    private long tablebaseHits;
+
+    private int bestMove;
+    private int bestScore;
+    private int completedDepth;
+    private int[] principalVariation = new int[0];
+
+    Search(TranspositionTable tt) {
+        this.tt = tt;
+    }
+
+    /**
+     * Подключает таблицы эндшпиля; {@code null} отключает пробы.
+     */
+    void setTablebases(TablebaseProber tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Ищет лучший ход в позиции.
+     *
+     * @param root     позиция (после поиска возвращается в исходное состояние)
+     * @param limits   ограничения поиска
+     * @param listener получатель сведений об итерациях или {@code null}
+     * @return лучший ход или {@link Move#NONE}, если ходов нет
+     */
+    int think(Position root, SearchLimits limits, SearchListener listener) {
+        position = root;
+        this.listener = listener;
+        nodes = 0;
+        tablebaseHits = 0;
+        stopped = false;
+        startTime = System.nanoTime();
+        nodeLimit = limits.getNodes() > 0 ? limits.getNodes() : Long.MAX_VALUE;
+        setTimeLimit(limits.getTimeMs());
+        bestMove = Move.NONE;
+        bestScore = 0;
+        completedDepth = 0;
+        principalVariation = new int[0];
+        for (int[] pair : killers) {
+            pair[0] = Move.NONE;
+            pair[1] = Move.NONE;
+        }
+        for (int[] row : history) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>= 2;
+            }
+        }
+
+        int[] rootMoves = new int[Position.MAX_MOVES];
+        if (root.generateLegalMoves(rootMoves) == 0) {
+            return Move.NONE;
+        }
+        bestMove = rootMoves[0];
+
+        for (int depth = 1; depth <= limits.getDepth(); depth++) {
+            int score = alphaBeta(depth, -INFINITY, INFINITY, 0, false);
+            if (stopped) {
+                break;
+            }
+            if (pvLength[0] > 0) {
+                bestMove = pvTable[0][0];
+                principalVariation = Arrays.copyOf(pvTable[0], pvLength[0]);
+            }
+            bestScore = score;
+            completedDepth = depth;
+            if (listener != null) {
+                listener.onIteration(new SearchInfo(depth, score, mateIn(score), nodes,
+                        (System.nanoTime() - startTime) / 1_000_000, principalVariation));
+            }
+
+            // Найденный мат глубже не улучшится
+            if (Math.abs(score) >= MATE_BOUND && MATE - Math.abs(score) <= depth) {
+                break;
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Просит поиск остановиться как можно скорее.
+     */
+    void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Сбрасывает запрос остановки перед новым поиском.
+     */
+    void clearStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * Устанавливает лимит времени, отсчитываемый от текущего момента; 0 - без лимита.
+     * Можно вызывать из другого потока во время поиска (например, по ponderhit).
+     */
+    void setTimeLimit(long timeLimitMs) {
+        deadline = timeLimitMs > 0 ? System.nanoTime() + timeLimitMs * 1_000_000 : Long.MAX_VALUE;
+    }
+
+    private void checkLimits() {
+        if (stopRequested || System.nanoTime() > deadline || nodes >= nodeLimit) {
+            stopped = true;
+        }
+    }
+
+    /**
+     * Мат в N ходов по оценке: положительный - ставит сторона, которая ходит, 0 - мата нет.
+     */
+    static int mateIn(int score) {
+        if (score >= MATE_BOUND) {
+            return (MATE - score + 1) / 2;
+        }
+        if (score <= -MATE_BOUND) {
+            return -(MATE + score) / 2;
+        }
+        return 0;
+    }
+
+    private int alphaBeta(int depth, int alpha, int beta, int ply, boolean allowNull) {
+        pvLength[ply] = ply;
+        if ((++nodes & 1023) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+
+        boolean root = ply == 0;
+        if (!root) {
+            if (position.halfmoveClock() >= 100 || position.isRepetition()) {
+                return 0;
+            }
+            if (tablebases != null) {
+                int code = tablebases.probe(position);
+                if (code != TablebaseProber.NONE) {
+                    tablebaseHits++;
+                    return tablebaseScore(code, ply);
+                }
+            }
+            int exact = Evaluator.probeExact(position);
+            if (exact != Integer.MIN_VALUE) {
+                return exact;
+            }
+            if (ply >= MAX_PLY) {
+                return Evaluator.evaluate(position);
+            }
+        }
+
+        boolean inCheck = position.isInCheck();
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiescence(alpha, beta, ply);
+        }
+
+        long key = position.key();
+        int ttMove = Move.NONE;
+        long entry = tt.probe(key);
+        if (entry != 0) {
+            ttMove = TranspositionTable.move(entry);
+            if (!root && TranspositionTable.depth(entry) >= depth) {
+                int ttScore = scoreFromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && ttScore >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && ttScore <= alpha)) {
+                    return ttScore;
+                }
+            }
+        }
+
+        // Нулевой ход: если даже пропуск хода не опускает оценку ниже beta, отсекаем
+        int us = position.sideToMove();
+        if (allowNull && !inCheck && depth >= 3 && Math.abs(beta) < MATE_BOUND
+                && hasPieces(us) && Evaluator.evaluate(position) >= beta) {
+            position.makeNullMove();
+            int score = -alphaBeta(depth - 3, -beta, -beta + 1, ply + 1, false);
+            position.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score >= beta) {
+                return beta;
+            }
+        }
+
+        int[] moves = moveBuffers[ply];
+        int[] scores = scoreBuffers[ply];
+        int count = position.generatePseudoLegalMoves(moves, false);
+        scoreMoves(moves, scores, count, ttMove, ply);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMoveHere = Move.NONE;
+        int legal = 0;
+
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(moves, scores, i, count);
+            boolean quiet = isQuiet(move);
+
+            position.makeMove(move);
+            if (position.isSquareAttacked(position.kingSquare(us), us ^ 1)) {
+                position.unmakeMove();
+                continue;
+            }
+            legal++;
+
+            int score;
+            if (legal == 1) {
+                score = -alphaBeta(depth - 1, -beta, -alpha, ply + 1, true);
+            } else {
+                int reduction = depth >= 3 && legal > 4 && quiet && !inCheck && !position.isInCheck() ? 1 : 0;
+                score = -alphaBeta(depth - 1 - reduction, -alpha - 1, -alpha, ply + 1, true);
+                if (score > alpha && reduction > 0) {
+                    score = -alphaBeta(depth - 1, -alpha - 1, -alpha, ply + 1, true);
+                }
+                if (score > alpha && score < beta) {
+                    score = -alphaBeta(depth - 1, -beta, -alpha, ply + 1, true);
+                }
+            }
+            position.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > best) {
+                best = score;
+                bestMoveHere = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        if (quiet) {
+                            recordQuietCutoff(move, depth, ply);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (legal == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+
+        int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+                : best > originalAlpha ? TranspositionTable.BOUND_EXACT
+                : TranspositionTable.BOUND_UPPER;
+        tt.store(key, bestMoveHere, scoreToTable(best, ply), depth, bound);
+        return best;
+    }
+
+    private int quiescence(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if ((++nodes & 1023) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return Evaluator.evaluate(position);
+        }
+
+        // Под шахом рассматриваем все ходы, иначе - только взятия
+        boolean inCheck = position.isInCheck();
+        int best = -INFINITY;
+        if (!inCheck) {
+            best = Evaluator.evaluate(position);
+            if (best >= beta) {
+                return best;
+            }
+            if (best > alpha) {
+                alpha = best;
+            }
+        }
+
+        int us = position.sideToMove();
+        int[] moves = moveBuffers[ply];
+        int[] scores = scoreBuffers[ply];
+        int count = position.generatePseudoLegalMoves(moves, !inCheck);
+        scoreMoves(moves, scores, count, Move.NONE, ply);
+
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(moves, scores, i, count);
+            position.makeMove(move);
+            if (position.isSquareAttacked(position.kingSquare(us), us ^ 1)) {
+                position.unmakeMove();
+                continue;
+            }
+            legal++;
+            int score = -quiescence(-beta, -alpha, ply + 1);
+            position.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (inCheck && legal == 0) {
+            return -MATE + ply;
+        }
+        return best;
+    }
+
+    private void updatePv(int ply, int move) {
+        pvTable[ply][ply] = move;
+        int childLength = pvLength[ply + 1];
+        for (int i = ply + 1; i < childLength; i++) {
+            pvTable[ply][i] = pvTable[ply + 1][i];
+        }
+        pvLength[ply] = Math.max(childLength, ply + 1);
+    }
+
+    private boolean hasPieces(int color) {
+        return (position.pieces(color, Position.KNIGHT) | position.pieces(color, Position.BISHOP)
+                | position.pieces(color, Position.ROOK) | position.pieces(color, Position.QUEEN)) != 0;
+    }
+
+    private boolean isQuiet(int move) {
+        return Move.promotion(move) == Move.PROMO_NONE && capturedType(move) < 0;
+    }
+
+    /**
+     * Тип взятой фигуры или -1 для тихого хода (учитывает взятие на проходе).
+     */
+    private int capturedType(int move) {
+        int target = position.pieceAt(Move.to(move));
+        if (target != Position.EMPTY) {
+            return Position.typeOf(target);
+        }
+        int piece = position.pieceAt(Move.from(move));
+        if (Position.typeOf(piece) == Position.PAWN && Move.to(move) == position.epSquare()) {
+            return Position.PAWN;
+        }
+        return -1;
+    }
+
+    private void scoreMoves(int[] moves, int[] scores, int count, int ttMove, int ply) {
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int victim = capturedType(move);
+            if (move == ttMove) {
+                scores[i] = 10_000_000;
+            } else if (victim >= 0) {
+                int attacker = Position.typeOf(position.pieceAt(Move.from(move)));
+                scores[i] = 1_000_000 + Evaluator.PIECE_VALUES[victim] * 10 - attacker;
+            } else if (Move.promotion(move) == Move.PROMO_QUEEN) {
+                scores[i] = 900_000;
+            } else if (move == killers[ply][0]) {
+                scores[i] = 800_000;
+            } else if (move == killers[ply][1]) {
+                scores[i] = 700_000;
+            } else {
+                scores[i] = history[position.pieceAt(Move.from(move))][Move.to(move)];
+            }
+        }
+    }
+
+    /**
+     * Выбирает ход с наибольшей оценкой среди оставшихся и ставит его на позицию index.
+     */
+    private static int pickNext(int[] moves, int[] scores, int index, int count) {
+        int bestIndex = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[bestIndex]) {
+                bestIndex = i;
+            }
+        }
+        int move = moves[bestIndex];
+        int score = scores[bestIndex];
+        moves[bestIndex] = moves[index];
+        scores[bestIndex] = scores[index];
+        moves[index] = move;
+        scores[index] = score;
+        return move;
+    }
+
+    private void recordQuietCutoff(int move, int depth, int ply) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int piece = position.pieceAt(Move.from(move));
+        history[piece][Move.to(move)] = Math.min(history[piece][Move.to(move)] + depth * depth, 500_000);
+    }
+
+    /**
+     * Переводит результат таблицы в оценку мата относительно корня.
+     */
+    private static int tablebaseScore(int code, int ply) {
+        if (TablebaseProber.isWin(code)) {
+            return MATE - ply - TablebaseProber.plies(code);
+        }
+        if (TablebaseProber.isLoss(code)) {
+            return -MATE + ply + TablebaseProber.plies(code);
+        }
+        return 0;
+    }
+
+    private static int scoreToTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score + ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score - ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    int bestScore() {
+        return bestScore;
+    }
+
+    int completedDepth() {
+        return completedDepth;
+    }
+
+    long nodes() {
+        return nodes;
+    }
+
+    long tablebaseHits() {
+        return tablebaseHits;
+    }
+
+    int[] principalVariation() {
+        return principalVariation.clone();
+    }
+}
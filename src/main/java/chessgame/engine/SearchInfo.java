@@ -0,0 +1,80 @@
+package chessgame.engine;
+
+import chessgame.logic.Move;
+
+/**
+ * Сведения о завершенной итерации поиска.
+ */
+public final class SearchInfo {
+
+    private final int depth;
+    private final int score;
+    private final int mateIn;
+    private final long nodes;
+    private final long timeMs;
+    private final int[] principalVariation;
+
+    public SearchInfo(int depth, int score, int mateIn, long nodes, long timeMs, int[] principalVariation) {
+        this.depth = depth;
+        this.score = score;
+        this.mateIn = mateIn;
+        this.nodes = nodes;
+        this.timeMs = timeMs;
+        this.principalVariation = principalVariation;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Оценка в сантипешках с точки зрения стороны, которая ходит.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Мат в N ходов: положительное число - ставит сторона, которая ходит,
+     * отрицательное - ставят ей, 0 - мат не найден.
+     */
+    public int getMateIn() {
+        return mateIn;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTimeMs() {
+        return timeMs;
+    }
+
+    /**
+     * Узлов в секунду.
+     */
+    public long getNps() {
+        return timeMs > 0 ? nodes * 1000 / timeMs : nodes;
+    }
+
+    /**
+     * Главный вариант (массив не копируется, изменять его нельзя).
+     */
+    public int[] getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    /**
+     * Главный вариант в нотации UCI через пробел.
+     */
+    public String getPrincipalVariationUci() {
+        StringBuilder sb = new StringBuilder();
+        for (int move : principalVariation) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(Move.toUci(move));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package chessgame.engine;
+
+/**
+ * Ограничения поиска: глубина, количество узлов и время.
+ * Нулевые узлы и время означают отсутствие ограничения.
+ */
+public final class SearchLimits {
+
+    /** Наибольшая поддерживаемая глубина. */
+    public static final int MAX_DEPTH = Search.MAX_PLY - 1;
+
+    private final int depth;
+    private final long nodes;
+    private final long timeMs;
+
+    /**
+     * @param depth  максимальная глубина итеративного углубления
+     * @param nodes  лимит узлов, 0 - без лимита
+     * @param timeMs лимит времени в миллисекундах, 0 - без лимита
+     */
+    public SearchLimits(int depth, long nodes, long timeMs) {
+        this.depth = Math.max(1, Math.min(depth, MAX_DEPTH));
+        this.nodes = Math.max(0, nodes);
+        this.timeMs = Math.max(0, timeMs);
+    }
+
+    /**
+     * Поиск только по времени.
+     */
+    public static SearchLimits time(long timeMs) {
+        return new SearchLimits(MAX_DEPTH, 0, timeMs);
+    }
+
+    /**
+     * Поиск без ограничений: идет до остановки извне.
+     */
+    public static SearchLimits infinite() {
+        return new SearchLimits(MAX_DEPTH, 0, 0);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTimeMs() {
+        return timeMs;
+    }
+
+    /**
+     * Нет ни одного ограничения, кроме предельной глубины.
+     */
+    public boolean isInfinite() {
+        return depth == MAX_DEPTH && nodes == 0 && timeMs == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("depth=%d nodes=%d time=%dms", depth, nodes, timeMs);
+    }
+}
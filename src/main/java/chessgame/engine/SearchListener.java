@@ -0,0 +1,10 @@
+package chessgame.engine;
+
+/**
+ * Получатель сведений о ходе поиска. Вызывается в потоке поиска после каждой итерации.
+ */
+@FunctionalInterface
+public interface SearchListener {
+
+    void onIteration(SearchInfo info);
+}
@@ -0,0 +1,100 @@
+package chessgame.engine;
+
+import java.util.Arrays;
+
+/**
+ * Таблица транспозиций на двух примитивных массивах.
+ * Запись упакована в один long: ход (16 бит), оценка (16 бит), глубина (8 бит), тип границы (2 бита).
+ * Ключ хранится отдельно в виде {@code key ^ data}: запись, которую одновременно
+ * переписывают несколько потоков поиска, просто не совпадет по ключу, поэтому таблицу
+ * можно разделять между потоками без блокировок.
+ */
+final class TranspositionTable {
+
+    static final int BOUND_NONE = 0;
+    static final int BOUND_EXACT = 1;
+    static final int BOUND_LOWER = 2;
+    static final int BOUND_UPPER = 3;
+
+    private static final int ENTRY_BYTES = 16;
+
+    private long[] keys;
+    private long[] data;
+    private int mask;
+
+    /**
+     * @param sizeMb размер таблицы в мегабайтах (округляется вниз до степени двойки записей)
+     */
+    TranspositionTable(int sizeMb) {
+        resize(sizeMb);
+    }
+
+    /**
+     * Меняет размер таблицы, содержимое теряется.
+     */
+    void resize(int sizeMb) {
+        long entries = Math.max(1L, (long) sizeMb) * 1024 * 1024 / ENTRY_BYTES;
+        int capacity = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        keys = new long[capacity];
+        data = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Заполненность в промилле по первой тысяче ячеек (для UCI hashfull).
+     */
+    int hashfull() {
+        int sample = Math.min(1000, data.length);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            if (data[i] != 0) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * Возвращает упакованную запись для ключа или 0, если записи нет.
+     */
+    long probe(long key) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        return (keys[index] ^ entry) == key ? entry : 0;
+    }
+
+    void store(long key, int move, int score, int depth, int bound) {
+        int index = (int) key & mask;
+        long old = data[index];
+        // Заменяем запись, если она о другой позиции или найдена на меньшей глубине
+        if ((keys[index] ^ old) != key || depth >= depth(old) || bound == BOUND_EXACT) {
+            long entry = (move & 0xFFFFL)
+                    | ((score & 0xFFFFL) << 16)
+                    | ((long) (depth & 0xFF) << 32)
+                    | ((long) bound << 40);
+            keys[index] = key ^ entry;
+            data[index] = entry;
+        }
+    }
+
+    static int move(long entry) {
+        return (int) (entry & 0xFFFF);
+    }
+
+    static int score(long entry) {
+        return (short) (entry >>> 16);
+    }
+
+    static int depth(long entry) {
+        return (int) ((entry >>> 32) & 0xFF);
+    }
+
+    static int bound(long entry) {
+        return (int) ((entry >>> 40) & 3);
+    }
+}
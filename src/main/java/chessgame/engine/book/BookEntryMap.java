@@ -0,0 +1,155 @@
+package chessgame.engine.book;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Хеш-таблица с открытой адресацией на примитивных массивах: (ключ позиции, ход) -> вес.
+ * Не создает объектов на запись; при заполнении содержимое сбрасывается на диск
+ * отсортированным прогоном ({@link #writeSortedRun}).
+ */
+final class BookEntryMap {
+
+    private final long[] keys;
+    private final int[] moves;
+    private final int[] weights;
+    private final int mask;
+    private final int maxSize;
+    private int size;
+
+    /**
+     * @param maxSize наибольшее количество записей до сброса на диск
+     */
+    BookEntryMap(int maxSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, maxSize) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.moves = new int[capacity];
+        this.weights = new int[capacity];
+        this.mask = capacity - 1;
+        this.maxSize = maxSize;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size >= maxSize;
+    }
+
+    /**
+     * Добавляет вес к записи (ход не может быть нулевым: ноль отмечает пустую ячейку).
+     */
+    void add(long key, int move, int weight) {
+        int index = (int) mix(key ^ ((long) move << 48)) & mask;
+        while (moves[index] != 0) {
+            if (keys[index] == key && moves[index] == move) {
+                weights[index] = (int) Math.min((long) weights[index] + weight, Integer.MAX_VALUE);
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        moves[index] = move;
+        weights[index] = weight;
+        size++;
+    }
+
+    /**
+     * Записывает содержимое, отсортированное по ключу (без знака) и ходу, и очищает таблицу.
+     */
+    void writeSortedRun(DataOutputStream out) throws IOException {
+        // Сдвигаем занятые ячейки в начало массивов
+        int count = 0;
+        for (int i = 0; i < moves.length; i++) {
+            if (moves[i] != 0) {
+                keys[count] = keys[i];
+                moves[count] = moves[i];
+                weights[count] = weights[i];
+                if (i != count) {
+                    moves[i] = 0;
+                }
+                count++;
+            }
+        }
+        sort(0, count - 1);
+        for (int i = 0; i < count; i++) {
+            out.writeLong(keys[i]);
+            out.writeShort(moves[i]);
+            out.writeInt(weights[i]);
+            moves[i] = 0;
+        }
+        size = 0;
+    }
+
+    private void sort(int low, int high) {
+        while (high - low > 16) {
+            int middle = (low + high) >>> 1;
+            // Медиана трех в качестве опорного элемента
+            if (compare(middle, low) < 0) {
+                swap(middle, low);
+            }
+            if (compare(high, low) < 0) {
+                swap(high, low);
+            }
+            if (compare(high, middle) < 0) {
+                swap(high, middle);
+            }
+            long pivotKey = keys[middle];
+            int pivotMove = moves[middle];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(i, pivotKey, pivotMove) < 0) {
+                    i++;
+                }
+                while (compare(j, pivotKey, pivotMove) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            // Рекурсия в меньшую часть, цикл - по большей
+            if (j - low < high - i) {
+                sort(low, j);
+                low = i;
+            } else {
+                sort(i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && compare(j, j - 1) < 0; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private int compare(int a, int b) {
+        return compare(a, keys[b], moves[b]);
+    }
+
+    private int compare(int a, long key, int move) {
+        int byKey = Long.compareUnsigned(keys[a], key);
+        return byKey != 0 ? byKey : Integer.compare(moves[a], move);
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int move = moves[a];
+        moves[a] = moves[b];
+        moves[b] = move;
+        int weight = weights[a];
+        weights[a] = weights[b];
+        weights[b] = weight;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+}
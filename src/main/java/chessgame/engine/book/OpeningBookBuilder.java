@@ -0,0 +1,288 @@
+package chessgame.engine.book;
+
+import chessgame.logic.Position;
+import chessgame.pgn.PgnRecord;
+import chessgame.pgn.PgnScanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Построение дебютной книги Polyglot из архива партий в PGN.
+ *
+ * <p>Партии читает {@link PgnScanner}; первые {@code maxPlies} полуходов каждой партии проигрываются на {@link Position};
+ * каждому ходу начисляется вес по результату для сделавшей его стороны
+ * (победа - 2, ничья или неизвестный результат - 1, поражение - 0).
+ * Ключи записей - стандартные ключи Polyglot ({@link PolyglotBook#key(Position)}), ходы и рокировки
+ * записываются в кодировке Polyglot, поэтому книгу читают {@link PolyglotBook} и другие программы.
+ * Записи копятся в {@link BookEntryMap}; при заполнении таблица сбрасывается на диск
+ * отсортированным прогоном, а в конце прогоны сливаются в итоговый файл.
+ * Так объем памяти не зависит от размера входных файлов.
+ */
+public final class OpeningBookBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpeningBookBuilder.class);
+
+    public static final int DEFAULT_PLIES = 20;
+    public static final int DEFAULT_MEMORY_ENTRIES = 1 << 22;
+
+    private static final int MAX_WEIGHT = 0xFFFF;
+    private static final int IO_BUFFER = 1 << 16;
+    private static final int PROGRESS_GAMES = 100_000;
+
+    private final int maxPlies;
+    private final int memoryEntries;
+
+    private long games;
+    private long skippedGames;
+    private long positions;
+
+    /**
+     * @param maxPlies      сколько первых полуходов партии попадает в книгу
+     * @param memoryEntries сколько записей держать в памяти до сброса прогона на диск
+     */
+    public OpeningBookBuilder(int maxPlies, int memoryEntries) {
+        this.maxPlies = maxPlies;
+        this.memoryEntries = memoryEntries;
+    }
+
+    /**
+     * Строит книгу из PGN-файлов.
+     *
+     * @throws IOException при ошибке чтения или записи
+     */
+    public void build(List<Path> pgnFiles, Path output) throws IOException {
+        long start = System.nanoTime();
+        Path parent = output.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path runDirectory = Files.createTempDirectory(parent, "book-runs");
+        List<Path> runs = new ArrayList<>();
+        try {
+            BookEntryMap entries = new BookEntryMap(memoryEntries);
+            Position position = new Position();
+            for (Path file : pgnFiles) {
+                logger.info("Чтение партий из {}", file);
+                try (Stream<PgnRecord> games = PgnScanner.games(file, false)) {
+                    for (PgnRecord game : (Iterable<PgnRecord>) games::iterator) {
+                        addGame(game, position, entries, runDirectory, runs);
+                    }
+                }
+            }
+            if (entries.size() > 0) {
+                spill(entries, runDirectory, runs);
+            }
+            long written = merge(runs, output);
+            logger.info("Книга {}: партий {}, пропущено {}, позиций {}, записей {}, прогонов {}, {} мс",
+                    output, games, skippedGames, positions, written, runs.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            Files.deleteIfExists(runDirectory);
+        }
+    }
+
+    private void addGame(PgnRecord game, Position position, BookEntryMap entries,
+                         Path runDirectory, List<Path> runs) throws IOException {
+        games++;
+        if (games % PROGRESS_GAMES == 0) {
+            logger.info("Обработано партий: {}, позиций: {}", games, positions);
+        }
+        if (!game.isValid() && game.getErrorPly() < maxPlies) {
+            logger.debug("Партия {}: нераспознанный полуход {}", games, game.getErrorPly() + 1);
+            skippedGames++;
+            return;
+        }
+        position.setFen(game.getStartFen());
+
+        int whiteWeight = resultWeight(game.getResult(), true);
+        int blackWeight = resultWeight(game.getResult(), false);
+        int[] moves = game.getMoves();
+        for (int ply = 0; ply < Math.min(maxPlies, moves.length); ply++) {
+            int move = moves[ply];
+            int weight = position.isWhiteToMove() ? whiteWeight : blackWeight;
+            if (weight > 0) {
+                entries.add(PolyglotBook.key(position), PolyglotBook.toPolyglot(position, move), weight);
+                positions++;
+                if (entries.isFull()) {
+                    spill(entries, runDirectory, runs);
+                }
+            }
+            position.makeMove(move);
+        }
+    }
+
+    private static int resultWeight(String result, boolean white) {
+        switch (result) {
+            case "1-0": return white ? 2 : 0;
+            case "0-1": return white ? 0 : 2;
+            default: return 1;
+        }
+    }
+
+    private static void spill(BookEntryMap entries, Path runDirectory, List<Path> runs) throws IOException {
+        Path run = runDirectory.resolve("run-" + runs.size() + ".tmp");
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER))) {
+            entries.writeSortedRun(out);
+        }
+        logger.debug("Записан прогон {}", run);
+    }
+
+    /**
+     * Сливает отсортированные прогоны в файл книги, суммируя веса одинаковых записей.
+     *
+     * @return количество записей в книге
+     */
+    private static long merge(List<Path> runs, Path output) throws IOException {
+        Path temp = output.resolveSibling(output.getFileName() + ".tmp");
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Comparator
+                .comparing((RunReader r) -> r.key, Long::compareUnsigned)
+                .thenComparingInt(r -> r.move));
+        long written = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), IO_BUFFER))) {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run);
+                if (reader.advance()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+
+            // Записи одной позиции копятся в группе, чтобы при необходимости
+            // пропорционально уменьшить веса до 16 бит
+            KeyGroup group = new KeyGroup();
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                long key = reader.key;
+                int move = reader.move;
+                long weight = reader.weight;
+                if (reader.advance()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+                while (!queue.isEmpty() && queue.peek().key == key && queue.peek().move == move) {
+                    RunReader same = queue.poll();
+                    weight += same.weight;
+                    if (same.advance()) {
+                        queue.add(same);
+                    } else {
+                        same.close();
+                    }
+                }
+                if (group.size > 0 && group.key != key) {
+                    written += group.write(out);
+                }
+                group.add(key, move, weight);
+            }
+            written += group.write(out);
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+        }
+        Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING);
+        return written;
+    }
+
+    /**
+     * Записи одной позиции перед записью в книгу.
+     */
+    private static final class KeyGroup {
+        private long key;
+        private int[] moves = new int[32];
+        private long[] weights = new long[32];
+        private int size;
+
+        void add(long key, int move, long weight) {
+            if (size == moves.length) {
+                moves = Arrays.copyOf(moves, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            this.key = key;
+            moves[size] = move;
+            weights[size] = weight;
+            size++;
+        }
+
+        int write(DataOutputStream out) throws IOException {
+            long max = 0;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, weights[i]);
+            }
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                long weight = max > MAX_WEIGHT ? Math.max(1, weights[i] * MAX_WEIGHT / max) : weights[i];
+                out.writeLong(key);
+                out.writeShort(moves[i]);
+                out.writeShort((int) weight);
+                out.writeInt(0);
+                count++;
+            }
+            size = 0;
+            return count;
+        }
+    }
+
+    /**
+     * Последовательное чтение одного прогона.
+     */
+    private static final class RunReader {
+        private final DataInputStream in;
+        private long key;
+        private int move;
+        private int weight;
+
+        RunReader(Path run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER));
+        }
+
+        boolean advance() throws IOException {
+            try {
+                key = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            move = in.readShort() & 0xFFFF;
+            weight = in.readInt();
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Точка входа: {@code OpeningBookBuilder <книга.bin> <полуходов> <файл.pgn>...}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Использование: OpeningBookBuilder <книга.bin> <полуходов> <файл.pgn>...");
+            System.exit(2);
+        }
+        List<Path> files = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            files.add(Paths.get(args[i]));
+        }
+        new OpeningBookBuilder(Integer.parseInt(args[1]), DEFAULT_MEMORY_ENTRIES).build(files, Paths.get(args[0]));
+    }
+}
@@ -0,0 +1,185 @@
+package chessgame.engine.book;
+
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+import chessgame.logic.Zobrist;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Дебютная книга в формате Polyglot ({@code .bin}).
+ *
+ * <p>Файл - отсортированные по ключу записи по 16 байт (big-endian): ключ позиции (8),
+ * ход (2), вес (2), поле обучения (4). Файл отображается в память, записи ищутся двоичным
+ * поиском; проба не выделяет память. Ключ позиции - {@link #key(Position)}, стандартный ключ
+ * Polyglot, поэтому читаются и книги других программ.
+ *
+ * <p>Экземпляр только читает данные и может использоваться из нескольких потоков.
+ */
+public final class PolyglotBook {
+
+    private static final Logger logger = LoggerFactory.getLogger(PolyglotBook.class);
+
+    /** Размер одной записи в байтах. */
+    public static final int ENTRY_BYTES = 16;
+
+    private final ByteBuffer entries;
+    private final int count;
+
+    private PolyglotBook(ByteBuffer entries) {
+        this.entries = entries;
+        this.count = entries.capacity() / ENTRY_BYTES;
+    }
+
+    /**
+     * Открывает книгу и отображает ее в память.
+     *
+     * @throws IOException если файл не читается или имеет неверный размер
+     */
+    public static PolyglotBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % ENTRY_BYTES != 0 || size > Integer.MAX_VALUE) {
+                throw new IOException("Неверный размер книги: " + file);
+            }
+            // Отображение остается действительным после закрытия канала
+            PolyglotBook book = new PolyglotBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            logger.info("Открыта дебютная книга {}: {} записей", file, book.count);
+            return book;
+        }
+    }
+
+    /**
+     * Количество записей в книге.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Выбирает ход из книги случайно, с вероятностью, пропорциональной весу.
+     *
+     * @return ход или {@link Move#NONE}, если позиции нет в книге
+     */
+    public int pickMove(Position position) {
+        long key = key(position);
+        int first = lowerBound(key);
+        long total = 0;
+        for (int i = first; i < count && keyAt(i) == key; i++) {
+            if (toMove(position, i) != Move.NONE) {
+                total += weightAt(i);
+            }
+        }
+        if (total == 0) {
+            return bestMove(position);
+        }
+        long target = ThreadLocalRandom.current().nextLong(total);
+        for (int i = first; i < count && keyAt(i) == key; i++) {
+            int move = toMove(position, i);
+            if (move == Move.NONE) {
+                continue;
+            }
+            target -= weightAt(i);
+            if (target < 0) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Ход с наибольшим весом.
+     *
+     * @return ход или {@link Move#NONE}, если позиции нет в книге
+     */
+    public int bestMove(Position position) {
+        long key = key(position);
+        int best = Move.NONE;
+        int bestWeight = -1;
+        for (int i = lowerBound(key); i < count && keyAt(i) == key; i++) {
+            int move = toMove(position, i);
+            if (move != Move.NONE && weightAt(i) > bestWeight) {
+                best = move;
+                bestWeight = weightAt(i);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Ключ позиции в книге: стандартный ключ Polyglot. Ключи {@link Zobrist} - таблица Random64 Polyglot,
+     * а взятие на проходе учитывается, только если есть пешка для взятия, как в Polyglot.
+     */
+    public static long key(Position position) {
+        return position.key();
+    }
+
+    /**
+     * Индекс первой записи с ключом не меньше заданного (ключи сравниваются без знака).
+     */
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(keyAt(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(int index) {
+        return entries.getLong(index * ENTRY_BYTES);
+    }
+
+    private int weightAt(int index) {
+        return entries.getShort(index * ENTRY_BYTES + 10) & 0xFFFF;
+    }
+
+    /**
+     * Ход записи во внутреннем представлении или {@link Move#NONE}, если он нелегален
+     * (например, при совпадении ключей разных позиций).
+     */
+    private int toMove(Position position, int index) {
+        int move = fromPolyglot(position, entries.getShort(index * ENTRY_BYTES + 8) & 0xFFFF);
+        return position.isLegal(move) ? move : Move.NONE;
+    }
+
+    /**
+     * Переводит ход Polyglot во внутреннее представление. Раскладка битов совпадает с {@link Move},
+     * отличается только рокировка: в Polyglot король "берет" свою ладью (e1h1), у нас - идет на g1.
+     */
+    public static int fromPolyglot(Position position, int polyglotMove) {
+        int from = Move.from(polyglotMove);
+        int to = Move.to(polyglotMove);
+        int piece = position.pieceAt(from);
+        if (piece != Position.EMPTY && Position.typeOf(piece) == Position.KING
+                && position.pieceAt(to) == Position.makePiece(Position.colorOf(piece), Position.ROOK)) {
+            return Move.encode(from, to > from ? from + 2 : from - 2);
+        }
+        return polyglotMove & 0x7FFF;
+    }
+
+    /**
+     * Переводит ход во внутреннем представлении в формат Polyglot (рокировка - ход короля на ладью).
+     */
+    public static int toPolyglot(Position position, int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = position.pieceAt(from);
+        if (piece != Position.EMPTY && Position.typeOf(piece) == Position.KING && Math.abs(to - from) == 2) {
+            return Move.encode(from, to > from ? from + 3 : from - 4);
+        }
+        return move;
+    }
+}
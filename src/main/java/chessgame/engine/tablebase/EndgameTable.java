@@ -0,0 +1,310 @@
+package chessgame.engine.tablebase;
+
+import chessgame.logic.Position;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Таблица одного соотношения материала: схема индексации и значения позиций.
+ *
+ * <p>Индекс: король сильнейшей стороны (с учетом симметрии), король слабейшей стороны
+ * и до двух остальных фигур по 6 бит на клетку; половины таблицы соответствуют очереди хода.
+ * Без пешек доска приводится к треугольнику a1-d1-d4 (10 полей для короля), с пешками -
+ * только отражением по вертикали (32 поля).
+ *
+ * <p>Значение - один байт: {@link #DRAW}, {@link #ILLEGAL} или число полуходов до мата плюс один.
+ * Нечетное число полуходов означает выигрыш стороны, которая ходит, четное - проигрыш.
+ *
+ * <p>Файл: заголовок из {@value #HEADER_BYTES} байт (сигнатура, версия, размер половины,
+ * наибольшее расстояние до мата, имя) и затем значения обеих половин подряд.
+ */
+final class EndgameTable {
+
+    static final int DRAW = 0;
+    static final int ILLEGAL = 255;
+    static final int MAX_CODE = 254;
+
+    static final String FILE_SUFFIX = ".cgtb";
+
+    private static final int MAGIC = 0x43475442; // "CGTB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int MAX_EXTRA_PIECES = 2;
+
+    private static final int[] PAWNLESS_KING_SQUARES = {0, 1, 2, 3, 9, 10, 11, 18, 19, 27};
+    private static final int[] PAWNLESS_KING_INDEX = new int[64];
+
+    static {
+        Arrays.fill(PAWNLESS_KING_INDEX, -1);
+        for (int i = 0; i < PAWNLESS_KING_SQUARES.length; i++) {
+            PAWNLESS_KING_INDEX[PAWNLESS_KING_SQUARES[i]] = i;
+        }
+    }
+
+    private final Material material;
+    private final boolean pawns;
+    private final int extraCount;
+    private final int[] slotColors;
+    private final int[] slotTypes;
+    private final boolean identicalSlots;
+    private final int sizePerSide;
+    private final ByteBuffer data;
+    private int maxPlies;
+
+    private EndgameTable(Material material, ByteBuffer data, int maxPlies) {
+        this.material = material;
+        this.pawns = material.hasPawns();
+        int[] white = material.whiteTypes();
+        int[] black = material.blackTypes();
+        this.extraCount = white.length + black.length;
+        if (extraCount > MAX_EXTRA_PIECES) {
+            throw new IllegalArgumentException("Поддерживаются таблицы не более чем из 4 фигур: " + material);
+        }
+        this.slotColors = new int[extraCount];
+        this.slotTypes = new int[extraCount];
+        for (int i = 0; i < white.length; i++) {
+            slotColors[i] = Position.WHITE;
+            slotTypes[i] = white[i];
+        }
+        for (int i = 0; i < black.length; i++) {
+            slotColors[white.length + i] = Position.BLACK;
+            slotTypes[white.length + i] = black[i];
+        }
+        this.identicalSlots = extraCount == 2 && slotColors[0] == slotColors[1] && slotTypes[0] == slotTypes[1];
+        int size = (pawns ? 32 : PAWNLESS_KING_SQUARES.length) * 64;
+        for (int i = 0; i < extraCount; i++) {
+            size *= 64;
+        }
+        this.sizePerSide = size;
+        this.data = data != null ? data : ByteBuffer.allocate(2 * size);
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * Пустая таблица в памяти для генератора.
+     */
+    static EndgameTable create(Material material) {
+        return new EndgameTable(material, null, 0);
+    }
+
+    Material material() {
+        return material;
+    }
+
+    int size() {
+        return 2 * sizePerSide;
+    }
+
+    int maxPlies() {
+        return maxPlies;
+    }
+
+    void setMaxPlies(int maxPlies) {
+        this.maxPlies = maxPlies;
+    }
+
+    int get(int index) {
+        return data.get(index) & 0xFF;
+    }
+
+    void set(int index, int code) {
+        data.put(index, (byte) code);
+    }
+
+    /**
+     * Индекс позиции в таблице.
+     *
+     * @param flip {@code true}, если сильнейшая сторона таблицы в позиции играет черными
+     */
+    int index(Position position, boolean flip) {
+        int colorXor = flip ? 1 : 0;
+        int first = -1;
+        int second = -1;
+        if (extraCount >= 1) {
+            long firstPieces = position.pieces(slotColors[0] ^ colorXor, slotTypes[0]);
+            first = Long.numberOfTrailingZeros(firstPieces);
+            if (extraCount == 2) {
+                long secondPieces = position.pieces(slotColors[1] ^ colorXor, slotTypes[1]);
+                if (identicalSlots) {
+                    secondPieces &= secondPieces - 1;
+                }
+                second = Long.numberOfTrailingZeros(secondPieces);
+            }
+        }
+        return index(position.kingSquare(Position.WHITE ^ colorXor), position.kingSquare(Position.BLACK ^ colorXor),
+                first, second, position.sideToMove() ^ colorXor, flip ? 56 : 0);
+    }
+
+    /**
+     * Индекс расстановки в порядке {@link #decode}: король белых, король черных, остальные фигуры
+     * (сильнейшая сторона - белые). Одинаковые фигуры могут идти в любом порядке.
+     */
+    int index(int[] squares, int sideToMove) {
+        return index(squares[0], squares[1], extraCount >= 1 ? squares[2] : -1,
+                extraCount == 2 ? squares[3] : -1, sideToMove, 0);
+    }
+
+    private int index(int strongKingSquare, int weakKingSquare, int first, int second, int side, int squareXor) {
+        int strongKing = strongKingSquare ^ squareXor;
+        if ((strongKing & 7) > 3) {
+            squareXor ^= 7;
+        }
+        boolean transpose = false;
+        int kingIndex;
+        if (pawns) {
+            int king = strongKing ^ (squareXor & 7);
+            kingIndex = (king >>> 3) * 4 + (king & 7);
+        } else {
+            if ((strongKing >>> 3) > 3) {
+                squareXor ^= 56;
+            }
+            int king = strongKingSquare ^ squareXor;
+            transpose = (king >>> 3) > (king & 7);
+            kingIndex = PAWNLESS_KING_INDEX[transpose ? transpose(king) : king];
+        }
+
+        int index = kingIndex * 64 + map(weakKingSquare, squareXor, transpose);
+        if (extraCount >= 1) {
+            int a = map(first, squareXor, transpose);
+            if (extraCount == 2) {
+                int b = map(second, squareXor, transpose);
+                // Одинаковые фигуры храним по возрастанию клеток
+                if (identicalSlots && a > b) {
+                    int t = a;
+                    a = b;
+                    b = t;
+                }
+                index = (index * 64 + a) * 64 + b;
+            } else {
+                index = index * 64 + a;
+            }
+        }
+        return side * sizePerSide + index;
+    }
+
+    private static int map(int square, int squareXor, boolean transpose) {
+        int sq = square ^ squareXor;
+        return transpose ? transpose(sq) : sq;
+    }
+
+    private static int transpose(int sq) {
+        return ((sq & 7) << 3) | (sq >>> 3);
+    }
+
+    /**
+     * Восстанавливает позицию по индексу (сильнейшая сторона - белые).
+     *
+     * @param squares    клетки: король белых, король черных, затем остальные фигуры
+     * @param pieceCodes коды фигур в том же порядке
+     * @return очередь хода или -1, если индекс не соответствует расстановке
+     *         (фигуры на одной клетке, пешка на крайней горизонтали)
+     */
+    int decode(int index, int[] squares, int[] pieceCodes) {
+        int side = index / sizePerSide;
+        int rest = index - side * sizePerSide;
+        for (int i = extraCount - 1; i >= 0; i--) {
+            squares[2 + i] = rest & 63;
+            pieceCodes[2 + i] = Position.makePiece(slotColors[i], slotTypes[i]);
+            rest >>>= 6;
+        }
+        squares[1] = rest & 63;
+        pieceCodes[1] = Position.makePiece(Position.BLACK, Position.KING);
+        int kingIndex = rest >>> 6;
+        squares[0] = pawns ? (kingIndex >>> 2) * 8 + (kingIndex & 3) : PAWNLESS_KING_SQUARES[kingIndex];
+        pieceCodes[0] = Position.makePiece(Position.WHITE, Position.KING);
+
+        long occupied = 0;
+        for (int i = 0; i < extraCount + 2; i++) {
+            long bit = 1L << squares[i];
+            if ((occupied & bit) != 0) {
+                return -1;
+            }
+            occupied |= bit;
+            int rank = squares[i] >>> 3;
+            if (Position.typeOf(pieceCodes[i]) == Position.PAWN && (rank == 0 || rank == 7)) {
+                return -1;
+            }
+        }
+        if (identicalSlots && squares[2] > squares[3]) {
+            return -1;
+        }
+        return side;
+    }
+
+    int pieceCount() {
+        return extraCount + 2;
+    }
+
+    /**
+     * Записывает таблицу во временный файл и переименовывает его, чтобы прерванная
+     * генерация не оставляла недописанных таблиц.
+     */
+    void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(material.name() + FILE_SUFFIX);
+        Path temp = directory.resolve(material.name() + FILE_SUFFIX + ".tmp");
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        byte[] name = material.name().getBytes(StandardCharsets.US_ASCII);
+        header.putInt(MAGIC).putInt(VERSION).putInt(sizePerSide).putInt(maxPlies);
+        header.put((byte) name.length).put(name);
+        header.clear();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            ByteBuffer body = data.duplicate();
+            body.clear();
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Открывает файл таблицы и отображает значения в память.
+     *
+     * @throws IOException если файл поврежден или не читается
+     */
+    static EndgameTable map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // читаем заголовок целиком
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Неверный формат таблицы: " + file);
+            }
+            int sizePerSide = header.getInt();
+            int maxPlies = header.getInt();
+            byte[] name = new byte[header.get()];
+            header.get(name);
+            Material material;
+            try {
+                material = Material.parse(new String(name, StandardCharsets.US_ASCII));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Неверное имя в заголовке таблицы: " + file, e);
+            }
+            if (channel.size() != HEADER_BYTES + 2L * sizePerSide) {
+                throw new IOException("Неверный размер таблицы: " + file);
+            }
+            // Отображение остается действительным после закрытия канала
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, 2L * sizePerSide);
+            EndgameTable table = new EndgameTable(material, data, maxPlies);
+            if (table.sizePerSide != sizePerSide) {
+                throw new IOException("Размер таблицы не соответствует материалу: " + file);
+            }
+            return table;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package chessgame.engine.tablebase;
+
+import chessgame.logic.Position;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Соотношение материала для одной таблицы, например {@code KQvKR}.
+ * Первой записывается сильнейшая сторона: в таблице она всегда играет белыми,
+ * позиции с обратными цветами приводятся к этому виду отражением доски.
+ */
+final class Material {
+
+    /** Порядок фигур в имени таблицы и в индексе: от ферзя к пешке. */
+    private static final int[] NAME_ORDER = {Position.QUEEN, Position.ROOK, Position.BISHOP, Position.KNIGHT, Position.PAWN};
+    private static final String TYPE_CHARS = "PNBRQK";
+    private static final int[] VALUES = {1, 3, 3, 5, 9};
+
+    private final String name;
+    private final int[] whiteTypes;
+    private final int[] blackTypes;
+    private final int key;
+
+    private Material(int[] whiteTypes, int[] blackTypes) {
+        this.whiteTypes = whiteTypes;
+        this.blackTypes = blackTypes;
+        this.name = "K" + typesToString(whiteTypes) + "vK" + typesToString(blackTypes);
+        int k = 0;
+        for (int type : whiteTypes) {
+            k += 1 << (3 * type);
+        }
+        for (int type : blackTypes) {
+            k += 1 << (15 + 3 * type);
+        }
+        this.key = k;
+    }
+
+    /**
+     * Разбирает имя вида {@code KRPvKR}.
+     *
+     * @throws IllegalArgumentException если имя некорректно
+     */
+    static Material parse(String name) {
+        int separator = name.indexOf('v');
+        if (separator < 1 || name.charAt(0) != 'K' || separator + 1 >= name.length() || name.charAt(separator + 1) != 'K') {
+            throw new IllegalArgumentException("Неверное имя таблицы: " + name);
+        }
+        return new Material(parseTypes(name.substring(1, separator), name),
+                parseTypes(name.substring(separator + 2), name));
+    }
+
+    private static int[] parseTypes(String text, String name) {
+        int[] types = new int[text.length()];
+        for (int i = 0; i < types.length; i++) {
+            int type = TYPE_CHARS.indexOf(text.charAt(i));
+            if (type < 0 || type == Position.KING) {
+                throw new IllegalArgumentException("Неверное имя таблицы: " + name);
+            }
+            types[i] = type;
+        }
+        return sortByNameOrder(types);
+    }
+
+    /**
+     * Перечисляет все соотношения материала не более чем из {@code maxPieces} фигур
+     * (включая королей) в порядке генерации: сначала меньше фигур, затем меньше пешек.
+     * Так каждая таблица строится после всех таблиц, в которые ведут взятия и превращения.
+     */
+    static List<Material> enumerate(int maxPieces) {
+        List<Material> result = new ArrayList<>();
+        int extra = maxPieces - 2;
+        if (extra >= 1) {
+            for (int a : NAME_ORDER) {
+                result.add(new Material(new int[] {a}, new int[0]));
+            }
+        }
+        if (extra >= 2) {
+            for (int i = 0; i < NAME_ORDER.length; i++) {
+                for (int j = i; j < NAME_ORDER.length; j++) {
+                    result.add(new Material(new int[] {NAME_ORDER[i], NAME_ORDER[j]}, new int[0]));
+                    result.add(canonical(new int[] {NAME_ORDER[i]}, new int[] {NAME_ORDER[j]}));
+                }
+            }
+        }
+        result.sort(Comparator.comparingInt(Material::pieceCount).thenComparingInt(Material::pawnCount));
+        return result;
+    }
+
+    /**
+     * Ставит сильнейшую сторону первой: по сумме стоимости, затем по самой сильной фигуре.
+     */
+    private static Material canonical(int[] first, int[] second) {
+        int difference = value(first) - value(second);
+        if (difference == 0) {
+            difference = compareStrength(first, second);
+        }
+        return difference >= 0 ? new Material(first, second) : new Material(second, first);
+    }
+
+    private static int compareStrength(int[] first, int[] second) {
+        for (int i = 0; i < Math.min(first.length, second.length); i++) {
+            if (first[i] != second[i]) {
+                return first[i] - second[i];
+            }
+        }
+        return first.length - second.length;
+    }
+
+    private static int value(int[] types) {
+        int sum = 0;
+        for (int type : types) {
+            sum += VALUES[type];
+        }
+        return sum;
+    }
+
+    private static int[] sortByNameOrder(int[] types) {
+        int[] sorted = types.clone();
+        // Небольшие массивы: сортировка вставками по убыванию типа (Q, R, B, N, P)
+        for (int i = 1; i < sorted.length; i++) {
+            int current = sorted[i];
+            int j = i - 1;
+            while (j >= 0 && sorted[j] < current) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = current;
+        }
+        return sorted;
+    }
+
+    private static String typesToString(int[] types) {
+        StringBuilder sb = new StringBuilder(types.length);
+        for (int type : types) {
+            sb.append(TYPE_CHARS.charAt(type));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Ключ материала позиции: по три бита на количество фигур каждого типа без королей,
+     * белые в младших 15 битах, черные - в следующих.
+     */
+    static int key(Position position) {
+        int k = 0;
+        for (int type = Position.PAWN; type <= Position.QUEEN; type++) {
+            k |= Long.bitCount(position.pieces(Position.WHITE, type)) << (3 * type);
+            k |= Long.bitCount(position.pieces(Position.BLACK, type)) << (15 + 3 * type);
+        }
+        return k;
+    }
+
+    /**
+     * Ключ того же материала с переставленными цветами.
+     */
+    static int flipKey(int key) {
+        return (key >>> 15) | ((key & 0x7FFF) << 15);
+    }
+
+    String name() {
+        return name;
+    }
+
+    int key() {
+        return key;
+    }
+
+    int[] whiteTypes() {
+        return whiteTypes.clone();
+    }
+
+    int[] blackTypes() {
+        return blackTypes.clone();
+    }
+
+    int pieceCount() {
+        return 2 + whiteTypes.length + blackTypes.length;
+    }
+
+    int pawnCount() {
+        int count = 0;
+        for (int type : whiteTypes) {
+            count += type == Position.PAWN ? 1 : 0;
+        }
+        for (int type : blackTypes) {
+            count += type == Position.PAWN ? 1 : 0;
+        }
+        return count;
+    }
+
+    boolean hasPawns() {
+        return pawnCount() > 0;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
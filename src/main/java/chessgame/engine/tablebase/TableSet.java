@@ -0,0 +1,129 @@
+package chessgame.engine.tablebase;
+
+import chessgame.logic.Position;
+
+import java.util.Arrays;
+
+/**
+ * Набор таблиц с поиском по ключу материала. Поиск не выделяет память,
+ * поэтому его можно вызывать из узлов поиска.
+ */
+final class TableSet {
+
+    /** Значение для позиций, которых нет в наборе. */
+    static final int NONE = -1;
+
+    private int[] keys = new int[0];
+    private EndgameTable[] tables = new EndgameTable[0];
+    private int maxPieces;
+
+    void add(EndgameTable table) {
+        int key = table.material().key();
+        int position = Arrays.binarySearch(keys, key);
+        if (position >= 0) {
+            tables[position] = table;
+        } else {
+            int insert = -position - 1;
+            int[] newKeys = new int[keys.length + 1];
+            EndgameTable[] newTables = new EndgameTable[tables.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insert);
+            System.arraycopy(tables, 0, newTables, 0, insert);
+            newKeys[insert] = key;
+            newTables[insert] = table;
+            System.arraycopy(keys, insert, newKeys, insert + 1, keys.length - insert);
+            System.arraycopy(tables, insert, newTables, insert + 1, tables.length - insert);
+            keys = newKeys;
+            tables = newTables;
+        }
+        maxPieces = Math.max(maxPieces, table.pieceCount());
+    }
+
+    int size() {
+        return tables.length;
+    }
+
+    int maxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * Наибольшее расстояние до мата среди всех таблиц набора.
+     */
+    int maxPlies() {
+        int max = 0;
+        for (EndgameTable table : tables) {
+            max = Math.max(max, table.maxPlies());
+        }
+        return max;
+    }
+
+    /**
+     * Значение позиции без учета права взятия на проходе.
+     *
+     * @return код значения или {@link #NONE}, если таблицы для материала нет
+     */
+    int lookup(Position position) {
+        int key = Material.key(position);
+        int found = Arrays.binarySearch(keys, key);
+        boolean flip = false;
+        if (found < 0) {
+            found = Arrays.binarySearch(keys, Material.flipKey(key));
+            flip = true;
+            if (found < 0) {
+                return NONE;
+            }
+        }
+        EndgameTable table = tables[found];
+        return table.get(table.index(position, flip));
+    }
+
+    /**
+     * Значение позиции с учетом взятия на проходе: такие позиции в таблицах не хранятся,
+     * поэтому значение выводится из ходов. Голые короли считаются ничьей.
+     *
+     * @return код значения; {@link EndgameTable#DRAW}, если результат еще не известен
+     */
+    int resolve(Position position) {
+        if (position.epSquare() < 0) {
+            int code = lookup(position);
+            return code == NONE ? EndgameTable.DRAW : code;
+        }
+        return resolveFromMoves(position, new int[Position.MAX_MOVES]);
+    }
+
+    /**
+     * Выводит значение позиции из значений позиций после каждого хода:
+     * выигрыш, если есть ход в проигранную для соперника позицию,
+     * проигрыш, если все ходы ведут к выигрышу соперника.
+     *
+     * @return код значения; {@link EndgameTable#DRAW}, если результат еще не известен
+     */
+    int resolveFromMoves(Position position, int[] moves) {
+        int count = position.generateLegalMoves(moves);
+        if (count == 0) {
+            return position.isInCheck() ? 1 : EndgameTable.DRAW;
+        }
+        int bestWin = Integer.MAX_VALUE;
+        int longestLoss = 0;
+        boolean allLost = true;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            int code = resolve(position);
+            position.unmakeMove();
+            if (code == EndgameTable.DRAW) {
+                allLost = false;
+                continue;
+            }
+            int plies = code - 1;
+            if ((plies & 1) == 0) {
+                bestWin = Math.min(bestWin, plies + 1);
+            } else {
+                longestLoss = Math.max(longestLoss, plies + 1);
+            }
+        }
+        if (bestWin != Integer.MAX_VALUE) {
+            return bestWin + 1;
+        }
+        return allLost ? longestLoss + 1 : EndgameTable.DRAW;
+    }
+}
@@ -0,0 +1,430 @@
+package chessgame.engine.tablebase;
+
+import chessgame.logic.Bitboards;
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Генератор таблиц эндшпиля с расстоянием до мата (DTM) для трех и четырех фигур.
+ *
+ * <p>Таблицы строятся по возрастанию числа фигур и пешек, поэтому взятия и превращения
+ * всегда ведут в уже готовые таблицы. Внутри таблицы значения находятся проходами:
+ * на проходе {@code n} помечаются позиции, выигранные или проигранные ровно за {@code n} полуходов.
+ * Проход проверяет не всю таблицу, а только предшественников позиций, получивших значение
+ * на предыдущем проходе (они находятся обратными ходами), и позиции со взятиями и превращениями,
+ * пока значения подтаблиц еще могут сказаться. Генерация заканчивается, когда проход не дал новых значений,
+ * а взятия и превращения уже не могут их дать.
+ * Каждый проход делится на отрезки индексов и выполняется пулом потоков.
+ * Правило 50 ходов не учитывается.
+ *
+ * <p>Уже существующие файлы таблиц не пересчитываются, так что прерванную генерацию можно продолжить.
+ */
+public final class TablebaseGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(TablebaseGenerator.class);
+
+    /** Каталог таблиц по умолчанию. */
+    public static final String DEFAULT_DIRECTORY = System.getProperty("user.home") + "/.chessgame/tablebases";
+
+    private static final int CHUNKS_PER_THREAD = 16;
+
+    private final Path directory;
+    private final int threads;
+
+    /**
+     * @param directory каталог для файлов таблиц
+     * @param threads   количество потоков генерации
+     */
+    public TablebaseGenerator(Path directory, int threads) {
+        this.directory = directory;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Строит все таблицы не более чем из {@code maxPieces} фигур (3 или 4).
+     *
+     * @throws IOException если таблицу не удалось записать или прочитать
+     */
+    public void generate(int maxPieces) throws IOException, InterruptedException {
+        if (maxPieces < 3 || maxPieces > 4) {
+            throw new IllegalArgumentException("Поддерживаются таблицы из 3 или 4 фигур: " + maxPieces);
+        }
+        TableSet tables = new TableSet();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Material material : Material.enumerate(maxPieces)) {
+                Path file = directory.resolve(material.name() + EndgameTable.FILE_SUFFIX);
+                if (Files.exists(file)) {
+                    tables.add(EndgameTable.map(file));
+                    logger.info("Таблица {} уже построена", material);
+                    continue;
+                }
+                EndgameTable table = EndgameTable.create(material);
+                build(table, tables, pool);
+                table.write(directory);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void build(EndgameTable table, TableSet tables, ExecutorService pool) throws InterruptedException {
+        long start = System.nanoTime();
+        int subtablePlies = tables.maxPlies();
+        // Таблица добавляется в набор заранее: ходы без взятий ведут в нее саму
+        tables.add(table);
+
+        int words = (table.size() + 63) >>> 6;
+        Pass pass = new Pass(table, tables, 0, new long[words], new long[words]);
+        long assigned = runPass(pass, pool);
+        long[] exits = pass.candidates;
+        // Позиции со взятиями и превращениями проверяются на каждом проходе, пока значения
+        // подтаблиц могут дать новое расстояние; без выигрышей в подтаблицах они не нужны
+        int exitPasses = pass.exitPlies.get() < 0 ? 0 : pass.exitPlies.get() + 2;
+        if (pass.doublePushes.get()) {
+            exitPasses = Math.max(exitPasses, subtablePlies + 2);
+        }
+        int maxPlies = 0;
+        int passes = 0;
+        for (int n = 1; assigned > 0 || n <= exitPasses; n++) {
+            if (n + 1 > EndgameTable.MAX_CODE) {
+                throw new IllegalStateException("Расстояние до мата не помещается в таблицу " + table.material());
+            }
+            long[] candidates = toArray(pass.next);
+            if (n <= exitPasses) {
+                for (int i = 0; i < candidates.length; i++) {
+                    candidates[i] |= exits[i];
+                }
+            }
+            pass = new Pass(table, tables, n, candidates, toArray(pass.nextWins));
+            assigned = runPass(pass, pool);
+            passes = n;
+            if (assigned > 0) {
+                maxPlies = n;
+            }
+        }
+        table.setMaxPlies(maxPlies);
+
+        long wins = 0;
+        long losses = 0;
+        long draws = 0;
+        for (int i = 0; i < table.size(); i++) {
+            int code = table.get(i);
+            if (code == EndgameTable.DRAW) {
+                draws++;
+            } else if (code != EndgameTable.ILLEGAL) {
+                if (((code - 1) & 1) == 1) {
+                    wins++;
+                } else {
+                    losses++;
+                }
+            }
+        }
+        logger.info("Таблица {}: выигрышей {}, проигрышей {}, ничьих {}, максимум {} полуходов до мата, {} проходов, {} мс",
+                table.material(), wins, losses, draws, maxPlies, passes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static long[] toArray(AtomicLongArray bits) {
+        long[] result = new long[bits.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bits.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Состояние одного прохода: позиции-кандидаты и отметки для следующего прохода.
+     * {@code wins} - позиции с ходом в проигранную на предыдущем проходе позицию: они выиграны
+     * ровно за номер прохода полуходов и получают значение без генерации ходов.
+     * Отрезки индексов выровнены по 64, поэтому каждое слово {@code candidates} пишет один поток.
+     */
+    private static final class Pass {
+        final EndgameTable table;
+        final TableSet tables;
+        final int number;
+        final long[] candidates;
+        final long[] wins;
+        final AtomicLongArray next;
+        final AtomicLongArray nextWins;
+        final AtomicInteger exitPlies = new AtomicInteger(-1);
+        final AtomicBoolean doublePushes = new AtomicBoolean();
+
+        Pass(EndgameTable table, TableSet tables, int number, long[] candidates, long[] wins) {
+            this.table = table;
+            this.tables = tables;
+            this.number = number;
+            this.candidates = candidates;
+            this.wins = wins;
+            this.next = new AtomicLongArray(candidates.length);
+            this.nextWins = new AtomicLongArray(candidates.length);
+        }
+    }
+
+    /**
+     * Выполняет один проход по отрезкам таблицы.
+     *
+     * @return количество позиций, получивших значение
+     */
+    private long runPass(Pass pass, ExecutorService pool) throws InterruptedException {
+        int size = pass.table.size();
+        int chunks = threads * CHUNKS_PER_THREAD;
+        int chunkSize = ((size + chunks - 1) / chunks + 63) & ~63;
+        List<Callable<Long>> tasks = new ArrayList<>(chunks);
+        for (int from = 0; from < size; from += chunkSize) {
+            int begin = from;
+            int end = Math.min(size, from + chunkSize);
+            tasks.add(() -> pass.number == 0 ? initialize(pass, begin, end) : resolve(pass, begin, end));
+        }
+        long assigned = 0;
+        for (Future<Long> future : pool.invokeAll(tasks)) {
+            try {
+                assigned += future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Ошибка генерации таблицы " + pass.table.material(), e.getCause());
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * Нулевой проход: отмечает невозможные позиции и маты, а в {@code candidates}
+     * записывает позиции, из которых взятие или превращение ведет к выигрышу одной из сторон
+     * в подтаблице, и позиции с ходом пешки через поле.
+     */
+    private static long initialize(Pass pass, int from, int to) {
+        EndgameTable table = pass.table;
+        Position position = new Position();
+        int[] squares = new int[4];
+        int[] pieceCodes = new int[4];
+        int[] transposed = new int[4];
+        int[] moves = new int[Position.MAX_MOVES];
+        long mates = 0;
+        for (int index = from; index < to; index++) {
+            int side = table.decode(index, squares, pieceCodes);
+            if (side < 0) {
+                table.set(index, EndgameTable.ILLEGAL);
+                continue;
+            }
+            position.setPieces(squares, pieceCodes, table.pieceCount(), side);
+            // Король стороны, которая не ходит, не может стоять под шахом
+            if (position.isSquareAttacked(position.kingSquare(side ^ 1), side)) {
+                table.set(index, EndgameTable.ILLEGAL);
+                continue;
+            }
+            boolean check = position.isInCheck();
+            if (!check && !mayLeaveTable(position, side)) {
+                continue;
+            }
+            int count = position.generateLegalMoves(moves);
+            if (count == 0) {
+                if (check) {
+                    table.set(index, 1);
+                    markPredecessors(pass, side, squares, pieceCodes, transposed, true);
+                    mates++;
+                }
+                continue;
+            }
+            if (isExit(pass, position, moves, count)) {
+                pass.candidates[index >>> 6] |= 1L << index;
+            }
+        }
+        return mates;
+    }
+
+    /**
+     * Быстрая проверка без генерации ходов: может ли быть взятие, превращение или ход пешки через поле.
+     */
+    private static boolean mayLeaveTable(Position position, int side) {
+        // С начальной горизонтали пешка ходит через поле, с предпоследней - превращается
+        if ((position.pieces(side, Position.PAWN) & (Bitboards.RANK_2 | Bitboards.RANK_7)) != 0) {
+            return true;
+        }
+        long enemies = position.colorOccupancy(side ^ 1) & ~position.pieces(side ^ 1, Position.KING);
+        for (; enemies != 0; enemies &= enemies - 1) {
+            if (position.isSquareAttacked(Long.numberOfTrailingZeros(enemies), side)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isExit(Pass pass, Position position, int[] moves, int count) {
+        boolean exit = false;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int moveFrom = Move.from(move);
+            int moveTo = Move.to(move);
+            if (Position.typeOf(position.pieceAt(moveFrom)) == Position.PAWN && Math.abs(moveTo - moveFrom) == 16) {
+                // После хода через поле значение выводится из ходов с учетом взятия на проходе
+                pass.doublePushes.set(true);
+                exit = true;
+                continue;
+            }
+            if (position.pieceAt(moveTo) == Position.EMPTY && Move.promotion(move) == Move.PROMO_NONE) {
+                continue;
+            }
+            position.makeMove(move);
+            int code = pass.tables.resolve(position);
+            position.unmakeMove();
+            if (code != EndgameTable.DRAW) {
+                pass.exitPlies.accumulateAndGet(code - 1, Math::max);
+                exit = true;
+            }
+        }
+        return exit;
+    }
+
+    /**
+     * Проход {@code n}: кандидаты без значения получают его, если оно выводится
+     * из значений после ходов и расстояние до мата не больше номера прохода.
+     * Позиции, отмеченные на этом же проходе, имеют расстояние ровно {@code n}
+     * и поэтому не влияют на соседей до следующего прохода.
+     */
+    private static long resolve(Pass pass, int from, int to) {
+        EndgameTable table = pass.table;
+        Position position = new Position();
+        int[] squares = new int[4];
+        int[] pieceCodes = new int[4];
+        int[] transposed = new int[4];
+        int[] moves = new int[Position.MAX_MOVES];
+        long assigned = 0;
+        for (int word = from >>> 6; word < (to + 63) >>> 6; word++) {
+            long wins = pass.wins[word];
+            for (long bits = pass.candidates[word] | wins; bits != 0; bits &= bits - 1) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                int index = (word << 6) + bit;
+                if (table.get(index) != EndgameTable.DRAW) {
+                    continue;
+                }
+                int side = table.decode(index, squares, pieceCodes);
+                int code;
+                if ((wins >>> bit & 1) != 0) {
+                    code = pass.number + 1;
+                } else {
+                    position.setPieces(squares, pieceCodes, table.pieceCount(), side);
+                    code = pass.tables.resolveFromMoves(position, moves);
+                    if (code == EndgameTable.DRAW || code - 1 > pass.number) {
+                        continue;
+                    }
+                }
+                table.set(index, code);
+                markPredecessors(pass, side, squares, pieceCodes, transposed, ((code - 1) & 1) == 0);
+                assigned++;
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * Отмечает для следующего прохода позиции без значения, из которых ход без взятия
+     * ведет в позицию с очередью хода {@code side}: фигуры стороны, сделавшей последний ход, отводятся назад.
+     * Если позиция проиграна ({@code lost}), предшественники выиграны; исключение - ход пешки через поле,
+     * после которого возможно взятие на проходе: такие предшественники проверяются ходами.
+     */
+    private static void markPredecessors(Pass pass, int side, int[] squares, int[] pieceCodes, int[] transposed,
+                                         boolean lost) {
+        EndgameTable table = pass.table;
+        int count = table.pieceCount();
+        int mover = side ^ 1;
+        long occupied = 0;
+        for (int i = 0; i < count; i++) {
+            occupied |= 1L << squares[i];
+        }
+        for (int i = 0; i < count; i++) {
+            if (Position.colorOf(pieceCodes[i]) != mover) {
+                continue;
+            }
+            int square = squares[i];
+            int type = Position.typeOf(pieceCodes[i]);
+            long origins = origins(type, mover, square, occupied) & ~occupied;
+            for (; origins != 0; origins &= origins - 1) {
+                squares[i] = Long.numberOfTrailingZeros(origins);
+                AtomicLongArray marks = lost && !(type == Position.PAWN && Math.abs(squares[i] - square) == 16)
+                        ? pass.nextWins : pass.next;
+                int index = table.index(squares, mover);
+                mark(pass, marks, index);
+                if (!table.material().hasPawns()) {
+                    // Позиции с королем на большой диагонали хранятся в двух отраженных вариантах
+                    transpose(squares, transposed, count);
+                    int twin = table.index(transposed, mover);
+                    if (twin != index) {
+                        mark(pass, marks, twin);
+                    }
+                }
+            }
+            squares[i] = square;
+        }
+    }
+
+    private static void mark(Pass pass, AtomicLongArray marks, int index) {
+        if (pass.table.get(index) == EndgameTable.DRAW) {
+            marks.getAndAccumulate(index >>> 6, 1L << index, (a, b) -> a | b);
+        }
+    }
+
+    private static void transpose(int[] squares, int[] result, int count) {
+        for (int i = 0; i < count; i++) {
+            result[i] = ((squares[i] & 7) << 3) | (squares[i] >>> 3);
+        }
+    }
+
+    /**
+     * Клетки, с которых фигура могла прийти на {@code square} ходом без взятия.
+     */
+    private static long origins(int type, int color, int square, long occupied) {
+        switch (type) {
+            case Position.PAWN: {
+                int step = color == Position.WHITE ? -8 : 8;
+                int back = square + step;
+                int backRank = back >>> 3;
+                if (backRank == 0 || backRank == 7 || (occupied & (1L << back)) != 0) {
+                    return 0;
+                }
+                long result = 1L << back;
+                int rank = square >>> 3;
+                if (rank == (color == Position.WHITE ? 3 : 4)) {
+                    result |= 1L << (back + step);
+                }
+                return result;
+            }
+            case Position.KNIGHT:
+                return Bitboards.KNIGHT_ATTACKS[square];
+            case Position.BISHOP:
+                return Bitboards.bishopAttacks(square, occupied);
+            case Position.ROOK:
+                return Bitboards.rookAttacks(square, occupied);
+            case Position.QUEEN:
+                return Bitboards.queenAttacks(square, occupied);
+            default:
+                return Bitboards.KING_ATTACKS[square];
+        }
+    }
+
+    /**
+     * Точка входа: {@code TablebaseGenerator [каталог] [потоки] [фигур]}.
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = Paths.get(args.length > 0 ? args[0] : DEFAULT_DIRECTORY);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int maxPieces = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        logger.info("Генерация таблиц до {} фигур в {} ({} потоков)", maxPieces, directory, threads);
+        new TablebaseGenerator(directory, threads).generate(maxPieces);
+    }
+}
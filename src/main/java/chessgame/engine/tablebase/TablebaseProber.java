@@ -0,0 +1,133 @@
+package chessgame.engine.tablebase;
+
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Чтение таблиц эндшпиля, построенных {@link TablebaseGenerator}.
+ * Файлы отображаются в память через {@link java.nio.channels.FileChannel}, так что проба -
+ * это вычисление индекса и чтение одного байта без выделения памяти.
+ * После открытия экземпляр только читает данные и может использоваться из нескольких потоков.
+ */
+public final class TablebaseProber {
+
+    private static final Logger logger = LoggerFactory.getLogger(TablebaseProber.class);
+
+    /** Результат пробы для позиции, которой нет в таблицах. */
+    public static final int NONE = TableSet.NONE;
+
+    private final TableSet tables;
+
+    private TablebaseProber(TableSet tables) {
+        this.tables = tables;
+    }
+
+    /**
+     * Открывает все таблицы из каталога. Отсутствующий каталог дает пустой набор.
+     *
+     * @throws IOException если файл таблицы поврежден
+     */
+    public static TablebaseProber open(Path directory) throws IOException {
+        TableSet tables = new TableSet();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EndgameTable.FILE_SUFFIX)) {
+                for (Path file : files) {
+                    tables.add(EndgameTable.map(file));
+                }
+            }
+        }
+        logger.info("Загружено таблиц эндшпиля: {} (до {} фигур)", tables.size(), tables.maxPieces());
+        return new TablebaseProber(tables);
+    }
+
+    /**
+     * Количество открытых таблиц.
+     */
+    public int tableCount() {
+        return tables.size();
+    }
+
+    /**
+     * Наибольшее число фигур (с королями) среди открытых таблиц, 0 - таблиц нет.
+     */
+    public int maxPieces() {
+        return tables.maxPieces();
+    }
+
+    /**
+     * Проба позиции. Позиции с правом рокировки или взятия на проходе не проверяются.
+     *
+     * @return код результата или {@link #NONE}
+     */
+    public int probe(Position position) {
+        if (Long.bitCount(position.occupancy()) > tables.maxPieces()
+                || position.castlingRights() != 0 || position.epSquare() >= 0) {
+            return NONE;
+        }
+        return tables.lookup(position);
+    }
+
+    /**
+     * Выбирает ход по таблицам: в выигранной позиции - кратчайший путь к мату,
+     * в проигранной - самое долгое сопротивление.
+     *
+     * @return ход или {@link Move#NONE}, если позиции нет в таблицах или она ничейная
+     */
+    public int bestMove(Position position) {
+        int code = probe(position);
+        if (code == NONE || code == EndgameTable.DRAW) {
+            return Move.NONE;
+        }
+        int[] moves = new int[Position.MAX_MOVES];
+        int count = position.generateLegalMoves(moves);
+        int bestMove = Move.NONE;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            int reply = tables.resolve(position);
+            position.unmakeMove();
+            // Чем меньше полуходов до мата сопернику, тем лучше; выигрыш соперника - наоборот
+            int rank;
+            if (reply == EndgameTable.DRAW) {
+                rank = 0;
+            } else if (isLoss(reply)) {
+                rank = 1000 - plies(reply);
+            } else {
+                rank = plies(reply) - 1000;
+            }
+            if (rank > bestRank) {
+                bestRank = rank;
+                bestMove = moves[i];
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Выигрывает ли сторона, которая ходит.
+     */
+    public static boolean isWin(int code) {
+        return code > 0 && code != EndgameTable.ILLEGAL && ((code - 1) & 1) == 1;
+    }
+
+    /**
+     * Проигрывает ли сторона, которая ходит.
+     */
+    public static boolean isLoss(int code) {
+        return code > 0 && code != EndgameTable.ILLEGAL && ((code - 1) & 1) == 0;
+    }
+
+    /**
+     * Количество полуходов до мата для выигранной или проигранной позиции.
+     */
+    public static int plies(int code) {
+        return code - 1;
+    }
+}
@@ -0,0 +1,131 @@
+package chessgame.epd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Позиция из EPD-файла: расстановка и операции {@code bm} (лучшие ходы),
+ * {@code am} (ходы, которых нужно избегать) и {@code id}.
+ */
+public final class EpdRecord {
+
+    private final String fen;
+    private final String id;
+    private final List<String> bestMoves;
+    private final List<String> avoidMoves;
+
+    public EpdRecord(String fen, String id, List<String> bestMoves, List<String> avoidMoves) {
+        this.fen = fen;
+        this.id = id;
+        this.bestMoves = Collections.unmodifiableList(bestMoves);
+        this.avoidMoves = Collections.unmodifiableList(avoidMoves);
+    }
+
+    /**
+     * Разбирает строку EPD: четыре поля расстановки и операции через ';'.
+     *
+     * @throws IllegalArgumentException если полей расстановки меньше четырех
+     */
+    public static EpdRecord parse(String line) {
+        String[] fields = line.trim().split("\\s+", 5);
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("Недостаточно полей в EPD: " + line);
+        }
+        String halfmove = "0";
+        String fullmove = "1";
+        String id = null;
+        List<String> bestMoves = new ArrayList<>();
+        List<String> avoidMoves = new ArrayList<>();
+
+        String operations = fields.length > 4 ? fields[4] : "";
+        for (String operation : splitOperations(operations)) {
+            String[] parts = operation.split("\\s+", 2);
+            String operands = parts.length > 1 ? parts[1] : "";
+            switch (parts[0]) {
+                case "bm": addMoves(operands, bestMoves); break;
+                case "am": addMoves(operands, avoidMoves); break;
+                case "id": id = unquote(operands); break;
+                case "hmvc": halfmove = operands; break;
+                case "fmvn": fullmove = operands; break;
+                default: break;
+            }
+        }
+        String fen = fields[0] + ' ' + fields[1] + ' ' + fields[2] + ' ' + fields[3] + ' ' + halfmove + ' ' + fullmove;
+        return new EpdRecord(fen, id, bestMoves, avoidMoves);
+    }
+
+    /**
+     * Делит операции по ';' вне кавычек.
+     */
+    private static List<String> splitOperations(String operations) {
+        List<String> result = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < operations.length(); i++) {
+            char c = operations.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            if (c == ';' && !quoted) {
+                addOperation(current, result);
+            } else {
+                current.append(c);
+            }
+        }
+        addOperation(current, result);
+        return result;
+    }
+
+    private static void addOperation(StringBuilder current, List<String> result) {
+        String operation = current.toString().trim();
+        if (!operation.isEmpty()) {
+            result.add(operation);
+        }
+        current.setLength(0);
+    }
+
+    private static void addMoves(String operands, List<String> moves) {
+        for (String move : operands.trim().split("\\s+")) {
+            if (!move.isEmpty()) {
+                moves.add(move);
+            }
+        }
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+
+    /**
+     * Позиция в FEN (счетчики ходов из {@code hmvc}/{@code fmvn} или "0 1").
+     */
+    public String getFen() {
+        return fen;
+    }
+
+    /**
+     * Идентификатор позиции или null.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Лучшие ходы в SAN (операция {@code bm}).
+     */
+    public List<String> getBestMoves() {
+        return bestMoves;
+    }
+
+    /**
+     * Ходы, которых нужно избегать, в SAN (операция {@code am}).
+     */
+    public List<String> getAvoidMoves() {
+        return avoidMoves;
+    }
+}
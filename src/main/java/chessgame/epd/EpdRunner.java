@@ -0,0 +1,350 @@
+package chessgame.epd;
+
+import chessgame.engine.BagaturEngine;
+import chessgame.engine.SearchLimits;
+import chessgame.logic.ChessGame;
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+import chessgame.logic.San;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Прогон тестового набора позиций EPD (WAC и подобных): движок ищет ход с фиксированным
+ * лимитом времени или узлов, ответ сравнивается с операциями {@code bm}/{@code am}.
+ *
+ * <p>Позиции раздаются рабочим потокам по одной; у каждого потока свой {@link BagaturEngine},
+ * поэтому таблицы транспозиций не разделяются и результаты не зависят от соседей.
+ * Время до решения - момент завершения итерации, начиная с которой движок
+ * больше не менял правильный ход.
+ */
+public final class EpdRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(EpdRunner.class);
+
+    public static final long DEFAULT_TIME_MS = 1000;
+
+    private final int workers;
+    private final SearchLimits limits;
+
+    /**
+     * @param workers количество рабочих потоков (и движков)
+     * @param limits  ограничения поиска для каждой позиции
+     */
+    public EpdRunner(int workers, SearchLimits limits) {
+        if (limits.isInfinite()) {
+            throw new IllegalArgumentException("Нужен лимит времени, узлов или глубины");
+        }
+        this.workers = Math.max(1, workers);
+        this.limits = limits;
+    }
+
+    /**
+     * Читает позиции из файла; пустые строки и строки с '#' в начале пропускаются.
+     */
+    public static List<EpdRecord> read(Path file) throws IOException {
+        List<EpdRecord> records = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.ISO_8859_1)) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                records.add(EpdRecord.parse(trimmed));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Прогоняет набор позиций.
+     */
+    public Report run(List<EpdRecord> records) {
+        Result[] results = new Result[records.size()];
+        AtomicInteger next = new AtomicInteger();
+        int threads = Math.min(workers, Math.max(1, records.size()));
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    BagaturEngine engine = new BagaturEngine(new ChessGame());
+                    engine.initialize();
+                    // Ход из книги не проверяет поиск
+                    engine.loadOpeningBook(null);
+                    try {
+                        int index;
+                        while ((index = next.getAndIncrement()) < records.size()) {
+                            results[index] = solve(engine, records.get(index), index);
+                        }
+                    } finally {
+                        engine.cleanup();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Прогон прерван", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка в рабочем потоке", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Report(Arrays.asList(results), (System.nanoTime() - start) / 1_000_000, threads);
+    }
+
+    private Result solve(BagaturEngine engine, EpdRecord record, int index) {
+        String id = record.getId() != null ? record.getId() : "#" + (index + 1);
+        Position position;
+        int[] best;
+        int[] avoid;
+        try {
+            position = Position.fromFen(record.getFen());
+            best = resolveMoves(position, record.getBestMoves());
+            avoid = resolveMoves(position, record.getAvoidMoves());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Позиция {} пропущена: {}", id, e.getMessage());
+            return Result.invalid(id, record, e.getMessage());
+        }
+        if (best.length == 0 && avoid.length == 0) {
+            return Result.invalid(id, record, "нет операций bm или am");
+        }
+
+        // Каждая позиция ищется с чистой таблицей, иначе результат зависит от порядка позиций
+        engine.clearHash();
+        long[] solvedSince = {-1};
+        long start = System.nanoTime();
+        int move = engine.search(position, limits, info -> {
+            int[] pv = info.getPrincipalVariation();
+            boolean correct = pv.length > 0 && isCorrect(pv[0], best, avoid);
+            if (!correct) {
+                solvedSince[0] = -1;
+            } else if (solvedSince[0] < 0) {
+                solvedSince[0] = info.getTimeMs();
+            }
+        });
+        long timeMs = (System.nanoTime() - start) / 1_000_000;
+        boolean solved = move != Move.NONE && isCorrect(move, best, avoid);
+        long solveTimeMs = solved ? Math.max(0, solvedSince[0]) : -1;
+        return new Result(id, record, Move.toUci(move), solved, solveTimeMs, engine.getNodes(), timeMs, null);
+    }
+
+    /**
+     * Переводит ходы из SAN (или UCI) в коды ходов позиции.
+     */
+    private static int[] resolveMoves(Position position, List<String> moves) {
+        int[] buffer = new int[Position.MAX_MOVES];
+        int[] result = new int[moves.size()];
+        for (int i = 0; i < moves.size(); i++) {
+            int move = San.parse(position, moves.get(i), buffer);
+            if (move == Move.NONE) {
+                int uci = Move.parseUci(moves.get(i));
+                move = uci != Move.NONE && position.isLegal(uci) ? uci : Move.NONE;
+            }
+            if (move == Move.NONE) {
+                throw new IllegalArgumentException("нераспознанный ход " + moves.get(i));
+            }
+            result[i] = move;
+        }
+        return result;
+    }
+
+    private static boolean isCorrect(int move, int[] best, int[] avoid) {
+        if (best.length > 0 && !contains(best, move)) {
+            return false;
+        }
+        return !contains(avoid, move);
+    }
+
+    private static boolean contains(int[] moves, int move) {
+        for (int m : moves) {
+            if (m == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Результат одной позиции.
+     */
+    public static final class Result {
+        private final String id;
+        private final EpdRecord record;
+        private final String move;
+        private final boolean solved;
+        private final long solveTimeMs;
+        private final long nodes;
+        private final long timeMs;
+        private final String error;
+
+        Result(String id, EpdRecord record, String move, boolean solved, long solveTimeMs,
+               long nodes, long timeMs, String error) {
+            this.id = id;
+            this.record = record;
+            this.move = move;
+            this.solved = solved;
+            this.solveTimeMs = solveTimeMs;
+            this.nodes = nodes;
+            this.timeMs = timeMs;
+            this.error = error;
+        }
+
+        static Result invalid(String id, EpdRecord record, String error) {
+            return new Result(id, record, null, false, -1, 0, 0, error);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public EpdRecord getRecord() {
+            return record;
+        }
+
+        /**
+         * Ход движка в нотации UCI или null, если позиция не разобрана.
+         */
+        public String getMove() {
+            return move;
+        }
+
+        public boolean isSolved() {
+            return solved;
+        }
+
+        /**
+         * Время до решения в миллисекундах или -1.
+         */
+        public long getSolveTimeMs() {
+            return solveTimeMs;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        public long getTimeMs() {
+            return timeMs;
+        }
+
+        /**
+         * Причина пропуска позиции или null.
+         */
+        public String getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Итог прогона.
+     */
+    public static final class Report {
+        private final List<Result> results;
+        private final long wallTimeMs;
+        private final int threads;
+
+        Report(List<Result> results, long wallTimeMs, int threads) {
+            this.results = results;
+            this.wallTimeMs = wallTimeMs;
+            this.threads = threads;
+        }
+
+        public List<Result> getResults() {
+            return results;
+        }
+
+        public long getSolved() {
+            return results.stream().filter(Result::isSolved).count();
+        }
+
+        public long getInvalid() {
+            return results.stream().filter(r -> r.getError() != null).count();
+        }
+
+        public long getNodes() {
+            return results.stream().mapToLong(Result::getNodes).sum();
+        }
+
+        /**
+         * Суммарная скорость всех потоков: узлы за время прогона по часам.
+         */
+        public long getAggregateNps() {
+            return wallTimeMs > 0 ? getNodes() * 1000 / wallTimeMs : 0;
+        }
+
+        public long getWallTimeMs() {
+            return wallTimeMs;
+        }
+
+        /**
+         * Печатает строку на позицию и сводку.
+         */
+        public void print(PrintStream out) {
+            for (Result r : results) {
+                if (r.getError() != null) {
+                    out.printf("%-12s  пропущена: %s%n", r.getId(), r.getError());
+                    continue;
+                }
+                String expected = r.getRecord().getBestMoves().isEmpty()
+                        ? "am " + String.join(" ", r.getRecord().getAvoidMoves())
+                        : "bm " + String.join(" ", r.getRecord().getBestMoves());
+                out.printf("%-12s  %s  %-6s %-16s %8s мс  %,12d узлов%n", r.getId(), r.isSolved() ? "+" : "-",
+                        r.getMove(), expected, r.isSolved() ? Long.toString(r.getSolveTimeMs()) : "-", r.getNodes());
+            }
+
+            long[] solveTimes = results.stream().filter(Result::isSolved).mapToLong(Result::getSolveTimeMs).sorted().toArray();
+            long searchTime = results.stream().mapToLong(Result::getTimeMs).sum();
+            int total = results.size();
+            out.println();
+            out.printf("Решено: %d из %d (%.1f%%), пропущено: %d%n",
+                    solveTimes.length, total, total > 0 ? 100.0 * solveTimes.length / total : 0.0, getInvalid());
+            if (solveTimes.length > 0) {
+                out.printf("Время до решения: среднее %d мс, медиана %d мс, максимум %d мс%n",
+                        Arrays.stream(solveTimes).sum() / solveTimes.length,
+                        solveTimes[(solveTimes.length - 1) / 2], solveTimes[solveTimes.length - 1]);
+            }
+            out.printf("Узлов: %,d, потоков: %d, время: %d мс, NPS суммарно: %,d, на поток: %,d%n",
+                    getNodes(), threads, wallTimeMs, getAggregateNps(),
+                    searchTime > 0 ? getNodes() * 1000 / searchTime : 0);
+        }
+    }
+
+    /**
+     * Точка входа: {@code EpdRunner <файл.epd> [время-мс | nodes=N] [потоков]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Использование: EpdRunner <файл.epd> [время-мс | nodes=N] [потоков]");
+            System.exit(2);
+        }
+        SearchLimits limits = SearchLimits.time(DEFAULT_TIME_MS);
+        if (args.length > 1) {
+            limits = args[1].startsWith("nodes=")
+                    ? new SearchLimits(SearchLimits.MAX_DEPTH, Long.parseLong(args[1].substring(6)), 0)
+                    : SearchLimits.time(Long.parseLong(args[1]));
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        List<EpdRecord> records = read(Paths.get(args[0]));
+        logger.info("Позиций: {}, лимит: {}, потоков: {}", records.size(), limits, threads);
+        new EpdRunner(threads, limits).run(records).print(System.out);
+    }
+}
@@ -0,0 +1,168 @@
+package chessgame.logic;
+
+/**
+ * Битовые доски и таблицы атак.
+ * Клетки нумеруются от a1 = 0 до h8 = 63 (a1, b1, ..., h1, a2, ...).
+ * Индекс массива {@link ChessGame} (a8 = 0) переводится сюда через {@code index ^ 56}.
+ */
+public final class Bitboards {
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_2 = RANK_1 << 8;
+    public static final long RANK_4 = RANK_1 << 24;
+    public static final long RANK_5 = RANK_1 << 32;
+    public static final long RANK_7 = RANK_1 << 48;
+    public static final long RANK_8 = RANK_1 << 56;
+    public static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+
+    /** Атаки коня с каждой клетки. */
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+
+    /** Атаки короля с каждой клетки. */
+    public static final long[] KING_ATTACKS = new long[64];
+
+    /** Атаки пешки: [0] - белые, [1] - черные. */
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    // Лучи в восьми направлениях: N, NE, E, SE, S, SW, W, NW
+    private static final int[] DIR_FILE = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] DIR_RANK = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final long[][] RAYS = new long[8][64];
+
+    // Клетки строго между двумя клетками на одной линии
+    private static final long[][] BETWEEN = new long[64][64];
+
+    static {
+        int[][] knightSteps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        for (int sq = 0; sq < 64; sq++) {
+            int file = sq & 7;
+            int rank = sq >>> 3;
+
+            for (int[] step : knightSteps) {
+                KNIGHT_ATTACKS[sq] |= bit(file + step[0], rank + step[1]);
+            }
+            for (int d = 0; d < 8; d++) {
+                KING_ATTACKS[sq] |= bit(file + DIR_FILE[d], rank + DIR_RANK[d]);
+
+                long ray = 0;
+                for (int f = file + DIR_FILE[d], r = rank + DIR_RANK[d];
+                     f >= 0 && f < 8 && r >= 0 && r < 8;
+                     f += DIR_FILE[d], r += DIR_RANK[d]) {
+                    ray |= 1L << (r * 8 + f);
+                }
+                RAYS[d][sq] = ray;
+            }
+            PAWN_ATTACKS[0][sq] = bit(file - 1, rank + 1) | bit(file + 1, rank + 1);
+            PAWN_ATTACKS[1][sq] = bit(file - 1, rank - 1) | bit(file + 1, rank - 1);
+        }
+
+        for (int from = 0; from < 64; from++) {
+            for (int d = 0; d < 8; d++) {
+                long ray = RAYS[d][from];
+                while (ray != 0) {
+                    int to = Long.numberOfTrailingZeros(ray);
+                    ray &= ray - 1;
+                    BETWEEN[from][to] = RAYS[d][from] & ~RAYS[d][to] & ~(1L << to);
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    private static long bit(int file, int rank) {
+        return file >= 0 && file < 8 && rank >= 0 && rank < 8 ? 1L << (rank * 8 + file) : 0L;
+    }
+
+    /**
+     * Атаки скользящей фигуры по одному лучу с учетом блокирующих фигур.
+     */
+    private static long rayAttacks(int dir, int sq, long occupied) {
+        long ray = RAYS[dir][sq];
+        long blockers = ray & occupied;
+        if (blockers == 0) {
+            return ray;
+        }
+        // Направления N, NE, E, NW растут по индексу клеток, остальные - убывают
+        int blocker = (dir <= 2 || dir == 7)
+                ? Long.numberOfTrailingZeros(blockers)
+                : 63 - Long.numberOfLeadingZeros(blockers);
+        return ray ^ RAYS[dir][blocker];
+    }
+
+    /**
+     * Атаки ладьи с клетки при заданной занятости доски.
+     */
+    public static long rookAttacks(int sq, long occupied) {
+        return rayAttacks(0, sq, occupied) | rayAttacks(2, sq, occupied)
+                | rayAttacks(4, sq, occupied) | rayAttacks(6, sq, occupied);
+    }
+
+    /**
+     * Атаки слона с клетки при заданной занятости доски.
+     */
+    public static long bishopAttacks(int sq, long occupied) {
+        return rayAttacks(1, sq, occupied) | rayAttacks(3, sq, occupied)
+                | rayAttacks(5, sq, occupied) | rayAttacks(7, sq, occupied);
+    }
+
+    /**
+     * Атаки ферзя с клетки при заданной занятости доски.
+     */
+    public static long queenAttacks(int sq, long occupied) {
+        return rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+    }
+
+    /**
+     * Клетки строго между двумя клетками одной линии (пусто, если линии нет).
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * Индекс младшего установленного бита.
+     */
+    public static int lsb(long bb) {
+        return Long.numberOfTrailingZeros(bb);
+    }
+
+    /**
+     * Чебышёвское расстояние между клетками (в ходах короля).
+     */
+    public static int distance(int a, int b) {
+        return Math.max(Math.abs((a & 7) - (b & 7)), Math.abs((a >>> 3) - (b >>> 3)));
+    }
+
+    /**
+     * Переводит индекс массива ChessGame (a8 = 0) в индекс битовой доски (a1 = 0).
+     */
+    public static int fromBoardIndex(int boardIndex) {
+        return boardIndex ^ 56;
+    }
+
+    /**
+     * Имя клетки в алгебраической нотации.
+     */
+    public static String squareName(int sq) {
+        return String.valueOf((char) ('a' + (sq & 7))) + (char) ('1' + (sq >>> 3));
+    }
+
+    /**
+     * Разбирает имя клетки ("e4"), возвращает -1 для некорректного ввода.
+     */
+    public static int parseSquare(CharSequence s) {
+        if (s == null || s.length() != 2) {
+            return -1;
+        }
+        int file = s.charAt(0) - 'a';
+        int rank = s.charAt(1) - '1';
+        if (file < 0 || file > 7 || rank < 0 || rank > 7) {
+            return -1;
+        }
+        return rank * 8 + file;
+    }
+}
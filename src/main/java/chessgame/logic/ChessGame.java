@@ -4,6 +4,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Основная логика шахматной игры.
@@ -16,8 +18,11 @@ public class ChessGame {
     // Текущее состояние доски (64 клетки)
     private String[] board = new String[64];
 
-    // История ходов для отмены
-    private Stack<MoveRecord> moveHistory = new Stack<>();
+    // История ходов и ключей позиций (для отмены, повторений и восстановления позиций)
+    private final GameHistory history = new GameHistory();
+
+    // Идет повтор ходов при восстановлении позиции: состояние партии пересчитывается один раз в конце
+    private boolean replaying;
 
     // Флаг, чей ход (true - белые, false - черные)
     private boolean whiteToMove = true;
@@ -37,12 +42,14 @@ public class ChessGame {
     // Счетчик полуходов без взятия или хода пешки
     private int halfMoveClock = 0;
 
-    // История позиций для проверки повторений
-    private List<String> positionHistory = new ArrayList<>();
-
     // Константы для шахматных фигур
     private static final String EMPTY = "empty";
 
+    // Свободные генераторы легальных ходов: берутся на время одной генерации и возвращаются.
+    // Генератор не привязан к потоку, поэтому тысячи виртуальных потоков сессий делят несколько экземпляров
+    private static final BlockingQueue<MoveGenerator> IDLE_GENERATORS =
+            new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
     /**
      * Конструктор шахматной игры.
      */
@@ -56,6 +63,7 @@ public class ChessGame {
     private void initializeBoard() {
         clearBoard();
         setupInitialPosition();
+        history.reset(positionKey());
     }
 
     /**
@@ -63,7 +71,6 @@ public class ChessGame {
      */
     private void clearBoard() {
         Arrays.fill(board, EMPTY);
-        moveHistory.clear();
         whiteToMove = true;
         gameStatus = "playing";
         whiteKingSideCastle = true;
@@ -72,7 +79,6 @@ public class ChessGame {
         blackQueenSideCastle = true;
         enPassantTarget = "-";
         halfMoveClock = 0;
-        positionHistory.clear();
     }
 
     /**
@@ -108,6 +114,7 @@ public class ChessGame {
 
     /**
      * Проверяет, является ли ход валидным.
+     * Для стороны, которая ходит, ответ берется из набора легальных ходов позиции.
      */
     public boolean isValidMove(String from, String to, boolean isWhiteMove) {
         if (!isValidSquare(from) || !isValidSquare(to)) {
@@ -116,7 +123,126 @@ public class ChessGame {
 
         int fromIndex = squareToIndex(from);
         int toIndex = squareToIndex(to);
+        if (isWhiteMove == whiteToMove) {
+            return (legalTargets(fromIndex) & 1L << toIndex) != 0;
+        }
+        return checkMove(fromIndex, toIndex, isWhiteMove);
+    }
+
+    /**
+     * Маска клеток назначения легальных ходов с клетки для стороны, которая ходит.
+     * Биты нумеруются от a1, как в {@link Bitboards}.
+     */
+    public long getLegalTargets(String square) {
+        int index = squareToIndex(square);
+        // Индекс доски переводится в нумерацию от a1 через index ^ 56, для всей маски это перестановка байтов
+        return index >= 0 ? Long.reverseBytes(legalTargets(index)) : 0;
+    }
+
+    /**
+     * Маска клеток назначения легальных ходов с клетки для стороны, которая ходит (индексы доски).
+     * Расстановка переносится в {@link Position} генератора из общего пула, и ходы генерируются
+     * на битовых досках; партия ничего не хранит между вызовами.
+     */
+    private long legalTargets(int fromIndex) {
+        MoveGenerator generator = borrowGenerator();
+        try {
+            if (loadPosition(generator)) {
+                int from = fromIndex ^ 56;
+                long targets = 0;
+                int count = generator.position.generateLegalMoves(generator.moves);
+                for (int i = 0; i < count; i++) {
+                    int move = generator.moves[i];
+                    if (Move.from(move) == from) {
+                        targets |= 1L << (Move.to(move) ^ 56);
+                    }
+                }
+                return targets;
+            }
+        } finally {
+            releaseGenerator(generator);
+        }
+        // Без двух королей Position ходы не генерирует - проверяем их по клеткам
+        long targets = 0;
+        if (board[fromIndex].charAt(0) == (whiteToMove ? 'w' : 'b')) {
+            for (int to = 0; to < 64; to++) {
+                if (checkMove(fromIndex, to, whiteToMove)) {
+                    targets |= 1L << to;
+                }
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Есть ли легальный ход у стороны, которая ходит.
+     */
+    private boolean sideToMoveHasLegalMove() {
+        MoveGenerator generator = borrowGenerator();
+        try {
+            if (loadPosition(generator)) {
+                return generator.position.hasLegalMove();
+            }
+        } finally {
+            releaseGenerator(generator);
+        }
+        for (int from = 0; from < 64; from++) {
+            if (legalTargets(from) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
 
+    private static MoveGenerator borrowGenerator() {
+        MoveGenerator generator = IDLE_GENERATORS.poll();
+        return generator != null ? generator : new MoveGenerator();
+    }
+
+    private static void releaseGenerator(MoveGenerator generator) {
+        // Лишний генератор при заполненной очереди просто отбрасывается
+        IDLE_GENERATORS.offer(generator);
+    }
+
+    /**
+     * Переносит текущую позицию в генератор.
+     *
+     * @return false, если у какой-то стороны не ровно один король
+     */
+    private boolean loadPosition(MoveGenerator generator) {
+        int count = 0;
+        int kings = 0;
+        for (int i = 0; i < 64; i++) {
+            String piece = board[i];
+            if (!piece.equals(EMPTY)) {
+                char type = piece.charAt(1);
+                boolean white = piece.charAt(0) == 'w';
+                if (type == 'k') {
+                    kings += white ? 1 : 16;
+                }
+                generator.squares[count] = i ^ 56;
+                generator.pieceCodes[count] = Position.pieceFromChar(white ? Character.toUpperCase(type) : type);
+                count++;
+            }
+        }
+        if (kings != 17) {
+            return false;
+        }
+        generator.position.setPieces(generator.squares, generator.pieceCodes, count,
+                whiteToMove ? Position.WHITE : Position.BLACK);
+        int castling = (whiteKingSideCastle ? Position.CASTLE_WHITE_KING : 0)
+                | (whiteQueenSideCastle ? Position.CASTLE_WHITE_QUEEN : 0)
+                | (blackKingSideCastle ? Position.CASTLE_BLACK_KING : 0)
+                | (blackQueenSideCastle ? Position.CASTLE_BLACK_QUEEN : 0);
+        generator.position.setCastlingAndEnPassant(castling,
+                "-".equals(enPassantTarget) ? -1 : Bitboards.parseSquare(enPassantTarget));
+        return true;
+    }
+
+    /**
+     * Полная проверка хода по правилам без использования набора легальных ходов.
+     */
+    private boolean checkMove(int fromIndex, int toIndex, boolean isWhiteMove) {
         String piece = board[fromIndex];
 
         // Проверяем, что на исходной клетке есть фигура
@@ -146,7 +272,7 @@ public class ChessGame {
         }
 
         // Проверяем, что ход не оставляет короля под шахом
-        return !wouldLeaveKingInCheck(from, to, isWhiteMove);
+        return !wouldLeaveKingInCheck(fromIndex, toIndex, isWhiteMove);
     }
 
     /**
@@ -249,10 +375,7 @@ public class ChessGame {
     /**
      * Проверяет, оставляет ли ход короля под шахом.
      */
-    private boolean wouldLeaveKingInCheck(String from, String to, boolean isWhiteMove) {
-        int fromIndex = squareToIndex(from);
-        int toIndex = squareToIndex(to);
-
+    private boolean wouldLeaveKingInCheck(int fromIndex, int toIndex, boolean isWhiteMove) {
         String piece = board[fromIndex];
         String capturedPiece = board[toIndex];
 
@@ -411,21 +534,24 @@ public class ChessGame {
     }
 
     /**
-     * Выполняет ход.
+     * Выполняет ход; пешка на последней горизонтали превращается в ферзя.
      */
     public void makeMove(String from, String to) {
+        makeMove(from, to, 'q');
+    }
+
+    /**
+     * Выполняет ход с превращением пешки в указанную фигуру.
+     *
+     * @param promotion фигура превращения: 'q', 'r', 'b' или 'n'
+     */
+    public void makeMove(String from, String to, char promotion) {
         int fromIndex = squareToIndex(from);
         int toIndex = squareToIndex(to);
 
         String piece = board[fromIndex];
         String capturedPiece = board[toIndex];
-
-        // Сохраняем ход в историю для возможной отмены
-        MoveRecord moveRecord = new MoveRecord(from, to, piece, capturedPiece, whiteToMove,
-                                               whiteKingSideCastle, whiteQueenSideCastle,
-                                               blackKingSideCastle, blackQueenSideCastle,
-                                               enPassantTarget);
-        moveHistory.push(moveRecord);
+        int promotionCode = Move.PROMO_NONE;
 
         // Обрабатываем взятие на проходе
         if (piece.substring(1).equals("p") && indexToSquare(toIndex).equals(enPassantTarget)) {
@@ -464,13 +590,16 @@ public class ChessGame {
         if (piece.substring(1).equals("p")) {
             int toRow = toIndex / 8;
             if ((whiteToMove && toRow == 0) || (!whiteToMove && toRow == 7)) {
-                // Превращаем в ферзя
-                board[toIndex] = (whiteToMove ? "w" : "b") + "q";
+                char promoted = "rbn".indexOf(promotion) >= 0 ? promotion : 'q';
+                // Строки фигур общие для всех партий, новая строка на доске не создается
+                board[toIndex] = ((whiteToMove ? "w" : "b") + promoted).intern();
+                promotionCode = "nbrq".indexOf(promoted) + 1;
             }
         }
 
-        // Обновляем права на рокировку
+        // Обновляем права на рокировку (в том числе при взятии ладьи в углу)
         updateCastlingRights(piece, fromIndex);
+        updateCastlingRightsOnCapture(toIndex);
 
         // Устанавливаем поле для взятия на проходе
         enPassantTarget = "-";
@@ -492,17 +621,16 @@ public class ChessGame {
             halfMoveClock++;
         }
 
-        // Добавляем позицию в историю
-        String currentFen = getCurrentPosition();
-        positionHistory.add(currentFen);
-
         // Переключаем ход
         whiteToMove = !whiteToMove;
 
-        // Обновляем состояние игры
-        updateGameStatus();
+        // Ход в 16 битах (клетки от a1) и ключ новой позиции
+        history.push(Move.encode(fromIndex ^ 56, toIndex ^ 56, promotionCode), positionKey());
 
-        logger.info("Ход выполнен: {} -> {} ({})", from, to, piece);
+        if (!replaying) {
+            updateGameStatus();
+            logger.debug("Ход выполнен: {} -> {} ({})", from, to, piece);
+        }
     }
 
     /**
@@ -540,79 +668,115 @@ public class ChessGame {
     }
 
     /**
-     * Отменяет последний ход.
+     * Снимает право на рокировку, если ход пришел на исходную клетку ладьи.
+     */
+    private void updateCastlingRightsOnCapture(int toIndex) {
+        switch (toIndex) {
+            case 63: whiteKingSideCastle = false; break; // h1
+            case 56: whiteQueenSideCastle = false; break; // a1
+            case 7: blackKingSideCastle = false; break; // h8
+            case 0: blackQueenSideCastle = false; break; // a8
+            default: break;
+        }
+    }
+
+    /**
+     * Отменяет последний ход: позиция восстанавливается повтором всех ходов, кроме последнего.
      */
     public boolean undoMove() {
-        if (moveHistory.isEmpty()) {
+        int count = history.size();
+        if (count == 0) {
             return false;
         }
+        int last = history.move(count - 1);
+        replay(history.moves(count - 1));
+        logger.info("Ход отменен: {} <- {}", Bitboards.squareName(Move.from(last)), Bitboards.squareName(Move.to(last)));
+        return true;
+    }
 
-        MoveRecord lastMove = moveHistory.pop();
-
-        // Восстанавливаем позицию
-        int fromIndex = squareToIndex(lastMove.getFrom());
-        int toIndex = squareToIndex(lastMove.getTo());
-        board[fromIndex] = lastMove.getPiece();
-        board[toIndex] = lastMove.getCapturedPiece();
+    /**
+     * Количество сделанных полуходов.
+     */
+    public int getMoveCount() {
+        return history.size();
+    }
 
-        // Обрабатываем отмену рокировки
-        String pieceType = lastMove.getPiece().substring(1);
-        if (pieceType.equals("k")) {
-            int fromCol = fromIndex % 8;
-            int toCol = toIndex % 8;
-            if (Math.abs(toCol - fromCol) == 2) {
-                // Отмена рокировки
-                int rookFrom, rookTo;
-                if (toCol == 6) { // Короткая
-                    rookFrom = fromIndex + 1; // f
-                    rookTo = fromIndex + 3; // h
-                } else { // Длинная
-                    rookFrom = fromIndex - 1; // d
-                    rookTo = fromIndex - 4; // a
-                }
-                board[rookTo] = board[rookFrom];
-                board[rookFrom] = EMPTY;
-            }
+    /**
+     * Ход партии в формате {@link Move} (клетки от a1).
+     *
+     * @param index номер полухода с нуля
+     */
+    public int getMove(int index) {
+        if (index < 0 || index >= history.size()) {
+            throw new IndexOutOfBoundsException("Нет полухода " + index);
         }
+        return history.move(index);
+    }
 
-        // Восстанавливаем права на рокировку
-        whiteKingSideCastle = lastMove.getWhiteKingSideCastle();
-        whiteQueenSideCastle = lastMove.getWhiteQueenSideCastle();
-        blackKingSideCastle = lastMove.getBlackKingSideCastle();
-        blackQueenSideCastle = lastMove.getBlackQueenSideCastle();
+    /**
+     * Позиция в FEN после заданного количества полуходов (0 - начальная).
+     * Восстанавливается повтором ходов в отдельной партии, текущая партия не меняется.
+     */
+    public String getPositionAt(int ply) {
+        return copyAt(ply).getCurrentPosition();
+    }
 
-        // Восстанавливаем поле для взятия на проходе
-        enPassantTarget = lastMove.getEnPassantTarget();
+    /**
+     * Отдельная партия с первыми {@code ply} полуходами этой партии, например для просмотра истории.
+     */
+    public ChessGame copyAt(int ply) {
+        if (ply < 0 || ply > history.size()) {
+            throw new IndexOutOfBoundsException("Нет позиции после полухода " + ply);
+        }
+        ChessGame copy = new ChessGame();
+        copy.replay(history.moves(ply));
+        return copy;
+    }
 
-        // Восстанавливаем очередность хода
-        whiteToMove = lastMove.isWhiteToMove();
+    /**
+     * Приблизительный объем памяти истории партии в байтах.
+     */
+    public long getHistoryFootprintBytes() {
+        return history.footprintBytes();
+    }
 
-        // Обновляем состояние игры
+    /**
+     * Ставит начальную позицию и повторяет ходы; состояние партии считается один раз в конце.
+     */
+    private void replay(int[] moves) {
+        initializeBoard();
+        replaying = true;
+        try {
+            for (int move : moves) {
+                int promotion = Move.promotion(move);
+                makeMove(Bitboards.squareName(Move.from(move)), Bitboards.squareName(Move.to(move)),
+                        promotion == Move.PROMO_NONE ? 'q' : "nbrq".charAt(promotion - 1));
+            }
+        } finally {
+            replaying = false;
+        }
         updateGameStatus();
-
-        logger.info("Ход отменен: {} <- {}", lastMove.getFrom(), lastMove.getTo());
-        return true;
     }
 
     /**
      * Обновляет состояние игры (шах, мат, ничья).
      */
     private void updateGameStatus() {
-        // Проверяем шах для игрока, который только что сделал ход
-        boolean isInCheck = isInCheck(!whiteToMove);
+        // Проверяем шах для игрока, который должен ходить
+        boolean isInCheck = isInCheck(whiteToMove);
 
         if (isInCheck) {
             gameStatus = "check";
 
             // Проверяем мат
-            if (!hasLegalMoves(!whiteToMove)) {
+            if (!hasLegalMoves(whiteToMove)) {
                 gameStatus = "checkmate";
             }
         } else {
             gameStatus = "playing";
 
             // Проверяем пат
-            if (!hasLegalMoves(!whiteToMove)) {
+            if (!hasLegalMoves(whiteToMove)) {
                 gameStatus = "stalemate";
             } else {
                 // Проверяем ничью по правилам
@@ -631,14 +795,34 @@ public class ChessGame {
      * Проверяет трехкратное повторение позиции.
      */
     private boolean isThreefoldRepetition() {
-        String currentFen = getCurrentPosition();
-        int count = 0;
-        for (String fen : positionHistory) {
-            if (fen.equals(currentFen)) {
-                count++;
+        return history.repetitions(halfMoveClock) >= 3;
+    }
+
+    /**
+     * Ключ Zobrist текущей позиции для сравнения повторений: расстановка, очередь хода,
+     * рокировки и поле взятия на проходе (счетчики ходов не входят).
+     */
+    private long positionKey() {
+        long key = 0;
+        for (int i = 0; i < 64; i++) {
+            String piece = board[i];
+            if (!piece.equals(EMPTY)) {
+                char type = piece.charAt(1);
+                int code = Position.pieceFromChar(piece.charAt(0) == 'w' ? Character.toUpperCase(type) : type);
+                key ^= Zobrist.PIECE_SQUARE[code][i ^ 56];
             }
         }
-        return count >= 3;
+        if (whiteKingSideCastle) key ^= Zobrist.CASTLING[0];
+        if (whiteQueenSideCastle) key ^= Zobrist.CASTLING[1];
+        if (blackKingSideCastle) key ^= Zobrist.CASTLING[2];
+        if (blackQueenSideCastle) key ^= Zobrist.CASTLING[3];
+        if (!"-".equals(enPassantTarget)) {
+            key ^= Zobrist.EN_PASSANT_FILE[enPassantTarget.charAt(0) - 'a'];
+        }
+        if (whiteToMove) {
+            key ^= Zobrist.WHITE_TO_MOVE;
+        }
+        return key;
     }
 
     /**
@@ -741,6 +925,12 @@ public class ChessGame {
             return canPawnAttackSquare(pieceIndex, targetIndex);
         }
 
+        // Король бьет только соседние клетки: рокировка не атака
+        // (и ее проверка снова вызывала бы поиск шаха - бесконечная рекурсия)
+        if (pieceType.equals("k")) {
+            return Math.abs(targetIndex / 8 - pieceIndex / 8) <= 1 && Math.abs(targetIndex % 8 - pieceIndex % 8) <= 1;
+        }
+
         // Проверяем базовую логику хода
         return isValidPieceMove(pieceIndex, targetIndex, pieceType);
     }
@@ -771,11 +961,14 @@ public class ChessGame {
      * Проверяет, есть ли легальные ходы для игрока.
      */
     public boolean hasLegalMoves(boolean isWhite) {
+        if (isWhite == whiteToMove) {
+            return sideToMoveHasLegalMove();
+        }
         for (int from = 0; from < 64; from++) {
             String piece = board[from];
             if (!piece.equals(EMPTY) && piece.charAt(0) == (isWhite ? 'w' : 'b')) {
                 for (int to = 0; to < 64; to++) {
-                    if (isValidMove(indexToSquare(from), indexToSquare(to), isWhite)) {
+                    if (checkMove(from, to, isWhite)) {
                         return true;
                     }
                 }
@@ -800,8 +993,14 @@ public class ChessGame {
             return moves;
         }
 
+        if (isWhite == whiteToMove) {
+            for (long targets = legalTargets(fromIndex); targets != 0; targets &= targets - 1) {
+                moves.add(indexToSquare(Long.numberOfTrailingZeros(targets)));
+            }
+            return moves;
+        }
         for (int to = 0; to < 64; to++) {
-            if (isValidMove(square, indexToSquare(to), isWhite)) {
+            if (checkMove(fromIndex, to, isWhite)) {
                 moves.add(indexToSquare(to));
             }
         }
@@ -822,8 +1021,8 @@ public class ChessGame {
     public String getCurrentPosition() {
         StringBuilder fen = new StringBuilder();
 
-        // Часть 1: Позиция фигур
-        for (int row = 7; row >= 0; row--) {
+        // Часть 1: Позиция фигур (строка 0 массива - 8-я горизонталь)
+        for (int row = 0; row < 8; row++) {
             int emptyCount = 0;
             for (int col = 0; col < 8; col++) {
                 String piece = board[row * 8 + col];
@@ -841,7 +1040,7 @@ public class ChessGame {
             if (emptyCount > 0) {
                 fen.append(emptyCount);
             }
-            if (row > 0) {
+            if (row < 7) {
                 fen.append('/');
             }
         }
@@ -863,7 +1062,7 @@ public class ChessGame {
 
         // Части 5 и 6: Ходы
         fen.append(halfMoveClock).append(" ");
-        fen.append((positionHistory.size() / 2) + 1);
+        fen.append((history.size() / 2) + 1);
 
         return fen.toString();
     }
@@ -936,45 +1135,12 @@ public class ChessGame {
     }
 
     /**
-     * Класс для записи истории ходов.
-     */
-    private static class MoveRecord {
-        private final String from;
-        private final String to;
-        private final String piece;
-        private final String capturedPiece;
-        private final boolean whiteToMove;
-        private final boolean whiteKingSideCastle;
-        private final boolean whiteQueenSideCastle;
-        private final boolean blackKingSideCastle;
-        private final boolean blackQueenSideCastle;
-        private final String enPassantTarget;
-
-        public MoveRecord(String from, String to, String piece, String capturedPiece, boolean whiteToMove,
-                         boolean whiteKingSideCastle, boolean whiteQueenSideCastle,
-                         boolean blackKingSideCastle, boolean blackQueenSideCastle,
-                         String enPassantTarget) {
-            this.from = from;
-            this.to = to;
-            this.piece = piece;
-            this.capturedPiece = capturedPiece;
-            this.whiteToMove = whiteToMove;
-            this.whiteKingSideCastle = whiteKingSideCastle;
-            this.whiteQueenSideCastle = whiteQueenSideCastle;
-            this.blackKingSideCastle = blackKingSideCastle;
-            this.blackQueenSideCastle = blackQueenSideCastle;
-            this.enPassantTarget = enPassantTarget;
-        }
-
-        public String getFrom() { return from; }
-        public String getTo() { return to; }
-        public String getPiece() { return piece; }
-        public String getCapturedPiece() { return capturedPiece; }
-        public boolean isWhiteToMove() { return whiteToMove; }
-        public boolean getWhiteKingSideCastle() { return whiteKingSideCastle; }
-        public boolean getWhiteQueenSideCastle() { return whiteQueenSideCastle; }
-        public boolean getBlackKingSideCastle() { return blackKingSideCastle; }
-        public boolean getBlackQueenSideCastle() { return blackQueenSideCastle; }
-        public String getEnPassantTarget() { return enPassantTarget; }
-    }
-}
\ No newline at end of file
+     * Переиспользуемая позиция для генерации ходов.
+     */
+    private static final class MoveGenerator {
+        private final Position position = new Position();
+        private final int[] moves = new int[Position.MAX_MOVES];
+        private final int[] squares = new int[64];
+        private final int[] pieceCodes = new int[64];
+    }
+}
@@ -0,0 +1,33 @@
+package chessgame.logic;
+
+/**
+ * Результат синтаксической проверки FEN ({@link FenValidator}).
+ */
+public enum FenError {
+
+    OK("нет ошибок"),
+    EMPTY("пустая строка"),
+    BAD_PIECE_CHARACTER("недопустимый символ в расстановке"),
+    RANK_TOO_LONG("на горизонтали больше 8 клеток"),
+    RANK_TOO_SHORT("на горизонтали меньше 8 клеток"),
+    WRONG_RANK_COUNT("количество горизонталей не равно 8"),
+    MISSING_SIDE_TO_MOVE("нет очереди хода"),
+    BAD_SIDE_TO_MOVE("очередь хода не 'w' и не 'b'"),
+    MISSING_CASTLING("нет прав рокировки"),
+    BAD_CASTLING("недопустимые права рокировки"),
+    MISSING_EN_PASSANT("нет поля взятия на проходе"),
+    BAD_EN_PASSANT("недопустимое поле взятия на проходе"),
+    BAD_HALFMOVE_CLOCK("недопустимый счетчик полуходов"),
+    BAD_FULLMOVE_NUMBER("недопустимый номер хода"),
+    TRAILING_CHARACTERS("лишние символы после FEN");
+
+    private final String description;
+
+    FenError(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
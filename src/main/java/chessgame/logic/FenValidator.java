@@ -0,0 +1,184 @@
+package chessgame.logic;
+
+/**
+ * Синтаксическая проверка FEN за один проход без выделения памяти и без логирования.
+ *
+ * <p>Строка читается посимвольно конечным автоматом: расстановка (8 горизонталей по 8 клеток),
+ * очередь хода, права рокировки (без повторов), поле взятия на проходе (горизонталь 6 при ходе белых,
+ * 3 при ходе черных) и необязательные счетчики ходов. Результат - код {@link FenError}.
+ * Легальность позиции (короли, шахи) здесь не проверяется.
+ */
+public final class FenValidator {
+
+    // Больше 9 цифр не помещается в int при разборе счетчиков
+    private static final int MAX_COUNTER_DIGITS = 9;
+
+    private FenValidator() {
+    }
+
+    /**
+     * Проверяет FEN.
+     */
+    public static FenError validate(CharSequence fen) {
+        return fen == null ? FenError.EMPTY : validate(fen, 0, fen.length());
+    }
+
+    /**
+     * Проверяет FEN в части последовательности {@code [from, to)}, например строку EPD до операций.
+     */
+    public static FenError validate(CharSequence fen, int from, int to) {
+        int i = skipSpaces(fen, from, to);
+        if (i == to) {
+            return FenError.EMPTY;
+        }
+
+        // Расстановка
+        int rank = 0;
+        int squares = 0;
+        for (; i < to; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (squares != 8) {
+                    return FenError.RANK_TOO_SHORT;
+                }
+                if (++rank == 8) {
+                    return FenError.WRONG_RANK_COUNT;
+                }
+                squares = 0;
+            } else if (c >= '1' && c <= '8') {
+                squares += c - '0';
+                if (squares > 8) {
+                    return FenError.RANK_TOO_LONG;
+                }
+            } else if (isPiece(c)) {
+                if (++squares > 8) {
+                    return FenError.RANK_TOO_LONG;
+                }
+            } else if (isSpace(c)) {
+                break;
+            } else {
+                return FenError.BAD_PIECE_CHARACTER;
+            }
+        }
+        if (rank != 7) {
+            return FenError.WRONG_RANK_COUNT;
+        }
+        if (squares != 8) {
+            return FenError.RANK_TOO_SHORT;
+        }
+
+        // Очередь хода
+        i = skipSpaces(fen, i, to);
+        if (i == to) {
+            return FenError.MISSING_SIDE_TO_MOVE;
+        }
+        char side = fen.charAt(i++);
+        if ((side != 'w' && side != 'b') || !atFieldEnd(fen, i, to)) {
+            return FenError.BAD_SIDE_TO_MOVE;
+        }
+
+        // Рокировки
+        i = skipSpaces(fen, i, to);
+        if (i == to) {
+            return FenError.MISSING_CASTLING;
+        }
+        if (fen.charAt(i) == '-') {
+            i++;
+        } else {
+            int seen = 0;
+            for (; i < to && !isSpace(fen.charAt(i)); i++) {
+                int right = castlingRight(fen.charAt(i));
+                if (right == 0 || (seen & right) != 0) {
+                    return FenError.BAD_CASTLING;
+                }
+                seen |= right;
+            }
+        }
+        if (!atFieldEnd(fen, i, to)) {
+            return FenError.BAD_CASTLING;
+        }
+
+        // Взятие на проходе
+        i = skipSpaces(fen, i, to);
+        if (i == to) {
+            return FenError.MISSING_EN_PASSANT;
+        }
+        if (fen.charAt(i) == '-') {
+            i++;
+        } else {
+            if (i + 1 >= to) {
+                return FenError.BAD_EN_PASSANT;
+            }
+            char file = fen.charAt(i);
+            char epRank = fen.charAt(i + 1);
+            if (file < 'a' || file > 'h' || epRank != (side == 'w' ? '6' : '3')) {
+                return FenError.BAD_EN_PASSANT;
+            }
+            i += 2;
+        }
+        if (!atFieldEnd(fen, i, to)) {
+            return FenError.BAD_EN_PASSANT;
+        }
+
+        // Необязательные счетчики
+        i = skipSpaces(fen, i, to);
+        if (i == to) {
+            return FenError.OK;
+        }
+        int end = skipDigits(fen, i, to);
+        if (end == i || end - i > MAX_COUNTER_DIGITS || !atFieldEnd(fen, end, to)) {
+            return FenError.BAD_HALFMOVE_CLOCK;
+        }
+        i = skipSpaces(fen, end, to);
+        if (i == to) {
+            return FenError.OK;
+        }
+        end = skipDigits(fen, i, to);
+        if (end == i || end - i > MAX_COUNTER_DIGITS || !atFieldEnd(fen, end, to)) {
+            return FenError.BAD_FULLMOVE_NUMBER;
+        }
+        return skipSpaces(fen, end, to) == to ? FenError.OK : FenError.TRAILING_CHARACTERS;
+    }
+
+    private static boolean isPiece(char c) {
+        switch (c) {
+            case 'P': case 'N': case 'B': case 'R': case 'Q': case 'K':
+            case 'p': case 'n': case 'b': case 'r': case 'q': case 'k':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static int castlingRight(char c) {
+        switch (c) {
+            case 'K': return Position.CASTLE_WHITE_KING;
+            case 'Q': return Position.CASTLE_WHITE_QUEEN;
+            case 'k': return Position.CASTLE_BLACK_KING;
+            case 'q': return Position.CASTLE_BLACK_QUEEN;
+            default: return 0;
+        }
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private static boolean atFieldEnd(CharSequence fen, int i, int to) {
+        return i == to || isSpace(fen.charAt(i));
+    }
+
+    private static int skipSpaces(CharSequence fen, int i, int to) {
+        while (i < to && isSpace(fen.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipDigits(CharSequence fen, int i, int to) {
+        while (i < to && fen.charAt(i) >= '0' && fen.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+}
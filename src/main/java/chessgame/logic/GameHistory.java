@@ -0,0 +1,82 @@
+package chessgame.logic;
+
+import java.util.Arrays;
+
+/**
+ * Компактная история партии: ходы по 16 бит (формат {@link Move}) и 64-битные ключи позиций
+ * в растущих примитивных массивах - около 10 байт на полуход.
+ * Состояние доски не хранится: любую позицию восстанавливает повтор ходов с начала.
+ */
+final class GameHistory {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private short[] moves = new short[INITIAL_CAPACITY];
+    // keys[0] - начальная позиция, keys[i] - позиция после i-го полухода
+    private long[] keys = new long[INITIAL_CAPACITY + 1];
+    private int size;
+
+    /**
+     * Очищает историю; ключ начальной позиции становится первой записью.
+     */
+    void reset(long startKey) {
+        size = 0;
+        keys[0] = startKey;
+    }
+
+    void push(int move, long key) {
+        if (size == moves.length) {
+            int capacity = moves.length + (moves.length >> 1);
+            moves = Arrays.copyOf(moves, capacity);
+            keys = Arrays.copyOf(keys, capacity + 1);
+        }
+        moves[size] = (short) move;
+        keys[++size] = key;
+    }
+
+    /**
+     * Количество полуходов.
+     */
+    int size() {
+        return size;
+    }
+
+    int move(int index) {
+        return moves[index] & 0xFFFF;
+    }
+
+    /**
+     * Копия ходов первых {@code count} полуходов.
+     */
+    int[] moves(int count) {
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = moves[i] & 0xFFFF;
+        }
+        return result;
+    }
+
+    /**
+     * Сколько раз текущая позиция встречалась за последние {@code plies} полуходов (включая текущую).
+     * Раньше последнего взятия или хода пешки повторений быть не может, поэтому окно - счетчик 50 ходов.
+     */
+    int repetitions(int plies) {
+        long current = keys[size];
+        int first = Math.max(0, size - plies);
+        int count = 0;
+        // Позиция повторяется только при той же очереди хода
+        for (int i = size; i >= first; i -= 2) {
+            if (keys[i] == current) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Приблизительный объем памяти истории в байтах (объект и два массива с заголовками).
+     */
+    long footprintBytes() {
+        return 24 + (16 + 2L * moves.length) + (16 + 8L * keys.length);
+    }
+}
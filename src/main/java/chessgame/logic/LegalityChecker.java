@@ -0,0 +1,189 @@
+package chessgame.logic;
+
+/**
+ * Проверка легальности позиции на битовых досках: по одному королю у каждой стороны,
+ * нет пешек на крайних горизонталях, правдоподобное количество фигур, король стороны,
+ * которая не ходит, не под шахом, права рокировки и поле взятия на проходе согласованы с расстановкой.
+ *
+ * <p>FEN разбирается прямо в двенадцать битовых досок без {@link Position} и исключений,
+ * атаки берутся из таблиц {@link Bitboards}, поэтому проверка подходит для массовой загрузки позиций.
+ * Результат - код {@link PositionError}.
+ */
+public final class LegalityChecker {
+
+    private static final int WHITE_KING = Position.makePiece(Position.WHITE, Position.KING);
+    private static final int BLACK_KING = Position.makePiece(Position.BLACK, Position.KING);
+    private static final int WHITE_ROOK = Position.makePiece(Position.WHITE, Position.ROOK);
+    private static final int BLACK_ROOK = Position.makePiece(Position.BLACK, Position.ROOK);
+
+    private static final int E1 = 4;
+    private static final int E8 = 60;
+
+    private LegalityChecker() {
+    }
+
+    /**
+     * Проверяет позицию, заданную FEN; синтаксис предварительно проверяется {@link FenValidator}.
+     */
+    public static PositionError check(CharSequence fen) {
+        if (FenValidator.validate(fen) != FenError.OK) {
+            return PositionError.INVALID_FEN;
+        }
+        long[] pieces = new long[12];
+        int i = 0;
+        while (fen.charAt(i) <= ' ') {
+            i++;
+        }
+        // FenValidator гарантирует, что за расстановкой идут очередь хода, рокировки и взятие на проходе
+        int square = 56;
+        for (; fen.charAt(i) > ' '; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                square -= 16;
+            } else if (c >= '1' && c <= '8') {
+                square += c - '0';
+            } else {
+                pieces[Position.pieceFromChar(c)] |= 1L << square++;
+            }
+        }
+        while (fen.charAt(i) <= ' ') {
+            i++;
+        }
+        int side = fen.charAt(i++) == 'w' ? Position.WHITE : Position.BLACK;
+        while (fen.charAt(i) <= ' ') {
+            i++;
+        }
+        int castling = 0;
+        for (; fen.charAt(i) > ' '; i++) {
+            switch (fen.charAt(i)) {
+                case 'K': castling |= Position.CASTLE_WHITE_KING; break;
+                case 'Q': castling |= Position.CASTLE_WHITE_QUEEN; break;
+                case 'k': castling |= Position.CASTLE_BLACK_KING; break;
+                case 'q': castling |= Position.CASTLE_BLACK_QUEEN; break;
+                default: break;
+            }
+        }
+        while (fen.charAt(i) <= ' ') {
+            i++;
+        }
+        int epSquare = fen.charAt(i) == '-' ? -1 : (fen.charAt(i + 1) - '1') * 8 + (fen.charAt(i) - 'a');
+        return check(pieces, side, castling, epSquare);
+    }
+
+    /**
+     * Проверяет уже разобранную позицию (например, принятую из FEN с нестрогими правилами).
+     */
+    public static PositionError check(Position position) {
+        long[] pieces = new long[12];
+        for (int piece = 0; piece < 12; piece++) {
+            pieces[piece] = position.pieces(piece);
+        }
+        return check(pieces, position.sideToMove(), position.castlingRights(), position.epSquare());
+    }
+
+    private static PositionError check(long[] pieces, int side, int castling, int epSquare) {
+        if (Long.bitCount(pieces[WHITE_KING]) != 1 || Long.bitCount(pieces[BLACK_KING]) != 1) {
+            return PositionError.WRONG_KING_COUNT;
+        }
+        long pawns = pieces[Position.PAWN] | pieces[6 + Position.PAWN];
+        if ((pawns & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0) {
+            return PositionError.PAWN_ON_BACK_RANK;
+        }
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            PositionError error = checkMaterial(pieces, color * 6);
+            if (error != PositionError.OK) {
+                return error;
+            }
+        }
+
+        long white = 0;
+        long black = 0;
+        for (int piece = 0; piece < 6; piece++) {
+            white |= pieces[piece];
+            black |= pieces[6 + piece];
+        }
+        long occupied = white | black;
+        int opponent = side ^ 1;
+        if (attackers(Long.numberOfTrailingZeros(pieces[opponent * 6 + Position.KING]), side, pieces, occupied) != 0) {
+            return PositionError.OPPONENT_IN_CHECK;
+        }
+        long checkers = attackers(Long.numberOfTrailingZeros(pieces[side * 6 + Position.KING]), opponent, pieces, occupied);
+        if (Long.bitCount(checkers) > 2) {
+            return PositionError.TOO_MANY_CHECKERS;
+        }
+
+        if (!castlingConsistent(pieces, castling)) {
+            return PositionError.BAD_CASTLING_RIGHTS;
+        }
+        if (epSquare >= 0 && !enPassantConsistent(pieces, occupied, side, epSquare)) {
+            return PositionError.BAD_EN_PASSANT;
+        }
+        return PositionError.OK;
+    }
+
+    /**
+     * Не больше 8 пешек и 16 фигур, а фигуры сверх начального набора покрываются недостающими пешками.
+     */
+    private static PositionError checkMaterial(long[] pieces, int offset) {
+        int pawns = Long.bitCount(pieces[offset + Position.PAWN]);
+        if (pawns > 8) {
+            return PositionError.TOO_MANY_PAWNS;
+        }
+        int total = 0;
+        for (int type = Position.PAWN; type <= Position.KING; type++) {
+            total += Long.bitCount(pieces[offset + type]);
+        }
+        if (total > 16) {
+            return PositionError.TOO_MANY_PIECES;
+        }
+        int promoted = Math.max(0, Long.bitCount(pieces[offset + Position.KNIGHT]) - 2)
+                + Math.max(0, Long.bitCount(pieces[offset + Position.BISHOP]) - 2)
+                + Math.max(0, Long.bitCount(pieces[offset + Position.ROOK]) - 2)
+                + Math.max(0, Long.bitCount(pieces[offset + Position.QUEEN]) - 1);
+        return promoted > 8 - pawns ? PositionError.TOO_MANY_PROMOTED_PIECES : PositionError.OK;
+    }
+
+    /**
+     * Фигуры указанного цвета, атакующие клетку.
+     */
+    private static long attackers(int sq, int byColor, long[] pieces, long occupied) {
+        int offset = byColor * 6;
+        long queens = pieces[offset + Position.QUEEN];
+        return (Bitboards.PAWN_ATTACKS[byColor ^ 1][sq] & pieces[offset + Position.PAWN])
+                | (Bitboards.KNIGHT_ATTACKS[sq] & pieces[offset + Position.KNIGHT])
+                | (Bitboards.KING_ATTACKS[sq] & pieces[offset + Position.KING])
+                | (Bitboards.bishopAttacks(sq, occupied) & (pieces[offset + Position.BISHOP] | queens))
+                | (Bitboards.rookAttacks(sq, occupied) & (pieces[offset + Position.ROOK] | queens));
+    }
+
+    /**
+     * Каждое право рокировки требует короля на исходной клетке и ладьи в соответствующем углу.
+     */
+    private static boolean castlingConsistent(long[] pieces, int castling) {
+        if ((castling & (Position.CASTLE_WHITE_KING | Position.CASTLE_WHITE_QUEEN)) != 0
+                && (pieces[WHITE_KING] & 1L << E1) == 0) {
+            return false;
+        }
+        if ((castling & (Position.CASTLE_BLACK_KING | Position.CASTLE_BLACK_QUEEN)) != 0
+                && (pieces[BLACK_KING] & 1L << E8) == 0) {
+            return false;
+        }
+        return ((castling & Position.CASTLE_WHITE_KING) == 0 || (pieces[WHITE_ROOK] & 1L << 7) != 0)
+                && ((castling & Position.CASTLE_WHITE_QUEEN) == 0 || (pieces[WHITE_ROOK] & 1L) != 0)
+                && ((castling & Position.CASTLE_BLACK_KING) == 0 || (pieces[BLACK_ROOK] & 1L << 63) != 0)
+                && ((castling & Position.CASTLE_BLACK_QUEEN) == 0 || (pieces[BLACK_ROOK] & 1L << 56) != 0);
+    }
+
+    /**
+     * Поле взятия на проходе возможно только сразу после хода пешки на два поля: оно на третьей
+     * (шестой) горизонтали, за ним стоит пешка соперника, а оно само и исходная клетка пешки пусты.
+     */
+    private static boolean enPassantConsistent(long[] pieces, long occupied, int side, int epSquare) {
+        int rank = epSquare >>> 3;
+        int pushed = side == Position.WHITE ? epSquare - 8 : epSquare + 8;
+        int origin = side == Position.WHITE ? epSquare + 8 : epSquare - 8;
+        return rank == (side == Position.WHITE ? 5 : 2)
+                && (pieces[(side ^ 1) * 6 + Position.PAWN] & 1L << pushed) != 0
+                && (occupied & (1L << epSquare | 1L << origin)) == 0;
+    }
+}
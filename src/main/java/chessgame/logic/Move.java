@@ -0,0 +1,81 @@
+package chessgame.logic;
+
+/**
+ * Упаковка хода в 16 бит.
+ * Раскладка совпадает с форматом Polyglot: биты 0-5 - клетка назначения,
+ * 6-11 - исходная клетка, 12-14 - фигура превращения (1 конь, 2 слон, 3 ладья, 4 ферзь;
+ * совпадает с типом фигуры в {@link Position}).
+ * Рокировка кодируется ходом короля на две клетки (e1g1).
+ */
+public final class Move {
+
+    /** Отсутствие хода. */
+    public static final int NONE = 0;
+
+    public static final int PROMO_NONE = 0;
+    public static final int PROMO_KNIGHT = 1;
+    public static final int PROMO_BISHOP = 2;
+    public static final int PROMO_ROOK = 3;
+    public static final int PROMO_QUEEN = 4;
+
+    private static final String PROMO_CHARS = " nbrq";
+
+    private Move() {
+    }
+
+    public static int encode(int from, int to) {
+        return to | (from << 6);
+    }
+
+    public static int encode(int from, int to, int promotion) {
+        return to | (from << 6) | (promotion << 12);
+    }
+
+    public static int from(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int to(int move) {
+        return move & 63;
+    }
+
+    public static int promotion(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    /**
+     * Ход в нотации UCI ("e2e4", "e7e8q").
+     */
+    public static String toUci(int move) {
+        if (move == NONE) {
+            return "0000";
+        }
+        String s = Bitboards.squareName(from(move)) + Bitboards.squareName(to(move));
+        int promo = promotion(move);
+        return promo == PROMO_NONE ? s : s + PROMO_CHARS.charAt(promo);
+    }
+
+    /**
+     * Разбирает ход в нотации UCI без проверки легальности.
+     *
+     * @return код хода или {@link #NONE} для некорректной строки
+     */
+    public static int parseUci(CharSequence uci) {
+        if (uci == null || uci.length() < 4 || uci.length() > 5) {
+            return NONE;
+        }
+        int from = Bitboards.parseSquare(uci.subSequence(0, 2));
+        int to = Bitboards.parseSquare(uci.subSequence(2, 4));
+        if (from < 0 || to < 0) {
+            return NONE;
+        }
+        int promo = PROMO_NONE;
+        if (uci.length() == 5) {
+            promo = PROMO_CHARS.indexOf(Character.toLowerCase(uci.charAt(4)));
+            if (promo <= 0) {
+                return NONE;
+            }
+        }
+        return encode(from, to, promo);
+    }
+}
@@ -0,0 +1,846 @@
+package chessgame.logic;
+
+import java.util.Arrays;
+
+/**
+ * Позиция на битовых досках для быстрой генерации ходов.
+ * В отличие от {@link ChessGame}, хранит фигуры целочисленными кодами и поддерживает
+ * выполнение/отмену ходов без выделения памяти, что нужно поиску и пакетной обработке.
+ * Клетки нумеруются от a1 = 0 до h8 = 63, ходы кодируются через {@link Move}.
+ */
+public final class Position {
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    /** Код пустой клетки; коды фигур: {@code цвет * 6 + тип}. */
+    public static final int EMPTY = -1;
+
+    public static final int CASTLE_WHITE_KING = 1;
+    public static final int CASTLE_WHITE_QUEEN = 2;
+    public static final int CASTLE_BLACK_KING = 4;
+    public static final int CASTLE_BLACK_QUEEN = 8;
+
+    /** Максимальное число ходов в одной позиции с запасом. */
+    public static final int MAX_MOVES = 256;
+
+    private static final String PIECE_CHARS = "PNBRQKpnbrqk";
+
+    // Права на рокировку, сохраняющиеся после хода с/на клетку
+    private static final int[] CASTLING_MASK = new int[64];
+    private static final long[] CASTLING_KEYS = new long[16];
+
+    static {
+        Arrays.fill(CASTLING_MASK, 15);
+        CASTLING_MASK[0] &= ~CASTLE_WHITE_QUEEN;
+        CASTLING_MASK[4] &= ~(CASTLE_WHITE_KING | CASTLE_WHITE_QUEEN);
+        CASTLING_MASK[7] &= ~CASTLE_WHITE_KING;
+        CASTLING_MASK[56] &= ~CASTLE_BLACK_QUEEN;
+        CASTLING_MASK[60] &= ~(CASTLE_BLACK_KING | CASTLE_BLACK_QUEEN);
+        CASTLING_MASK[63] &= ~CASTLE_BLACK_KING;
+
+        for (int rights = 0; rights < 16; rights++) {
+            for (int i = 0; i < 4; i++) {
+                if ((rights & (1 << i)) != 0) {
+                    CASTLING_KEYS[rights] ^= Zobrist.CASTLING[i];
+                }
+            }
+        }
+    }
+
+    private final long[] pieces = new long[12];
+    private final long[] colors = new long[2];
+    private final int[] board = new int[64];
+
+    private int side;
+    private int castling;
+    private int epSquare = -1;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    private long key;
+
+    // Стек отмены ходов
+    private int ply;
+    private long[] keyHistory = new long[64];
+    private int[] moveHistory = new int[64];
+    private int[] capturedHistory = new int[64];
+    private int[] castlingHistory = new int[64];
+    private int[] epHistory = new int[64];
+    private int[] halfmoveHistory = new int[64];
+
+    // Буфер для проверки легальности без выделения памяти
+    private final int[] scratch = new int[MAX_MOVES];
+
+    /**
+     * Создает начальную позицию.
+     */
+    public Position() {
+        setFen(START_FEN);
+    }
+
+    /**
+     * Создает позицию из FEN.
+     *
+     * @throws IllegalArgumentException если FEN некорректен
+     */
+    public static Position fromFen(String fen) {
+        Position position = new Position();
+        position.setFen(fen);
+        return position;
+    }
+
+    /**
+     * Копирует позицию без истории ходов.
+     */
+    public Position copy() {
+        Position copy = new Position();
+        System.arraycopy(pieces, 0, copy.pieces, 0, 12);
+        System.arraycopy(colors, 0, copy.colors, 0, 2);
+        System.arraycopy(board, 0, copy.board, 0, 64);
+        copy.side = side;
+        copy.castling = castling;
+        copy.epSquare = epSquare;
+        copy.halfmoveClock = halfmoveClock;
+        copy.fullmoveNumber = fullmoveNumber;
+        copy.key = key;
+        return copy;
+    }
+
+    /**
+     * Копия позиции без истории ходов, преобразованная симметрией {@link Symmetry}.
+     *
+     * @throws IllegalArgumentException если отражение вертикалей запрошено при правах на рокировку
+     */
+    Position transformed(int symmetry) {
+        boolean flipColors = (symmetry & Symmetry.FLIP_COLORS) != 0;
+        if ((symmetry & Symmetry.MIRROR) != 0 && castling != 0) {
+            throw new IllegalArgumentException("Отражение вертикалей невозможно при правах на рокировку");
+        }
+        int squareXor = Symmetry.squareXor(symmetry);
+        Position result = new Position();
+        Arrays.fill(result.pieces, 0);
+        Arrays.fill(result.colors, 0);
+        Arrays.fill(result.board, EMPTY);
+        result.key = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            if (board[sq] != EMPTY) {
+                result.putPiece(sq ^ squareXor, flipColors ? Symmetry.flipColor(board[sq]) : board[sq]);
+            }
+        }
+        result.side = flipColors ? side ^ 1 : side;
+        result.castling = flipColors ? (castling >>> 2 | castling << 2) & 15 : castling;
+        result.epSquare = epSquare < 0 ? -1 : epSquare ^ squareXor;
+        result.halfmoveClock = halfmoveClock;
+        result.fullmoveNumber = fullmoveNumber;
+        result.key ^= CASTLING_KEYS[result.castling] ^ result.epKey();
+        if (result.side == WHITE) {
+            result.key ^= Zobrist.WHITE_TO_MOVE;
+        }
+        return result;
+    }
+
+    public static int makePiece(int color, int type) {
+        return color * 6 + type;
+    }
+
+    public static int colorOf(int piece) {
+        return piece >= 6 ? BLACK : WHITE;
+    }
+
+    public static int typeOf(int piece) {
+        return piece % 6;
+    }
+
+    /**
+     * Символ фигуры в FEN ('P', 'n', ...).
+     */
+    public static char pieceChar(int piece) {
+        return PIECE_CHARS.charAt(piece);
+    }
+
+    /**
+     * Код фигуры по символу FEN или {@link #EMPTY}.
+     */
+    public static int pieceFromChar(char c) {
+        int index = PIECE_CHARS.indexOf(c);
+        return index >= 0 ? index : EMPTY;
+    }
+
+    /**
+     * Устанавливает позицию из FEN. Счетчики ходов можно опустить.
+     *
+     * @throws IllegalArgumentException если FEN некорректен
+     */
+    public void setFen(String fen) {
+        if (fen == null) {
+            throw new IllegalArgumentException("FEN не задан");
+        }
+        String[] parts = fen.trim().split("\\s+");
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Недостаточно частей в FEN: " + fen);
+        }
+
+        Arrays.fill(pieces, 0);
+        Arrays.fill(colors, 0);
+        Arrays.fill(board, EMPTY);
+        key = 0;
+        ply = 0;
+
+        int rank = 7;
+        int file = 0;
+        for (int i = 0; i < parts[0].length(); i++) {
+            char c = parts[0].charAt(i);
+            if (c == '/') {
+                if (file != 8 || rank == 0) {
+                    throw new IllegalArgumentException("Неверная расстановка в FEN: " + fen);
+                }
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+            } else {
+                int piece = pieceFromChar(c);
+                if (piece == EMPTY || file > 7) {
+                    throw new IllegalArgumentException("Неверная расстановка в FEN: " + fen);
+                }
+                putPiece(rank * 8 + file, piece);
+                file++;
+            }
+            if (file > 8) {
+                throw new IllegalArgumentException("Неверная расстановка в FEN: " + fen);
+            }
+        }
+        if (rank != 0 || file != 8) {
+            throw new IllegalArgumentException("Неверная расстановка в FEN: " + fen);
+        }
+        if (Long.bitCount(pieces[makePiece(WHITE, KING)]) != 1 || Long.bitCount(pieces[makePiece(BLACK, KING)]) != 1) {
+            throw new IllegalArgumentException("У каждой стороны должен быть ровно один король: " + fen);
+        }
+        if (((pieces[makePiece(WHITE, PAWN)] | pieces[makePiece(BLACK, PAWN)]) & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0) {
+            throw new IllegalArgumentException("Пешка на крайней горизонтали: " + fen);
+        }
+
+        if ("w".equals(parts[1])) {
+            side = WHITE;
+        } else if ("b".equals(parts[1])) {
+            side = BLACK;
+        } else {
+            throw new IllegalArgumentException("Неверная очередь хода в FEN: " + fen);
+        }
+
+        castling = 0;
+        if (parts.length > 2 && !"-".equals(parts[2])) {
+            for (char c : parts[2].toCharArray()) {
+                switch (c) {
+                    case 'K': castling |= CASTLE_WHITE_KING; break;
+                    case 'Q': castling |= CASTLE_WHITE_QUEEN; break;
+                    case 'k': castling |= CASTLE_BLACK_KING; break;
+                    case 'q': castling |= CASTLE_BLACK_QUEEN; break;
+                    default: throw new IllegalArgumentException("Неверные права рокировки в FEN: " + fen);
+                }
+            }
+        }
+
+        epSquare = -1;
+        if (parts.length > 3 && !"-".equals(parts[3])) {
+            epSquare = Bitboards.parseSquare(parts[3]);
+            if (epSquare < 0) {
+                throw new IllegalArgumentException("Неверное поле взятия на проходе в FEN: " + fen);
+            }
+        }
+
+        try {
+            halfmoveClock = parts.length > 4 ? Integer.parseInt(parts[4]) : 0;
+            fullmoveNumber = parts.length > 5 ? Math.max(1, Integer.parseInt(parts[5])) : 1;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Неверные счетчики ходов в FEN: " + fen, e);
+        }
+
+        key ^= CASTLING_KEYS[castling] ^ epKey();
+        if (side == WHITE) {
+            key ^= Zobrist.WHITE_TO_MOVE;
+        }
+    }
+
+    /**
+     * Расставляет фигуры напрямую, без рокировок и взятия на проходе.
+     * Используется генераторами, перебирающими позиции по индексу; легальность не проверяется.
+     *
+     * @param squares    клетки фигур
+     * @param pieceCodes коды фигур для соответствующих клеток
+     * @param count      количество фигур
+     * @param sideToMove {@link #WHITE} или {@link #BLACK}
+     */
+    public void setPieces(int[] squares, int[] pieceCodes, int count, int sideToMove) {
+        Arrays.fill(pieces, 0);
+        Arrays.fill(colors, 0);
+        Arrays.fill(board, EMPTY);
+        key = 0;
+        ply = 0;
+        for (int i = 0; i < count; i++) {
+            putPiece(squares[i], pieceCodes[i]);
+        }
+        side = sideToMove;
+        castling = 0;
+        epSquare = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        if (side == WHITE) {
+            key ^= Zobrist.WHITE_TO_MOVE;
+        }
+    }
+
+    /**
+     * Задает права на рокировку и поле взятия на проходе после {@link #setPieces}; ключ пересчитывается.
+     */
+    void setCastlingAndEnPassant(int castlingRights, int enPassantSquare) {
+        key ^= CASTLING_KEYS[castling] ^ epKey();
+        castling = castlingRights;
+        epSquare = enPassantSquare;
+        key ^= CASTLING_KEYS[castling] ^ epKey();
+    }
+
+    /**
+     * Возвращает позицию в формате FEN.
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int piece = board[rank * 8 + file];
+                if (piece == EMPTY) {
+                    empty++;
+                } else {
+                    if (empty > 0) {
+                        fen.append(empty);
+                        empty = 0;
+                    }
+                    fen.append(pieceChar(piece));
+                }
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (rank > 0) {
+                fen.append('/');
+            }
+        }
+        fen.append(side == WHITE ? " w " : " b ");
+        if (castling == 0) {
+            fen.append('-');
+        } else {
+            if ((castling & CASTLE_WHITE_KING) != 0) fen.append('K');
+            if ((castling & CASTLE_WHITE_QUEEN) != 0) fen.append('Q');
+            if ((castling & CASTLE_BLACK_KING) != 0) fen.append('k');
+            if ((castling & CASTLE_BLACK_QUEEN) != 0) fen.append('q');
+        }
+        fen.append(' ').append(epSquare >= 0 ? Bitboards.squareName(epSquare) : "-");
+        fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return fen.toString();
+    }
+
+    private void putPiece(int sq, int piece) {
+        long bit = 1L << sq;
+        pieces[piece] |= bit;
+        colors[colorOf(piece)] |= bit;
+        board[sq] = piece;
+        key ^= Zobrist.PIECE_SQUARE[piece][sq];
+    }
+
+    private void removePiece(int sq) {
+        int piece = board[sq];
+        long bit = 1L << sq;
+        pieces[piece] &= ~bit;
+        colors[colorOf(piece)] &= ~bit;
+        board[sq] = EMPTY;
+        key ^= Zobrist.PIECE_SQUARE[piece][sq];
+    }
+
+    private void movePiece(int from, int to) {
+        int piece = board[from];
+        long bits = (1L << from) | (1L << to);
+        pieces[piece] ^= bits;
+        colors[colorOf(piece)] ^= bits;
+        board[from] = EMPTY;
+        board[to] = piece;
+        key ^= Zobrist.PIECE_SQUARE[piece][from] ^ Zobrist.PIECE_SQUARE[piece][to];
+    }
+
+    /**
+     * Часть ключа от поля взятия на проходе. Как и в Polyglot, учитывается только
+     * если у стороны, которая ходит, есть пешка, способная взять.
+     */
+    private long epKey() {
+        if (epSquare < 0) {
+            return 0;
+        }
+        long capturers = Bitboards.PAWN_ATTACKS[side ^ 1][epSquare] & pieces[makePiece(side, PAWN)];
+        return capturers != 0 ? Zobrist.EN_PASSANT_FILE[epSquare & 7] : 0;
+    }
+
+    private void ensureHistoryCapacity() {
+        if (ply == keyHistory.length) {
+            int size = ply * 2;
+            keyHistory = Arrays.copyOf(keyHistory, size);
+            moveHistory = Arrays.copyOf(moveHistory, size);
+            capturedHistory = Arrays.copyOf(capturedHistory, size);
+            castlingHistory = Arrays.copyOf(castlingHistory, size);
+            epHistory = Arrays.copyOf(epHistory, size);
+            halfmoveHistory = Arrays.copyOf(halfmoveHistory, size);
+        }
+    }
+
+    /**
+     * Выполняет ход. Ход должен быть как минимум псевдолегальным для текущей позиции.
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int promo = Move.promotion(move);
+        int piece = board[from];
+        int type = typeOf(piece);
+        int us = side;
+        int captured = board[to];
+
+        ensureHistoryCapacity();
+        keyHistory[ply] = key;
+        moveHistory[ply] = move;
+        castlingHistory[ply] = castling;
+        epHistory[ply] = epSquare;
+        halfmoveHistory[ply] = halfmoveClock;
+
+        key ^= epKey();
+        halfmoveClock++;
+
+        if (type == PAWN && to == epSquare) {
+            int capturedSq = to + (us == WHITE ? -8 : 8);
+            captured = board[capturedSq];
+            removePiece(capturedSq);
+        } else if (captured != EMPTY) {
+            removePiece(to);
+        }
+        capturedHistory[ply] = captured;
+
+        movePiece(from, to);
+
+        if (type == PAWN) {
+            halfmoveClock = 0;
+            if (promo != Move.PROMO_NONE) {
+                removePiece(to);
+                putPiece(to, makePiece(us, promo));
+            }
+        } else if (type == KING && Math.abs(to - from) == 2) {
+            if (to > from) {
+                movePiece(from + 3, from + 1);
+            } else {
+                movePiece(from - 4, from - 1);
+            }
+        }
+        if (captured != EMPTY) {
+            halfmoveClock = 0;
+        }
+
+        key ^= CASTLING_KEYS[castling];
+        castling &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        key ^= CASTLING_KEYS[castling];
+
+        epSquare = -1;
+        if (type == PAWN && Math.abs(to - from) == 16) {
+            int ep = (from + to) >>> 1;
+            if ((Bitboards.PAWN_ATTACKS[us][ep] & pieces[makePiece(us ^ 1, PAWN)]) != 0) {
+                epSquare = ep;
+            }
+        }
+
+        side ^= 1;
+        key ^= Zobrist.WHITE_TO_MOVE;
+        if (side == WHITE) {
+            fullmoveNumber++;
+        }
+        key ^= epKey();
+        ply++;
+    }
+
+    /**
+     * Отменяет последний ход, выполненный через {@link #makeMove} или {@link #makeNullMove}.
+     */
+    public void unmakeMove() {
+        ply--;
+        int move = moveHistory[ply];
+        side ^= 1;
+        if (side == BLACK) {
+            fullmoveNumber--;
+        }
+        castling = castlingHistory[ply];
+        epSquare = epHistory[ply];
+        halfmoveClock = halfmoveHistory[ply];
+
+        if (move != Move.NONE) {
+            int from = Move.from(move);
+            int to = Move.to(move);
+            int us = side;
+
+            if (Move.promotion(move) != Move.PROMO_NONE) {
+                removePiece(to);
+                putPiece(to, makePiece(us, PAWN));
+            }
+            movePiece(to, from);
+            int type = typeOf(board[from]);
+
+            if (type == KING && Math.abs(to - from) == 2) {
+                if (to > from) {
+                    movePiece(from + 1, from + 3);
+                } else {
+                    movePiece(from - 1, from - 4);
+                }
+            }
+
+            int captured = capturedHistory[ply];
+            if (captured != EMPTY) {
+                if (type == PAWN && to == epSquare) {
+                    putPiece(to + (us == WHITE ? -8 : 8), captured);
+                } else {
+                    putPiece(to, captured);
+                }
+            }
+        }
+        key = keyHistory[ply];
+    }
+
+    /**
+     * Передает ход сопернику без перемещения фигур (для нулевого хода в поиске).
+     */
+    public void makeNullMove() {
+        ensureHistoryCapacity();
+        keyHistory[ply] = key;
+        moveHistory[ply] = Move.NONE;
+        capturedHistory[ply] = EMPTY;
+        castlingHistory[ply] = castling;
+        epHistory[ply] = epSquare;
+        halfmoveHistory[ply] = halfmoveClock;
+
+        key ^= epKey();
+        epSquare = -1;
+        halfmoveClock++;
+        side ^= 1;
+        key ^= Zobrist.WHITE_TO_MOVE;
+        if (side == WHITE) {
+            fullmoveNumber++;
+        }
+        ply++;
+    }
+
+    /**
+     * Атакована ли клетка фигурами указанного цвета.
+     */
+    public boolean isSquareAttacked(int sq, int byColor) {
+        long occupied = colors[WHITE] | colors[BLACK];
+        int offset = byColor * 6;
+        if ((Bitboards.PAWN_ATTACKS[byColor ^ 1][sq] & pieces[offset + PAWN]) != 0) return true;
+        if ((Bitboards.KNIGHT_ATTACKS[sq] & pieces[offset + KNIGHT]) != 0) return true;
+        if ((Bitboards.KING_ATTACKS[sq] & pieces[offset + KING]) != 0) return true;
+        long queens = pieces[offset + QUEEN];
+        if ((Bitboards.bishopAttacks(sq, occupied) & (pieces[offset + BISHOP] | queens)) != 0) return true;
+        return (Bitboards.rookAttacks(sq, occupied) & (pieces[offset + ROOK] | queens)) != 0;
+    }
+
+    /**
+     * Все фигуры обоих цветов, атакующие клетку при заданной занятости.
+     */
+    public long attackersTo(int sq, long occupied) {
+        long bishopsQueens = pieces[BISHOP] | pieces[QUEEN] | pieces[6 + BISHOP] | pieces[6 + QUEEN];
+        long rooksQueens = pieces[ROOK] | pieces[QUEEN] | pieces[6 + ROOK] | pieces[6 + QUEEN];
+        return (Bitboards.PAWN_ATTACKS[BLACK][sq] & pieces[PAWN])
+                | (Bitboards.PAWN_ATTACKS[WHITE][sq] & pieces[6 + PAWN])
+                | (Bitboards.KNIGHT_ATTACKS[sq] & (pieces[KNIGHT] | pieces[6 + KNIGHT]))
+                | (Bitboards.KING_ATTACKS[sq] & (pieces[KING] | pieces[6 + KING]))
+                | (Bitboards.bishopAttacks(sq, occupied) & bishopsQueens)
+                | (Bitboards.rookAttacks(sq, occupied) & rooksQueens);
+    }
+
+    /**
+     * Находится ли под шахом сторона, которая ходит.
+     */
+    public boolean isInCheck() {
+        return isSquareAttacked(kingSquare(side), side ^ 1);
+    }
+
+    /**
+     * Клетка короля указанного цвета.
+     */
+    public int kingSquare(int color) {
+        return Long.numberOfTrailingZeros(pieces[makePiece(color, KING)]);
+    }
+
+    /**
+     * Генерирует псевдолегальные ходы (без проверки шаха своему королю).
+     *
+     * @param moves        буфер для ходов, не меньше {@link #MAX_MOVES}
+     * @param capturesOnly только взятия и превращения в ферзя (для форсированного поиска)
+     * @return количество ходов
+     */
+    public int generatePseudoLegalMoves(int[] moves, boolean capturesOnly) {
+        int count = 0;
+        int us = side;
+        int them = us ^ 1;
+        long own = colors[us];
+        long enemy = colors[them];
+        long occupied = own | enemy;
+        long targets = capturesOnly ? enemy : ~own;
+        int offset = us * 6;
+
+        // Пешки
+        long pawns = pieces[offset + PAWN];
+        int forward = us == WHITE ? 8 : -8;
+        long promotionRank = us == WHITE ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        long doubleRank = us == WHITE ? Bitboards.RANK_4 : Bitboards.RANK_5;
+        long epBit = epSquare >= 0 ? 1L << epSquare : 0;
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+
+            long captures = Bitboards.PAWN_ATTACKS[us][from] & (enemy | epBit);
+            while (captures != 0) {
+                int to = Long.numberOfTrailingZeros(captures);
+                captures &= captures - 1;
+                count = addPawnMove(moves, count, from, to, promotionRank, false);
+            }
+
+            int to = from + forward;
+            if (board[to] == EMPTY) {
+                long toBit = 1L << to;
+                if (!capturesOnly || (toBit & promotionRank) != 0) {
+                    count = addPawnMove(moves, count, from, to, promotionRank, capturesOnly);
+                }
+                int twoStep = to + forward;
+                if (!capturesOnly && twoStep >= 0 && twoStep < 64
+                        && ((1L << twoStep) & doubleRank) != 0 && board[twoStep] == EMPTY) {
+                    moves[count++] = Move.encode(from, twoStep);
+                }
+            }
+        }
+
+        // Кони
+        long knights = pieces[offset + KNIGHT];
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            count = addMoves(moves, count, from, Bitboards.KNIGHT_ATTACKS[from] & targets);
+        }
+
+        // Слоны и ферзи по диагоналям
+        long diagonal = pieces[offset + BISHOP] | pieces[offset + QUEEN];
+        while (diagonal != 0) {
+            int from = Long.numberOfTrailingZeros(diagonal);
+            diagonal &= diagonal - 1;
+            count = addMoves(moves, count, from, Bitboards.bishopAttacks(from, occupied) & targets);
+        }
+
+        // Ладьи и ферзи по линиям
+        long straight = pieces[offset + ROOK] | pieces[offset + QUEEN];
+        while (straight != 0) {
+            int from = Long.numberOfTrailingZeros(straight);
+            straight &= straight - 1;
+            count = addMoves(moves, count, from, Bitboards.rookAttacks(from, occupied) & targets);
+        }
+
+        // Король
+        int kingSq = kingSquare(us);
+        count = addMoves(moves, count, kingSq, Bitboards.KING_ATTACKS[kingSq] & targets);
+
+        // Рокировки
+        if (!capturesOnly && castling != 0) {
+            int base = us == WHITE ? 0 : 56;
+            int kingRight = us == WHITE ? CASTLE_WHITE_KING : CASTLE_BLACK_KING;
+            int queenRight = us == WHITE ? CASTLE_WHITE_QUEEN : CASTLE_BLACK_QUEEN;
+            int rook = offset + ROOK;
+            if (kingSq == base + 4 && !isSquareAttacked(kingSq, them)) {
+                if ((castling & kingRight) != 0 && board[base + 7] == rook
+                        && board[base + 5] == EMPTY && board[base + 6] == EMPTY
+                        && !isSquareAttacked(base + 5, them) && !isSquareAttacked(base + 6, them)) {
+                    moves[count++] = Move.encode(kingSq, base + 6);
+                }
+                if ((castling & queenRight) != 0 && board[base] == rook
+                        && board[base + 1] == EMPTY && board[base + 2] == EMPTY && board[base + 3] == EMPTY
+                        && !isSquareAttacked(base + 3, them) && !isSquareAttacked(base + 2, them)) {
+                    moves[count++] = Move.encode(kingSq, base + 2);
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private static int addMoves(int[] moves, int count, int from, long targets) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves[count++] = Move.encode(from, to);
+        }
+        return count;
+    }
+
+    private static int addPawnMove(int[] moves, int count, int from, int to, long promotionRank, boolean queenOnly) {
+        if (((1L << to) & promotionRank) != 0) {
+            moves[count++] = Move.encode(from, to, Move.PROMO_QUEEN);
+            if (!queenOnly) {
+                moves[count++] = Move.encode(from, to, Move.PROMO_KNIGHT);
+                moves[count++] = Move.encode(from, to, Move.PROMO_ROOK);
+                moves[count++] = Move.encode(from, to, Move.PROMO_BISHOP);
+            }
+        } else {
+            moves[count++] = Move.encode(from, to);
+        }
+        return count;
+    }
+
+    /**
+     * Проверяет, что псевдолегальный ход не оставляет своего короля под шахом.
+     */
+    public boolean isLegalAfterMove(int move) {
+        int us = side;
+        makeMove(move);
+        boolean legal = !isSquareAttacked(kingSquare(us), us ^ 1);
+        unmakeMove();
+        return legal;
+    }
+
+    /**
+     * Генерирует все легальные ходы.
+     *
+     * @param moves буфер для ходов, не меньше {@link #MAX_MOVES}
+     * @return количество ходов
+     */
+    public int generateLegalMoves(int[] moves) {
+        int count = generatePseudoLegalMoves(moves, false);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            if (isLegalAfterMove(moves[i])) {
+                moves[legal++] = moves[i];
+            }
+        }
+        return legal;
+    }
+
+    /**
+     * Есть ли у стороны, которая ходит, хотя бы один легальный ход.
+     */
+    public boolean hasLegalMove() {
+        int count = generatePseudoLegalMoves(scratch, false);
+        for (int i = 0; i < count; i++) {
+            if (isLegalAfterMove(scratch[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Проверяет легальность хода, пришедшего извне (из UI, книги, PGN).
+     */
+    public boolean isLegal(int move) {
+        if (move == Move.NONE) {
+            return false;
+        }
+        int count = generatePseudoLegalMoves(scratch, false);
+        for (int i = 0; i < count; i++) {
+            if (scratch[i] == move) {
+                return isLegalAfterMove(move);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Повторялась ли текущая позиция с момента последнего необратимого хода.
+     */
+    public boolean isRepetition() {
+        int limit = Math.max(0, ply - halfmoveClock);
+        for (int i = ply - 2; i >= limit; i -= 2) {
+            if (keyHistory[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int pieceAt(int sq) {
+        return board[sq];
+    }
+
+    public long pieces(int piece) {
+        return pieces[piece];
+    }
+
+    public long pieces(int color, int type) {
+        return pieces[color * 6 + type];
+    }
+
+    public long colorOccupancy(int color) {
+        return colors[color];
+    }
+
+    public long occupancy() {
+        return colors[WHITE] | colors[BLACK];
+    }
+
+    public int sideToMove() {
+        return side;
+    }
+
+    public boolean isWhiteToMove() {
+        return side == WHITE;
+    }
+
+    public int castlingRights() {
+        return castling;
+    }
+
+    public int epSquare() {
+        return epSquare;
+    }
+
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int fullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Ключ Zobrist текущей позиции.
+     */
+    public long key() {
+        return key;
+    }
+
+    /**
+     * Количество ходов, выполненных с момента установки позиции.
+     */
+    public int ply() {
+        return ply;
+    }
+
+    /**
+     * Последний выполненный ход или {@link Move#NONE}.
+     */
+    public int lastMove() {
+        return ply > 0 ? moveHistory[ply - 1] : Move.NONE;
+    }
+
+    @Override
+    public String toString() {
+        return toFen();
+    }
+}
@@ -0,0 +1,29 @@
+package chessgame.logic;
+
+/**
+ * Результат проверки легальности позиции ({@link LegalityChecker}).
+ */
+public enum PositionError {
+
+    OK("нет ошибок"),
+    INVALID_FEN("некорректный FEN"),
+    WRONG_KING_COUNT("у каждой стороны должен быть ровно один король"),
+    PAWN_ON_BACK_RANK("пешка на крайней горизонтали"),
+    TOO_MANY_PIECES("у стороны больше 16 фигур"),
+    TOO_MANY_PAWNS("у стороны больше 8 пешек"),
+    TOO_MANY_PROMOTED_PIECES("лишних фигур больше, чем могло получиться превращением пешек"),
+    OPPONENT_IN_CHECK("король стороны, которая не ходит, под шахом"),
+    TOO_MANY_CHECKERS("шах больше чем от двух фигур"),
+    BAD_CASTLING_RIGHTS("права рокировки не соответствуют расстановке короля и ладей"),
+    BAD_EN_PASSANT("поле взятия на проходе не соответствует ходу пешки на два поля");
+
+    private final String description;
+
+    PositionError(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -11,224 +11,32 @@ public class PositionValidator {
 
     private static final Logger logger = LoggerFactory.getLogger(PositionValidator.class);
 
-    
-
     /**
      * Валидирует FEN позицию.
+     *
+     * @see FenValidator#validate(CharSequence)
      */
     public boolean validateFENPosition(String fenPosition) {
-        if (fenPosition == null || fenPosition.trim().isEmpty()) {
-            logger.warn("FEN позиция пуста");
-            return false;
-        }
-
-        try {
-            String[] parts = fenPosition.trim().split("\\s+");
-
-            // FEN должен содержать 6 частей
-            if (parts.length < 4) {
-                logger.warn("Недостаточно частей в FEN позиции: {}", fenPosition);
-                return false;
-            }
-
-            // Проверка части 1: позиция фигур
-            if (!validatePiecePlacement(parts[0])) {
-                return false;
-            }
-
-            // Проверка части 2: очередность хода
-            if (!validateSideToMove(parts[1])) {
-                return false;
-            }
-
-            // Проверка части 3: право на рокировку
-            if (!validateCastlingRights(parts[2])) {
-                return false;
-            }
-
-            // Проверка части 4: поле для взятия на проходе
-            if (parts.length > 3 && !validateEnPassantTarget(parts[3])) {
-                return false;
-            }
-
-            return true;
-
-        } catch (Exception e) {
-            logger.error("Ошибка при валидации FEN позиции: {}", fenPosition, e);
-            return false;
-        }
-    }
-
-    /**
-     * Валидирует расстановку фигур в FEN.
-     */
-    private boolean validatePiecePlacement(String piecePlacement) {
-        if (piecePlacement == null || piecePlacement.isEmpty()) {
-            return false;
-        }
-
-        String[] ranks = piecePlacement.split("/");
-
-        // Должно быть ровно 8 рангов
-        if (ranks.length != 8) {
-            logger.warn("Неверное количество рангов в FEN: {}. Ожидается 8, найдено {}", piecePlacement, ranks.length);
+        FenError error = FenValidator.validate(fenPosition);
+        if (error != FenError.OK) {
+            logger.debug("Некорректный FEN '{}': {}", fenPosition, error.getDescription());
             return false;
         }
-
-        for (int i = 0; i < 8; i++) {
-            String rank = ranks[i];
-            int squares = 0;
-
-            for (char c : rank.toCharArray()) {
-                if (Character.isDigit(c)) {
-                    // Цифра означает пустые клетки
-                    squares += Character.getNumericValue(c);
-                } else if (isValidPieceCharacter(c)) {
-                    // Валидная фигура
-                    squares++;
-                } else {
-                    logger.warn("Недопустимый символ в FEN ранге '{}': '{}'", rank, c);
-                    return false;
-                }
-            }
-
-            if (squares != 8) {
-                logger.warn("Недопустимое количество клеток в ранге '{}': {}. Должно быть 8", rank, squares);
-                return false;
-            }
-        }
-
         return true;
     }
 
-    /**
-     * Проверяет валидность символа фигуры.
-     */
-    private boolean isValidPieceCharacter(char c) {
-        return "rnbqkpRNBQKP".indexOf(c) >= 0;
-    }
-
-    /**
-     * Валидирует очередность хода.
-     */
-    private boolean validateSideToMove(String sideToMove) {
-        return "w".equals(sideToMove) || "b".equals(sideToMove);
-    }
-
-    /**
-     * Валидирует права на рокировку.
-     */
-    private boolean validateCastlingRights(String castlingRights) {
-        if ("-".equals(castlingRights)) {
-            return true; // Нет права на рокировку - это допустимо
-        }
-
-        // Должны быть только KQkq символы
-        for (char c : castlingRights.toCharArray()) {
-            if ("KQkq".indexOf(c) < 0) {
-                logger.warn("Недопустимый символ права на рокировку: '{}'", c);
-                return false;
-            }
-        }
-
-        return true;
-    }
-
-    /**
-     * Валидирует поле для взятия на проходе.
-     */
-    private boolean validateEnPassantTarget(String enPassantTarget) {
-        if ("-".equals(enPassantTarget)) {
-            return true; // Нет поля для взятия на проходе - это допустимо
-        }
-
-        // Поле должно быть валидной шахматной координатой
-        if (enPassantTarget.length() != 2) {
-            return false;
-        }
-
-        char file = enPassantTarget.charAt(0);
-        char rank = enPassantTarget.charAt(1);
-
-        return file >= 'a' && file <= 'h' && rank >= '1' && rank <= '8';
-    }
-
     /**
      * Проверяет, является ли позиция легальной.
-     * Упрощенная проверка основных правил.
+     *
+     * @see LegalityChecker#check(CharSequence)
      */
     public boolean isLegalPosition(String fenPosition) {
-        if (!validateFENPosition(fenPosition)) {
+        PositionError error = LegalityChecker.check(fenPosition);
+        if (error != PositionError.OK) {
+            logger.debug("Нелегальная позиция '{}': {}", fenPosition, error.getDescription());
             return false;
         }
-
-        try {
-            String[] parts = fenPosition.split("\\s+");
-            String piecePlacement = parts[0];
-            String sideToMove = parts[1];
-
-            // Проверяем наличие королей
-            if (!hasBothKings(piecePlacement)) {
-                logger.warn("В позиции отсутствует один из королей");
-                return false;
-            }
-
-            // Проверяем, что короли не находятся рядом (недопустимо)
-            if (kingsAdjacent(piecePlacement)) {
-                logger.warn("Короли находятся рядом, что невозможно");
-                return false;
-            }
-
-            return true;
-
-        } catch (Exception e) {
-            logger.error("Ошибка при проверке легальности позиции", e);
-            return false;
-        }
-    }
-
-    /**
-     * Проверяет наличие обоих королей.
-     */
-    private boolean hasBothKings(String piecePlacement) {
-        char[] pieces = piecePlacement.toCharArray();
-        boolean hasWhiteKing = false;
-        boolean hasBlackKing = false;
-
-        for (char piece : pieces) {
-            if (piece == 'K') {
-                hasWhiteKing = true;
-            } else if (piece == 'k') {
-                hasBlackKing = true;
-            }
-        }
-
-        return hasWhiteKing && hasBlackKing;
-    }
-
-    /**
-     * Проверяет, находятся ли короли рядом друг с другом.
-     */
-    private boolean kingsAdjacent(String piecePlacement) {
-        // Упрощенная проверка - ищем 'K' и 'k'
-        int whiteKingIndex = piecePlacement.indexOf('K');
-        int blackKingIndex = piecePlacement.indexOf('k');
-
-        if (whiteKingIndex < 0 || blackKingIndex < 0) {
-            return false; // Один из королей не найден
-        }
-
-        // Вычисляем позицию королей на доске
-        int whiteKingFile = whiteKingIndex % 9; // Упрощенно
-        int whiteKingRank = whiteKingIndex / 8;
-        int blackKingFile = blackKingIndex % 9;
-        int blackKingRank = blackKingIndex / 8;
-
-        // Проверяем, что короли не находятся на соседних клетках
-        int fileDiff = Math.abs(whiteKingFile - blackKingFile);
-        int rankDiff = Math.abs(whiteKingRank - blackKingRank);
-
-        return fileDiff <= 1 && rankDiff <= 1;
+        return true;
     }
 
     /**
@@ -268,11 +76,20 @@ public class PositionValidator {
     }
 
     /**
-     * Проверяет, находится ли позиция в зеркальном виде (для тестов).
+     * Проверяет, получается ли вторая позиция из первой обменом цветов и/или отражением вертикалей.
+     *
+     * @see Symmetry#isSymmetric(Position, Position)
      */
     public boolean isMirroredPosition(String originalFen, String mirroredFen) {
-        // Упрощенная проверка зеркальности
-        return originalFen != null && mirroredFen != null;
+        if (FenValidator.validate(originalFen) != FenError.OK || FenValidator.validate(mirroredFen) != FenError.OK) {
+            return false;
+        }
+        try {
+            return Symmetry.isSymmetric(Position.fromFen(originalFen), Position.fromFen(mirroredFen));
+        } catch (IllegalArgumentException e) {
+            logger.debug("Позиция не разобрана при проверке зеркальности: {}", e.getMessage());
+            return false;
+        }
     }
 
     /**
@@ -0,0 +1,227 @@
+package chessgame.logic;
+
+/**
+ * Стандартная алгебраическая нотация (SAN): "e4", "Nbd7", "exd8=Q+", "O-O".
+ * При разборе ход ищется среди легальных ходов позиции, поэтому неоднозначная или невозможная запись
+ * дает {@link Move#NONE}. Легальность проверяется только у псевдолегальных ходов, подходящих под запись:
+ * обычно это один ход, а не все ходы позиции.
+ */
+public final class San {
+
+    private static final String PIECE_LETTERS = "PNBRQK";
+
+    private San() {
+    }
+
+    /**
+     * Разбирает ход в SAN.
+     *
+     * @return код хода или {@link Move#NONE}
+     */
+    public static int parse(Position position, CharSequence san) {
+        return parse(position, san, new int[Position.MAX_MOVES]);
+    }
+
+    /**
+     * Разбирает ход в SAN, используя переданный буфер для легальных ходов.
+     *
+     * @param moves буфер не меньше {@link Position#MAX_MOVES} (заполняется псевдолегальными ходами)
+     * @return код хода или {@link Move#NONE}
+     */
+    public static int parse(Position position, CharSequence san, int[] moves) {
+        if (san == null) {
+            return Move.NONE;
+        }
+        // Отбрасываем шах, мат и оценки хода
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        if (end < 2) {
+            return Move.NONE;
+        }
+
+        int count = position.generatePseudoLegalMoves(moves, false);
+        int us = position.sideToMove();
+
+        char first = san.charAt(0);
+        if (first == 'O' || first == '0') {
+            int castleLength = countCastlingSides(san, end);
+            if (castleLength == 0) {
+                return Move.NONE;
+            }
+            int king = position.kingSquare(us);
+            int target = castleLength == 2 ? king + 2 : king - 2;
+            for (int i = 0; i < count; i++) {
+                if (Move.from(moves[i]) == king && Move.to(moves[i]) == target) {
+                    return position.isLegalAfterMove(moves[i]) ? moves[i] : Move.NONE;
+                }
+            }
+            return Move.NONE;
+        }
+
+        int type = Position.PAWN;
+        int start = 0;
+        int pieceIndex = PIECE_LETTERS.indexOf(first);
+        if (pieceIndex > 0) {
+            type = pieceIndex;
+            start = 1;
+        }
+
+        // Превращение: "e8=Q" или "e8Q"
+        int promotion = Move.PROMO_NONE;
+        int promotionIndex = PIECE_LETTERS.indexOf(Character.toUpperCase(san.charAt(end - 1)));
+        if (type == Position.PAWN && promotionIndex >= Position.KNIGHT && promotionIndex <= Position.QUEEN
+                && Character.isLetter(san.charAt(end - 1)) && Character.isUpperCase(san.charAt(end - 1))) {
+            promotion = promotionIndex;
+            end--;
+            if (end > 0 && san.charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+        if (end - start < 2) {
+            return Move.NONE;
+        }
+
+        int toFile = san.charAt(end - 2) - 'a';
+        int toRank = san.charAt(end - 1) - '1';
+        if (toFile < 0 || toFile > 7 || toRank < 0 || toRank > 7) {
+            return Move.NONE;
+        }
+        int to = toRank * 8 + toFile;
+
+        // Уточнение исходной клетки: вертикаль и/или горизонталь
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != ':' && c != '-') {
+                return Move.NONE;
+            }
+        }
+
+        int found = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = Move.from(move);
+            if (Move.to(move) != to || Position.typeOf(position.pieceAt(from)) != type) {
+                continue;
+            }
+            if ((fromFile >= 0 && (from & 7) != fromFile) || (fromRank >= 0 && (from >>> 3) != fromRank)) {
+                continue;
+            }
+            int movePromotion = Move.promotion(move);
+            int wanted = promotion;
+            // Превращение без указания фигуры считаем превращением в ферзя
+            if (wanted == Move.PROMO_NONE && movePromotion != Move.PROMO_NONE) {
+                wanted = Move.PROMO_QUEEN;
+            }
+            if (movePromotion != wanted || !position.isLegalAfterMove(move)) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                return Move.NONE;
+            }
+            found = move;
+        }
+        return found;
+    }
+
+    /**
+     * Записывает легальный ход в SAN с уточнением исходной клетки и знаком шаха или мата.
+     */
+    public static String toSan(Position position, int move) {
+        StringBuilder san = new StringBuilder(8);
+        appendSan(position, move, san);
+        return san.toString();
+    }
+
+    /**
+     * Дописывает легальный ход в SAN к {@code san}, не создавая промежуточных строк.
+     */
+    public static void appendSan(Position position, int move, StringBuilder san) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = position.pieceAt(from);
+        int type = Position.typeOf(piece);
+
+        if (type == Position.KING && Math.abs(to - from) == 2) {
+            san.append(to > from ? "O-O" : "O-O-O");
+        } else {
+            boolean capture = position.pieceAt(to) != Position.EMPTY
+                    || (type == Position.PAWN && (from & 7) != (to & 7));
+            if (type == Position.PAWN) {
+                if (capture) {
+                    san.append((char) ('a' + (from & 7)));
+                }
+            } else {
+                san.append(PIECE_LETTERS.charAt(type));
+                appendDisambiguation(position, from, to, piece, san);
+            }
+            if (capture) {
+                san.append('x');
+            }
+            san.append((char) ('a' + (to & 7))).append((char) ('1' + (to >>> 3)));
+            if (Move.promotion(move) != Move.PROMO_NONE) {
+                san.append('=').append(PIECE_LETTERS.charAt(Move.promotion(move)));
+            }
+        }
+
+        position.makeMove(move);
+        if (position.isInCheck()) {
+            san.append(position.hasLegalMove() ? '+' : '#');
+        }
+        position.unmakeMove();
+    }
+
+    /**
+     * Добавляет вертикаль и/или горизонталь, если на клетку может пойти другая такая же фигура.
+     * Соперники берутся из атак на клетку назначения; связанные фигуры не считаются,
+     * а легальность проверяется только у них, а не у всех ходов позиции.
+     */
+    private static void appendDisambiguation(Position position, int from, int to, int piece, StringBuilder san) {
+        long rivals = position.attackersTo(to, position.occupancy()) & position.pieces(piece) & ~(1L << from);
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        while (rivals != 0) {
+            int other = Long.numberOfTrailingZeros(rivals);
+            rivals &= rivals - 1;
+            if (position.isLegalAfterMove(Move.encode(other, to))) {
+                ambiguous = true;
+                sameFile |= (other & 7) == (from & 7);
+                sameRank |= (other >>> 3) == (from >>> 3);
+            }
+        }
+        if (!ambiguous) {
+            return;
+        }
+        if (!sameFile) {
+            san.append((char) ('a' + (from & 7)));
+        } else if (!sameRank) {
+            san.append((char) ('1' + (from >>> 3)));
+        } else {
+            san.append(Bitboards.squareName(from));
+        }
+    }
+
+    /**
+     * Количество сторон в записи рокировки: 2 для "O-O", 3 для "O-O-O", 0 для некорректной.
+     */
+    private static int countCastlingSides(CharSequence san, int end) {
+        int sides = 0;
+        for (int i = 0; i < end; i++) {
+            char c = san.charAt(i);
+            if (c == 'O' || c == '0') {
+                sides++;
+            } else if (c != '-') {
+                return 0;
+            }
+        }
+        return sides == 2 || sides == 3 ? sides : 0;
+    }
+}
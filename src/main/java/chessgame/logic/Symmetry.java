@@ -0,0 +1,148 @@
+package chessgame.logic;
+
+/**
+ * Симметрии позиции для кэшей и дедупликации: обмен цветов (отражение горизонталей с переменой
+ * цвета фигур, очереди хода и прав рокировки) и отражение вертикалей a-h, допустимое только
+ * без прав на рокировку. Обе симметрии сохраняют оценку позиции (с точностью до знака при обмене цветов)
+ * и являются инволюциями, поэтому ход, найденный для канонической позиции, переводится обратно той же симметрией.
+ *
+ * <p>Канонический ключ - наименьший без знака ключ Zobrist среди допустимых симметрий позиции;
+ * он считается прямо по битовым доскам без копирования позиции.
+ */
+public final class Symmetry {
+
+    public static final int IDENTITY = 0;
+    public static final int FLIP_COLORS = 1;
+    public static final int MIRROR = 2;
+
+    private Symmetry() {
+    }
+
+    /**
+     * Допустима ли симметрия для позиции.
+     */
+    public static boolean isAllowed(Position position, int symmetry) {
+        return (symmetry & MIRROR) == 0 || position.castlingRights() == 0;
+    }
+
+    /**
+     * Ключ Zobrist позиции после симметрии; совпадает с {@code transform(position, symmetry).key()}.
+     *
+     * @throws IllegalArgumentException если симметрия недопустима для позиции
+     */
+    public static long key(Position position, int symmetry) {
+        if (!isAllowed(position, symmetry)) {
+            throw new IllegalArgumentException("Отражение вертикалей невозможно при правах на рокировку");
+        }
+        boolean flipColors = (symmetry & FLIP_COLORS) != 0;
+        int squareXor = squareXor(symmetry);
+        long key = 0;
+        for (int piece = 0; piece < 12; piece++) {
+            long[] squareKeys = Zobrist.PIECE_SQUARE[flipColors ? flipColor(piece) : piece];
+            for (long bb = position.pieces(piece); bb != 0; bb &= bb - 1) {
+                key ^= squareKeys[Long.numberOfTrailingZeros(bb) ^ squareXor];
+            }
+        }
+
+        int side = position.sideToMove();
+        int castling = position.castlingRights();
+        if (flipColors) {
+            castling = (castling >>> 2 | castling << 2) & 15;
+        }
+        for (int i = 0; i < 4; i++) {
+            if ((castling & (1 << i)) != 0) {
+                key ^= Zobrist.CASTLING[i];
+            }
+        }
+        // Поле взятия на проходе входит в ключ, только если взятие возможно; симметрии это не меняют
+        int epSquare = position.epSquare();
+        if (epSquare >= 0 && (Bitboards.PAWN_ATTACKS[side ^ 1][epSquare]
+                & position.pieces(Position.makePiece(side, Position.PAWN))) != 0) {
+            key ^= Zobrist.EN_PASSANT_FILE[(epSquare ^ squareXor) & 7];
+        }
+        if ((flipColors ? side ^ 1 : side) == Position.WHITE) {
+            key ^= Zobrist.WHITE_TO_MOVE;
+        }
+        return key;
+    }
+
+    /**
+     * Симметрия, дающая канонический ключ. При равных ключах выбирается меньший номер симметрии.
+     */
+    public static int canonicalSymmetry(Position position) {
+        int symmetryCount = position.castlingRights() == 0 ? 4 : 2;
+        int best = IDENTITY;
+        long bestKey = position.key();
+        for (int symmetry = 1; symmetry < symmetryCount; symmetry++) {
+            long key = key(position, symmetry);
+            if (Long.compareUnsigned(key, bestKey) < 0) {
+                best = symmetry;
+                bestKey = key;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Канонический ключ: одинаков для всех позиций одного класса симметрии.
+     */
+    public static long canonicalKey(Position position) {
+        int symmetryCount = position.castlingRights() == 0 ? 4 : 2;
+        long best = position.key();
+        for (int symmetry = 1; symmetry < symmetryCount; symmetry++) {
+            long key = key(position, symmetry);
+            if (Long.compareUnsigned(key, best) < 0) {
+                best = key;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Копия позиции после симметрии (без истории ходов).
+     *
+     * @throws IllegalArgumentException если симметрия недопустима для позиции
+     */
+    public static Position transform(Position position, int symmetry) {
+        return position.transformed(symmetry);
+    }
+
+    /**
+     * Каноническая копия позиции.
+     */
+    public static Position canonical(Position position) {
+        return position.transformed(canonicalSymmetry(position));
+    }
+
+    /**
+     * Ход после симметрии. Повторное применение той же симметрии возвращает исходный ход.
+     */
+    public static int transformMove(int move, int symmetry) {
+        int squareXor = squareXor(symmetry);
+        return Move.encode(Move.from(move) ^ squareXor, Move.to(move) ^ squareXor, Move.promotion(move));
+    }
+
+    /**
+     * Переходит ли одна позиция в другую симметрией, отличной от тождественной (сравниваются ключи Zobrist).
+     */
+    public static boolean isSymmetric(Position a, Position b) {
+        int symmetryCount = a.castlingRights() == 0 ? 4 : 2;
+        for (int symmetry = 1; symmetry < symmetryCount; symmetry++) {
+            if (key(a, symmetry) == b.key()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Клетка a1 = 0 ... h8 = 63 после симметрии получается как {@code sq ^ squareXor(symmetry)}.
+     */
+    static int squareXor(int symmetry) {
+        return ((symmetry & FLIP_COLORS) != 0 ? 56 : 0) | ((symmetry & MIRROR) != 0 ? 7 : 0);
+    }
+
+    static int flipColor(int piece) {
+        return piece < 6 ? piece + 6 : piece - 6;
+    }
+}
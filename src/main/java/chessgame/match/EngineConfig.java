@@ -0,0 +1,80 @@
+package chessgame.match;
+
+import chessgame.engine.SearchLimits;
+
+/**
+ * Настройки одного участника матча: имя, лимит на ход, размер таблицы транспозиций и потоки.
+ */
+public final class EngineConfig {
+
+    private static final int DEFAULT_HASH_MB = 16;
+
+    private final String name;
+    private final SearchLimits limits;
+    private final int hashMb;
+    private final int threads;
+
+    public EngineConfig(String name, SearchLimits limits, int hashMb, int threads) {
+        if (limits.isInfinite()) {
+            throw new IllegalArgumentException("Нужен лимит на ход для " + name);
+        }
+        this.name = name;
+        this.limits = limits;
+        this.hashMb = hashMb;
+        this.threads = threads;
+    }
+
+    /**
+     * Разбирает запись вида {@code имя:time=100,hash=16,threads=1}
+     * (параметры {@code time}, {@code nodes}, {@code depth}, {@code hash}, {@code threads}).
+     *
+     * @throws IllegalArgumentException при неизвестном параметре или некорректном числе
+     */
+    public static EngineConfig parse(String spec) {
+        int colon = spec.indexOf(':');
+        String name = colon >= 0 ? spec.substring(0, colon) : spec;
+        int depth = SearchLimits.MAX_DEPTH;
+        long nodes = 0;
+        long time = 0;
+        int hash = DEFAULT_HASH_MB;
+        int threads = 1;
+        if (colon >= 0) {
+            for (String option : spec.substring(colon + 1).split(",")) {
+                String[] pair = option.split("=", 2);
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Ожидается параметр=значение: " + option);
+                }
+                switch (pair[0].trim()) {
+                    case "time": time = Long.parseLong(pair[1].trim()); break;
+                    case "nodes": nodes = Long.parseLong(pair[1].trim()); break;
+                    case "depth": depth = Integer.parseInt(pair[1].trim()); break;
+                    case "hash": hash = Integer.parseInt(pair[1].trim()); break;
+                    case "threads": threads = Integer.parseInt(pair[1].trim()); break;
+                    default: throw new IllegalArgumentException("Неизвестный параметр " + pair[0]);
+                }
+            }
+        }
+        return new EngineConfig(name, new SearchLimits(depth, nodes, time), hash, threads);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SearchLimits getLimits() {
+        return limits;
+    }
+
+    public int getHashMb() {
+        return hashMb;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + limits + ", hash=" + hashMb + " МБ, threads=" + threads + ")";
+    }
+}
@@ -0,0 +1,473 @@
+package chessgame.match;
+
+import chessgame.engine.BagaturEngine;
+import chessgame.logic.Bitboards;
+import chessgame.logic.ChessGame;
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+import chessgame.pgn.PgnRecord;
+import chessgame.pgn.PgnScanner;
+import chessgame.pgn.PgnWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Матч двух настроек движка без графического интерфейса.
+ *
+ * <p>Партии идут параллельно, по одной на рабочий поток; у каждого потока свои экземпляры
+ * {@link BagaturEngine} для обоих участников. Каждый дебют играется парой партий со сменой цвета.
+ * Движки детерминированы, поэтому одинаковые дебюты дают одинаковые пары партий: без файла дебютов
+ * берется встроенный набор {@link #builtinOpenings()}, а если разных дебютов меньше, чем пар партий,
+ * матч предупреждает, что SPRT и Elo считают повторы.
+ * Окончание партии определяет {@link ChessGame} (мат, пат, 50 ходов, троекратное повторение,
+ * недостаточный материал); дополнительно партия присуждается, если оба движка согласны
+ * с решающей оценкой, или признается ничьей по предельной длине.
+ *
+ * <p>С включенным SPRT матч останавливается, как только отношение правдоподобия
+ * выходит за границы: уже начатые партии доигрываются и учитываются.
+ */
+public final class MatchRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchRunner.class);
+
+    // Предельная длина партии в полуходах
+    private static final int MAX_PLIES = 400;
+
+    // Присуждение победы: столько полуходов подряд обе стороны видят перевес не меньше RESIGN_SCORE
+    private static final int RESIGN_SCORE = 1000;
+    private static final int RESIGN_PLIES = 8;
+
+    // Встроенные дебюты по 8 полуходов: распространенные системы за белых и черных
+    private static final String[] BUILTIN_OPENINGS = {
+            "e2e4 e7e5 g1f3 b8c6 f1b5 a7a6 b5a4 g8f6",
+            "e2e4 e7e5 g1f3 b8c6 f1c4 f8c5 c2c3 g8f6",
+            "e2e4 e7e5 g1f3 b8c6 f1c4 g8f6 f3g5 d7d5",
+            "e2e4 e7e5 g1f3 b8c6 d2d4 e5d4 f3d4 g8f6",
+            "e2e4 e7e5 g1f3 b8c6 b1c3 g8f6 f1b5 f8b4",
+            "e2e4 e7e5 g1f3 g8f6 f3e5 d7d6 e5f3 f6e4",
+            "e2e4 e7e5 g1f3 d7d6 d2d4 g8f6 b1c3 b8d7",
+            "e2e4 e7e5 b1c3 g8f6 f2f4 d7d5 f4e5 f6e4",
+            "e2e4 e7e5 f2f4 e5f4 g1f3 g7g5 h2h4 g5g4",
+            "e2e4 e7e5 d2d4 e5d4 d1d4 b8c6 d4e3 g8f6",
+            "e2e4 c7c5 g1f3 d7d6 d2d4 c5d4 f3d4 g8f6",
+            "e2e4 c7c5 g1f3 b8c6 d2d4 c5d4 f3d4 g7g6",
+            "e2e4 c7c5 g1f3 e7e6 d2d4 c5d4 f3d4 a7a6",
+            "e2e4 c7c5 g1f3 d7d6 f1b5 c8d7 b5d7 d8d7",
+            "e2e4 c7c5 g1f3 b8c6 f1b5 g7g6 e1g1 f8g7",
+            "e2e4 c7c5 b1c3 b8c6 g2g3 g7g6 f1g2 f8g7",
+            "e2e4 c7c5 c2c3 g8f6 e4e5 f6d5 d2d4 c5d4",
+            "e2e4 e7e6 d2d4 d7d5 b1c3 g8f6 c1g5 f8e7",
+            "e2e4 e7e6 d2d4 d7d5 e4e5 c7c5 c2c3 b8c6",
+            "e2e4 e7e6 d2d4 d7d5 b1d2 c7c5 e4d5 e6d5",
+            "e2e4 c7c6 d2d4 d7d5 e4e5 c8f5 g1f3 e7e6",
+            "e2e4 c7c6 d2d4 d7d5 b1c3 d5e4 c3e4 c8f5",
+            "e2e4 d7d6 d2d4 g8f6 b1c3 g7g6 f2f4 f8g7",
+            "e2e4 d7d5 e4d5 d8d5 b1c3 d5a5 d2d4 g8f6",
+            "e2e4 g8f6 e4e5 f6d5 d2d4 d7d6 g1f3 c8g4",
+            "e2e4 g7g6 d2d4 f8g7 b1c3 d7d6 c1e3 a7a6",
+            "d2d4 d7d5 c2c4 e7e6 b1c3 g8f6 c1g5 f8e7",
+            "d2d4 d7d5 c2c4 d5c4 g1f3 g8f6 e2e3 e7e6",
+            "d2d4 d7d5 c2c4 c7c6 g1f3 g8f6 b1c3 d5c4",
+            "d2d4 d7d5 c2c4 c7c6 g1f3 g8f6 e2e3 e7e6",
+            "d2d4 d7d5 c2c4 b8c6 b1c3 d5c4 g1f3 g8f6",
+            "d2d4 d7d5 g1f3 g8f6 c1f4 e7e6 e2e3 c7c5",
+            "d2d4 g8f6 c2c4 e7e6 b1c3 f8b4 e2e3 e8g8",
+            "d2d4 g8f6 c2c4 e7e6 g1f3 b7b6 g2g3 c8b7",
+            "d2d4 g8f6 c2c4 e7e6 g2g3 d7d5 f1g2 f8e7",
+            "d2d4 g8f6 c2c4 g7g6 b1c3 f8g7 e2e4 d7d6",
+            "d2d4 g8f6 c2c4 g7g6 b1c3 d7d5 c4d5 f6d5",
+            "d2d4 g8f6 c2c4 c7c5 d4d5 e7e6 b1c3 e6d5",
+            "d2d4 g8f6 c2c4 c7c5 d4d5 b7b5 c4b5 a7a6",
+            "d2d4 g8f6 c1g5 f6e4 g5f4 c7c5 f2f3 d8a5",
+            "d2d4 g8f6 g1f3 e7e6 c1g5 c7c5 e2e3 b7b6",
+            "d2d4 e7e6 c2c4 f8b4 c1d2 d8e7 g1f3 g8f6",
+            "d2d4 f7f5 g2g3 g8f6 f1g2 g7g6 g1f3 f8g7",
+            "c2c4 e7e5 b1c3 g8f6 g1f3 b8c6 g2g3 d7d5",
+            "c2c4 c7c5 b1c3 b8c6 g2g3 g7g6 f1g2 f8g7",
+            "c2c4 g8f6 b1c3 e7e6 e2e4 d7d5 e4e5 d5d4",
+            "g1f3 d7d5 g2g3 g8f6 f1g2 e7e6 e1g1 f8e7",
+            "g1f3 g8f6 c2c4 b7b6 g2g3 c8b7 f1g2 e7e6",
+            "b2b3 e7e5 c1b2 b8c6 e2e3 g8f6 f1b5 f8d6",
+            "f2f4 d7d5 g1f3 g8f6 e2e3 g7g6 f1e2 f8g7"
+    };
+
+    private final EngineConfig first;
+    private final EngineConfig second;
+    private final List<int[]> openings;
+    private final int workers;
+
+    private boolean sprtEnabled;
+    private double elo0;
+    private double elo1;
+    private double alpha = 0.05;
+    private double beta = 0.05;
+
+    /**
+     * @param openings дебюты - последовательности ходов из начальной позиции; пустой список - встроенные дебюты
+     * @param workers  количество одновременных партий
+     */
+    public MatchRunner(EngineConfig first, EngineConfig second, List<int[]> openings, int workers) {
+        this.first = first;
+        this.second = second;
+        this.openings = openings.isEmpty() ? builtinOpenings() : openings;
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * Включает последовательный тест: H0 - разница Elo равна elo0, H1 - elo1.
+     */
+    public void setSprt(double elo0, double elo1, double alpha, double beta) {
+        this.sprtEnabled = true;
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+    /**
+     * Встроенный набор разных дебютов для матча без файла дебютов.
+     */
+    public static List<int[]> builtinOpenings() {
+        List<int[]> openings = new ArrayList<>(BUILTIN_OPENINGS.length);
+        for (String line : BUILTIN_OPENINGS) {
+            String[] moves = line.split(" ");
+            int[] opening = new int[moves.length];
+            for (int i = 0; i < moves.length; i++) {
+                opening[i] = Move.parseUci(moves[i]);
+            }
+            openings.add(opening);
+        }
+        return openings;
+    }
+
+    /**
+     * Количество разных дебютов в списке.
+     */
+    static int countUnique(List<int[]> openings) {
+        Set<List<Integer>> unique = new HashSet<>();
+        for (int[] opening : openings) {
+            List<Integer> moves = new ArrayList<>(opening.length);
+            for (int move : opening) {
+                moves.add(move);
+            }
+            unique.add(moves);
+        }
+        return unique.size();
+    }
+
+    /**
+     * Читает дебюты из PGN: первые {@code maxPlies} полуходов каждой партии.
+     * Партии с нераспознанными ходами и партии не из начальной позиции пропускаются.
+     */
+    public static List<int[]> readOpenings(Path pgn, int maxPlies) throws IOException {
+        List<int[]> openings = new ArrayList<>();
+        long skipped = 0;
+        try (Stream<PgnRecord> games = PgnScanner.games(pgn, false)) {
+            for (PgnRecord game : (Iterable<PgnRecord>) games::iterator) {
+                if (!Position.START_FEN.equals(game.getStartFen())) {
+                    logger.warn("Дебют на смещении {} пропущен: партия начинается не из начальной позиции", game.getOffset());
+                    skipped++;
+                    continue;
+                }
+                if (!game.isValid() && game.getErrorPly() < maxPlies) {
+                    logger.warn("Дебют на смещении {} пропущен: нераспознанный полуход {}",
+                            game.getOffset(), game.getErrorPly() + 1);
+                    skipped++;
+                    continue;
+                }
+                int[] moves = game.getMoves();
+                openings.add(Arrays.copyOf(moves, Math.min(maxPlies, moves.length)));
+            }
+        }
+        logger.info("Прочитано дебютов: {}, пропущено: {}", openings.size(), skipped);
+        return openings;
+    }
+
+    /**
+     * Играет матч.
+     *
+     * @param maxGames наибольшее количество партий
+     * @param pgn      файл для записи партий или {@code null}
+     * @return счет с точки зрения первого участника
+     */
+    public MatchScore run(int maxGames, Path pgn) throws IOException {
+        MatchScore score = new MatchScore();
+        AtomicInteger nextGame = new AtomicInteger();
+        AtomicBoolean stop = new AtomicBoolean();
+        String date = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd"));
+        int threads = Math.min(workers, maxGames);
+        int pairs = (maxGames + 1) / 2;
+        int unique = countUnique(openings);
+        if (unique < pairs) {
+            // Детерминированные движки повторят пары партий: SPRT и Elo посчитают один результат несколько раз
+            logger.warn("Разных дебютов {} меньше, чем пар партий {}: пары партий будут повторяться, "
+                    + "результаты SPRT и Elo ненадежны", unique, pairs);
+        }
+
+        PgnWriter out = pgn != null ? new PgnWriter(pgn, false) : null;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    BagaturEngine firstEngine = createEngine(first);
+                    BagaturEngine secondEngine = createEngine(second);
+                    try {
+                        int index;
+                        while (!stop.get() && (index = nextGame.getAndIncrement()) < maxGames) {
+                            boolean firstIsWhite = index % 2 == 0;
+                            int[] opening = openings.get(index / 2 % openings.size());
+                            GameResult result = firstIsWhite
+                                    ? play(firstEngine, first, secondEngine, second, opening)
+                                    : play(secondEngine, second, firstEngine, first, opening);
+                            double firstPoints = firstIsWhite ? result.whitePoints() : 1 - result.whitePoints();
+                            score.add(firstPoints);
+                            if (out != null) {
+                                writePgn(out, result, index + 1, date,
+                                        firstIsWhite ? first.getName() : second.getName(),
+                                        firstIsWhite ? second.getName() : first.getName());
+                            }
+                            logger.info("Партия {}: {} ({}), счет {}", index + 1, result.result, result.termination, score);
+                            if (sprtEnabled && !stop.get() && isSprtFinished(score)) {
+                                stop.set(true);
+                            }
+                        }
+                    } finally {
+                        firstEngine.cleanup();
+                        secondEngine.cleanup();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Матч прерван", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Ошибка в потоке матча", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            if (out != null) {
+                out.close();
+            }
+        }
+        return score;
+    }
+
+    private boolean isSprtFinished(MatchScore score) {
+        double llr = score.getLlr(elo0, elo1);
+        return llr <= MatchScore.lowerBound(alpha, beta) || llr >= MatchScore.upperBound(alpha, beta);
+    }
+
+    private static BagaturEngine createEngine(EngineConfig config) {
+        BagaturEngine engine = new BagaturEngine(new ChessGame());
+        engine.initialize();
+        // Разнообразие дает файл дебютов, книга сделала бы пары партий несимметричными
+        engine.loadOpeningBook(null);
+        engine.setHashSize(config.getHashMb());
+        engine.setThreads(config.getThreads());
+        return engine;
+    }
+
+    /**
+     * Играет одну партию из начальной позиции после ходов дебюта.
+     */
+    private GameResult play(BagaturEngine white, EngineConfig whiteConfig,
+                            BagaturEngine black, EngineConfig blackConfig, int[] opening) {
+        Position position = new Position();
+        ChessGame game = new ChessGame();
+        List<Integer> moves = new ArrayList<>();
+        white.clearHash();
+        black.clearHash();
+
+        for (int move : opening) {
+            moves.add(move);
+            applyMove(game, position, move);
+        }
+
+        int[] lastScore = new int[1];
+        int decisivePlies = 0;
+        int decisiveSign = 0;
+        while (true) {
+            String status = game.getGameStatus();
+            boolean whiteToMove = position.isWhiteToMove();
+            if ("checkmate".equals(status)) {
+                return new GameResult(whiteToMove ? "0-1" : "1-0", "мат", moves);
+            }
+            if ("stalemate".equals(status)) {
+                return new GameResult("1/2-1/2", "пат", moves);
+            }
+            if ("draw".equals(status)) {
+                return new GameResult("1/2-1/2", "ничья по правилам", moves);
+            }
+            if (moves.size() >= MAX_PLIES) {
+                return new GameResult("1/2-1/2", "предельная длина партии", moves);
+            }
+
+            BagaturEngine engine = whiteToMove ? white : black;
+            EngineConfig config = whiteToMove ? whiteConfig : blackConfig;
+            lastScore[0] = 0;
+            int move = engine.search(position, config.getLimits(), info -> lastScore[0] = info.getScore());
+            if (move == Move.NONE || !position.isLegal(move)) {
+                // Не должно случаться: ChessGame считает партию продолжающейся
+                logger.warn("Нет хода у {} в позиции {} (статус {})", config.getName(), position.toFen(), status);
+                if (!position.hasLegalMove()) {
+                    return position.isInCheck()
+                            ? new GameResult(whiteToMove ? "0-1" : "1-0", "мат", moves)
+                            : new GameResult("1/2-1/2", "пат", moves);
+                }
+                return new GameResult(whiteToMove ? "0-1" : "1-0", "нет хода у " + config.getName(), moves);
+            }
+            moves.add(move);
+            applyMove(game, position, move);
+
+            // Оценка с точки зрения белых: обе стороны должны видеть решающий перевес одного цвета
+            int whiteScore = whiteToMove ? lastScore[0] : -lastScore[0];
+            int sign = Math.abs(whiteScore) >= RESIGN_SCORE ? Integer.signum(whiteScore) : 0;
+            decisivePlies = sign != 0 && sign == decisiveSign ? decisivePlies + 1 : (sign != 0 ? 1 : 0);
+            decisiveSign = sign;
+            if (decisivePlies >= RESIGN_PLIES) {
+                return new GameResult(sign > 0 ? "1-0" : "0-1", "присуждение по оценке", moves);
+            }
+        }
+    }
+
+    private static void applyMove(ChessGame game, Position position, int move) {
+        int promotion = Move.promotion(move);
+        char piece = promotion == Move.PROMO_NONE ? 'q' : "nbrq".charAt(promotion - 1);
+        game.makeMove(Bitboards.squareName(Move.from(move)), Bitboards.squareName(Move.to(move)), piece);
+        position.makeMove(move);
+    }
+
+    private static void writePgn(PgnWriter out, GameResult result, int round, String date,
+                                 String white, String black) throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", "Self-play match");
+        tags.put("Site", "ChessGame");
+        tags.put("Date", date);
+        tags.put("Round", String.valueOf(round));
+        tags.put("White", white);
+        tags.put("Black", black);
+        tags.put("PlyCount", String.valueOf(result.moves.size()));
+        tags.put("Termination", result.termination);
+        int[] moves = new int[result.moves.size()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = result.moves.get(i);
+        }
+        // Файл читают во время матча, поэтому каждая партия сбрасывается на диск сразу
+        out.write(tags, Position.START_FEN, moves, result.result);
+        out.flush();
+    }
+
+    /**
+     * Итог одной партии.
+     */
+    private static final class GameResult {
+        private final String result;
+        private final String termination;
+        private final List<Integer> moves;
+
+        GameResult(String result, String termination, List<Integer> moves) {
+            this.result = result;
+            this.termination = termination;
+            this.moves = moves;
+        }
+
+        double whitePoints() {
+            switch (result) {
+                case "1-0": return 1;
+                case "0-1": return 0;
+                default: return 0.5;
+            }
+        }
+    }
+
+    /**
+     * Точка входа:
+     * {@code MatchRunner <участник1> <участник2> [--games N] [--concurrency N] [--openings файл.pgn]
+     * [--opening-plies N] [--pgn файл.pgn] [--sprt elo0,elo1[,alpha,beta]]}.
+     * Участник задается как {@code имя:time=100,hash=16,threads=1}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Использование: MatchRunner <имя:time=100> <имя:nodes=20000> [--games N] [--concurrency N]"
+                    + " [--openings файл.pgn] [--opening-plies N] [--pgn файл.pgn] [--sprt elo0,elo1[,alpha,beta]]");
+            System.exit(2);
+        }
+        EngineConfig first = EngineConfig.parse(args[0]);
+        EngineConfig second = EngineConfig.parse(args[1]);
+        int games = 100;
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        Path openingsFile = null;
+        int openingPlies = 8;
+        Path pgn = null;
+        double[] sprt = null;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--concurrency": concurrency = Integer.parseInt(args[++i]); break;
+                case "--openings": openingsFile = Paths.get(args[++i]); break;
+                case "--opening-plies": openingPlies = Integer.parseInt(args[++i]); break;
+                case "--pgn": pgn = Paths.get(args[++i]); break;
+                case "--sprt": sprt = parseSprt(args[++i]); break;
+                default: throw new IllegalArgumentException("Неизвестный параметр " + args[i]);
+            }
+        }
+
+        // Без файла - встроенные дебюты: из одной начальной позиции все пары партий были бы одинаковыми
+        List<int[]> openings = openingsFile != null ? readOpenings(openingsFile, openingPlies) : builtinOpenings();
+        logger.info("Матч {} против {}: до {} партий, одновременно {}, дебютов {}",
+                first, second, games, concurrency, openings.size());
+        MatchRunner runner = new MatchRunner(first, second, openings, concurrency);
+        if (sprt != null) {
+            runner.setSprt(sprt[0], sprt[1], sprt[2], sprt[3]);
+        }
+        MatchScore score = runner.run(games, pgn);
+
+        System.out.printf("%s - %s: %s%n", first.getName(), second.getName(), score);
+        if (sprt != null) {
+            double llr = score.getLlr(sprt[0], sprt[1]);
+            double lower = MatchScore.lowerBound(sprt[2], sprt[3]);
+            double upper = MatchScore.upperBound(sprt[2], sprt[3]);
+            String verdict = llr >= upper ? "принята H1" : llr <= lower ? "принята H0" : "нет решения";
+            System.out.printf("SPRT [%.1f, %.1f]: LLR %.2f (%.2f, %.2f) - %s%n", sprt[0], sprt[1], llr, lower, upper, verdict);
+        }
+    }
+
+    private static double[] parseSprt(String value) {
+        String[] parts = value.split(",");
+        if (parts.length != 2 && parts.length != 4) {
+            throw new IllegalArgumentException("Ожидается --sprt elo0,elo1[,alpha,beta]");
+        }
+        return new double[] {
+                Double.parseDouble(parts[0]), Double.parseDouble(parts[1]),
+                parts.length == 4 ? Double.parseDouble(parts[2]) : 0.05,
+                parts.length == 4 ? Double.parseDouble(parts[3]) : 0.05
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package chessgame.match;
+
+/**
+ * Счет матча с точки зрения первого участника: разница Elo с доверительным интервалом
+ * и логарифм отношения правдоподобия для последовательного теста (SPRT).
+ *
+ * <p>Используется нормальное приближение распределения очков за партию:
+ * LLR = N (s1 - s0) (2s - s0 - s1) / (2 var), где s - средний результат,
+ * var - его выборочная дисперсия, s0/s1 - ожидаемые результаты для Elo0/Elo1.
+ */
+public final class MatchScore {
+
+    // Квантиль нормального распределения для 95% интервала
+    private static final double Z95 = 1.959964;
+
+    private int wins;
+    private int draws;
+    private int losses;
+
+    public synchronized void add(double score) {
+        if (score > 0.5) {
+            wins++;
+        } else if (score < 0.5) {
+            losses++;
+        } else {
+            draws++;
+        }
+    }
+
+    public synchronized int getWins() {
+        return wins;
+    }
+
+    public synchronized int getDraws() {
+        return draws;
+    }
+
+    public synchronized int getLosses() {
+        return losses;
+    }
+
+    public synchronized int getGames() {
+        return wins + draws + losses;
+    }
+
+    /**
+     * Средний результат за партию (0..1).
+     */
+    public synchronized double getScore() {
+        int games = getGames();
+        return games > 0 ? (wins + 0.5 * draws) / games : 0.5;
+    }
+
+    /**
+     * Разница Elo по среднему результату.
+     */
+    public synchronized double getElo() {
+        return elo(getScore());
+    }
+
+    /**
+     * Половина 95% доверительного интервала Elo.
+     */
+    public synchronized double getEloError() {
+        int games = getGames();
+        double score = getScore();
+        if (games == 0 || score == 0 || score == 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double margin = Z95 * Math.sqrt(variance(score) / games);
+        return (elo(Math.min(score + margin, 1)) - elo(Math.max(score - margin, 0))) / 2;
+    }
+
+    /**
+     * Логарифм отношения правдоподобия гипотез Elo1 и Elo0.
+     */
+    public synchronized double getLlr(double elo0, double elo1) {
+        int games = getGames();
+        if (games == 0) {
+            return 0;
+        }
+        double score = getScore();
+        double variance = variance(score);
+        if (variance == 0) {
+            // Все партии с одним исходом: добавляем одну условную ничью, иначе дисперсия нулевая
+            score = (wins + 0.5 * draws + 0.5) / (games + 1);
+            variance = ((wins * (1 - score) * (1 - score) + (draws + 1) * (0.5 - score) * (0.5 - score)
+                    + losses * score * score) / (games + 1));
+            games++;
+        }
+        if (variance == 0) {
+            // Одни ничьи: данных о разнице в силе нет
+            return 0;
+        }
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return games * (s1 - s0) * (2 * score - s0 - s1) / (2 * variance);
+    }
+
+    private double variance(double score) {
+        int games = getGames();
+        return games > 0
+                ? (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score) + losses * score * score) / games
+                : 0;
+    }
+
+    /**
+     * Нижняя граница LLR: ниже нее принимается Elo0.
+     */
+    public static double lowerBound(double alpha, double beta) {
+        return Math.log(beta / (1 - alpha));
+    }
+
+    /**
+     * Верхняя граница LLR: выше нее принимается Elo1.
+     */
+    public static double upperBound(double alpha, double beta) {
+        return Math.log((1 - beta) / alpha);
+    }
+
+    static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    static double elo(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("+%d =%d -%d (%.1f%%), Elo %.1f +/- %.1f",
+                wins, draws, losses, 100 * getScore(), getElo(), getEloError());
+    }
+}
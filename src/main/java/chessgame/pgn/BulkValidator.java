@@ -0,0 +1,467 @@
+package chessgame.pgn;
+
+import chessgame.logic.Bitboards;
+import chessgame.logic.ChessGame;
+import chessgame.logic.FenError;
+import chessgame.logic.FenValidator;
+import chessgame.logic.Move;
+import chessgame.logic.LegalityChecker;
+import chessgame.logic.Position;
+import chessgame.logic.PositionError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Массовая проверка загруженных партий (PGN) и позиций (FEN/EPD, по одной на строку) перед сохранением.
+ *
+ * <p>Партия из начальной позиции проигрывается через {@link ChessGame}: каждый ход должен пройти
+ * {@link ChessGame#isValidMove}, партия не может продолжаться после мата или пата, а мат должен совпадать
+ * с результатом. Для партии с тегом FEN позиция проверяется {@link LegalityChecker}, а ходы -
+ * по {@link Position} (ChessGame начинает только с начальной расстановки).
+ *
+ * <p>Работа идет в {@link ForkJoinPool}: файлы обрабатываются параллельно, PGN-файл делится
+ * по партиям ({@link PgnScanner}), FEN-файл - блоками строк; свободные потоки забирают задачи у занятых.
+ * Строки ошибок вычисляются в конце одним проходом по файлу, где они есть, поэтому проверка
+ * корректных файлов не считает переводы строк.
+ */
+public final class BulkValidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkValidator.class);
+
+    public static final int DEFAULT_MAX_ERRORS = 10_000;
+
+    private static final int FEN_BATCH = 4096;
+    private static final int LINE_SCAN_BUFFER = 1 << 20;
+
+    private final int threads;
+    private final int maxErrors;
+
+    private final LongAdder games = new LongAdder();
+    private final LongAdder invalidGames = new LongAdder();
+    private final LongAdder plies = new LongAdder();
+    private final LongAdder positions = new LongAdder();
+    private final LongAdder invalidPositions = new LongAdder();
+    private final Queue<ValidationError> errors = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger storedErrors = new AtomicInteger();
+
+    /**
+     * @param threads   параллелизм пула
+     * @param maxErrors сколько ошибок сохранять для отчета (считаются все)
+     */
+    public BulkValidator(int threads, int maxErrors) {
+        this.threads = threads;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Проверяет файлы: {@code .fen} и {@code .epd} - построчно как позиции, остальные - как PGN.
+     *
+     * @throws IOException при ошибке чтения
+     */
+    public Report validate(List<Path> files) throws IOException {
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> files.parallelStream().forEach(this::validateFile)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Проверка прервана", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IllegalStateException("Ошибка проверки", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        List<ValidationError> sorted = new ArrayList<>(errors);
+        resolveLines(sorted);
+        sorted.sort(Comparator.comparing((ValidationError error) -> error.file.toString())
+                .thenComparingLong(error -> error.line));
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        return new Report(files.size(), games.sum(), invalidGames.sum(), plies.sum(),
+                positions.sum(), invalidPositions.sum(), elapsedMs, threads, sorted);
+    }
+
+    private void validateFile(Path file) {
+        try {
+            String name = file.getFileName().toString().toLowerCase();
+            if (name.endsWith(".fen") || name.endsWith(".epd")) {
+                validateFenFile(file);
+            } else {
+                try (Stream<PgnRecord> stream = PgnScanner.games(file, true)) {
+                    stream.forEach(game -> validateGame(file, game));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void validateGame(Path file, PgnRecord game) {
+        games.increment();
+        plies.add(game.getMoves().length);
+        String error = checkGame(game);
+        if (error != null) {
+            invalidGames.increment();
+            long offset = game.isValid() ? game.getOffset() : game.getErrorOffset();
+            addError(new ValidationError(file, offset, -1, error));
+        }
+    }
+
+    /**
+     * @return описание ошибки или null, если партия корректна
+     */
+    private String checkGame(PgnRecord game) {
+        String fen = game.getTag("FEN");
+        if (fen != null) {
+            FenError fenError = FenValidator.validate(fen);
+            if (fenError != FenError.OK) {
+                return "некорректный FEN (" + fenError.getDescription() + "): " + fen;
+            }
+            PositionError positionError = LegalityChecker.check(fen);
+            if (positionError != PositionError.OK) {
+                return "недопустимая позиция в теге FEN (" + positionError.getDescription() + "): " + fen;
+            }
+        }
+        if (!game.isValid()) {
+            return game.getErrorPly() == 0 && fen != null
+                    ? "некорректный FEN: " + fen
+                    : "полуход " + (game.getErrorPly() + 1) + ": нераспознанный или нелегальный ход";
+        }
+        if (fen != null && !Position.START_FEN.equals(fen)) {
+            // Ходы уже проверены по Position при чтении
+            return null;
+        }
+
+        ChessGame chessGame = new ChessGame();
+        int[] moves = game.getMoves();
+        for (int ply = 0; ply < moves.length; ply++) {
+            String status = chessGame.getGameStatus();
+            if ("checkmate".equals(status) || "stalemate".equals(status)) {
+                return "полуход " + (ply + 1) + ": ход после окончания партии (" + status + ")";
+            }
+            int move = moves[ply];
+            String from = Bitboards.squareName(Move.from(move));
+            String to = Bitboards.squareName(Move.to(move));
+            if (!chessGame.isValidMove(from, to, chessGame.isWhiteToMove())) {
+                return "полуход " + (ply + 1) + ": ход " + Move.toUci(move) + " отклонен ChessGame";
+            }
+            int promotion = Move.promotion(move);
+            chessGame.makeMove(from, to, promotion == Move.PROMO_NONE ? 'q' : "nbrq".charAt(promotion - 1));
+        }
+        if ("checkmate".equals(chessGame.getGameStatus())) {
+            String expected = chessGame.isWhiteToMove() ? "0-1" : "1-0";
+            if (!expected.equals(game.getResult()) && !"*".equals(game.getResult())) {
+                return "партия закончилась матом, а результат " + game.getResult();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Читает FEN-файл блоками строк; каждый блок - отдельная задача пула.
+     * Невыполненных блоков не больше нескольких на поток, поэтому память не зависит от размера файла.
+     */
+    private void validateFenFile(Path file) throws IOException {
+        Deque<ForkJoinTask<?>> pending = new ArrayDeque<>();
+        boolean epd = file.getFileName().toString().toLowerCase().endsWith(".epd");
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            long lineNumber = 0;
+            List<String> batch = new ArrayList<>(FEN_BATCH);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                batch.add(line);
+                if (batch.size() == FEN_BATCH) {
+                    pending.add(submitFenBatch(file, batch, lineNumber + 1, epd));
+                    lineNumber += batch.size();
+                    batch = new ArrayList<>(FEN_BATCH);
+                    while (pending.size() > 4 * threads) {
+                        pending.poll().join();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                pending.add(submitFenBatch(file, batch, lineNumber + 1, epd));
+            }
+        }
+        for (ForkJoinTask<?> task : pending) {
+            task.join();
+        }
+    }
+
+    /**
+     * @param epd строки в формате EPD: проверяются только четыре поля позиции, операции после них пропускаются
+     */
+    private ForkJoinTask<?> submitFenBatch(Path file, List<String> lines, long firstLine, boolean epd) {
+        return ForkJoinTask.adapt(() -> {
+            for (int i = 0; i < lines.size(); i++) {
+                String fen = lines.get(i).trim();
+                if (fen.isEmpty() || fen.startsWith("#")) {
+                    continue;
+                }
+                positions.increment();
+                if (epd) {
+                    fen = fen.substring(0, epdPositionEnd(fen));
+                }
+                String problem = null;
+                FenError fenError = FenValidator.validate(fen);
+                if (fenError != FenError.OK) {
+                    problem = "некорректный FEN (" + fenError.getDescription() + "): ";
+                } else {
+                    PositionError positionError = LegalityChecker.check(fen);
+                    if (positionError != PositionError.OK) {
+                        problem = "недопустимая позиция (" + positionError.getDescription() + "): ";
+                    }
+                }
+                if (problem != null) {
+                    invalidPositions.increment();
+                    addError(new ValidationError(file, -1, firstLine + i, problem + fen));
+                }
+            }
+        }).fork();
+    }
+
+    /**
+     * Конец четвертого поля строки EPD (или конец строки, если полей меньше).
+     */
+    private static int epdPositionEnd(String line) {
+        int fields = 0;
+        int i = 0;
+        while (i < line.length()) {
+            while (i < line.length() && line.charAt(i) <= ' ') {
+                i++;
+            }
+            while (i < line.length() && line.charAt(i) > ' ') {
+                i++;
+            }
+            if (++fields == 4) {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private void addError(ValidationError error) {
+        if (storedErrors.incrementAndGet() <= maxErrors) {
+            errors.add(error);
+        }
+    }
+
+    /**
+     * Переводит смещения ошибок в номера строк: по одному последовательному проходу на файл с ошибками.
+     */
+    private static void resolveLines(List<ValidationError> list) throws IOException {
+        Map<Path, List<ValidationError>> byFile = new HashMap<>();
+        for (ValidationError error : list) {
+            if (error.offset >= 0) {
+                byFile.computeIfAbsent(error.file, f -> new ArrayList<>()).add(error);
+            }
+        }
+        for (Map.Entry<Path, List<ValidationError>> entry : byFile.entrySet()) {
+            List<ValidationError> fileErrors = entry.getValue();
+            fileErrors.sort(Comparator.comparingLong(error -> error.offset));
+            try (FileChannel channel = FileChannel.open(entry.getKey(), StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(LINE_SCAN_BUFFER);
+                long position = 0;
+                long line = 1;
+                int next = 0;
+                while (next < fileErrors.size()) {
+                    buffer.clear();
+                    int read = channel.read(buffer, position);
+                    if (read <= 0) {
+                        break;
+                    }
+                    byte[] data = buffer.array();
+                    for (int i = 0; i < read && next < fileErrors.size(); i++) {
+                        while (next < fileErrors.size() && fileErrors.get(next).offset == position + i) {
+                            fileErrors.get(next++).line = line;
+                        }
+                        if (data[i] == '\n') {
+                            line++;
+                        }
+                    }
+                    position += read;
+                }
+                while (next < fileErrors.size()) {
+                    fileErrors.get(next++).line = line;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ошибка в файле.
+     */
+    public static final class ValidationError {
+        private final Path file;
+        private final long offset;
+        private long line;
+        private final String message;
+
+        ValidationError(Path file, long offset, long line, String message) {
+            this.file = file;
+            this.offset = offset;
+            this.line = line;
+            this.message = message;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        /**
+         * Номер строки (с 1): для партии - строка нераспознанного хода или начала партии.
+         */
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return file + ":" + line + ": " + message;
+        }
+    }
+
+    /**
+     * Итог проверки.
+     */
+    public static final class Report {
+        private final int files;
+        private final long games;
+        private final long invalidGames;
+        private final long plies;
+        private final long positions;
+        private final long invalidPositions;
+        private final long elapsedMs;
+        private final int threads;
+        private final List<ValidationError> errors;
+
+        Report(int files, long games, long invalidGames, long plies, long positions, long invalidPositions,
+               long elapsedMs, int threads, List<ValidationError> errors) {
+            this.files = files;
+            this.games = games;
+            this.invalidGames = invalidGames;
+            this.plies = plies;
+            this.positions = positions;
+            this.invalidPositions = invalidPositions;
+            this.elapsedMs = elapsedMs;
+            this.threads = threads;
+            this.errors = errors;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getInvalidGames() {
+            return invalidGames;
+        }
+
+        public long getPositions() {
+            return positions;
+        }
+
+        public long getInvalidPositions() {
+            return invalidPositions;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        /**
+         * Сохраненные ошибки, по файлам и строкам.
+         */
+        public List<ValidationError> getErrors() {
+            return errors;
+        }
+
+        public boolean isValid() {
+            return invalidGames == 0 && invalidPositions == 0;
+        }
+
+        public void print(PrintStream out) {
+            for (ValidationError error : errors) {
+                out.println(error);
+            }
+            long invalid = invalidGames + invalidPositions;
+            if (invalid > errors.size()) {
+                out.printf("... и еще %,d ошибок%n", invalid - errors.size());
+            }
+            out.printf("Файлов %d, партий %,d (ошибочных %,d, полуходов %,d), позиций %,d (ошибочных %,d)%n",
+                    files, games, invalidGames, plies, positions, invalidPositions);
+            out.printf("Потоков %d, %,d мс: %,d партий/с, %,d позиций/с%n", threads, elapsedMs,
+                    games * 1000 / elapsedMs, positions * 1000 / elapsedMs);
+        }
+    }
+
+    /**
+     * Точка входа: {@code BulkValidator [--threads N] [--max-errors N] <файл или каталог>...}.
+     * Код выхода 1, если найдены ошибки.
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxErrors = DEFAULT_MAX_ERRORS;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--max-errors": maxErrors = Integer.parseInt(args[++i]); break;
+                default:
+                    Path path = Paths.get(args[i]);
+                    if (Files.isDirectory(path)) {
+                        try (Stream<Path> children = Files.list(path)) {
+                            children.filter(BulkValidator::isBatchFile).sorted().forEach(files::add);
+                        }
+                    } else {
+                        files.add(path);
+                    }
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Использование: BulkValidator [--threads N] [--max-errors N] <файл или каталог>...");
+            System.exit(2);
+        }
+        logger.info("Проверка {} файлов в {} потоков", files.size(), threads);
+        Report report = new BulkValidator(threads, maxErrors).validate(files);
+        report.print(System.out);
+        System.exit(report.isValid() ? 0 : 1);
+    }
+
+    private static boolean isBatchFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return name.endsWith(".pgn") || name.endsWith(".fen") || name.endsWith(".epd");
+    }
+}
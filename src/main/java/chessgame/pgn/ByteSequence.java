@@ -0,0 +1,41 @@
+package chessgame.pgn;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Представление участка массива байтов как {@link CharSequence} без копирования.
+ * Объект переиспользуется: {@link #set} перенаправляет его на следующий токен.
+ */
+final class ByteSequence implements CharSequence {
+
+    private byte[] bytes;
+    private int start;
+    private int length;
+
+    ByteSequence set(byte[] bytes, int start, int end) {
+        this.bytes = bytes;
+        this.start = start;
+        this.length = end - start;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes[start + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return new ByteSequence().set(bytes, start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, start, length, StandardCharsets.ISO_8859_1);
+    }
+}
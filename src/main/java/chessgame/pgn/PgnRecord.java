@@ -0,0 +1,136 @@
+package chessgame.pgn;
+
+import chessgame.logic.Position;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Партия, прочитанная {@link PgnScanner}: ходы основной линии уже разобраны в коды {@link chessgame.logic.Move},
+ * а теги лежат одним массивом байтов и превращаются в строки только по запросу.
+ */
+public final class PgnRecord {
+
+    private final long offset;
+    private final byte[] tagData;
+    // По четыре смещения на тег: начало и конец имени, начало и конец значения
+    private final int[] tagBounds;
+    private final int[] moves;
+    private final String result;
+    private final int errorPly;
+    private final long errorOffset;
+
+    PgnRecord(long offset, byte[] tagData, int[] tagBounds, int[] moves, String result, int errorPly, long errorOffset) {
+        this.offset = offset;
+        this.tagData = tagData;
+        this.tagBounds = tagBounds;
+        this.moves = moves;
+        this.result = result;
+        this.errorPly = errorPly;
+        this.errorOffset = errorOffset;
+    }
+
+    /**
+     * Смещение начала партии в файле, байты.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getTagCount() {
+        return tagBounds.length / 4;
+    }
+
+    /**
+     * Значение тега или null, если тега нет.
+     */
+    public String getTag(String name) {
+        for (int t = 0; t < tagBounds.length; t += 4) {
+            int start = tagBounds[t];
+            int length = tagBounds[t + 1] - start;
+            if (length != name.length()) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && (tagData[start + i] & 0xFF) == name.charAt(i)) {
+                i++;
+            }
+            if (i == length) {
+                return value(t);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Все теги в порядке файла.
+     */
+    public Map<String, String> getTags() {
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (int t = 0; t < tagBounds.length; t += 4) {
+            tags.put(new String(tagData, tagBounds[t], tagBounds[t + 1] - tagBounds[t], StandardCharsets.ISO_8859_1),
+                    value(t));
+        }
+        return tags;
+    }
+
+    private String value(int t) {
+        int start = tagBounds[t + 2];
+        int end = tagBounds[t + 3];
+        StringBuilder value = null;
+        for (int i = start; i < end; i++) {
+            if (tagData[i] == '\\' && i + 1 < end) {
+                if (value == null) {
+                    value = new StringBuilder(end - start);
+                    value.append(new String(tagData, start, i - start, StandardCharsets.ISO_8859_1));
+                }
+                i++;
+                value.append((char) (tagData[i] & 0xFF));
+            } else if (value != null) {
+                value.append((char) (tagData[i] & 0xFF));
+            }
+        }
+        return value != null ? value.toString() : new String(tagData, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Начальная позиция: тег FEN или стандартная расстановка.
+     */
+    public String getStartFen() {
+        String fen = getTag("FEN");
+        return fen != null ? fen : Position.START_FEN;
+    }
+
+    /**
+     * Ходы основной линии в формате {@link chessgame.logic.Move}. При ошибке разбора - только ходы до нее.
+     */
+    public int[] getMoves() {
+        return moves;
+    }
+
+    /**
+     * Результат партии: "1-0", "0-1", "1/2-1/2" или "*".
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * Номер полухода, который не удалось разобрать (0 - некорректный FEN), или -1, если ошибок нет.
+     */
+    public int getErrorPly() {
+        return errorPly;
+    }
+
+    /**
+     * Смещение в файле нераспознанного хода (для некорректного FEN - начала партии) или -1.
+     */
+    public long getErrorOffset() {
+        return errorOffset;
+    }
+
+    public boolean isValid() {
+        return errorPly < 0;
+    }
+}
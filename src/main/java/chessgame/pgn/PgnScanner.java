@@ -0,0 +1,599 @@
+package chessgame.pgn;
+
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+import chessgame.logic.San;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Быстрое потоковое чтение больших PGN-архивов.
+ *
+ * <p>Файл читается блоками через {@link FileChannel} с явным смещением, токены размечаются прямо
+ * в массиве байтов: для ходов не создаются строки, SAN разбирается через {@link ByteSequence}
+ * по легальным ходам {@link Position}. Партия отдается как {@link PgnRecord} с готовыми кодами ходов.
+ * Память ограничена блоком чтения (растет только ради партии, которая в блок не помещается).
+ *
+ * <p>Для параллельного потока файл делится по границам партий - строкам, начинающимся с {@code [Event }.
+ * Файл без тега Event читается последовательно.
+ */
+public final class PgnScanner implements Spliterator<PgnRecord> {
+
+    static final int CHUNK_SIZE = 1 << 20;
+    private static final long MIN_SPLIT = 1 << 22;
+    private static final int SEARCH_WINDOW = 1 << 16;
+    private static final byte[] GAME_START = "\n[Event ".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] FEN_TAG = "FEN".getBytes(StandardCharsets.ISO_8859_1);
+
+    private static final int GAME = 0;
+    private static final int NEED_MORE = 1;
+    private static final int END = 2;
+
+    private final FileChannel channel;
+    private long readPosition;
+    private long end;
+
+    private byte[] buffer;
+    private long bufferOffset;
+    private int length;
+    private int position;
+    private boolean eof;
+
+    private final Position board = new Position();
+    private final int[] legal = new int[Position.MAX_MOVES];
+    private final ByteSequence token = new ByteSequence();
+    private int[] moves = new int[256];
+    private int[] tagBounds = new int[64];
+    private PgnRecord record;
+
+    PgnScanner(FileChannel channel, long start, long end) {
+        this.channel = channel;
+        this.readPosition = start;
+        this.bufferOffset = start;
+        this.end = end;
+    }
+
+    /**
+     * Поток партий файла. Поток нужно закрыть: он держит открытый канал.
+     *
+     * @param parallel делить ли файл между потоками {@link ForkJoinPool}
+     * @throws IOException если файл не открывается
+     */
+    public static Stream<PgnRecord> games(Path file, boolean parallel) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return StreamSupport.stream(new PgnScanner(channel, 0, channel.size()), parallel).onClose(() -> {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Читает одну партию, начинающуюся с заданного смещения файла (например, из {@link PgnRecord#getOffset()}).
+     *
+     * @return партия или null, если после смещения партий нет
+     * @throws IOException если файл не открывается
+     */
+    public static PgnRecord readGame(Path file, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            PgnRecord[] game = new PgnRecord[1];
+            new PgnScanner(channel, offset, channel.size()).tryAdvance(record -> game[0] = record);
+            return game[0];
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super PgnRecord> action) {
+        if (buffer == null) {
+            buffer = new byte[CHUNK_SIZE];
+        }
+        while (true) {
+            int state = parseGame();
+            if (state == GAME) {
+                PgnRecord next = record;
+                record = null;
+                action.accept(next);
+                return true;
+            }
+            if (state == END) {
+                return false;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Отдает первую половину оставшейся части файла (со всем, что уже прочитано в буфер),
+     * а сам продолжает со следующей за серединой партии.
+     */
+    @Override
+    public Spliterator<PgnRecord> trySplit() {
+        long remaining = end - readPosition;
+        if (remaining < MIN_SPLIT) {
+            return null;
+        }
+        long boundary = findGameStart(readPosition + remaining / 2);
+        if (boundary < 0) {
+            return null;
+        }
+        PgnScanner prefix = new PgnScanner(channel, readPosition, boundary);
+        prefix.buffer = buffer;
+        prefix.bufferOffset = bufferOffset;
+        prefix.length = length;
+        prefix.position = position;
+        buffer = null;
+        bufferOffset = boundary;
+        readPosition = boundary;
+        length = 0;
+        position = 0;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        // Точное число партий неизвестно; для деления важно только соотношение размеров
+        return end - bufferOffset - position;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * Сдвигает непрочитанный остаток в начало буфера и дочитывает блок.
+     */
+    private void fill() {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, length - position);
+            bufferOffset += position;
+            length -= position;
+            position = 0;
+        }
+        if (length == buffer.length) {
+            // Партия длиннее блока
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        ByteBuffer target = ByteBuffer.wrap(buffer, length, (int) Math.min(buffer.length - length, end - readPosition));
+        try {
+            while (target.hasRemaining()) {
+                int read = channel.read(target, readPosition);
+                if (read < 0) {
+                    end = readPosition;
+                    break;
+                }
+                readPosition += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        length = target.position();
+        eof = readPosition >= end;
+    }
+
+    /**
+     * Смещение первой после {@code from} строки, начинающейся с {@code [Event }, или -1.
+     */
+    private long findGameStart(long from) {
+        byte[] window = new byte[SEARCH_WINDOW];
+        long offset = from;
+        try {
+            while (offset < end) {
+                ByteBuffer target = ByteBuffer.wrap(window, 0, (int) Math.min(window.length, end - offset));
+                while (target.hasRemaining() && channel.read(target, offset + target.position()) > 0) {
+                    // дочитываем окно
+                }
+                int count = target.position();
+                for (int i = 0; i + GAME_START.length <= count; i++) {
+                    if (matches(window, i, GAME_START)) {
+                        return offset + i + 1;
+                    }
+                }
+                if (count < GAME_START.length || offset + count >= end) {
+                    return -1;
+                }
+                // Окна перекрываются, чтобы не пропустить образец на стыке
+                offset += count - GAME_START.length + 1;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] data, int at, byte[] pattern) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (data[at + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Разбирает партию, начинающуюся с {@link #position}. Если партия не дочитана,
+     * состояние не меняется и разбор повторяется после {@link #fill()}.
+     */
+    private int parseGame() {
+        byte[] data = buffer;
+        int limit = length;
+        // Пробелы между партиями отбрасываются сразу, чтобы смещение партии указывало на ее первый символ
+        while (position < limit && data[position] <= ' ') {
+            position++;
+        }
+        int i = position;
+        int tagCount = 0;
+        int tagStart = -1;
+        int tagEnd = -1;
+        int moveCount = 0;
+        int errorPly = -1;
+        long errorOffset = -1;
+        boolean started = false;
+        boolean inMoves = false;
+        String result = "*";
+
+        scan:
+        while (true) {
+            if (i >= limit) {
+                if (!eof) {
+                    return NEED_MORE;
+                }
+                if (!started) {
+                    position = limit;
+                    return END;
+                }
+                break;
+            }
+            byte c = data[i];
+            // Пробелы, управляющие символы и байты не из ASCII (в том числе BOM) вне тегов и комментариев пропускаются
+            if (c <= ' ') {
+                i++;
+                continue;
+            }
+            switch (c) {
+                case '[': {
+                    if (inMoves) {
+                        // Следующая партия, у текущей не было результата
+                        break scan;
+                    }
+                    int close = skipTag(data, i + 1, limit);
+                    if (close < 0) {
+                        if (!eof) {
+                            return NEED_MORE;
+                        }
+                        i = limit;
+                        continue;
+                    }
+                    if (tagCount * 4 + 4 > tagBounds.length) {
+                        tagBounds = Arrays.copyOf(tagBounds, tagBounds.length * 2);
+                    }
+                    if (addTag(data, i + 1, close, tagCount * 4)) {
+                        tagCount++;
+                    }
+                    if (tagStart < 0) {
+                        tagStart = i;
+                    }
+                    tagEnd = close + 1;
+                    started = true;
+                    i = close + 1;
+                    continue;
+                }
+                case '{': {
+                    int close = indexOf(data, i + 1, limit, (byte) '}');
+                    if (close < 0) {
+                        if (!eof) {
+                            return NEED_MORE;
+                        }
+                        i = limit;
+                        continue;
+                    }
+                    i = close + 1;
+                    continue;
+                }
+                case ';':
+                case '%': {
+                    int close = indexOf(data, i + 1, limit, (byte) '\n');
+                    if (close < 0) {
+                        if (!eof) {
+                            return NEED_MORE;
+                        }
+                        i = limit;
+                        continue;
+                    }
+                    i = close + 1;
+                    continue;
+                }
+                case '(': {
+                    int close = skipVariation(data, i + 1, limit);
+                    if (close < 0) {
+                        if (!eof) {
+                            return NEED_MORE;
+                        }
+                        i = limit;
+                        continue;
+                    }
+                    i = close + 1;
+                    continue;
+                }
+                case ')':
+                    i++;
+                    continue;
+                default:
+                    break;
+            }
+
+            int tokenEnd = i + 1;
+            while (tokenEnd < limit && !isDelimiter(data[tokenEnd])) {
+                tokenEnd++;
+            }
+            if (tokenEnd == limit && !eof) {
+                return NEED_MORE;
+            }
+            int tokenStart = i;
+            i = tokenEnd;
+            started = true;
+            if (c == '$') {
+                continue;
+            }
+            String tokenResult = result(data, tokenStart, tokenEnd);
+            if (tokenResult != null) {
+                result = tokenResult;
+                break;
+            }
+            // Номер хода: "12.", "12...", "12.e4"
+            int s = tokenStart;
+            while (s < tokenEnd && data[s] >= '0' && data[s] <= '9') {
+                s++;
+            }
+            if (s == tokenEnd) {
+                continue;
+            }
+            if (s > tokenStart && data[s] == '.') {
+                while (s < tokenEnd && data[s] == '.') {
+                    s++;
+                }
+                if (s == tokenEnd) {
+                    continue;
+                }
+            } else {
+                s = tokenStart;
+            }
+
+            if (!inMoves) {
+                inMoves = true;
+                if (!setUp(data, tagCount)) {
+                    errorPly = 0;
+                    errorOffset = bufferOffset + position;
+                }
+            }
+            if (errorPly >= 0) {
+                continue;
+            }
+            int move = San.parse(board, token.set(data, s, tokenEnd), legal);
+            if (move == Move.NONE) {
+                errorPly = moveCount;
+                errorOffset = bufferOffset + s;
+                continue;
+            }
+            if (moveCount == moves.length) {
+                moves = Arrays.copyOf(moves, moveCount * 2);
+            }
+            moves[moveCount++] = move;
+            board.makeMove(move);
+        }
+
+        byte[] tags;
+        int[] bounds = Arrays.copyOf(tagBounds, tagCount * 4);
+        if (tagStart >= 0) {
+            tags = Arrays.copyOfRange(data, tagStart, tagEnd);
+            for (int t = 0; t < bounds.length; t++) {
+                bounds[t] -= tagStart;
+            }
+        } else {
+            tags = new byte[0];
+        }
+        record = new PgnRecord(bufferOffset + position, tags, bounds, Arrays.copyOf(moves, moveCount), result, errorPly,
+                errorOffset);
+        position = i;
+        return GAME;
+    }
+
+    /**
+     * Ставит начальную позицию партии: из тега FEN или стандартную.
+     *
+     * @return false, если FEN некорректен
+     */
+    private boolean setUp(byte[] data, int tagCount) {
+        for (int t = 0; t < tagCount * 4; t += 4) {
+            int start = tagBounds[t];
+            if (tagBounds[t + 1] - start == FEN_TAG.length && matches(data, start, FEN_TAG)) {
+                try {
+                    board.setFen(new String(data, tagBounds[t + 2], tagBounds[t + 3] - tagBounds[t + 2],
+                            StandardCharsets.ISO_8859_1));
+                    return true;
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+            }
+        }
+        board.setFen(Position.START_FEN);
+        return true;
+    }
+
+    /**
+     * Размечает тег {@code [Name "value"]} между {@code from} и закрывающей скобкой.
+     *
+     * @return false, если у тега нет имени
+     */
+    private boolean addTag(byte[] data, int from, int close, int slot) {
+        int i = from;
+        while (i < close && data[i] <= ' ') {
+            i++;
+        }
+        int nameStart = i;
+        while (i < close && data[i] > ' ' && data[i] != '"') {
+            i++;
+        }
+        if (i == nameStart) {
+            return false;
+        }
+        int nameEnd = i;
+        int quote = indexOf(data, i, close, (byte) '"');
+        int valueStart = quote < 0 ? close : quote + 1;
+        int valueEnd = valueStart;
+        for (int j = valueStart; j < close; j++) {
+            if (data[j] == '\\') {
+                j++;
+            } else if (data[j] == '"') {
+                valueEnd = j;
+                break;
+            }
+            valueEnd = Math.min(j + 1, close);
+        }
+        tagBounds[slot] = nameStart;
+        tagBounds[slot + 1] = nameEnd;
+        tagBounds[slot + 2] = valueStart;
+        tagBounds[slot + 3] = valueEnd;
+        return true;
+    }
+
+    /**
+     * Закрывающая скобка тега с учетом кавычек и экранирования или -1.
+     */
+    private static int skipTag(byte[] data, int from, int limit) {
+        boolean quoted = false;
+        for (int i = from; i < limit; i++) {
+            byte c = data[i];
+            if (quoted) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ']') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Закрывающая скобка варианта с учетом вложенных вариантов и комментариев или -1.
+     */
+    private static int skipVariation(byte[] data, int from, int limit) {
+        int depth = 1;
+        for (int i = from; i < limit; i++) {
+            byte c = data[i];
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (--depth == 0) {
+                    return i;
+                }
+            } else if (c == '{') {
+                i = indexOf(data, i + 1, limit, (byte) '}');
+            } else if (c == ';') {
+                i = indexOf(data, i + 1, limit, (byte) '\n');
+            }
+            if (i < 0) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] data, int from, int limit, byte value) {
+        for (int i = from; i < limit; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDelimiter(byte c) {
+        return c <= ' ' || c == '{' || c == '(' || c == ')' || c == ';' || c == '[' || c == '$';
+    }
+
+    /**
+     * Результат партии, если токен - результат, иначе null.
+     */
+    private static String result(byte[] data, int start, int end) {
+        int length = end - start;
+        if (length == 1 && data[start] == '*') {
+            return "*";
+        }
+        if (length == 3 && data[start + 1] == '-') {
+            if (data[start] == '1' && data[start + 2] == '0') {
+                return "1-0";
+            }
+            if (data[start] == '0' && data[start + 2] == '1') {
+                return "0-1";
+            }
+        }
+        if (length == 7 && data[start] == '1' && data[start + 1] == '/' && data[start + 2] == '2'
+                && data[start + 3] == '-' && data[start + 4] == '1' && data[start + 5] == '/' && data[start + 6] == '2') {
+            return "1/2-1/2";
+        }
+        return null;
+    }
+
+    /**
+     * Точка входа: {@code PgnScanner <файл.pgn> [потоков]} - скорость чтения в один поток и параллельно.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Использование: PgnScanner <файл.pgn> [потоков]");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        benchmark(file, false, 1);
+        if (threads > 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.submit(() -> {
+                    benchmark(file, true, threads);
+                    return null;
+                }).get();
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static void benchmark(Path file, boolean parallel, int threads) throws IOException {
+        long start = System.nanoTime();
+        long[] totals;
+        try (Stream<PgnRecord> games = games(file, parallel)) {
+            totals = games.map(game -> new long[]{1, game.getMoves().length, game.isValid() ? 0 : 1})
+                    .reduce(new long[3], (a, b) -> new long[]{a[0] + b[0], a[1] + b[1], a[2] + b[2]});
+        }
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        System.out.printf("Потоков %d: партий %,d, полуходов %,d, с ошибками %,d за %,d мс (%,d партий/мин, %.1f МБ/с)%n",
+                threads, totals[0], totals[1], totals[2], elapsedMs, totals[0] * 60_000 / elapsedMs,
+                file.toFile().length() / 1048.576 / elapsedMs);
+    }
+}
@@ -0,0 +1,182 @@
+package chessgame.pgn;
+
+import chessgame.logic.ChessGame;
+import chessgame.logic.Position;
+import chessgame.logic.San;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * Запись партий в PGN: ходы из формата {@link chessgame.logic.Move} переводятся в SAN
+ * проигрыванием на {@link Position}, текст партии собирается в переиспользуемом буфере
+ * и уходит в буферизованный файловый поток одной записью. Методы синхронизированы,
+ * поэтому один писатель можно разделять между потоками.
+ */
+public final class PgnWriter implements Closeable, Flushable {
+
+    /** Наибольшая длина строки ходов (стандарт экспорта PGN требует меньше 80 символов). */
+    public static final int LINE_WIDTH = 79;
+
+    private static final String[] SEVEN_TAG_ROSTER = {"Event", "Site", "Date", "Round", "White", "Black", "Result"};
+
+    private final Writer out;
+    private final StringBuilder text = new StringBuilder(4096);
+    private final StringBuilder token = new StringBuilder(16);
+    private final Position position = new Position();
+    private long games;
+
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Открывает файл на запись.
+     *
+     * @param append дописывать в конец существующего файла вместо перезаписи
+     * @throws IOException если файл не открывается
+     */
+    public PgnWriter(Path file, boolean append) throws IOException {
+        this(Files.newBufferedWriter(file, StandardCharsets.UTF_8, append
+                ? new OpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE}
+                : new OpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE}));
+    }
+
+    /**
+     * Записывает партию {@link ChessGame} из начальной позиции; результат берется из ее состояния.
+     *
+     * @param tags теги, кроме Result (отсутствующие теги семи обязательных получают "?")
+     */
+    public void write(ChessGame game, Map<String, String> tags) throws IOException {
+        int[] moves = new int[game.getMoveCount()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = game.getMove(i);
+        }
+        write(tags, Position.START_FEN, moves, resultOf(game));
+    }
+
+    /**
+     * Записывает партию.
+     *
+     * @param tags     теги (семь обязательных идут первыми, отсутствующие получают "?")
+     * @param startFen начальная позиция; для нестандартной добавляются теги SetUp и FEN
+     * @param moves    легальные ходы партии
+     * @param result   "1-0", "0-1", "1/2-1/2" или "*"
+     * @throws IllegalArgumentException если FEN некорректен
+     */
+    public synchronized void write(Map<String, String> tags, String startFen, int[] moves, String result)
+            throws IOException {
+        position.setFen(startFen);
+        text.setLength(0);
+        for (String name : SEVEN_TAG_ROSTER) {
+            String value = "Result".equals(name) ? result : tags.get(name);
+            appendTag(name, value != null ? value : "?");
+        }
+        boolean setUp = !Position.START_FEN.equals(startFen);
+        if (setUp) {
+            appendTag("SetUp", "1");
+            appendTag("FEN", startFen);
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (!isRosterTag(tag.getKey()) && !(setUp && ("SetUp".equals(tag.getKey()) || "FEN".equals(tag.getKey())))) {
+                appendTag(tag.getKey(), tag.getValue());
+            }
+        }
+        text.append('\n');
+
+        int lineStart = text.length();
+        for (int i = 0; i < moves.length; i++) {
+            token.setLength(0);
+            if (position.isWhiteToMove()) {
+                token.append(position.fullmoveNumber()).append(". ");
+            } else if (i == 0) {
+                token.append(position.fullmoveNumber()).append("... ");
+            }
+            San.appendSan(position, moves[i], token);
+            position.makeMove(moves[i]);
+            lineStart = appendToken(token, lineStart);
+        }
+        token.setLength(0);
+        token.append(result);
+        appendToken(token, lineStart);
+        text.append("\n\n");
+
+        out.append(text);
+        games++;
+    }
+
+    /**
+     * Результат партии по состоянию {@link ChessGame#getGameStatus()}: мат - победа сделавшей его стороны,
+     * пат и ничья по правилам - 1/2-1/2, иначе "*".
+     */
+    public static String resultOf(ChessGame game) {
+        switch (game.getGameStatus()) {
+            case "checkmate": return game.isWhiteToMove() ? "0-1" : "1-0";
+            case "stalemate":
+            case "draw": return "1/2-1/2";
+            default: return "*";
+        }
+    }
+
+    /**
+     * Количество записанных партий.
+     */
+    public synchronized long getGames() {
+        return games;
+    }
+
+    private void appendTag(String name, String value) {
+        text.append('[').append(name).append(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                text.append('\\');
+            }
+            text.append(c);
+        }
+        text.append("\"]\n");
+    }
+
+    /**
+     * Дописывает токен через пробел или с новой строки, если строка стала бы длиннее {@link #LINE_WIDTH}.
+     *
+     * @return начало текущей строки
+     */
+    private int appendToken(CharSequence value, int lineStart) {
+        if (text.length() > lineStart && text.length() - lineStart + 1 + value.length() > LINE_WIDTH) {
+            text.append('\n');
+            lineStart = text.length();
+        } else if (text.length() > lineStart) {
+            text.append(' ');
+        }
+        text.append(value);
+        return lineStart;
+    }
+
+    private static boolean isRosterTag(String name) {
+        for (String tag : SEVEN_TAG_ROSTER) {
+            if (tag.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
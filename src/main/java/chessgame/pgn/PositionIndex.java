@@ -0,0 +1,271 @@
+package chessgame.pgn;
+
+import chessgame.logic.Position;
+import chessgame.logic.Symmetry;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Индекс позиций PGN-архива: по ключу Zobrist находит партии, в которых встречалась позиция.
+ *
+ * <p>Файл строит {@link PositionIndexBuilder}. Записи по 16 байт (ключ, номер партии, полуход)
+ * отсортированы по ключу без знака и отображаются в память сегментами по 1 ГБ, поиск - двоичный
+ * прямо по отображению, поэтому индекс не загружается в кучу, а запрос читает O(log n) страниц.
+ *
+ * <p>Формат: заголовок ({@link #MAGIC}, версия, количество записей, количество партий, флаги),
+ * записи, таблица партий (номер файла и смещение партии в нем, по 12 байт), список PGN-файлов.
+ */
+public final class PositionIndex implements AutoCloseable {
+
+    static final int MAGIC = 0x43475049; // "CGPI"
+    static final int VERSION = 1;
+
+    /** Флаг заголовка: ключи канонические ({@link Symmetry#canonicalKey(Position)}). */
+    static final long FLAG_CANONICAL = 1;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 16;
+    private static final int GAME_ENTRY_SIZE = 12;
+    // 2^26 записей по 16 байт - сегмент в 1 ГБ
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long recordCount;
+    private final long gameCount;
+    private final long gamesOffset;
+    private final boolean canonical;
+    private final List<Path> files = new ArrayList<>();
+
+    private PositionIndex(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // дочитываем заголовок
+        }
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Файл не является индексом позиций");
+        }
+        recordCount = header.getLong();
+        gameCount = header.getLong();
+        canonical = (header.getLong() & FLAG_CANONICAL) != 0;
+        gamesOffset = HEADER_SIZE + recordCount * RECORD_SIZE;
+
+        int segmentCount = (int) ((recordCount + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long first = (long) i << SEGMENT_SHIFT;
+            long count = Math.min(1L << SEGMENT_SHIFT, recordCount - first);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * RECORD_SIZE, count * RECORD_SIZE);
+        }
+
+        DataInputStream in = new DataInputStream(Channels.newInputStream(
+                channel.position(gamesOffset + gameCount * GAME_ENTRY_SIZE)));
+        int fileCount = in.readInt();
+        for (int i = 0; i < fileCount; i++) {
+            files.add(Paths.get(in.readUTF()));
+        }
+    }
+
+    /**
+     * Открывает индекс.
+     *
+     * @throws IOException если файл не читается или имеет неверный формат
+     */
+    public static PositionIndex open(Path index) throws IOException {
+        FileChannel channel = FileChannel.open(index, StandardOpenOption.READ);
+        try {
+            return new PositionIndex(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long getPositionCount() {
+        return recordCount;
+    }
+
+    public long getGameCount() {
+        return gameCount;
+    }
+
+    /**
+     * Построен ли индекс по каноническим ключам; тогда запрос находит и симметричные позиции.
+     */
+    public boolean isCanonical() {
+        return canonical;
+    }
+
+    /**
+     * Ключ, под которым позиция хранится в этом индексе.
+     */
+    public long keyOf(Position position) {
+        return canonical ? Symmetry.canonicalKey(position) : position.key();
+    }
+
+    /**
+     * Сколько раз позиция встречается в архиве.
+     */
+    public long count(long key) {
+        return bound(key, true) - bound(key, false);
+    }
+
+    /**
+     * Вхождения позиции в порядке номеров партий и полуходов.
+     *
+     * @param limit наибольшее количество результатов
+     */
+    public List<Hit> find(long key, int limit) {
+        List<Hit> hits = new ArrayList<>();
+        for (long i = bound(key, false); i < recordCount && hits.size() < limit && keyAt(i) == key; i++) {
+            long value = valueAt(i);
+            hits.add(new Hit((int) (value >>> 32), (int) value));
+        }
+        return hits;
+    }
+
+    /**
+     * Вхождения позиции, заданной FEN.
+     *
+     * @throws IllegalArgumentException если FEN некорректен
+     */
+    public List<Hit> find(String fen, int limit) {
+        return find(keyOf(Position.fromFen(fen)), limit);
+    }
+
+    /**
+     * PGN-файл партии.
+     */
+    public Path getGameFile(int gameId) throws IOException {
+        return files.get(readGameEntry(gameId).getInt(0));
+    }
+
+    /**
+     * Смещение партии в ее PGN-файле.
+     */
+    public long getGameOffset(int gameId) throws IOException {
+        return readGameEntry(gameId).getLong(4);
+    }
+
+    /**
+     * Читает партию из исходного PGN-файла.
+     */
+    public PgnRecord readGame(int gameId) throws IOException {
+        ByteBuffer entry = readGameEntry(gameId);
+        return PgnScanner.readGame(files.get(entry.getInt(0)), entry.getLong(4));
+    }
+
+    private ByteBuffer readGameEntry(int gameId) throws IOException {
+        if (gameId < 0 || gameId >= gameCount) {
+            throw new IllegalArgumentException("Нет партии " + gameId);
+        }
+        ByteBuffer entry = ByteBuffer.allocate(GAME_ENTRY_SIZE);
+        long offset = gamesOffset + (long) gameId * GAME_ENTRY_SIZE;
+        while (entry.hasRemaining() && channel.read(entry, offset + entry.position()) > 0) {
+            // дочитываем запись
+        }
+        return entry;
+    }
+
+    /**
+     * Первая запись с ключом больше {@code key} (при {@code upper}) или не меньше его; ключи сравниваются без знака.
+     */
+    private long bound(long key, boolean upper) {
+        long low = 0;
+        long high = recordCount;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            int compare = Long.compareUnsigned(keyAt(middle), key);
+            if (compare < 0 || (upper && compare == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(long record) {
+        return segments[(int) (record >>> SEGMENT_SHIFT)].getLong((int) (record & SEGMENT_MASK) * RECORD_SIZE);
+    }
+
+    private long valueAt(long record) {
+        return segments[(int) (record >>> SEGMENT_SHIFT)].getLong((int) (record & SEGMENT_MASK) * RECORD_SIZE + 8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Вхождение позиции: партия и полуход, после которого позиция возникла (0 - начальная).
+     */
+    public static final class Hit {
+        private final int gameId;
+        private final int ply;
+
+        Hit(int gameId, int ply) {
+            this.gameId = gameId;
+            this.ply = ply;
+        }
+
+        public int getGameId() {
+            return gameId;
+        }
+
+        public int getPly() {
+            return ply;
+        }
+
+        @Override
+        public String toString() {
+            return gameId + ":" + ply;
+        }
+    }
+
+    /**
+     * Точка входа: {@code PositionIndex <индекс> <FEN> [наибольшее количество партий]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Использование: PositionIndex <индекс> <FEN> [партий]");
+            System.exit(2);
+        }
+        int limit = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        try (PositionIndex index = open(Paths.get(args[0]))) {
+            long key = index.keyOf(Position.fromFen(args[1]));
+            // Первый запрос поднимает страницы с диска, повторные показывают время по горячему кэшу
+            long start = System.nanoTime();
+            List<Hit> hits = index.find(key, limit);
+            long coldMicros = (System.nanoTime() - start) / 1000;
+            int repeats = 10_000;
+            start = System.nanoTime();
+            for (int i = 0; i < repeats; i++) {
+                index.find(key, limit);
+            }
+            double warmMicros = (System.nanoTime() - start) / 1000.0 / repeats;
+            System.out.printf("Позиций в индексе %,d, партий %,d; вхождений %,d; запрос %d мкс (повторный %.2f мкс)%n",
+                    index.getPositionCount(), index.getGameCount(), index.count(key), coldMicros, warmMicros);
+            for (Hit hit : hits) {
+                PgnRecord game = index.readGame(hit.getGameId());
+                System.out.printf("Партия %d, полуход %d: %s - %s %s (%s, смещение %d)%n", hit.getGameId(), hit.getPly(),
+                        game.getTag("White"), game.getTag("Black"), game.getResult(),
+                        index.getGameFile(hit.getGameId()).getFileName(), index.getGameOffset(hit.getGameId()));
+            }
+        }
+    }
+}
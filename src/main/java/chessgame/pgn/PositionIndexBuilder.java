@@ -0,0 +1,309 @@
+package chessgame.pgn;
+
+import chessgame.logic.Position;
+import chessgame.logic.Symmetry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Построение индекса позиций {@link PositionIndex} по PGN-архивам.
+ *
+ * <p>Каждая позиция каждой партии (включая начальную) дает запись (ключ Zobrist, номер партии, полуход).
+ * Записи копятся в двух массивах примитивов; заполненный блок сортируется поразрядно по ключу
+ * и сбрасывается на диск прогоном. В конце прогоны сливаются в итоговый файл, поэтому куча
+ * не зависит от количества позиций. Сортировка устойчива, а партии нумеруются по порядку,
+ * так что записи одного ключа идут по возрастанию номера партии и полухода.
+ *
+ * <p>В каноническом режиме позиции хранятся под {@link Symmetry#canonicalKey(Position)}, и запрос
+ * находит также позиции с обменом цветов и отражением вертикалей.
+ */
+public final class PositionIndexBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(PositionIndexBuilder.class);
+
+    public static final int DEFAULT_RUN_RECORDS = 1 << 22;
+
+    private static final int IO_BUFFER = 1 << 16;
+    private static final int PROGRESS_GAMES = 100_000;
+
+    private final int runRecords;
+    private final boolean canonical;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    private long games;
+    private long records;
+
+    /**
+     * @param runRecords сколько записей держать в памяти до сброса прогона (по 32 байта на запись при сортировке)
+     */
+    public PositionIndexBuilder(int runRecords) {
+        this(runRecords, false);
+    }
+
+    /**
+     * @param runRecords сколько записей держать в памяти до сброса прогона
+     * @param canonical  хранить канонические ключи классов симметрии вместо ключей позиций
+     */
+    public PositionIndexBuilder(int runRecords, boolean canonical) {
+        this.runRecords = runRecords;
+        this.canonical = canonical;
+    }
+
+    /**
+     * Строит индекс по PGN-файлам; номера партий идут подряд через все файлы.
+     *
+     * @throws IOException при ошибке чтения или записи
+     */
+    public void build(List<Path> pgnFiles, Path index) throws IOException {
+        long start = System.nanoTime();
+        Path parent = index.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path workDirectory = Files.createTempDirectory(parent, "index-runs");
+        Path gameTable = workDirectory.resolve("games.tmp");
+        List<Path> runs = new ArrayList<>();
+        keys = new long[runRecords];
+        values = new long[runRecords];
+        size = 0;
+        games = 0;
+        records = 0;
+        try {
+            try (DataOutputStream gamesOut = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(gameTable), IO_BUFFER))) {
+                Position position = new Position();
+                for (int file = 0; file < pgnFiles.size(); file++) {
+                    logger.info("Индексирование партий из {}", pgnFiles.get(file));
+                    try (Stream<PgnRecord> stream = PgnScanner.games(pgnFiles.get(file), false)) {
+                        for (PgnRecord game : (Iterable<PgnRecord>) stream::iterator) {
+                            gamesOut.writeInt(file);
+                            gamesOut.writeLong(game.getOffset());
+                            addGame(game, position, workDirectory, runs);
+                        }
+                    }
+                }
+            }
+            if (size > 0) {
+                spill(workDirectory, runs);
+            }
+            keys = null;
+            values = null;
+            write(index, runs, gameTable, pgnFiles);
+            logger.info("Индекс {}: партий {}, позиций {}, прогонов {}, {} мс",
+                    index, games, records, runs.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            keys = null;
+            values = null;
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            Files.deleteIfExists(gameTable);
+            Files.deleteIfExists(workDirectory);
+        }
+    }
+
+    private void addGame(PgnRecord game, Position position, Path workDirectory, List<Path> runs) throws IOException {
+        long gameId = games++;
+        if (games % PROGRESS_GAMES == 0) {
+            logger.info("Обработано партий: {}, позиций: {}", games, records);
+        }
+        try {
+            position.setFen(game.getStartFen());
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        int[] moves = game.getMoves();
+        add(keyOf(position), gameId, 0, workDirectory, runs);
+        for (int ply = 0; ply < moves.length; ply++) {
+            position.makeMove(moves[ply]);
+            add(keyOf(position), gameId, ply + 1, workDirectory, runs);
+        }
+    }
+
+    private long keyOf(Position position) {
+        return canonical ? Symmetry.canonicalKey(position) : position.key();
+    }
+
+    private void add(long key, long gameId, int ply, Path workDirectory, List<Path> runs) throws IOException {
+        keys[size] = key;
+        values[size] = gameId << 32 | ply;
+        size++;
+        records++;
+        if (size == keys.length) {
+            spill(workDirectory, runs);
+        }
+    }
+
+    private void spill(Path workDirectory, List<Path> runs) throws IOException {
+        sort(keys, values, size);
+        Path run = workDirectory.resolve("run-" + runs.size() + ".tmp");
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER))) {
+            for (int i = 0; i < size; i++) {
+                out.writeLong(keys[i]);
+                out.writeLong(values[i]);
+            }
+        }
+        logger.debug("Записан прогон {} ({} записей)", run, size);
+        size = 0;
+    }
+
+    /**
+     * Устойчивая поразрядная сортировка по ключу без знака: восемь проходов по байту,
+     * проходы с одинаковым байтом у всех записей пропускаются.
+     */
+    static void sort(long[] keys, long[] values, int size) {
+        long[] keySource = keys;
+        long[] valueSource = values;
+        long[] keyTarget = new long[size];
+        long[] valueTarget = new long[size];
+        int[] count = new int[257];
+        for (int shift = 0; shift < 64; shift += 8) {
+            Arrays.fill(count, 0);
+            for (int i = 0; i < size; i++) {
+                count[(int) (keySource[i] >>> shift & 0xFF) + 1]++;
+            }
+            boolean trivial = false;
+            for (int b = 1; b <= 256; b++) {
+                if (count[b] == size) {
+                    trivial = true;
+                    break;
+                }
+            }
+            if (trivial) {
+                continue;
+            }
+            for (int b = 1; b <= 256; b++) {
+                count[b] += count[b - 1];
+            }
+            for (int i = 0; i < size; i++) {
+                int slot = count[(int) (keySource[i] >>> shift & 0xFF)]++;
+                keyTarget[slot] = keySource[i];
+                valueTarget[slot] = valueSource[i];
+            }
+            long[] swap = keySource;
+            keySource = keyTarget;
+            keyTarget = swap;
+            swap = valueSource;
+            valueSource = valueTarget;
+            valueTarget = swap;
+        }
+        if (keySource != keys) {
+            System.arraycopy(keySource, 0, keys, 0, size);
+            System.arraycopy(valueSource, 0, values, 0, size);
+        }
+    }
+
+    /**
+     * Записывает итоговый файл: заголовок, слитые прогоны, таблицу партий и список файлов.
+     */
+    private void write(Path index, List<Path> runs, Path gameTable, List<Path> pgnFiles) throws IOException {
+        Path temp = index.resolveSibling(index.getFileName() + ".tmp");
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Comparator
+                .comparing((RunReader r) -> r.key, Long::compareUnsigned)
+                .thenComparingLong(r -> r.value));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), IO_BUFFER))) {
+            out.writeInt(PositionIndex.MAGIC);
+            out.writeInt(PositionIndex.VERSION);
+            out.writeLong(records);
+            out.writeLong(games);
+            out.writeLong(canonical ? PositionIndex.FLAG_CANONICAL : 0);
+
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run);
+                if (reader.advance()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                out.writeLong(reader.key);
+                out.writeLong(reader.value);
+                if (reader.advance()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+
+            Files.copy(gameTable, out);
+            out.writeInt(pgnFiles.size());
+            for (Path file : pgnFiles) {
+                out.writeUTF(file.toAbsolutePath().toString());
+            }
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+        }
+        Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Последовательное чтение одного прогона.
+     */
+    private static final class RunReader {
+        private final DataInputStream in;
+        private long key;
+        private long value;
+
+        RunReader(Path run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER));
+        }
+
+        boolean advance() throws IOException {
+            try {
+                key = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            value = in.readLong();
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Точка входа: {@code PositionIndexBuilder [--canonical] <индекс> <файл.pgn>...}.
+     */
+    public static void main(String[] args) throws IOException {
+        int first = 0;
+        boolean canonical = false;
+        if (args.length > 0 && "--canonical".equals(args[0])) {
+            canonical = true;
+            first = 1;
+        }
+        if (args.length - first < 2) {
+            System.err.println("Использование: PositionIndexBuilder [--canonical] <индекс> <файл.pgn>...");
+            System.exit(2);
+        }
+        List<Path> files = new ArrayList<>();
+        for (int i = first + 1; i < args.length; i++) {
+            files.add(Paths.get(args[i]));
+        }
+        new PositionIndexBuilder(DEFAULT_RUN_RECORDS, canonical).build(files, Paths.get(args[first]));
+    }
+}
@@ -0,0 +1,281 @@
+package chessgame.resources;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Опись ресурсов оформления: наборы фигур, текстуры досок и наборы звуков с размерами и контрольными суммами.
+ *
+ * <p>Опись собирается при сборке в ресурс {@value #RESOURCE} и читается одним обращением к нему, поэтому
+ * списки наборов одинаковы при запуске из {@code target/classes} и из jar-файла, а при старте не обходятся
+ * каталоги. Если ресурса нет (запуск из IDE без шага сборки), каталоги ресурсов обходятся как раньше.
+ *
+ * <p>Формат: текст UTF-8, строка на файл - путь от корня ресурсов, размер в байтах и CRC32 в шестнадцатеричном
+ * виде через табуляцию; строки с {@code #} - комментарии.
+ */
+public final class ResourceManifest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceManifest.class);
+
+    /** Путь к ресурсу с описью. */
+    public static final String RESOURCE = "/resources.manifest";
+
+    public static final String PIECES = "pieces";
+    public static final String BOARDS = "boards";
+    public static final String SOUNDS = "sounds";
+
+    private static final String[] CATEGORIES = {PIECES, BOARDS, SOUNDS};
+
+    // Отсортированы по пути, поэтому файлы одного каталога идут подряд
+    private final List<Entry> entries;
+
+    private ResourceManifest(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Ленивая загрузка описи при первом обращении.
+     */
+    private static final class Holder {
+        static final ResourceManifest INSTANCE = load();
+    }
+
+    /**
+     * Опись ресурсов приложения.
+     */
+    public static ResourceManifest get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Все файлы описи в порядке путей.
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Имена подкаталогов категории (наборов фигур или звуков) по алфавиту.
+     *
+     * @param category {@link #PIECES} или {@link #SOUNDS}
+     */
+    public List<String> getSets(String category) {
+        String prefix = category + "/";
+        TreeSet<String> sets = new TreeSet<>();
+        for (Entry entry : entries) {
+            String path = entry.getPath();
+            int slash = path.indexOf('/', prefix.length());
+            if (path.startsWith(prefix) && slash > 0) {
+                sets.add(path.substring(prefix.length(), slash));
+            }
+        }
+        return new ArrayList<>(sets);
+    }
+
+    /**
+     * Файлы, лежащие непосредственно в каталоге, например {@code "boards"} или {@code "sounds/marble"}.
+     */
+    public List<Entry> getFiles(String directory) {
+        String prefix = directory + "/";
+        List<Entry> files = new ArrayList<>();
+        for (Entry entry : entries) {
+            String path = entry.getPath();
+            if (path.startsWith(prefix) && path.indexOf('/', prefix.length()) < 0) {
+                files.add(entry);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Файл описи.
+     */
+    public static final class Entry {
+        private final String path;
+        private final long size;
+        private final long checksum;
+
+        Entry(String path, long size, long checksum) {
+            this.path = path;
+            this.size = size;
+            this.checksum = checksum;
+        }
+
+        /**
+         * Путь от корня ресурсов без начальной косой черты.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Путь для {@link Class#getResource(String)}.
+         */
+        public String getResourcePath() {
+            return "/" + path;
+        }
+
+        /**
+         * Имя файла без каталога.
+         */
+        public String getName() {
+            return path.substring(path.lastIndexOf('/') + 1);
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * CRC32 содержимого файла.
+         */
+        public long getChecksum() {
+            return checksum;
+        }
+
+        @Override
+        public String toString() {
+            return path;
+        }
+    }
+
+    private static ResourceManifest load() {
+        long start = System.nanoTime();
+        try (InputStream in = ResourceManifest.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                ResourceManifest manifest = read(in);
+                logger.info("Опись ресурсов загружена: {} файлов за {} мс",
+                        manifest.entries.size(), (System.nanoTime() - start) / 1_000_000);
+                return manifest;
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Не удалось прочитать опись ресурсов {}, обходим каталоги", RESOURCE, e);
+        }
+
+        Path root = findResourceRoot();
+        if (root == null) {
+            logger.warn("Опись ресурсов {} не найдена, а каталоги ресурсов недоступны", RESOURCE);
+            return new ResourceManifest(new ArrayList<>());
+        }
+        try {
+            ResourceManifest manifest = scan(root);
+            logger.info("Опись ресурсов построена обходом {}: {} файлов за {} мс",
+                    root, manifest.entries.size(), (System.nanoTime() - start) / 1_000_000);
+            return manifest;
+        } catch (IOException e) {
+            logger.error("Ошибка при обходе каталогов ресурсов", e);
+            return new ResourceManifest(new ArrayList<>());
+        }
+    }
+
+    static ResourceManifest read(InputStream in) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length != 3) {
+                throw new IOException("Некорректная строка описи ресурсов: " + line);
+            }
+            entries.add(new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2], 16)));
+        }
+        return new ResourceManifest(entries);
+    }
+
+    /**
+     * Корень ресурсов на диске (например, {@code target/classes}) или null, если ресурсы лежат в архиве.
+     */
+    private static Path findResourceRoot() {
+        for (String category : CATEGORIES) {
+            URL url = ResourceManifest.class.getResource("/" + category);
+            if (url != null && "file".equals(url.getProtocol())) {
+                try {
+                    return Paths.get(url.toURI()).getParent();
+                } catch (Exception e) {
+                    logger.debug("Не удалось преобразовать {} в путь", url, e);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Строит опись обходом каталогов категорий под корнем ресурсов.
+     */
+    static ResourceManifest scan(Path root) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (String category : CATEGORIES) {
+            Path directory = root.resolve(category);
+            if (!Files.isDirectory(directory)) {
+                continue;
+            }
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(directory)) {
+                files = walk.filter(Files::isRegularFile).toList();
+            }
+            for (Path file : files) {
+                String path = root.relativize(file).toString().replace('\\', '/');
+                entries.add(new Entry(path, Files.size(file), checksum(file)));
+            }
+        }
+        entries.sort((a, b) -> a.path.compareTo(b.path));
+        return new ResourceManifest(entries);
+    }
+
+    private static long checksum(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Строит опись каталога ресурсов и записывает ее в файл. Вызывается при сборке.
+     *
+     * @param args корень ресурсов и путь к выходному файлу
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Использование: ResourceManifest <корень ресурсов> <файл описи>");
+            System.exit(2);
+        }
+        Path root = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        ResourceManifest manifest = scan(root);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            out.write("# путь\tразмер\tCRC32\n");
+            for (Entry entry : manifest.entries) {
+                out.write(entry.path + "\t" + entry.size + "\t" + Long.toHexString(entry.checksum) + "\n");
+            }
+        }
+        logger.info("Опись ресурсов записана в {} ({} файлов)", output, manifest.entries.size());
+    }
+}
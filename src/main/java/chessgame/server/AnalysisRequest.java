@@ -0,0 +1,57 @@
+package chessgame.server;
+
+/**
+ * Запрос на анализ позиции (тело POST /analyze в JSON).
+ * Нулевые ограничения означают значение по умолчанию.
+ */
+public class AnalysisRequest {
+
+    private String fen;
+    private int depth;
+    private long nodes;
+    private long movetime;
+
+    /**
+     * Позиция в формате FEN.
+     */
+    public String getFen() {
+        return fen;
+    }
+
+    public void setFen(String fen) {
+        this.fen = fen;
+    }
+
+    /**
+     * Максимальная глубина поиска.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * Лимит узлов.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    public void setNodes(long nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * Лимит времени в миллисекундах.
+     */
+    public long getMovetime() {
+        return movetime;
+    }
+
+    public void setMovetime(long movetime) {
+        this.movetime = movetime;
+    }
+}
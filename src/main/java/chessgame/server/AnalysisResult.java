@@ -0,0 +1,87 @@
+package chessgame.server;
+
+import java.util.List;
+
+/**
+ * Результат анализа позиции (ответ POST /analyze в JSON).
+ * Оценка дается с точки зрения стороны, которая ходит.
+ */
+public class AnalysisResult {
+
+    private final String bestMove;
+    private final Integer score;
+    private final Integer mate;
+    private final int depth;
+    private final long nodes;
+    private final long nps;
+    private final long searchMs;
+    private final long queueMs;
+    private final List<String> pv;
+
+    public AnalysisResult(String bestMove, Integer score, Integer mate, int depth, long nodes, long nps,
+                          long searchMs, long queueMs, List<String> pv) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.mate = mate;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.nps = nps;
+        this.searchMs = searchMs;
+        this.queueMs = queueMs;
+        this.pv = pv;
+    }
+
+    /**
+     * Лучший ход в нотации UCI или null, если ходов нет (мат или пат).
+     */
+    public String getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Оценка в сантипешках или null, если найден мат или ход взят из таблиц без поиска.
+     */
+    public Integer getScore() {
+        return score;
+    }
+
+    /**
+     * Мат в N ходов (отрицательное число - мат стороне, которая ходит) или null.
+     */
+    public Integer getMate() {
+        return mate;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getNps() {
+        return nps;
+    }
+
+    /**
+     * Время поиска в миллисекундах.
+     */
+    public long getSearchMs() {
+        return searchMs;
+    }
+
+    /**
+     * Время ожидания в очереди в миллисекундах.
+     */
+    public long getQueueMs() {
+        return queueMs;
+    }
+
+    /**
+     * Главный вариант в нотации UCI.
+     */
+    public List<String> getPv() {
+        return pv;
+    }
+}
@@ -0,0 +1,228 @@
+package chessgame.server;
+
+import chessgame.engine.SearchLimits;
+import chessgame.logic.FenError;
+import chessgame.logic.FenValidator;
+import chessgame.logic.LegalityChecker;
+import chessgame.logic.Position;
+import chessgame.logic.PositionError;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * HTTP-сервис анализа позиций без графического интерфейса.
+ *
+ * <ul>
+ *   <li>{@code POST /analyze} - тело {@code {"fen": "...", "depth": 12, "nodes": 0, "movetime": 1000}},
+ *       ответ - {@link AnalysisResult};</li>
+ *   <li>{@code GET /stats} - заполненность очереди, счетчики и процентили задержки.</li>
+ * </ul>
+ *
+ * <p>Каждый запрос обрабатывается в своем виртуальном потоке, который просто ждет результата;
+ * сам поиск выполняет {@link EnginePool}. При заполненной очереди ответ - 503.
+ * Сервер слушает только локальный адрес.
+ */
+public final class AnalysisServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisServer.class);
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    // Время по умолчанию и верхняя граница: запрос не может занять движок надолго
+    private static final long DEFAULT_MOVE_TIME_MS = 1000;
+    private static final long MAX_MOVE_TIME_MS = 30_000;
+
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final EnginePool pool;
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Создает сервер; прием запросов начинается после {@link #start()}.
+     *
+     * @param port порт на локальном адресе (0 - любой свободный)
+     */
+    public AnalysisServer(int port, EnginePool pool) throws IOException {
+        this.pool = pool;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(requestExecutor);
+        server.createContext("/analyze", this::handleAnalyze);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Сервис анализа слушает http://{}:{}/", server.getAddress().getHostString(), getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleAnalyze(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendError(exchange, 405, "Ожидается POST");
+                return;
+            }
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readNBytes(MAX_BODY_BYTES + 1);
+            }
+            if (body.length > MAX_BODY_BYTES) {
+                sendError(exchange, 413, "Слишком большой запрос");
+                return;
+            }
+
+            AnalysisRequest request;
+            Position position;
+            try {
+                request = mapper.readValue(body, AnalysisRequest.class);
+                if (request.getFen() == null) {
+                    throw new IllegalArgumentException("Не указан fen");
+                }
+                FenError fenError = FenValidator.validate(request.getFen());
+                if (fenError != FenError.OK) {
+                    throw new IllegalArgumentException("Некорректный FEN: " + fenError.getDescription());
+                }
+                position = Position.fromFen(request.getFen());
+                PositionError positionError = LegalityChecker.check(position);
+                if (positionError != PositionError.OK) {
+                    throw new IllegalArgumentException("Нелегальная позиция: " + positionError.getDescription());
+                }
+            } catch (JsonProcessingException e) {
+                sendError(exchange, 400, "Некорректный JSON: " + e.getOriginalMessage());
+                return;
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+
+            AnalysisResult result;
+            try {
+                result = pool.submit(position, toLimits(request)).join();
+            } catch (RejectedExecutionException e) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "Очередь анализа заполнена");
+                return;
+            } catch (CompletionException e) {
+                logger.error("Ошибка анализа позиции {}", request.getFen(), e.getCause());
+                sendError(exchange, 500, "Ошибка анализа");
+                return;
+            }
+            sendJson(exchange, 200, result);
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Ожидается GET");
+                return;
+            }
+            long[] latency = pool.getLatencyPercentiles(50, 90, 99, 100);
+            Map<String, Object> latencyMs = new LinkedHashMap<>();
+            latencyMs.put("p50", latency[0]);
+            latencyMs.put("p90", latency[1]);
+            latencyMs.put("p99", latency[2]);
+            latencyMs.put("max", latency[3]);
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("workers", pool.getWorkers());
+            stats.put("busyWorkers", pool.getBusyWorkers());
+            stats.put("queueDepth", pool.getQueueDepth());
+            stats.put("queueCapacity", pool.getQueueCapacity());
+            stats.put("completed", pool.getCompleted());
+            stats.put("rejected", pool.getRejected());
+            stats.put("failed", pool.getFailed());
+            stats.put("latencyMs", latencyMs);
+            sendJson(exchange, 200, stats);
+        }
+    }
+
+    /**
+     * Ограничения поиска из запроса. Время всегда ограничено, чтобы один запрос
+     * не мог занять движок бесконечно.
+     */
+    private static SearchLimits toLimits(AnalysisRequest request) {
+        int depth = request.getDepth() > 0 ? request.getDepth() : SearchLimits.MAX_DEPTH;
+        long time;
+        if (request.getMovetime() > 0) {
+            time = Math.min(request.getMovetime(), MAX_MOVE_TIME_MS);
+        } else if (request.getDepth() > 0 || request.getNodes() > 0) {
+            time = MAX_MOVE_TIME_MS;
+        } else {
+            time = DEFAULT_MOVE_TIME_MS;
+        }
+        return new SearchLimits(depth, request.getNodes(), time);
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, Map.of("error", message));
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object value) throws IOException {
+        byte[] json = mapper.writeValueAsBytes(value);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    /**
+     * Останавливает прием запросов и пул движков.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        requestExecutor.shutdownNow();
+        pool.close();
+        logger.info("Сервис анализа остановлен");
+    }
+
+    /**
+     * Запускает сервис и работает до завершения процесса.
+     *
+     * @param port    порт на локальном адресе
+     * @param workers количество движков
+     */
+    public static void run(int port, int workers) throws IOException {
+        AnalysisServer analysisServer = new AnalysisServer(port, new EnginePool(workers, DEFAULT_QUEUE_CAPACITY));
+        Runtime.getRuntime().addShutdownHook(new Thread(analysisServer::close, "analysis-shutdown"));
+        analysisServer.start();
+    }
+
+    /**
+     * Точка входа: {@code AnalysisServer [порт] [движков]}.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        run(port, workers);
+    }
+}
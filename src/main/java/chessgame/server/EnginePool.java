@@ -0,0 +1,182 @@
+package chessgame.server;
+
+import chessgame.engine.BagaturEngine;
+import chessgame.engine.SearchInfo;
+import chessgame.engine.SearchLimits;
+import chessgame.logic.ChessGame;
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограниченный пул движков для анализа: по одному {@link BagaturEngine} на рабочий поток
+ * и очередь заданий фиксированной емкости. Когда очередь заполнена, новое задание
+ * отклоняется сразу, а не копится в памяти (обратное давление на клиентов).
+ */
+public final class EnginePool implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EnginePool.class);
+
+    private static final int LATENCY_WINDOW = 4096;
+
+    private final ThreadPoolExecutor executor;
+    private final BlockingQueue<BagaturEngine> idleEngines;
+    private final List<BagaturEngine> engines = new ArrayList<>();
+    private final int queueCapacity;
+
+    private final LatencyWindow latency = new LatencyWindow(LATENCY_WINDOW);
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Создает и инициализирует движки.
+     *
+     * @param workers       количество движков (и одновременных поисков)
+     * @param queueCapacity сколько заданий может ждать свободного движка
+     */
+    public EnginePool(int workers, int queueCapacity) {
+        if (workers < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Размер пула и очереди должен быть положительным");
+        }
+        this.queueCapacity = queueCapacity;
+        this.idleEngines = new ArrayBlockingQueue<>(workers);
+        for (int i = 0; i < workers; i++) {
+            BagaturEngine engine = new BagaturEngine(new ChessGame());
+            engine.initialize();
+            // Для анализа нужна оценка, поэтому ход из книги без поиска не подходит
+            engine.loadOpeningBook(null);
+            engines.add(engine);
+            idleEngines.add(engine);
+        }
+        // Поиск загружает процессор, поэтому рабочие потоки - обычные, а не виртуальные
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), analysisThreads(), new ThreadPoolExecutor.AbortPolicy());
+        logger.info("Пул анализа: движков {}, очередь {}", workers, queueCapacity);
+    }
+
+    /**
+     * Ставит позицию в очередь на анализ.
+     *
+     * @throws RejectedExecutionException если очередь заполнена или пул закрыт
+     */
+    public CompletableFuture<AnalysisResult> submit(Position position, SearchLimits limits) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> analyze(position, limits, queuedAt), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private AnalysisResult analyze(Position position, SearchLimits limits, long queuedAt) {
+        long startedAt = System.nanoTime();
+        BagaturEngine engine = idleEngines.poll();
+        if (engine == null) {
+            // Движков столько же, сколько потоков, поэтому свободный движок есть всегда
+            throw new IllegalStateException("Нет свободного движка");
+        }
+        try {
+            SearchInfo[] last = new SearchInfo[1];
+            int move = engine.search(position, limits, info -> last[0] = info);
+            long finishedAt = System.nanoTime();
+            latency.record((finishedAt - queuedAt) / 1_000_000);
+            return toResult(move, last[0], (finishedAt - startedAt) / 1_000_000, (startedAt - queuedAt) / 1_000_000);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            throw e;
+        } finally {
+            idleEngines.add(engine);
+        }
+    }
+
+    private static AnalysisResult toResult(int move, SearchInfo info, long searchMs, long queueMs) {
+        String bestMove = move != Move.NONE ? Move.toUci(move) : null;
+        if (info == null) {
+            // Ход взят из таблиц эндшпиля или ходов нет
+            return new AnalysisResult(bestMove, null, null, 0, 0, 0, searchMs, queueMs,
+                    bestMove != null ? List.of(bestMove) : List.of());
+        }
+        List<String> pv = new ArrayList<>(info.getPrincipalVariation().length);
+        for (int pvMove : info.getPrincipalVariation()) {
+            pv.add(Move.toUci(pvMove));
+        }
+        boolean mate = info.getMateIn() != 0;
+        return new AnalysisResult(bestMove, mate ? null : info.getScore(), mate ? info.getMateIn() : null,
+                info.getDepth(), info.getNodes(), info.getNps(), searchMs, queueMs, pv);
+    }
+
+    public int getWorkers() {
+        return engines.size();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Количество заданий, ждущих свободного движка.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Количество идущих поисков.
+     */
+    public int getBusyWorkers() {
+        return executor.getActiveCount();
+    }
+
+    public long getCompleted() {
+        return latency.total();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Процентили полной задержки (очередь и поиск) по последним заданиям, в миллисекундах.
+     */
+    public long[] getLatencyPercentiles(double... percentiles) {
+        return latency.percentiles(percentiles);
+    }
+
+    /**
+     * Останавливает идущие поиски и освобождает движки.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for (BagaturEngine engine : engines) {
+            engine.cleanup();
+        }
+    }
+
+    private static ThreadFactory analysisThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "analysis-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
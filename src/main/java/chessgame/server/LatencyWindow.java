@@ -0,0 +1,59 @@
+package chessgame.server;
+
+import java.util.Arrays;
+
+/**
+ * Скользящее окно последних задержек для расчета процентилей.
+ * Запись - O(1) без выделения памяти; сортировка выполняется только при запросе статистики.
+ */
+final class LatencyWindow {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+    private long total;
+
+    LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+        total++;
+    }
+
+    /**
+     * Общее количество записанных значений (не только в окне).
+     */
+    synchronized long total() {
+        return total;
+    }
+
+    /**
+     * Процентили по текущему окну.
+     *
+     * @param percentiles значения от 0 до 100
+     * @return задержки в миллисекундах в том же порядке; нули, если окно пусто
+     */
+    long[] percentiles(double... percentiles) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(sorted);
+        long[] result = new long[percentiles.length];
+        if (sorted.length == 0) {
+            return result;
+        }
+        for (int i = 0; i < percentiles.length; i++) {
+            // Метод ближайшего ранга
+            int rank = (int) Math.ceil(percentiles[i] / 100.0 * sorted.length);
+            result[i] = sorted[Math.max(0, Math.min(rank - 1, sorted.length - 1))];
+        }
+        return result;
+    }
+}
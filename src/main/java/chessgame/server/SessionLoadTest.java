@@ -0,0 +1,124 @@
+package chessgame.server;
+
+import chessgame.engine.SearchLimits;
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+import chessgame.pgn.PgnWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генератор нагрузки для {@link SessionManager}: на каждую сессию - виртуальный поток,
+ * который делает случайные легальные ходы и ждет ответа движка.
+ * Печатает ходы в секунду, процентили задержки ответа и память на сессию.
+ */
+public final class SessionLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionLoadTest.class);
+
+    private SessionLoadTest() {
+    }
+
+    /**
+     * Один прогон с заданным количеством сессий.
+     */
+    static void run(SessionManager manager, int sessionCount, int movesPerSession) throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long[] ids = new long[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            ids[i] = manager.createSession(true);
+        }
+        System.gc();
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+
+        LatencyWindow latency = new LatencyWindow(sessionCount * movesPerSession);
+        AtomicLong moves = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long id : ids) {
+                clients.execute(() -> playSession(manager, id, movesPerSession, latency, moves, errors));
+            }
+            clients.shutdown();
+            clients.awaitTermination(1, TimeUnit.HOURS);
+        }
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        System.gc();
+        long heapPlayed = runtime.totalMemory() - runtime.freeMemory();
+
+        int backlog = manager.getArchiveBacklog();
+        long[] p = latency.percentiles(50, 99, 100);
+        System.out.printf("Сессий %,d: ходов %,d за %,d мс (%,d ходов/с), ответ p50 %d мс, p99 %d мс, макс %d мс,"
+                        + " ошибок %d, память ~%,d байт на новую сессию, ~%,d после ходов, очередь архива %d%n",
+                sessionCount, moves.get(), elapsedMs, moves.get() * 1000 / elapsedMs, p[0], p[1], p[2], errors.get(),
+                Math.max(0, heapAfter - heapBefore) / sessionCount, Math.max(0, heapPlayed - heapBefore) / sessionCount,
+                backlog);
+
+        for (long id : ids) {
+            manager.closeSession(id);
+        }
+    }
+
+    private static void playSession(SessionManager manager, long id, int movesPerSession,
+                                    LatencyWindow latency, AtomicLong moves, AtomicLong errors) {
+        int[] legal = new int[Position.MAX_MOVES];
+        try {
+            for (int i = 0; i < movesPerSession; i++) {
+                Position position = Position.fromFen(manager.getFen(id));
+                int count = position.generateLegalMoves(legal);
+                if (count == 0) {
+                    return;
+                }
+                int move = legal[ThreadLocalRandom.current().nextInt(count)];
+                long sent = System.nanoTime();
+                SessionReply reply = manager.play(id, Move.toUci(move)).join();
+                latency.record((System.nanoTime() - sent) / 1_000_000);
+                moves.addAndGet(reply.getMove() != null ? 2 : 1);
+                if (reply.getMove() == null) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.debug("Сессия {}: {}", id, e.getMessage());
+            errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Точка входа: {@code SessionLoadTest [сессии через запятую] [ходов на сессию] [движков] [узлов на ответ]
+     * [архив.pgn]}. По умолчанию 1000, 10000 и 50000 сессий по 4 хода, движков по числу ядер, 2000 узлов, без архива.
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        List<Integer> counts = new ArrayList<>();
+        for (String count : (args.length > 0 ? args[0] : "1000,10000,50000").split(",")) {
+            counts.add(Integer.parseInt(count.trim()));
+        }
+        int movesPerSession = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int engines = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long nodes = args.length > 3 ? Long.parseLong(args[3]) : 2000;
+        PgnWriter archive = args.length > 4 ? new PgnWriter(Paths.get(args[4]), false) : null;
+
+        try (SessionManager manager = new SessionManager(engines, new SearchLimits(SearchLimits.MAX_DEPTH, nodes, 0), archive)) {
+            for (int count : counts) {
+                run(manager, count, movesPerSession);
+            }
+        } finally {
+            if (archive != null) {
+                archive.close();
+                System.out.printf("Партий в архиве: %,d%n", archive.getGames());
+            }
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package chessgame.server;
+
+import chessgame.engine.BagaturEngine;
+import chessgame.engine.SearchLimits;
+import chessgame.logic.Bitboards;
+import chessgame.logic.ChessGame;
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+import chessgame.pgn.PgnWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Менеджер игровых сессий без графического интерфейса: множество независимых партий
+ * человека против движка, доступных по идентификатору.
+ *
+ * <p>Сессия - это только {@link ChessGame}; клиентские вызовы могут идти из любых потоков,
+ * в том числе виртуальных. Ответы движка считает фиксированный пул потоков с собственными
+ * {@link BagaturEngine}. У сессии не больше одного ожидающего ответа, а сессии обслуживаются
+ * в порядке очереди, поэтому активный клиент не может отнять движки у остальных.
+ *
+ * <p>Законченные партии можно архивировать в PGN: под блокировкой сессии снимаются только коды ходов,
+ * а SAN и запись в файл делает отдельный поток пачками, не задерживая ни клиентов, ни движки.
+ */
+public final class SessionManager implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionManager.class);
+
+    private static final int EXPORT_BATCH = 256;
+
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    // Сессии, ждущие ответа движка, в порядке поступления
+    private final BlockingQueue<GameSession> ready = new LinkedBlockingQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final SearchLimits replyLimits;
+    private volatile boolean closed;
+
+    private final PgnWriter archive;
+    private final BlockingQueue<FinishedGame> finished = new LinkedBlockingQueue<>();
+    private final Thread exporter;
+
+    /**
+     * Создает пул движков.
+     *
+     * @param engines     количество движков (потоков, считающих ответы)
+     * @param replyLimits ограничения поиска для ответа движка
+     */
+    public SessionManager(int engines, SearchLimits replyLimits) {
+        this(engines, replyLimits, null);
+    }
+
+    /**
+     * Создает пул движков с архивом законченных партий.
+     *
+     * @param archive куда записывать законченные партии или null; закрывает его вызывающий после {@link #close()}
+     */
+    public SessionManager(int engines, SearchLimits replyLimits, PgnWriter archive) {
+        if (replyLimits.isInfinite()) {
+            throw new IllegalArgumentException("Нужен лимит на ответ движка");
+        }
+        this.replyLimits = replyLimits;
+        for (int i = 0; i < engines; i++) {
+            BagaturEngine engine = new BagaturEngine(new ChessGame());
+            engine.initialize();
+            Thread worker = new Thread(() -> serve(engine), "session-engine-" + (workers.size() + 1));
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        this.archive = archive;
+        if (archive != null) {
+            exporter = new Thread(this::export, "session-pgn-export");
+            exporter.setDaemon(true);
+            exporter.start();
+        } else {
+            exporter = null;
+        }
+        logger.info("Менеджер сессий: движков {}, лимит ответа {}", engines, replyLimits);
+    }
+
+    /**
+     * Создает сессию. Если человек играет черными, движок сразу начинает считать первый ход.
+     *
+     * @return идентификатор сессии
+     */
+    public long createSession(boolean playerWhite) {
+        long id = nextId.getAndIncrement();
+        GameSession session = new GameSession(id, playerWhite);
+        sessions.put(id, session);
+        if (!playerWhite) {
+            schedule(session);
+        }
+        return id;
+    }
+
+    /**
+     * Делает ход человека и ставит сессию в очередь на ответ движка.
+     *
+     * @param move ход в нотации UCI
+     * @return будущий ответ движка
+     * @throws IllegalArgumentException если сессии нет или ход нелегален
+     * @throws IllegalStateException    если сейчас не ход человека или партия закончена
+     */
+    public CompletableFuture<SessionReply> play(long id, String move) {
+        GameSession session = get(id);
+        synchronized (session) {
+            if (session.pendingReply != null || session.game.isWhiteToMove() != session.playerWhite) {
+                throw new IllegalStateException("Сейчас ход движка");
+            }
+            if (isFinished(session.game.getGameStatus())) {
+                throw new IllegalStateException("Партия закончена: " + session.game.getGameStatus());
+            }
+            Position position = Position.fromFen(session.game.getCurrentPosition());
+            int parsed = Move.parseUci(move);
+            if (parsed == Move.NONE || !position.isLegal(parsed)) {
+                throw new IllegalArgumentException("Нелегальный ход " + move);
+            }
+            applyMove(session.game, parsed);
+            if (isFinished(session.game.getGameStatus())) {
+                archive(session);
+                return CompletableFuture.completedFuture(new SessionReply(id, null, session.game.getGameStatus()));
+            }
+            return schedule(session);
+        }
+    }
+
+    /**
+     * Ожидаемый ответ движка (например, первый ход, если человек играет черными) или null.
+     */
+    public CompletableFuture<SessionReply> pendingReply(long id) {
+        GameSession session = get(id);
+        synchronized (session) {
+            return session.pendingReply;
+        }
+    }
+
+    /**
+     * Позиция сессии в FEN.
+     */
+    public String getFen(long id) {
+        GameSession session = get(id);
+        synchronized (session) {
+            return session.game.getCurrentPosition();
+        }
+    }
+
+    public String getStatus(long id) {
+        GameSession session = get(id);
+        synchronized (session) {
+            return session.game.getGameStatus();
+        }
+    }
+
+    /**
+     * Удаляет сессию; ожидаемый ответ, если он есть, будет посчитан, но никуда не попадет.
+     */
+    public void closeSession(long id) {
+        sessions.remove(id);
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Количество сессий, ждущих свободного движка.
+     */
+    public int getQueueDepth() {
+        return ready.size();
+    }
+
+    /**
+     * Количество законченных партий, еще не записанных в архив.
+     */
+    public int getArchiveBacklog() {
+        return finished.size();
+    }
+
+    private GameSession get(long id) {
+        GameSession session = sessions.get(id);
+        if (session == null) {
+            throw new IllegalArgumentException("Нет сессии " + id);
+        }
+        return session;
+    }
+
+    /**
+     * Вызывается под блокировкой сессии.
+     */
+    private CompletableFuture<SessionReply> schedule(GameSession session) {
+        session.pendingReply = new CompletableFuture<>();
+        ready.add(session);
+        return session.pendingReply;
+    }
+
+    private void serve(BagaturEngine engine) {
+        while (!closed) {
+            GameSession session;
+            try {
+                session = ready.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            CompletableFuture<SessionReply> reply;
+            String fen;
+            synchronized (session) {
+                reply = session.pendingReply;
+                fen = session.game.getCurrentPosition();
+            }
+            try {
+                // Поиск идет без блокировки: пока ждется ответ, человек ходить не может
+                int move = engine.search(Position.fromFen(fen), replyLimits, null);
+                String status;
+                synchronized (session) {
+                    if (move != Move.NONE) {
+                        applyMove(session.game, move);
+                    }
+                    status = session.game.getGameStatus();
+                    session.pendingReply = null;
+                    if (isFinished(status)) {
+                        archive(session);
+                    }
+                }
+                reply.complete(new SessionReply(session.id, move != Move.NONE ? Move.toUci(move) : null, status));
+            } catch (RuntimeException e) {
+                logger.error("Ошибка ответа движка в сессии {}", session.id, e);
+                synchronized (session) {
+                    session.pendingReply = null;
+                }
+                reply.completeExceptionally(e);
+            }
+        }
+        engine.cleanup();
+    }
+
+    /**
+     * Ставит законченную партию в очередь на запись. Вызывается под блокировкой сессии.
+     */
+    private void archive(GameSession session) {
+        if (archive == null) {
+            return;
+        }
+        int[] moves = new int[session.game.getMoveCount()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = session.game.getMove(i);
+        }
+        finished.add(new FinishedGame(session.id, session.playerWhite, moves, PgnWriter.resultOf(session.game)));
+    }
+
+    /**
+     * Поток записи архива: забирает партии пачками и сбрасывает файл после каждой пачки.
+     */
+    private void export() {
+        String date = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd"));
+        List<FinishedGame> batch = new ArrayList<>(EXPORT_BATCH);
+        Map<String, String> tags = new LinkedHashMap<>();
+        while (!closed || !finished.isEmpty()) {
+            try {
+                FinishedGame first = finished.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            finished.drainTo(batch, EXPORT_BATCH - 1);
+            try {
+                for (FinishedGame game : batch) {
+                    tags.clear();
+                    tags.put("Event", "ChessGame server");
+                    tags.put("Site", "ChessGame");
+                    tags.put("Date", date);
+                    tags.put("Round", String.valueOf(game.sessionId));
+                    tags.put("White", game.playerWhite ? "Player" : "Engine");
+                    tags.put("Black", game.playerWhite ? "Engine" : "Player");
+                    archive.write(tags, Position.START_FEN, game.moves, game.result);
+                }
+                archive.flush();
+            } catch (IOException e) {
+                logger.error("Ошибка записи архива партий", e);
+            }
+            batch.clear();
+        }
+    }
+
+    private static void applyMove(ChessGame game, int move) {
+        int promotion = Move.promotion(move);
+        char piece = promotion == Move.PROMO_NONE ? 'q' : "nbrq".charAt(promotion - 1);
+        game.makeMove(Bitboards.squareName(Move.from(move)), Bitboards.squareName(Move.to(move)), piece);
+    }
+
+    private static boolean isFinished(String status) {
+        return "checkmate".equals(status) || "stalemate".equals(status) || "draw".equals(status);
+    }
+
+    /**
+     * Останавливает движки; ожидающие ответы не будут завершены.
+     * Законченные партии дописываются в архив до возврата.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        sessions.clear();
+        if (exporter != null) {
+            try {
+                exporter.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Законченная партия в очереди на запись.
+     */
+    private static final class FinishedGame {
+        private final long sessionId;
+        private final boolean playerWhite;
+        private final int[] moves;
+        private final String result;
+
+        FinishedGame(long sessionId, boolean playerWhite, int[] moves, String result) {
+            this.sessionId = sessionId;
+            this.playerWhite = playerWhite;
+            this.moves = moves;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Одна партия человека против движка.
+     */
+    private static final class GameSession {
+        private final long id;
+        private final boolean playerWhite;
+        private final ChessGame game = new ChessGame();
+        private CompletableFuture<SessionReply> pendingReply;
+
+        GameSession(long id, boolean playerWhite) {
+            this.id = id;
+            this.playerWhite = playerWhite;
+        }
+    }
+}
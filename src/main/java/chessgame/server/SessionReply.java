@@ -0,0 +1,40 @@
+package chessgame.server;
+
+/**
+ * Ответ движка в игровой сессии.
+ */
+public final class SessionReply {
+
+    private final long sessionId;
+    private final String move;
+    private final String status;
+
+    public SessionReply(long sessionId, String move, String status) {
+        this.sessionId = sessionId;
+        this.move = move;
+        this.status = status;
+    }
+
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Ход движка в нотации UCI или null, если партия закончилась.
+     */
+    public String getMove() {
+        return move;
+    }
+
+    /**
+     * Состояние партии после ответа (как {@link chessgame.logic.ChessGame#getGameStatus()}).
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return sessionId + ": " + move + " (" + status + ")";
+    }
+}
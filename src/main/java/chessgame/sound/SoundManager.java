@@ -1,11 +1,11 @@
 package chessgame.sound;
 
+import chessgame.resources.ResourceManifest;
 import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.net.URL;
 import java.util.*;
 import java.util.concurrent.*;
@@ -25,8 +25,9 @@ public class SoundManager {
     private final Map<String, SoundSet> soundSets;
     private final Map<String, Media> mediaCache;
     private final Queue<String> cacheQueue;
-    private SoundPreferences preferences;
-    private String currentSoundSet;
+    // Предпочтения читаются в фоне (первое обращение к Jackson заметно замедляет запуск)
+    private final CompletableFuture<SoundPreferences> preferencesLoad;
+    private volatile String currentSoundSet;
     private List<SoundManagerListener> listeners;
     
     /**
@@ -42,80 +43,70 @@ public class SoundManager {
             }
         };
         this.cacheQueue = new ConcurrentLinkedQueue<>();
-        this.preferences = SoundPreferences.load();
-        this.currentSoundSet = preferences.getCurrentSoundSet();
+        this.preferencesLoad = CompletableFuture.supplyAsync(() -> {
+            SoundPreferences loaded = SoundPreferences.load();
+            currentSoundSet = loaded.getCurrentSoundSet();
+            return loaded;
+        }, executorService);
         this.listeners = new CopyOnWriteArrayList<>();
         
         logger.info("SoundManager инициализирован с размером кэша: {}", CACHE_SIZE);
     }
     
     /**
-     * Сканирует директорию звуков и загружает доступные наборы.
+     * Загружает доступные наборы звуков из описи ресурсов.
      * 
      * @param soundsDirectory путь к директории со звуками
+     * @return задача загрузки наборов
      */
-    public void scanAndLoadSoundSets(String soundsDirectory) {
-        executorService.submit(() -> {
+    public CompletableFuture<Void> scanAndLoadSoundSets(String soundsDirectory) {
+        return CompletableFuture.runAsync(() -> {
             try {
-                URL soundsUrl = getClass().getResource(soundsDirectory);
-                if (soundsUrl == null) {
-                    logger.warn("Директория звуков не найдена: {}", soundsDirectory);
-                    return;
-                }
-                
-                File soundsDir = new File(soundsUrl.toURI());
-                if (!soundsDir.isDirectory()) {
-                    logger.warn("Путь не является директорией: {}", soundsDirectory);
+                ResourceManifest manifest = ResourceManifest.get();
+                String directory = soundsDirectory.startsWith("/") ? soundsDirectory.substring(1) : soundsDirectory;
+                List<String> setNames = manifest.getSets(directory);
+                if (setNames.isEmpty()) {
+                    logger.warn("Наборы звуков не найдены: {}", soundsDirectory);
                     return;
                 }
                 
-                File[] setDirs = soundsDir.listFiles(File::isDirectory);
-                if (setDirs == null) {
-                    logger.warn("Не удалось прочитать директорию: {}", soundsDirectory);
-                    return;
-                }
-                
-                for (File setDir : setDirs) {
-                    loadSoundSet(setDir);
+                for (String setName : setNames) {
+                    loadSoundSet(setName, manifest.getFiles(directory + "/" + setName));
                 }
                 
                 logger.info("Загружено {} наборов звуков", soundSets.size());
                 notifyListeners("soundSetsLoaded", soundSets.keySet());
                 
             } catch (Exception e) {
-                logger.error("Ошибка при сканировании директории звуков", e);
+                logger.error("Ошибка при загрузке наборов звуков", e);
             }
-        });
+        }, executorService);
     }
     
     /**
-     * Загружает отдельный набор звуков из директории.
+     * Загружает отдельный набор звуков.
      * 
-     * @param setDirectory директория набора
+     * @param setName название набора
+     * @param files файлы каталога набора из описи ресурсов
      */
-    private void loadSoundSet(File setDirectory) {
+    private void loadSoundSet(String setName, List<ResourceManifest.Entry> files) {
         try {
-            String setName = setDirectory.getName();
             SoundSet soundSet = new SoundSet(setName);
             
-            File[] soundFiles = setDirectory.listFiles((dir, name) -> 
-                name.toLowerCase().endsWith(".mp3") || 
-                name.toLowerCase().endsWith(".wav") ||
-                name.toLowerCase().endsWith(".aiff"));
+            for (ResourceManifest.Entry file : files) {
+                String name = file.getName().toLowerCase();
+                if (!name.endsWith(".mp3") && !name.endsWith(".wav") && !name.endsWith(".aiff")) {
+                    continue;
+                }
+                String eventType = name.replaceAll("\\.[^.]+$", "");
+                soundSet.addSoundPath(eventType, file.getResourcePath());
+            }
             
-            if (soundFiles == null || soundFiles.length == 0) {
+            if (soundSet.getSoundCount() == 0) {
                 logger.warn("Набор звуков {} не содержит аудиофайлов", setName);
                 return;
             }
             
-            for (File soundFile : soundFiles) {
-                String eventType = soundFile.getName()
-                    .replaceAll("\\.[^.]+$", "")
-                    .toLowerCase();
-                String resourcePath = "/sounds/" + setName + "/" + soundFile.getName();
-                soundSet.addSoundPath(eventType, resourcePath);
-            }
-            
             soundSets.put(setName, soundSet);
             logger.info("Загружен набор звуков: {} ({} звуков)", setName, soundSet.getSoundCount());
             
@@ -155,9 +146,10 @@ public class SoundManager {
             return false;
         }
         
+        SoundPreferences current = preferences();
         this.currentSoundSet = setName;
-        preferences.setCurrentSoundSet(setName);
-        preferences.save();
+        current.setCurrentSoundSet(setName);
+        current.save();
         
         logger.info("Текущий набор звуков изменен на: {}", setName);
         notifyListeners("soundSetChanged", setName);
@@ -168,6 +160,7 @@ public class SoundManager {
      * Получает текущий набор звуков.
      */
     public String getCurrentSoundSet() {
+        preferences();
         return currentSoundSet;
     }
     
@@ -177,7 +170,7 @@ public class SoundManager {
      * @param eventType тип события (move, capture, check и т.д.)
      */
     public void playSound(String eventType) {
-        if (!preferences.isSoundEnabled()) {
+        if (!preferences().isSoundEnabled()) {
             logger.debug("Звуки отключены");
             return;
         }
@@ -221,8 +214,8 @@ public class SoundManager {
             MediaPlayer player = new MediaPlayer(media);
             
             // Устанавливаем громкость
-            float masterVolume = preferences.getMasterVolume();
-            float eventVolume = preferences.getEventVolume(eventType);
+            float masterVolume = preferences().getMasterVolume();
+            float eventVolume = preferences().getEventVolume(eventType);
             float finalVolume = masterVolume * eventVolume;
             player.setVolume(Math.max(0.0, Math.min(1.0, finalVolume)));
             
@@ -241,7 +234,7 @@ public class SoundManager {
             
         } catch (IllegalAccessError e) {
             logger.warn("Модульная ошибка при воспроизведении звука, отключаем звуки", e);
-            preferences.setSoundEnabled(false);
+            preferences().setSoundEnabled(false);
         } catch (Exception e) {
             logger.error("Ошибка при воспроизведении звука: {}", soundPath, e);
         }
@@ -285,8 +278,8 @@ public class SoundManager {
      * @param volume громкость от 0.0 до 1.0
      */
     public void setMasterVolume(float volume) {
-        preferences.setMasterVolume(volume);
-        preferences.save();
+        preferences().setMasterVolume(volume);
+        preferences().save();
         logger.info("Главная громкость установлена на: {}", volume);
         notifyListeners("volumeChanged", volume);
     }
@@ -295,7 +288,7 @@ public class SoundManager {
      * Получает главную громкость.
      */
     public float getMasterVolume() {
-        return preferences.getMasterVolume();
+        return preferences().getMasterVolume();
     }
     
     /**
@@ -305,8 +298,8 @@ public class SoundManager {
      * @param volume громкость от 0.0 до 1.0
      */
     public void setEventVolume(String eventType, float volume) {
-        preferences.setEventVolume(eventType, volume);
-        preferences.save();
+        preferences().setEventVolume(eventType, volume);
+        preferences().save();
         logger.info("Громкость события {} установлена на: {}", eventType, volume);
     }
     
@@ -316,7 +309,7 @@ public class SoundManager {
      * @param eventType тип события
      */
     public float getEventVolume(String eventType) {
-        return preferences.getEventVolume(eventType);
+        return preferences().getEventVolume(eventType);
     }
     
     /**
@@ -325,8 +318,8 @@ public class SoundManager {
      * @param enabled true для включения
      */
     public void setSoundEnabled(boolean enabled) {
-        preferences.setSoundEnabled(enabled);
-        preferences.save();
+        preferences().setSoundEnabled(enabled);
+        preferences().save();
         logger.info("Звуки {}", enabled ? "включены" : "отключены");
         notifyListeners("soundEnabledChanged", enabled);
     }
@@ -335,14 +328,28 @@ public class SoundManager {
      * Проверяет включены ли звуки.
      */
     public boolean isSoundEnabled() {
-        return preferences.isSoundEnabled();
+        return preferences().isSoundEnabled();
     }
     
     /**
      * Получает объект предпочтений.
      */
     public SoundPreferences getPreferences() {
-        return preferences;
+        return preferences();
+    }
+
+    /**
+     * Предпочтения; если они еще читаются, ждет окончания чтения.
+     */
+    private SoundPreferences preferences() {
+        return preferencesLoad.join();
+    }
+
+    /**
+     * Задача чтения предпочтений, запущенная в конструкторе.
+     */
+    public CompletableFuture<SoundPreferences> getPreferencesLoad() {
+        return preferencesLoad;
     }
     
     /**
@@ -0,0 +1,327 @@
+package chessgame.uci;
+
+import chessgame.engine.BagaturEngine;
+import chessgame.engine.SearchInfo;
+import chessgame.engine.SearchLimits;
+import chessgame.logic.ChessGame;
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Текстовый интерфейс движка по протоколу UCI: чтение команд из stdin, ответы в stdout.
+ * Работает без JavaFX, поэтому подходит для турнирных оболочек и серверов без дисплея.
+ *
+ * <p>Поиск идет в потоке движка, а поток ввода продолжает принимать команды
+ * ({@code stop}, {@code ponderhit}, {@code isready}) во время поиска.
+ * Журнал пишется в stderr и не мешает протоколу.
+ */
+public final class UciEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(UciEngine.class);
+
+    private static final String ENGINE_NAME = "ChessGame Bagatur";
+    private static final String ENGINE_AUTHOR = "ChessGame";
+
+    private static final int DEFAULT_HASH_MB = 16;
+    private static final int MAX_HASH_MB = 4096;
+
+    // Запас времени на задержки оболочки и вывод хода
+    private static final long MOVE_OVERHEAD_MS = 30;
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+
+    private final BagaturEngine engine;
+    private final PrintStream out;
+
+    private Position position = new Position();
+    private CompletableFuture<Integer> currentSearch;
+
+    // Пока идет бесконечный поиск или размышление на времени соперника, bestmove выводить нельзя
+    private boolean waitForStop;
+    private long ponderTimeMs;
+
+    // Главный вариант последней итерации: второй ход предлагается для ponder
+    private volatile int[] lastPrincipalVariation = new int[0];
+
+    public UciEngine(BagaturEngine engine, PrintStream out) {
+        this.engine = engine;
+        this.out = out;
+    }
+
+    /**
+     * Запускает UCI-режим на стандартных потоках и возвращается по команде {@code quit}.
+     */
+    public static void runStandardStreams() throws IOException {
+        PrintStream stdout = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+        BagaturEngine engine = new BagaturEngine(new ChessGame());
+        engine.initialize();
+        UciEngine uci = new UciEngine(engine, stdout);
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+            uci.run(in);
+        } finally {
+            engine.cleanup();
+        }
+    }
+
+    /**
+     * Обрабатывает команды до {@code quit} или конца ввода.
+     */
+    public void run(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (!handle(line)) {
+                break;
+            }
+        }
+        stopAndWait();
+    }
+
+    /**
+     * Выполняет одну команду.
+     *
+     * @return false для команды {@code quit}
+     */
+    boolean handle(String line) {
+        String[] tokens = line.split("\\s+");
+        try {
+            switch (tokens[0]) {
+                case "uci":
+                    send("id name " + ENGINE_NAME);
+                    send("id author " + ENGINE_AUTHOR);
+                    send("option name Hash type spin default " + DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+                    send("option name Threads type spin default 1 min 1 max " + BagaturEngine.MAX_THREADS);
+                    send("option name Ponder type check default false");
+                    send("uciok");
+                    break;
+                case "isready":
+                    send("readyok");
+                    break;
+                case "ucinewgame":
+                    stopAndWait();
+                    engine.clearHash();
+                    position = new Position();
+                    break;
+                case "position":
+                    stopAndWait();
+                    setPosition(tokens);
+                    break;
+                case "go":
+                    stopAndWait();
+                    go(tokens);
+                    break;
+                case "stop":
+                    releaseWait();
+                    engine.stopSearch();
+                    break;
+                case "ponderhit":
+                    ponderhit();
+                    break;
+                case "setoption":
+                    stopAndWait();
+                    setOption(line);
+                    break;
+                case "quit":
+                    return false;
+                default:
+                    send("info string unknown command " + tokens[0]);
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            send("info string error " + e.getMessage());
+        }
+        return true;
+    }
+
+    private void setPosition(String[] tokens) {
+        Position next;
+        int index = 1;
+        if (tokens.length > 1 && "startpos".equals(tokens[1])) {
+            next = new Position();
+            index = 2;
+        } else if (tokens.length > 1 && "fen".equals(tokens[1])) {
+            StringBuilder fen = new StringBuilder();
+            index = 2;
+            while (index < tokens.length && !"moves".equals(tokens[index])) {
+                fen.append(tokens[index++]).append(' ');
+            }
+            next = Position.fromFen(fen.toString().trim());
+        } else {
+            throw new IllegalArgumentException("ожидается startpos или fen");
+        }
+        if (index < tokens.length && "moves".equals(tokens[index])) {
+            for (int i = index + 1; i < tokens.length; i++) {
+                int move = Move.parseUci(tokens[i]);
+                if (!next.isLegal(move)) {
+                    throw new IllegalArgumentException("нелегальный ход " + tokens[i]);
+                }
+                next.makeMove(move);
+            }
+        }
+        position = next;
+    }
+
+    private void go(String[] tokens) {
+        int depth = SearchLimits.MAX_DEPTH;
+        long nodes = 0;
+        long moveTime = 0;
+        long whiteTime = 0;
+        long blackTime = 0;
+        long whiteIncrement = 0;
+        long blackIncrement = 0;
+        int movesToGo = 0;
+        boolean infinite = false;
+        boolean ponder = false;
+
+        for (int i = 1; i < tokens.length; i++) {
+            String name = tokens[i];
+            switch (name) {
+                case "infinite": infinite = true; break;
+                case "ponder": ponder = true; break;
+                case "depth": depth = Integer.parseInt(tokens[++i]); break;
+                case "nodes": nodes = Long.parseLong(tokens[++i]); break;
+                case "movetime": moveTime = Long.parseLong(tokens[++i]); break;
+                case "wtime": whiteTime = Long.parseLong(tokens[++i]); break;
+                case "btime": blackTime = Long.parseLong(tokens[++i]); break;
+                case "winc": whiteIncrement = Long.parseLong(tokens[++i]); break;
+                case "binc": blackIncrement = Long.parseLong(tokens[++i]); break;
+                case "movestogo": movesToGo = Integer.parseInt(tokens[++i]); break;
+                default: break; // searchmoves, mate и прочее не поддерживаются
+            }
+        }
+
+        long timeLimit = moveTime > 0 ? Math.max(1, moveTime - MOVE_OVERHEAD_MS) : 0;
+        long remaining = position.isWhiteToMove() ? whiteTime : blackTime;
+        long increment = position.isWhiteToMove() ? whiteIncrement : blackIncrement;
+        if (timeLimit == 0 && remaining > 0) {
+            int moves = movesToGo > 0 ? movesToGo : DEFAULT_MOVES_TO_GO;
+            long budget = remaining / moves + increment * 3 / 4;
+            timeLimit = Math.max(1, Math.min(budget, remaining - MOVE_OVERHEAD_MS));
+        }
+        if (infinite) {
+            timeLimit = 0;
+        }
+
+        synchronized (this) {
+            waitForStop = infinite || ponder;
+            ponderTimeMs = ponder ? timeLimit : 0;
+        }
+        // При размышлении на времени соперника время пойдет только после ponderhit
+        SearchLimits limits = new SearchLimits(depth, nodes, ponder ? 0 : timeLimit);
+        lastPrincipalVariation = new int[0];
+        // Позиция не меняется до конца поиска: команда position создает новый объект
+        currentSearch = engine.startSearch(position, limits, this::sendInfo)
+                .whenComplete(this::finishSearch);
+    }
+
+    private void ponderhit() {
+        long timeLimit;
+        synchronized (this) {
+            timeLimit = ponderTimeMs;
+            waitForStop = false;
+            notifyAll();
+        }
+        if (timeLimit > 0) {
+            engine.setSearchTimeLimit(timeLimit);
+        } else {
+            engine.stopSearch();
+        }
+    }
+
+    private void finishSearch(Integer move, Throwable error) {
+        if (error != null) {
+            logger.error("Ошибка поиска", error);
+        }
+        // По протоколу bestmove нельзя выводить раньше stop/ponderhit
+        synchronized (this) {
+            while (waitForStop) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        int best = move != null ? move : Move.NONE;
+        String ponderMove = "";
+        if (best != Move.NONE && lastPrincipalVariation.length > 1 && lastPrincipalVariation[0] == best) {
+            ponderMove = " ponder " + Move.toUci(lastPrincipalVariation[1]);
+        }
+        send("bestmove " + Move.toUci(best) + ponderMove);
+    }
+
+    private void sendInfo(SearchInfo info) {
+        lastPrincipalVariation = info.getPrincipalVariation();
+        String score = info.getMateIn() != 0 ? "mate " + info.getMateIn() : "cp " + info.getScore();
+        send("info depth " + info.getDepth()
+                + " score " + score
+                + " nodes " + info.getNodes()
+                + " nps " + info.getNps()
+                + " time " + info.getTimeMs()
+                + " hashfull " + engine.getHashfull()
+                + " pv " + info.getPrincipalVariationUci());
+    }
+
+    private void setOption(String line) {
+        int nameIndex = line.indexOf(" name ");
+        int valueIndex = line.indexOf(" value ");
+        if (nameIndex < 0) {
+            throw new IllegalArgumentException("setoption без name");
+        }
+        String name = (valueIndex > nameIndex ? line.substring(nameIndex + 6, valueIndex) : line.substring(nameIndex + 6)).trim();
+        String value = valueIndex > 0 ? line.substring(valueIndex + 7).trim() : "";
+        switch (name.toLowerCase()) {
+            case "hash":
+                engine.setHashSize(Math.max(1, Math.min(Integer.parseInt(value), MAX_HASH_MB)));
+                break;
+            case "threads":
+                engine.setThreads(Integer.parseInt(value));
+                break;
+            case "ponder":
+                break;
+            default:
+                send("info string unknown option " + name);
+        }
+    }
+
+    private void releaseWait() {
+        synchronized (this) {
+            waitForStop = false;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Останавливает текущий поиск и ждет вывода bestmove.
+     */
+    private void stopAndWait() {
+        CompletableFuture<Integer> search = currentSearch;
+        if (search == null) {
+            return;
+        }
+        releaseWait();
+        engine.stopSearch();
+        search.join();
+        currentSearch = null;
+    }
+
+    private void send(String line) {
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+}
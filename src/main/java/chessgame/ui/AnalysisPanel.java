@@ -0,0 +1,195 @@
+package chessgame.ui;
+
+import chessgame.engine.Analyzer;
+import chessgame.engine.BagaturEngine;
+import chessgame.engine.SearchInfo;
+import chessgame.logic.Position;
+import chessgame.logic.San;
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Font;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Панель анализа: шкала оценки и лучший вариант для позиции на доске.
+ *
+ * <p>Позицию непрерывно анализирует {@link Analyzer} в своем потоке; новая позиция прерывает
+ * прежний анализ. Сведения переводятся в SAN в потоке анализа и попадают в поток FX через
+ * {@link FxCoalescer}, поэтому панель обновляется не чаще одного раза за кадр.
+ */
+public final class AnalysisPanel {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisPanel.class);
+
+    // Оценка, при которой шкала заполнена на 10/11: 1 / (1 + 10^(-cp / SCALE))
+    private static final double SCALE = 400.0;
+    private static final int MAX_LINE_MOVES = 12;
+
+    private final BagaturEngine engine;
+    private final VBox view = new VBox(5);
+    private final CheckBox enabledBox = new CheckBox("Анализ позиции");
+    private final ProgressBar evaluationBar = new ProgressBar(0.5);
+    private final Label scoreLabel = new Label("");
+    private final Label lineLabel = new Label("");
+    private final FxCoalescer<Update> updates = new FxCoalescer<>(this::show);
+
+    private Analyzer analyzer;
+    private String fen;
+    // Номер запроса анализа в потоке FX: сведения прежних позиций не показываются
+    private long request;
+
+    public AnalysisPanel(BagaturEngine engine) {
+        this.engine = engine;
+        evaluationBar.setPrefWidth(200);
+        scoreLabel.setFont(new Font("Arial", 11));
+        lineLabel.setFont(new Font("Arial", 11));
+        lineLabel.setWrapText(true);
+        lineLabel.setMaxWidth(270);
+        view.setPadding(new Insets(5, 0, 5, 0));
+        view.getChildren().addAll(enabledBox, evaluationBar, scoreLabel, lineLabel);
+        setDetailsVisible(false);
+        enabledBox.setOnAction(event -> setEnabled(enabledBox.isSelected()));
+    }
+
+    public VBox getView() {
+        return view;
+    }
+
+    /**
+     * Задает позицию для анализа. Повторный вызов с той же позицией ничего не делает,
+     * поэтому метод можно вызывать при каждой перерисовке доски.
+     */
+    public void setPosition(String fen) {
+        if (fen.equals(this.fen)) {
+            return;
+        }
+        this.fen = fen;
+        if (analyzer != null) {
+            start();
+        }
+    }
+
+    private void setEnabled(boolean enabled) {
+        if (enabled) {
+            if (analyzer == null) {
+                try {
+                    analyzer = engine.createAnalyzer();
+                } catch (IllegalStateException e) {
+                    logger.warn("Анализ недоступен: {}", e.getMessage());
+                    enabledBox.setSelected(false);
+                    return;
+                }
+            }
+            setDetailsVisible(true);
+            start();
+        } else {
+            request++;
+            updates.clear();
+            if (analyzer != null) {
+                analyzer.close();
+                analyzer = null;
+            }
+            setDetailsVisible(false);
+        }
+    }
+
+    private void start() {
+        long current = ++request;
+        updates.clear();
+        scoreLabel.setText("Анализ...");
+        lineLabel.setText("");
+        if (fen == null) {
+            return;
+        }
+        Position position;
+        try {
+            position = Position.fromFen(fen);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Некорректная позиция для анализа: {}", e.getMessage());
+            analyzer.stop();
+            return;
+        }
+        boolean whiteToMove = position.isWhiteToMove();
+        analyzer.analyze(position, info -> updates.submit(new Update(current, info, whiteToMove, line(position, info))));
+    }
+
+    /**
+     * Главный вариант в SAN с номерами ходов.
+     */
+    private static String line(Position root, SearchInfo info) {
+        Position position = root.copy();
+        int[] pv = info.getPrincipalVariation();
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < pv.length && i < MAX_LINE_MOVES; i++) {
+            if (position.isWhiteToMove()) {
+                line.append(position.fullmoveNumber()).append(". ");
+            } else if (i == 0) {
+                line.append(position.fullmoveNumber()).append("... ");
+            }
+            line.append(San.toSan(position, pv[i])).append(' ');
+            position.makeMove(pv[i]);
+        }
+        return line.toString().trim();
+    }
+
+    private void show(Update update) {
+        if (update.request != request) {
+            return;
+        }
+        SearchInfo info = update.info;
+        int sign = update.whiteToMove ? 1 : -1;
+        String score;
+        double whiteShare;
+        if (info.getMateIn() != 0) {
+            int mateIn = sign * info.getMateIn();
+            score = (mateIn > 0 ? "+M" : "-M") + Math.abs(mateIn);
+            whiteShare = mateIn > 0 ? 1 : 0;
+        } else {
+            int whiteScore = sign * info.getScore();
+            score = String.format("%+.2f", whiteScore / 100.0);
+            whiteShare = 1 / (1 + Math.pow(10, -whiteScore / SCALE));
+        }
+        evaluationBar.setProgress(whiteShare);
+        scoreLabel.setText(String.format("%s, глубина %d, %,d узл/с", score, info.getDepth(), info.getNps()));
+        lineLabel.setText(update.line);
+    }
+
+    private void setDetailsVisible(boolean visible) {
+        for (Node node : new Node[]{evaluationBar, scoreLabel, lineLabel}) {
+            node.setVisible(visible);
+            node.setManaged(visible);
+        }
+    }
+
+    /**
+     * Останавливает анализ при закрытии окна.
+     */
+    public void close() {
+        if (analyzer != null) {
+            analyzer.close();
+            analyzer = null;
+        }
+    }
+
+    /**
+     * Сведения итерации вместе с номером запроса и готовым вариантом.
+     */
+    private static final class Update {
+        private final long request;
+        private final SearchInfo info;
+        private final boolean whiteToMove;
+        private final String line;
+
+        Update(long request, SearchInfo info, boolean whiteToMove, String line) {
+            this.request = request;
+            this.info = info;
+            this.whiteToMove = whiteToMove;
+            this.line = line;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package chessgame.ui;
+
+import chessgame.logic.ChessGame;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+
+import java.util.Arrays;
+
+/**
+ * Отрисовка доски на одном {@link Canvas} вместо 64 узлов со стилями CSS.
+ *
+ * <p>Рендерер помнит, какая фигура и какая подсветка нарисованы на каждой клетке, и при обновлении
+ * перерисовывает только изменившиеся клетки: после хода это обычно две клетки (четыре при рокировке,
+ * три при взятии на проходе). Граф сцены состоит из одного узла, поэтому ход не вызывает проходов CSS и раскладки.
+ * Клетки нумеруются как в {@link ChessBoard}: строка 0 - восьмая горизонталь, столбец 0 - вертикаль a.
+ */
+public final class BoardRenderer {
+
+    private static final int BOARD_SIZE = 8;
+    private static final String EMPTY = "empty";
+
+    // Полоса под доской для букв вертикалей и рамка вокруг доски
+    private static final double LABEL_HEIGHT = 20;
+    private static final double BORDER = 2;
+    // Доля клетки, занимаемая фигурой; под этот размер масштабируется PieceAtlas
+    static final double PIECE_SCALE = 0.8;
+    private static final double HIGHLIGHT_WIDTH = 3;
+
+    private static final String[] FILES = {"a", "b", "c", "d", "e", "f", "g", "h"};
+    private static final String[] RANKS = {"8", "7", "6", "5", "4", "3", "2", "1"};
+    private static final String[] SQUARE_NAMES = new String[BOARD_SIZE * BOARD_SIZE];
+
+    static {
+        for (int index = 0; index < SQUARE_NAMES.length; index++) {
+            SQUARE_NAMES[index] = FILES[index % BOARD_SIZE] + RANKS[index / BOARD_SIZE];
+        }
+    }
+
+    private final Canvas canvas;
+    private final GraphicsContext graphics;
+    private final double squareSize;
+    private final Color lightColor;
+    private final Color darkColor;
+    private final Font labelFont = Font.font("Arial", FontWeight.BOLD, 12);
+
+    // Что нарисовано на клетке сейчас и что должно быть нарисовано
+    private final String[] drawnPieces = new String[BOARD_SIZE * BOARD_SIZE];
+    private final Color[] drawnHighlights = new Color[BOARD_SIZE * BOARD_SIZE];
+    private final Color[] highlights = new Color[BOARD_SIZE * BOARD_SIZE];
+
+    // Атлас текущего набора; пока он собирается, клетки рисуются без фигур
+    private PieceAtlas atlas;
+    private ChessGame lastGame;
+
+    public BoardRenderer(double squareSize, Color lightColor, Color darkColor) {
+        this.squareSize = squareSize;
+        this.lightColor = lightColor;
+        this.darkColor = darkColor;
+        double side = BOARD_SIZE * squareSize + 2 * BORDER;
+        this.canvas = new Canvas(side, side + LABEL_HEIGHT);
+        this.graphics = canvas.getGraphicsContext2D();
+        repaintAll(null);
+    }
+
+    public Canvas getCanvas() {
+        return canvas;
+    }
+
+    /**
+     * Подключает атлас набора фигур и перерисовывает доску с последней отрисованной партией.
+     */
+    public void setAtlas(PieceAtlas atlas) {
+        this.atlas = atlas;
+        repaintAll(lastGame);
+    }
+
+    /**
+     * Клетка под точкой холста: {row, col} или null, если точка вне доски.
+     */
+    public int[] squareAt(double x, double y) {
+        int col = (int) Math.floor((x - BORDER) / squareSize);
+        int row = (int) Math.floor((y - BORDER) / squareSize);
+        if (row < 0 || row >= BOARD_SIZE || col < 0 || col >= BOARD_SIZE) {
+            return null;
+        }
+        return new int[]{row, col};
+    }
+
+    /**
+     * Перерисовывает клетки, фигуры на которых отличаются от нарисованных.
+     */
+    public void render(ChessGame game) {
+        lastGame = game;
+        for (int index = 0; index < drawnPieces.length; index++) {
+            String piece = game.getPieceAt(SQUARE_NAMES[index]);
+            if (!piece.equals(drawnPieces[index])) {
+                drawnPieces[index] = piece;
+                paintSquare(index / BOARD_SIZE, index % BOARD_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Подсвечивает клетку рамкой; перерисовывается только эта клетка.
+     */
+    public void setHighlight(int row, int col, Color color) {
+        int index = row * BOARD_SIZE + col;
+        highlights[index] = color;
+        if (!color.equals(drawnHighlights[index])) {
+            paintSquare(row, col);
+        }
+    }
+
+    /**
+     * Снимает подсветку; перерисовываются только подсвеченные клетки.
+     */
+    public void clearHighlights() {
+        Arrays.fill(highlights, null);
+        for (int index = 0; index < highlights.length; index++) {
+            if (drawnHighlights[index] != null) {
+                paintSquare(index / BOARD_SIZE, index % BOARD_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Перерисовывает всю доску, например после смены набора фигур.
+     *
+     * @param game партия, фигуры которой рисуются (null - пустая доска)
+     */
+    public void repaintAll(ChessGame game) {
+        lastGame = game;
+        graphics.setFill(Color.BLACK);
+        graphics.fillRect(0, 0, canvas.getWidth(), BOARD_SIZE * squareSize + 2 * BORDER);
+        graphics.setFill(Color.WHITE);
+        graphics.fillRect(0, BOARD_SIZE * squareSize + 2 * BORDER, canvas.getWidth(), LABEL_HEIGHT);
+
+        graphics.setFont(labelFont);
+        graphics.setFill(Color.BLACK);
+        graphics.setTextAlign(TextAlignment.CENTER);
+        graphics.setTextBaseline(VPos.TOP);
+        for (int col = 0; col < BOARD_SIZE; col++) {
+            graphics.fillText(FILES[col], BORDER + (col + 0.5) * squareSize, BOARD_SIZE * squareSize + 2 * BORDER);
+        }
+
+        for (int row = 0; row < BOARD_SIZE; row++) {
+            for (int col = 0; col < BOARD_SIZE; col++) {
+                int index = row * BOARD_SIZE + col;
+                drawnPieces[index] = game != null ? game.getPieceAt(SQUARE_NAMES[index]) : EMPTY;
+                paintSquare(row, col);
+            }
+        }
+    }
+
+    /**
+     * Рисует клетку целиком: фон, подсветку, фигуру и цифру горизонтали на вертикали a.
+     */
+    private void paintSquare(int row, int col) {
+        int index = row * BOARD_SIZE + col;
+        double x = BORDER + col * squareSize;
+        double y = BORDER + row * squareSize;
+
+        graphics.setFill((row + col) % 2 == 0 ? lightColor : darkColor);
+        graphics.fillRect(x, y, squareSize, squareSize);
+
+        Color highlight = highlights[index];
+        if (highlight != null) {
+            graphics.setStroke(highlight);
+            graphics.setLineWidth(HIGHLIGHT_WIDTH);
+            graphics.strokeRect(x + HIGHLIGHT_WIDTH / 2, y + HIGHLIGHT_WIDTH / 2,
+                    squareSize - HIGHLIGHT_WIDTH, squareSize - HIGHLIGHT_WIDTH);
+        }
+        drawnHighlights[index] = highlight;
+
+        String piece = drawnPieces[index];
+        if (atlas != null && piece != null && !piece.equals(EMPTY)) {
+            double size = squareSize * PIECE_SCALE;
+            atlas.draw(graphics, piece, x + (squareSize - size) / 2, y + (squareSize - size) / 2, size);
+        }
+
+        if (col == 0) {
+            graphics.setFont(labelFont);
+            graphics.setFill(Color.BLACK);
+            graphics.setTextAlign(TextAlignment.LEFT);
+            graphics.setTextBaseline(VPos.CENTER);
+            graphics.fillText(RANKS[row], x + 2, y + squareSize / 2);
+        }
+    }
+}
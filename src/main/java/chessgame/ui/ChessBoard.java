@@ -1,10 +1,14 @@
 package chessgame.ui;
 
 import chessgame.engine.BagaturEngine;
+import chessgame.engine.SearchInfo;
 import chessgame.logic.ChessGame;
+import chessgame.pgn.PgnWriter;
+import chessgame.resources.ResourceManifest;
 import chessgame.sound.SoundManager;
 import chessgame.sound.SoundSettingsPanel;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -14,7 +18,6 @@ import javafx.scene.control.Dialog;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
 import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 import javafx.scene.input.MouseEvent;
@@ -22,12 +25,16 @@ import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
+import javafx.stage.Screen;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.net.URL;
@@ -57,17 +64,17 @@ public class ChessBoard {
 
     // Основные компоненты UI
     private Stage primaryStage;
-    private GridPane boardGrid;
+    private BoardRenderer boardRenderer;
     private BorderPane rootLayout;
     private VBox controlPanel;
     private HBox colorSelectionPanel;
     private Text statusText;
     private ProgressBar aiThinkingProgress;
+    private Label searchInfoLabel;
+    private AnalysisPanel analysisPanel;
     private Label scoreLabel;
     private Label lastMoveTimeLabel;
-    private TextArea moveHistoryTextArea;
-    private int moveNumber = 1;
-    private StringBuilder currentMoveText = new StringBuilder();
+    private MoveListView moveList;
 
     // Игровые компоненты
     private ChessGame chessGame;
@@ -85,9 +92,13 @@ public class ChessBoard {
     private int blackWins = 0;
     private int draws = 0;
     private LocalDateTime lastMoveTime;
+    // Партия до выбранного в истории полухода; null - на доске текущая позиция
+    private ChessGame viewedGame;
+    private String liveStatus;
 
-    // Изображения фигур
-    private Map<String, Image> pieceImages = new HashMap<>();
+    // Атласы фигур: собираются в фоне, старые наборы вытесняются по бюджету памяти
+    private final PieceAtlasCache atlasCache = new PieceAtlasCache(PieceAtlasCache.DEFAULT_BUDGET_BYTES);
+    private PieceAtlas pieceAtlas;
 
     // Наборы фигур
     private String currentPieceSet = "tournament";
@@ -102,32 +113,61 @@ public class ChessBoard {
     private String aiDifficulty = "medium";
     private Map<String, Integer> difficultyTimeLimits = new HashMap<>();
 
+    // Сведения о поиске AI приходят из потока движка после каждой итерации и объединяются до одного обновления за кадр
+    private final FxCoalescer<SearchInfo> searchInfoUpdates = new FxCoalescer<>(this::showSearchInfo);
+
     // Исполнитель для асинхронных задач
     private final java.util.concurrent.ExecutorService executor = Executors.newSingleThreadExecutor();
 
+    // Замеры запуска и готовность движка, который инициализируется в фоне
+    private final StartupProfile startup;
+    private final CompletableFuture<Void> engineReady;
+
     /**
      * Конструктор шахматной доски.
      */
     public ChessBoard() {
+        this(new StartupProfile(0));
+    }
+
+    /**
+     * Конструктор шахматной доски. Движок, атлас фигур, опись ресурсов, наборы звуков
+     * и предпочтения готовятся параллельно в фоне, поток FX сразу переходит к построению окна.
+     *
+     * @param startup замеры этапов запуска
+     */
+    public ChessBoard(StartupProfile startup) {
+        this.startup = startup;
         this.chessGame = new ChessGame();
         this.engine = new BagaturEngine(chessGame);
         this.soundManager = new SoundManager();
-        
+        startup.track("preferences", soundManager.getPreferencesLoad());
 
-        try {
-            this.engine.initialize();
-            logger.info("Шахматная доска инициализирована");
-        } catch (Exception e) {
-            logger.error("Ошибка при инициализации доски", e);
-            showErrorDialog("Ошибка инициализации", "Не удалось инициализировать AI движок");
-        }
+        this.engine.addSearchListener(searchInfoUpdates::submit);
+        java.util.concurrent.ExecutorService startupExecutor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "startup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.engineReady = startup.track("engine", CompletableFuture.runAsync(engine::initialize, startupExecutor));
+        engineReady.whenComplete((ignored, error) -> {
+            if (error != null) {
+                logger.error("Ошибка при инициализации доски", error);
+                Platform.runLater(() -> showErrorDialog("Ошибка инициализации", "Не удалось инициализировать AI движок"));
+            } else {
+                logger.info("Шахматная доска инициализирована");
+            }
+        });
+
+        startup.track("pieces", loadPieceImages());
+        startup.track("manifest", CompletableFuture.supplyAsync(
+                () -> ResourceManifest.get().getSets(ResourceManifest.PIECES), startupExecutor))
+                .thenAccept(sets -> Platform.runLater(() -> availableSets.addAll(sets)));
+        startupExecutor.shutdown();
 
-        loadPieceImages();
-        scanSets();
-        
         // Инициализируем новую систему управления звуками
-        soundManager.scanAndLoadSoundSets("/sounds");
-        
+        startup.track("sounds", soundManager.scanAndLoadSoundSets("/sounds"));
+
         // Настройка лимитов времени для сложности
         difficultyTimeLimits.put("easy", 1000); // 1 секунда
         difficultyTimeLimits.put("medium", 5000); // 5 секунд
@@ -140,15 +180,25 @@ public class ChessBoard {
     public Stage createAndShowGUI() {
         Platform.runLater(() -> {
             try {
-                createMainWindow();
-                createBoard();
-                createColorSelectionPanel();
-                createControlPanel();
-                layoutWindow();
-
-                primaryStage.show();
+                startup.measure("gui", () -> {
+                    createMainWindow();
+                    createBoard();
+                    createColorSelectionPanel();
+                    createControlPanel();
+                    layoutWindow();
+                    primaryStage.show();
+                });
                 logger.info("GUI отображен");
 
+                // Первый кадр отрисовывается на ближайшем проходе после показа окна
+                new AnimationTimer() {
+                    @Override
+                    public void handle(long now) {
+                        stop();
+                        startup.firstFrameShown();
+                    }
+                }.start();
+
                 // Показываем панель выбора цвета при запуске
                 colorSelectionPanel.setVisible(true);
                 colorSelectionPanel.setManaged(true);
@@ -184,59 +234,32 @@ public class ChessBoard {
      * Создает шахматную доску.
      */
     private void createBoard() {
-        boardGrid = new GridPane();
-        boardGrid.setStyle("-fx-border-color: black; -fx-border-width: 2;");
-
-        // Создаем клетки доски
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                StackPane square = createSquare(row, col);
-                boardGrid.add(square, col, row);
-            }
-        }
-
-        // Добавляем координаты
-        addCoordinateLabels();
-
-        // Обновляем отображение доски
-        updateBoardDisplay();
-    }
-
-    /**
-     * Создает отдельную клетку доски.
-     */
-    private StackPane createSquare(int row, int col) {
-        StackPane square = new StackPane();
+        boardRenderer = new BoardRenderer(SQUARE_SIZE, LIGHT_SQUARE_COLOR, DARK_SQUARE_COLOR);
 
-        // Определяем цвет клетки
-        Color color = (row + col) % 2 == 0 ? LIGHT_SQUARE_COLOR : DARK_SQUARE_COLOR;
-        square.setStyle(String.format("-fx-background-color: #%02X%02X%02X;",
-                (int)(color.getRed() * 255),
-                (int)(color.getGreen() * 255),
-                (int)(color.getBlue() * 255)));
-
-        square.setMinSize(SQUARE_SIZE, SQUARE_SIZE);
-        square.setMaxSize(SQUARE_SIZE, SQUARE_SIZE);
-
-        // Добавляем обработчик кликов
-        square.setOnMouseClicked(event -> handleSquareClick(event, row, col));
-
-        // Добавляем ImageView для фигур
-        ImageView pieceView = new ImageView();
-        pieceView.setFitWidth(SQUARE_SIZE * 0.8);
-        pieceView.setFitHeight(SQUARE_SIZE * 0.8);
-        square.getChildren().add(pieceView);
-
-        // Сохраняем ссылку на ImageView
-        square.setUserData(pieceView);
+        // Клики по холсту переводятся в клетки
+        boardRenderer.getCanvas().setOnMouseClicked(event -> {
+            int[] coords = boardRenderer.squareAt(event.getX(), event.getY());
+            if (coords != null) {
+                handleSquareClick(event, coords[0], coords[1]);
+            }
+        });
 
-        return square;
+        // Обновляем отображение доски; если атлас еще собирается, фигуры появятся по его готовности
+        boardRenderer.repaintAll(chessGame);
+        if (pieceAtlas != null) {
+            boardRenderer.setAtlas(pieceAtlas);
+        }
     }
 
     /**
      * Обрабатывает клики по клеткам доски.
      */
     private void handleSquareClick(MouseEvent event, int row, int col) {
+        if (viewedGame != null) {
+            // Щелчок по доске при просмотре истории возвращает к текущей позиции
+            showCurrentPosition();
+            return;
+        }
         if (!gameInProgress || !isPlayerTurn || isAIThinking) {
             return;
         }
@@ -304,17 +327,7 @@ public class ChessBoard {
      * Очищает подсветку всех клеток.
      */
     private void clearHighlights() {
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                StackPane square = (StackPane) boardGrid.getChildren().get(row * BOARD_SIZE + col);
-                // Сбрасываем стиль к стандартному фону
-                Color color = (row + col) % 2 == 0 ? LIGHT_SQUARE_COLOR : DARK_SQUARE_COLOR;
-                square.setStyle(String.format("-fx-background-color: #%02X%02X%02X;",
-                        (int)(color.getRed() * 255),
-                        (int)(color.getGreen() * 255),
-                        (int)(color.getBlue() * 255)));
-            }
-        }
+        boardRenderer.clearHighlights();
     }
 
     /**
@@ -323,12 +336,7 @@ public class ChessBoard {
     private void highlightSquare(String square, Color color) {
         int[] coords = getSquareCoords(square);
         if (coords != null) {
-            StackPane squarePane = (StackPane) boardGrid.getChildren()
-                .get(coords[0] * BOARD_SIZE + coords[1]);
-            squarePane.setStyle(squarePane.getStyle() + String.format(" -fx-border-color: #%02X%02X%02X; -fx-border-width: 3;",
-                    (int)(color.getRed() * 255),
-                    (int)(color.getGreen() * 255),
-                    (int)(color.getBlue() * 255)));
+            boardRenderer.setHighlight(coords[0], coords[1], color);
         }
     }
 
@@ -351,8 +359,7 @@ public class ChessBoard {
                 }
 
                 // Добавляем ход в историю
-                currentMoveText.append(moveNumber).append(". ").append(from).append("-").append(to).append(" ");
-                moveHistoryTextArea.setText(currentMoveText.toString());
+                syncMoveList();
 
                 // Очищаем выделение
                 clearSelection();
@@ -394,25 +401,39 @@ public class ChessBoard {
      */
     private void makeAIMove() {
         isAIThinking = true;
-        CompletableFuture.supplyAsync(() -> {
-            try {
-                aiThinkingProgress.setVisible(true);
-
-                // Получаем текущую позицию
-                String fenPosition = chessGame.getCurrentPosition();
-
-                // Запрашиваем ход у AI
-                BagaturEngine.ChessMove aiMove = engine.getBestMove(fenPosition, isPlayerWhite ? 'b' : 'w');
-
-                return aiMove;
-            } catch (Exception e) {
-                logger.error("Ошибка при получении хода AI", e);
-                return null;
+        // Вызывается в потоке FX: элементы интерфейса нельзя менять из потока исполнителя
+        aiThinkingProgress.setVisible(true);
+        searchInfoUpdates.clear();
+        searchInfoLabel.setText("");
+        String fenPosition = chessGame.getCurrentPosition();
+        char aiColor = isPlayerWhite ? 'b' : 'w';
+        long timeLimitMs = difficultyTimeLimits.get(aiDifficulty);
+        // Движок инициализируется в фоне при запуске: лимит времени отсчитывается только после готовности,
+        // иначе первый ход на легком уровне тратит лимит на инициализацию
+        engineReady.thenComposeAsync(ready -> {
+            CompletableFuture<BagaturEngine.ChessMove> search =
+                    CompletableFuture.supplyAsync(() -> engine.getBestMove(fenPosition, aiColor), executor);
+            // По истечении лимита поиск останавливается и отдает лучший найденный ход
+            return search.copy().orTimeout(timeLimitMs, java.util.concurrent.TimeUnit.MILLISECONDS)
+                    .exceptionallyCompose(error -> {
+                        if (!(error instanceof java.util.concurrent.TimeoutException)) {
+                            return CompletableFuture.failedFuture(error);
+                        }
+                        logger.warn("AI не уложился в {} мс, поиск остановлен", timeLimitMs);
+                        engine.stopSearch();
+                        return search;
+                    });
+        }, executor).handle((move, error) -> {
+            if (error != null) {
+                logger.error("Ошибка при получении хода AI", error);
             }
-        }, executor).orTimeout(difficultyTimeLimits.get(aiDifficulty), java.util.concurrent.TimeUnit.MILLISECONDS).thenAccept(aiMove -> {
+            BagaturEngine.ChessMove aiMove = error == null ? move : null;
             Platform.runLater(() -> {
                 aiThinkingProgress.setVisible(false);
                 isAIThinking = false;
+                if (error != null) {
+                    updateStatus("Ошибка AI: " + error.getMessage());
+                }
 
                 if (aiMove != null) {
                     // Выполняем ход AI
@@ -425,12 +446,15 @@ public class ChessBoard {
                     logger.debug("Current position: {}", chessGame.getCurrentPosition());
 
                     if (chessGame.isValidMove(from, to, !isPlayerWhite)) {
-                        chessGame.makeMove(from, to);
+                        // Превращение берется из хода движка: он может выбрать не ферзя
+                        if (aiMove.isPromotion()) {
+                            chessGame.makeMove(from, to, aiMove.getPromotion());
+                        } else {
+                            chessGame.makeMove(from, to);
+                        }
 
                         // Добавляем ход AI в историю
-                        currentMoveText.append(from).append("-").append(to).append("\n");
-                        moveHistoryTextArea.setText(currentMoveText.toString());
-                        moveNumber++;
+                        syncMoveList();
 
                         updateBoardDisplay();
 
@@ -487,6 +511,7 @@ public class ChessBoard {
                     }
                 }
             });
+            return null;
         });
     }
 
@@ -571,8 +596,6 @@ public class ChessBoard {
             updateStatus("Игра началась. Ваш ход (белые).");
         } else {
             updateStatus("Игра началась. AI думает (белые)...");
-            // Для первого хода AI добавляем номер
-            currentMoveText.append(moveNumber).append(". ");
             makeAIMove();
         }
 
@@ -615,6 +638,9 @@ public class ChessBoard {
         undoBtn.setOnAction(event -> undoMove());
         undoBtn.setDisable(true);
 
+        Button savePgnBtn = new Button("Сохранить PGN");
+        savePgnBtn.setOnAction(event -> savePgn());
+
         Button changePiecesBtn = new Button("Change Pieces");
         changePiecesBtn.setOnAction(event -> showPieceSetDialog());
 
@@ -635,14 +661,21 @@ public class ChessBoard {
         aiThinkingProgress.setVisible(false);
         aiThinkingProgress.setPrefWidth(200);
 
+        searchInfoLabel = new Label("");
+        searchInfoLabel.setFont(new Font("Arial", 11));
+
+        // Панель анализа работает в своем потоке и не мешает поиску хода AI
+        analysisPanel = new AnalysisPanel(engine);
+        analysisPanel.setPosition(chessGame.getCurrentPosition());
+
         // История ходов
         Text moveHistoryLabel = new Text("История ходов:");
         moveHistoryLabel.setFont(new Font("Arial", 12));
 
-        moveHistoryTextArea = new TextArea();
-        moveHistoryTextArea.setEditable(false);
-        moveHistoryTextArea.setPrefRowCount(8);
-        moveHistoryTextArea.setPrefWidth(270);
+        moveList = new MoveListView();
+        moveList.getView().setPrefHeight(180);
+        moveList.getView().setPrefWidth(270);
+        moveList.setOnJump(this::showPositionAt);
 
         // Добавляем компоненты
         controlPanel.getChildren().addAll(
@@ -657,11 +690,15 @@ public class ChessBoard {
             difficultyLabel,
             difficultyCombo,
             undoBtn,
+            savePgnBtn,
             new Label(""),
             aiThinkingProgress,
+            searchInfoLabel,
+            new Separator(),
+            analysisPanel.getView(),
             new Separator(),
             moveHistoryLabel,
-            moveHistoryTextArea,
+            moveList.getView(),
             new Label(""),
             exitBtn
         );
@@ -673,7 +710,7 @@ public class ChessBoard {
     private void layoutWindow() {
         rootLayout = new BorderPane();
         rootLayout.setTop(colorSelectionPanel);
-        rootLayout.setCenter(boardGrid);
+        rootLayout.setCenter(boardRenderer.getCanvas());
         rootLayout.setRight(controlPanel);
 
         Scene scene = new Scene(rootLayout);
@@ -683,92 +720,39 @@ public class ChessBoard {
     }
 
     /**
-     * Загружает изображения фигур.
+     * Запрашивает атлас текущего набора фигур. Декодирование идет в фоновом потоке,
+     * доска перерисовывается в потоке FX, если набор за это время не сменили.
+     *
+     * @return задача сборки атласа
      */
-    private void loadPieceImages() {
-        String[] pieceTypes = {"p", "n", "b", "r", "q", "k"};
-        String[] colors = {"w", "b"};
-
-        for (String color : colors) {
-            for (String piece : pieceTypes) {
-                try {
-                    String path = "/pieces/" + currentPieceSet + "/" + color + piece + ".png";
-                    try {
-                        pieceImages.put(color + piece, new Image(getClass().getResourceAsStream(path)));
-                        logger.debug("Загружено изображение: {}", path);
-                    } catch (Exception e) {
-                        logger.warn("Не удалось загрузить изображение: {}", path, e);
-                        // Fallback to default
-                        loadFallbackImage(color + piece);
-                    }
-                } catch (Exception e) {
-                    logger.warn("Не удалось загрузить изображение для " + color + piece, e);
-                }
+    private CompletableFuture<PieceAtlas> loadPieceImages() {
+        String set = currentPieceSet;
+        double scale = Screen.getPrimary().getOutputScaleX();
+        CompletableFuture<PieceAtlas> loading = atlasCache.get(set, SQUARE_SIZE * BoardRenderer.PIECE_SCALE, scale);
+        loading.whenComplete((atlas, error) -> {
+            if (error != null) {
+                logger.warn("Не удалось загрузить набор фигур {}", set, error);
+                return;
             }
-        }
-    }
-
-    /**
-     * Загружает изображение из запасного набора.
-     */
-    private void loadFallbackImage(String pieceKey) {
-        String[] fallbackThemes = {"tournament", "wood"};
-        for (String theme : fallbackThemes) {
-            if (!theme.equals(currentPieceSet)) {
-                String path = "/pieces/" + theme + "/" + pieceKey.charAt(0) + pieceKey.charAt(1) + ".png";
-                try {
-                    pieceImages.put(pieceKey, new Image(getClass().getResourceAsStream(path)));
-                    logger.debug("Загружено запасное изображение: {}", path);
+            Platform.runLater(() -> {
+                if (!set.equals(currentPieceSet)) {
                     return;
-                } catch (Exception e) {
-                    // continue
                 }
-            }
-        }
-    }
-
-    /**
-     * Сканирует доступные наборы фигур.
-     */
-    private void scanSets() {
-        try {
-            URL resUrl = getClass().getResource("/pieces");
-            if (resUrl != null) {
-                java.io.File piecesDir = new java.io.File(resUrl.toURI());
-                if (piecesDir.isDirectory()) {
-                    java.io.File[] subdirs = piecesDir.listFiles(java.io.File::isDirectory);
-                    if (subdirs != null) {
-                        for (java.io.File subdir : subdirs) {
-                            availableSets.add(subdir.getName());
-                        }
-                    }
+                pieceAtlas = atlas;
+                if (boardRenderer != null) {
+                    boardRenderer.setAtlas(atlas);
                 }
-            }
-        } catch (Exception e) {
-            logger.error("Ошибка при сканировании наборов фигур", e);
-        }
+                logger.debug("Загружен набор фигур: {}", set);
+            });
+        });
+        return loading;
     }
 
     /**
-     * Сканирует доступные наборы звуков.
+     * Читает доступные наборы звуков из описи ресурсов.
      */
     private void scanSoundSets() {
-        try {
-            URL resUrl = getClass().getResource("/sounds");
-            if (resUrl != null) {
-                java.io.File soundsDir = new java.io.File(resUrl.toURI());
-                if (soundsDir.isDirectory()) {
-                    java.io.File[] subdirs = soundsDir.listFiles(java.io.File::isDirectory);
-                    if (subdirs != null) {
-                        for (java.io.File subdir : subdirs) {
-                            availableSoundSets.add(subdir.getName());
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Ошибка при сканировании наборов звуков", e);
-        }
+        availableSoundSets.addAll(ResourceManifest.get().getSets(ResourceManifest.SOUNDS));
     }
 
     /**
@@ -819,7 +803,6 @@ public class ChessBoard {
             currentPieceSet = set;
             loadPieceImages();
             loadSounds();
-            updateBoardDisplay();
             logger.info("Выбран набор фигур: {}", set);
         });
     }
@@ -874,70 +857,73 @@ public class ChessBoard {
 
 
     /**
-     * Обновляет отображение доски.
+     * Обновляет отображение доски: перерисовываются только клетки, на которых изменились фигуры.
      */
     private void updateBoardDisplay() {
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                updateSquareDisplay(row, col);
-            }
+        ChessGame shown = viewedGame != null ? viewedGame : chessGame;
+        boardRenderer.render(shown);
+        if (analysisPanel != null) {
+            // Анализ перезапускается, только если позиция изменилась
+            analysisPanel.setPosition(shown.getCurrentPosition());
         }
     }
 
     /**
-     * Обновляет отображение отдельной клетки.
+     * Добавляет в историю новые полуходы партии и возвращает доску к текущей позиции.
      */
-    private void updateSquareDisplay(int row, int col) {
-        StackPane square = (StackPane) boardGrid.getChildren()
-            .get(row * BOARD_SIZE + col);
-        ImageView pieceView = (ImageView) square.getUserData();
-
-        String squareCoord = getSquareCoordinates(row, col);
-        String piece = chessGame.getPieceAt(squareCoord);
-
-        if (piece != null && !piece.equals("empty")) {
-            Image pieceImage = pieceImages.get(piece);
-            if (pieceImage != null) {
-                pieceView.setImage(pieceImage);
-            } else {
-                pieceView.setImage(null);
-            }
-        } else {
-            pieceView.setImage(null);
-        }
+    private void syncMoveList() {
+        viewedGame = null;
+        moveList.sync(chessGame);
     }
 
     /**
-     * Добавляет координатные метки.
+     * Показывает позицию после заданного количества полуходов; ходить в ней нельзя.
      */
-    private void addCoordinateLabels() {
-        // Файлы (буквы снизу)
-        for (int col = 0; col < BOARD_SIZE; col++) {
-            Text fileLabel = new Text(FILES[col]);
-            fileLabel.setFont(new Font("Arial", 12));
-            fileLabel.setStyle("-fx-font-weight: bold;");
-
-            StackPane labelPane = new StackPane(fileLabel);
-            labelPane.setMinSize(SQUARE_SIZE, 20);
-            labelPane.setMaxSize(SQUARE_SIZE, 20);
-            labelPane.setAlignment(Pos.TOP_CENTER);
-
-            boardGrid.add(labelPane, col, BOARD_SIZE);
+    private void showPositionAt(int ply) {
+        if (ply >= chessGame.getMoveCount()) {
+            showCurrentPosition();
+            return;
         }
+        clearSelection();
+        if (viewedGame == null) {
+            liveStatus = statusText.getText();
+        }
+        viewedGame = chessGame.copyAt(ply);
+        moveList.select(ply);
+        updateBoardDisplay();
+        updateStatus("Просмотр позиции после полухода " + ply + ". Щелкните по доске, чтобы вернуться к партии.");
+    }
 
-        // Ранги (цифры слева)
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            Text rankLabel = new Text(RANKS[row]);
-            rankLabel.setFont(new Font("Arial", 12));
-            rankLabel.setStyle("-fx-font-weight: bold;");
-
-            StackPane labelPane = new StackPane(rankLabel);
-            labelPane.setMinSize(20, SQUARE_SIZE);
-            labelPane.setMaxSize(20, SQUARE_SIZE);
-            labelPane.setAlignment(Pos.CENTER_LEFT);
+    /**
+     * Возвращает доску к текущей позиции партии.
+     */
+    private void showCurrentPosition() {
+        boolean wasViewing = viewedGame != null;
+        viewedGame = null;
+        moveList.select(chessGame.getMoveCount());
+        updateBoardDisplay();
+        if (wasViewing) {
+            updateStatus(liveStatus);
+        }
+    }
 
-            boardGrid.add(labelPane, 0, row);
+    /**
+     * Показывает глубину, оценку и скорость поиска AI. Оценка приводится к стороне белых.
+     */
+    private void showSearchInfo(SearchInfo info) {
+        if (searchInfoLabel == null || !isAIThinking) {
+            return;
+        }
+        String score;
+        if (info.getMateIn() != 0) {
+            int mateIn = isPlayerWhite ? -info.getMateIn() : info.getMateIn();
+            score = (mateIn > 0 ? "+M" : "-M") + Math.abs(mateIn);
+        } else {
+            int whiteScore = isPlayerWhite ? -info.getScore() : info.getScore();
+            score = String.format("%+.2f", whiteScore / 100.0);
         }
+        searchInfoLabel.setText(String.format("Глубина %d, оценка %s, %,d узл/с",
+                info.getDepth(), score, info.getNps()));
     }
 
     /**
@@ -947,12 +933,11 @@ public class ChessBoard {
         chessGame = new ChessGame();
         gameInProgress = false;
         isAIThinking = false;
+        // Сбрасываем историю ходов
+        viewedGame = null;
+        moveList.clear();
         clearSelection();
         updateBoardDisplay();
-        // Сбрасываем историю ходов
-        moveNumber = 1;
-        currentMoveText.setLength(0);
-        moveHistoryTextArea.setText("");
         // Показываем панель выбора цвета
         colorSelectionPanel.setVisible(true);
         colorSelectionPanel.setManaged(true);
@@ -964,6 +949,7 @@ public class ChessBoard {
      */
     private void undoMove() {
         if (chessGame.undoMove()) {
+            syncMoveList();
             updateBoardDisplay();
             updateStatus("Ход отменен");
             clearSelection();
@@ -1118,6 +1104,34 @@ public class ChessBoard {
         }
     }
 
+    /**
+     * Сохраняет текущую партию в PGN.
+     */
+    private void savePgn() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Сохранить партию");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PGN", "*.pgn"));
+        chooser.setInitialFileName("game.pgn");
+        File file = chooser.showSaveDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", "ChessGame");
+        tags.put("Site", "ChessGame");
+        tags.put("Date", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd")));
+        tags.put("White", isPlayerWhite ? "Player" : "Bagatur");
+        tags.put("Black", isPlayerWhite ? "Bagatur" : "Player");
+        try (PgnWriter writer = new PgnWriter(file.toPath(), false)) {
+            writer.write(chessGame, tags);
+            logger.info("Партия сохранена в {}", file);
+        } catch (IOException e) {
+            logger.error("Ошибка при сохранении партии", e);
+            showErrorDialog("Ошибка", "Не удалось сохранить партию: " + e.getMessage());
+        }
+    }
+
     /**
      * Показывает диалог ошибки.
      */
@@ -1205,6 +1219,10 @@ public class ChessBoard {
      * Очищает ресурсы при закрытии.
      */
     public void cleanup() {
+        atlasCache.close();
+        if (analysisPanel != null) {
+            analysisPanel.close();
+        }
         if (engine != null) {
             engine.cleanup();
         }
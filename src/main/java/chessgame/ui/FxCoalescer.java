@@ -0,0 +1,68 @@
+package chessgame.ui;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Передает значения из фоновых потоков в поток FX, объединяя частые обновления.
+ *
+ * <p>Новые значения только заменяют ожидающее. Забирает его {@link AnimationTimer} в начале
+ * прохода отрисовки, поэтому получатель вызывается не чаще одного раза за проход, сколько бы
+ * значений ни пришло. Таймер запускается первым значением и останавливается на первом проходе
+ * без новых значений, так что в простое не заставляет FX рисовать кадры.
+ */
+public final class FxCoalescer<T> {
+
+    private final AtomicReference<T> pending = new AtomicReference<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Consumer<T> consumer;
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+
+    /**
+     * @param consumer получатель значений; вызывается в потоке FX
+     */
+    public FxCoalescer(Consumer<T> consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Передает значение; можно вызывать из любого потока.
+     */
+    public void submit(T value) {
+        pending.set(value);
+        if (!running.getAndSet(true)) {
+            // Таймер запускается в потоке FX
+            Platform.runLater(timer::start);
+        }
+    }
+
+    /**
+     * Отбрасывает ожидающее значение, например перед новым поиском.
+     */
+    public void clear() {
+        pending.set(null);
+    }
+
+    private void drain() {
+        T value = pending.getAndSet(null);
+        if (value != null) {
+            consumer.accept(value);
+            return;
+        }
+        timer.stop();
+        running.set(false);
+        // Значение могло прийти между проверкой и остановкой таймера
+        if (pending.get() != null && !running.getAndSet(true)) {
+            timer.start();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package chessgame.ui;
+
+import chessgame.logic.ChessGame;
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+import chessgame.logic.San;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ListView;
+
+import java.util.function.IntConsumer;
+
+/**
+ * История ходов в виде {@link ListView}: одна строка на полуход.
+ *
+ * <p>Список виртуализирован - ячейки создаются только для видимых строк, а после хода
+ * в модель добавляется одна запись, поэтому обновление не зависит от длины партии.
+ * Ходы записываются в SAN по позиции, которая ведется вместе со списком.
+ * Выбор строки мышью или клавишами сообщает номер полухода, позицию после которого нужно показать;
+ * выделение, которое меняет сама программа ({@link #sync}, {@link #select}), переход не вызывает.
+ */
+public final class MoveListView {
+
+    private final ListView<Ply> listView = new ListView<>();
+    private IntConsumer onJump = ply -> { };
+    /** Позиция после всех полуходов списка. */
+    private Position position = new Position();
+    /** Выделение меняет программа, а не пользователь. */
+    private boolean updating;
+
+    public MoveListView() {
+        listView.getSelectionModel().selectedIndexProperty().addListener((observable, previous, index) -> {
+            if (!updating && index.intValue() >= 0) {
+                onJump.accept(index.intValue() + 1);
+            }
+        });
+    }
+
+    public ListView<Ply> getView() {
+        return listView;
+    }
+
+    /**
+     * Обработчик перехода: получает количество полуходов до выбранной позиции.
+     */
+    public void setOnJump(IntConsumer onJump) {
+        this.onJump = onJump;
+    }
+
+    /**
+     * Приводит список к истории партии: добавляет новые полуходы и убирает отмененные.
+     * Меняются только расходящиеся записи с конца, последняя прокручивается в видимую область.
+     */
+    public void sync(ChessGame game) {
+        ObservableList<Ply> items = listView.getItems();
+        int count = game.getMoveCount();
+        int common = Math.min(items.size(), count);
+        while (common > 0 && items.get(common - 1).getMove() != game.getMove(common - 1)) {
+            common--;
+        }
+        updating = true;
+        try {
+            for (int ply = items.size(); ply > common; ply--) {
+                position.unmakeMove();
+            }
+            if (common < items.size()) {
+                items.remove(common, items.size());
+            }
+            for (int ply = common; ply < count; ply++) {
+                int move = game.getMove(ply);
+                items.add(new Ply(ply + 1, move, San.toSan(position, move)));
+                position.makeMove(move);
+            }
+            listView.getSelectionModel().clearSelection();
+        } finally {
+            updating = false;
+        }
+        if (count > 0) {
+            listView.scrollTo(count - 1);
+        }
+    }
+
+    /**
+     * Отмечает полуход, позиция после которого показана на доске (0 - начальная позиция, без отметки).
+     */
+    public void select(int ply) {
+        updating = true;
+        try {
+            if (ply <= 0) {
+                listView.getSelectionModel().clearSelection();
+            } else {
+                listView.getSelectionModel().select(ply - 1);
+            }
+        } finally {
+            updating = false;
+        }
+    }
+
+    public void clear() {
+        updating = true;
+        try {
+            listView.getItems().clear();
+        } finally {
+            updating = false;
+        }
+        position = new Position();
+    }
+
+    /**
+     * Запись списка: номер полухода с единицы, ход в формате {@link Move} и его запись в SAN.
+     */
+    public static final class Ply {
+        private final int ply;
+        private final int move;
+        private final String text;
+
+        Ply(int ply, int move, String san) {
+            this.ply = ply;
+            this.move = move;
+            this.text = (ply + 1) / 2 + (ply % 2 == 1 ? ". " : "... ") + san;
+        }
+
+        public int getPly() {
+            return ply;
+        }
+
+        public int getMove() {
+            return move;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package chessgame.ui;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Набор фигур в одной текстуре: двенадцать изображений, уменьшенных при декодировании
+ * до размера фигуры на экране (с учетом масштаба HiDPI) и уложенных в ряд.
+ *
+ * <p>Атлас можно строить в любом потоке: изображения еще не подключены к сцене.
+ * Отрисовка копирует готовый фрагмент без масштабирования, поэтому смена позиции не пересчитывает картинки.
+ */
+public final class PieceAtlas {
+
+    private static final Logger logger = LoggerFactory.getLogger(PieceAtlas.class);
+
+    /** Порядок фигур в атласе; ключи совпадают с обозначениями {@link chessgame.logic.ChessGame}. */
+    static final String[] PIECES = {"wp", "wn", "wb", "wr", "wq", "wk", "bp", "bn", "bb", "br", "bq", "bk"};
+
+    private static final String[] FALLBACK_SETS = {"tournament", "wood"};
+
+    private final String set;
+    private final Image image;
+    private final int spriteSize;
+
+    private PieceAtlas(String set, Image image, int spriteSize) {
+        this.set = set;
+        this.image = image;
+        this.spriteSize = spriteSize;
+    }
+
+    /**
+     * Декодирует набор и собирает атлас. Недостающие фигуры берутся из запасных наборов.
+     *
+     * @param pieceSize размер фигуры на доске в логических пикселях
+     * @param scale     масштаб вывода экрана (2.0 для HiDPI)
+     * @throws IOException если фигуру не удалось загрузить ни из одного набора
+     */
+    public static PieceAtlas load(String set, double pieceSize, double scale) throws IOException {
+        long start = System.nanoTime();
+        int spriteSize = (int) Math.ceil(pieceSize * scale);
+        WritableImage atlas = new WritableImage(spriteSize * PIECES.length, spriteSize);
+        for (int i = 0; i < PIECES.length; i++) {
+            Image sprite = loadSprite(set, PIECES[i], spriteSize);
+            atlas.getPixelWriter().setPixels(i * spriteSize, 0, spriteSize, spriteSize, sprite.getPixelReader(), 0, 0);
+        }
+        logger.debug("Атлас фигур {} ({} px) собран за {} мс", set, spriteSize, (System.nanoTime() - start) / 1_000_000);
+        return new PieceAtlas(set, atlas, spriteSize);
+    }
+
+    private static Image loadSprite(String set, String piece, int size) throws IOException {
+        Image sprite = decode(set, piece, size);
+        for (int i = 0; sprite == null && i < FALLBACK_SETS.length; i++) {
+            if (!FALLBACK_SETS[i].equals(set)) {
+                sprite = decode(FALLBACK_SETS[i], piece, size);
+                if (sprite != null) {
+                    logger.warn("Фигура {} набора {} взята из набора {}", piece, set, FALLBACK_SETS[i]);
+                }
+            }
+        }
+        if (sprite == null) {
+            throw new IOException("Не удалось загрузить фигуру " + piece + " набора " + set);
+        }
+        return sprite;
+    }
+
+    /**
+     * Декодирует изображение сразу в нужном размере или возвращает null.
+     */
+    private static Image decode(String set, String piece, int size) throws IOException {
+        String path = "/pieces/" + set + "/" + piece + ".png";
+        try (InputStream in = PieceAtlas.class.getResourceAsStream(path)) {
+            if (in == null) {
+                return null;
+            }
+            Image sprite = new Image(in, size, size, false, true);
+            if (sprite.isError()) {
+                logger.warn("Не удалось декодировать {}", path, sprite.getException());
+                return null;
+            }
+            return sprite;
+        }
+    }
+
+    public String getSet() {
+        return set;
+    }
+
+    /**
+     * Размер атласа в памяти: четыре байта на пиксель.
+     */
+    public long getByteSize() {
+        return 4L * spriteSize * PIECES.length * spriteSize;
+    }
+
+    /**
+     * Рисует фигуру в квадрат {@code size x size}; неизвестный ключ пропускается.
+     */
+    public void draw(GraphicsContext graphics, String piece, double x, double y, double size) {
+        int index = indexOf(piece);
+        if (index >= 0) {
+            graphics.drawImage(image, index * spriteSize, 0, spriteSize, spriteSize, x, y, size, size);
+        }
+    }
+
+    private static int indexOf(String piece) {
+        for (int i = 0; i < PIECES.length; i++) {
+            if (PIECES[i].equals(piece)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
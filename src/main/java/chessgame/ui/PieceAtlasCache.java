@@ -0,0 +1,96 @@
+package chessgame.ui;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Кэш атласов фигур с ограничением по байтам. Атласы собираются в фоновом потоке;
+ * при превышении бюджета вытесняются давно не использованные наборы, так что перебор
+ * десятков наборов не увеличивает расход памяти.
+ */
+public final class PieceAtlasCache implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PieceAtlasCache.class);
+
+    /** Бюджет по умолчанию: несколько наборов для HiDPI-экрана. */
+    public static final long DEFAULT_BUDGET_BYTES = 16L << 20;
+
+    private final long budgetBytes;
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "piece-atlas-decoder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Порядок доступа: первым идет давно не использованный атлас
+    private final LinkedHashMap<String, CompletableFuture<PieceAtlas>> atlases = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    public PieceAtlasCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Атлас набора; если его нет в кэше, сборка ставится в очередь фонового потока.
+     *
+     * @param pieceSize размер фигуры в логических пикселях
+     * @param scale     масштаб вывода экрана
+     */
+    public synchronized CompletableFuture<PieceAtlas> get(String set, double pieceSize, double scale) {
+        String key = set + '@' + pieceSize + 'x' + scale;
+        CompletableFuture<PieceAtlas> atlas = atlases.get(key);
+        if (atlas == null) {
+            atlas = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return PieceAtlas.load(set, pieceSize, scale);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, decoder);
+            atlases.put(key, atlas);
+            atlas.whenComplete((loaded, error) -> loaded(key, loaded, error));
+        }
+        return atlas;
+    }
+
+    private synchronized void loaded(String key, PieceAtlas atlas, Throwable error) {
+        if (error != null) {
+            atlases.remove(key);
+            logger.warn("Не удалось собрать атлас {}", key, error);
+            return;
+        }
+        usedBytes += atlas.getByteSize();
+        // Вытесняем готовые атласы, начиная с давно не использованных; только что собранный остается
+        Iterator<Map.Entry<String, CompletableFuture<PieceAtlas>>> it = atlases.entrySet().iterator();
+        while (usedBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, CompletableFuture<PieceAtlas>> entry = it.next();
+            CompletableFuture<PieceAtlas> candidate = entry.getValue();
+            if (!entry.getKey().equals(key) && candidate.isDone() && !candidate.isCompletedExceptionally()) {
+                usedBytes -= candidate.join().getByteSize();
+                it.remove();
+                logger.debug("Атлас {} вытеснен из кэша", entry.getKey());
+            }
+        }
+        logger.debug("Атлас {} в кэше: {} из {} байт", key, usedBytes, budgetBytes);
+    }
+
+    /**
+     * Занятый атласами объем, байты.
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    @Override
+    public void close() {
+        decoder.shutdownNow();
+    }
+}
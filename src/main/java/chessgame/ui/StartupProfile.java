@@ -0,0 +1,233 @@
+package chessgame.ui;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Замеры этапов запуска и времени до первого кадра.
+ *
+ * <p>Этапы идут параллельно в разных потоках, поэтому для каждого запоминается начало
+ * (от старта JVM) и длительность. Первый кадр отмечается на первом проходе отрисовки после
+ * показа окна; при заданном бюджете {@link #isWithinBudget(long)} позволяет проверять
+ * время запуска при сборке ({@code --startup-check <мс>} в {@link chessgame.Main}).
+ *
+ * <p>Бюджет можно взять из файла эталона ({@link #fromBaseline(Path)}): строка {@code firstFrameMs}
+ * хранит измеренное на эталонной машине время, строки {@code phase.<этап>} - длительности этапов,
+ * {@code tolerancePercent} - допустимое превышение. Этапы с эталоном проверяет {@link #phasesOverBudget()}.
+ * Если время первого кадра в файле не указано, первый запуск проверки записывает его вместе
+ * с длительностями этапов ({@link #recordBaseline(long)}).
+ */
+public final class StartupProfile {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupProfile.class);
+
+    /** Ключ эталонного времени до первого кадра в файле эталона, мс. */
+    public static final String BASELINE_KEY = "firstFrameMs";
+    /** Ключ допустимого превышения эталона в процентах. */
+    public static final String TOLERANCE_KEY = "tolerancePercent";
+    /** Префикс ключей эталонной длительности этапов, мс. */
+    public static final String PHASE_KEY_PREFIX = "phase.";
+
+    private static final int DEFAULT_TOLERANCE_PERCENT = 25;
+
+    private final long budgetMs;
+    private final Path baselineFile;
+    // Разница между System.nanoTime() и временем от старта JVM
+    private final long originNanos;
+    private final List<String> phases = new ArrayList<>();
+    private final Map<String, Long> phaseBudgets;
+    private final Map<String, Long> phaseDurations = new LinkedHashMap<>();
+    private final List<CompletableFuture<?>> tracked = new ArrayList<>();
+    private final CompletableFuture<Long> firstFrame = new CompletableFuture<>();
+
+    /**
+     * @param budgetMs допустимое время до первого кадра от старта JVM, 0 - без проверки
+     */
+    public StartupProfile(long budgetMs) {
+        this(budgetMs, null, Map.of());
+    }
+
+    private StartupProfile(long budgetMs, Path baselineFile, Map<String, Long> phaseBudgets) {
+        this.budgetMs = budgetMs;
+        this.baselineFile = baselineFile;
+        this.phaseBudgets = phaseBudgets;
+        this.originNanos = System.nanoTime() - ManagementFactory.getRuntimeMXBean().getUptime() * 1_000_000;
+    }
+
+    /**
+     * Профиль с бюджетом из файла эталона: эталонное время плюс допустимое превышение.
+     * Без эталонного времени бюджет не задан.
+     *
+     * @throws IOException если файл не читается или значения в нем не числа
+     */
+    public static StartupProfile fromBaseline(Path file) throws IOException {
+        Properties baseline = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            baseline.load(reader);
+        }
+        try {
+            String recorded = baseline.getProperty(BASELINE_KEY, "").trim();
+            long firstFrameMs = recorded.isEmpty() ? 0 : Long.parseLong(recorded);
+            int tolerance = Integer.parseInt(baseline.getProperty(TOLERANCE_KEY,
+                    String.valueOf(DEFAULT_TOLERANCE_PERCENT)).trim());
+            long budget = firstFrameMs > 0 ? firstFrameMs * (100 + tolerance) / 100 : 0;
+            Map<String, Long> phaseBudgets = new LinkedHashMap<>();
+            for (String key : baseline.stringPropertyNames()) {
+                String value = baseline.getProperty(key).trim();
+                if (key.startsWith(PHASE_KEY_PREFIX) && !value.isEmpty()) {
+                    phaseBudgets.put(key.substring(PHASE_KEY_PREFIX.length()), Long.parseLong(value) * (100 + tolerance) / 100);
+                }
+            }
+            logger.info("Эталон запуска {}: {} мс, допуск {}%, бюджет {} мс, бюджеты этапов {}",
+                    file, firstFrameMs, tolerance, budget, phaseBudgets);
+            return new StartupProfile(budget, file, phaseBudgets);
+        } catch (NumberFormatException e) {
+            throw new IOException("Неверное значение в файле эталона " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    public long getBudgetMs() {
+        return budgetMs;
+    }
+
+    /**
+     * Нужно ли записать время первого кадра в файл эталона: файл задан, а времени в нем нет.
+     */
+    public boolean needsBaseline() {
+        return baselineFile != null && budgetMs <= 0;
+    }
+
+    /**
+     * Записывает время первого кадра и длительности этапов в файл эталона, сохраняя остальные строки.
+     *
+     * @throws IOException если файл не записывается
+     */
+    public void recordBaseline(long firstFrameMs) throws IOException {
+        List<String> lines = new ArrayList<>(Files.readAllLines(baselineFile, StandardCharsets.UTF_8));
+        setLine(lines, BASELINE_KEY, firstFrameMs);
+        synchronized (phases) {
+            for (Map.Entry<String, Long> phase : phaseDurations.entrySet()) {
+                setLine(lines, PHASE_KEY_PREFIX + phase.getKey(), phase.getValue());
+            }
+        }
+        Files.write(baselineFile, lines, StandardCharsets.UTF_8);
+        logger.info("Эталон запуска записан в {}: {} мс", baselineFile, firstFrameMs);
+    }
+
+    private static void setLine(List<String> lines, String key, long value) {
+        String line = key + "=" + value;
+        for (int i = 0; i < lines.size(); i++) {
+            String existing = lines.get(i).trim();
+            if (existing.startsWith(key + "=") || existing.equals(key)) {
+                lines.set(i, line);
+                return;
+            }
+        }
+        lines.add(line);
+    }
+
+    /**
+     * Выполняет этап в текущем потоке и записывает его длительность.
+     */
+    public void measure(String phase, Runnable task) {
+        long start = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            record(phase, start);
+        }
+    }
+
+    /**
+     * Записывает длительность фоновой задачи от момента вызова до ее завершения.
+     *
+     * @return та же задача
+     */
+    public <T> CompletableFuture<T> track(String phase, CompletableFuture<T> task) {
+        long start = System.nanoTime();
+        task.whenComplete((result, error) -> record(phase, start));
+        synchronized (phases) {
+            tracked.add(task);
+        }
+        return task;
+    }
+
+    /**
+     * Завершается, когда завершены все фоновые этапы, переданные в {@link #track} до вызова.
+     */
+    public CompletableFuture<Void> allTracked() {
+        synchronized (phases) {
+            return CompletableFuture.allOf(tracked.toArray(new CompletableFuture<?>[0]))
+                    .handle((ignored, error) -> null);
+        }
+    }
+
+    /**
+     * Этапы, длительность которых превысила бюджет из файла эталона, в виде "этап: мс > бюджет мс".
+     */
+    public List<String> phasesOverBudget() {
+        List<String> over = new ArrayList<>();
+        synchronized (phases) {
+            for (Map.Entry<String, Long> budget : phaseBudgets.entrySet()) {
+                Long duration = phaseDurations.get(budget.getKey());
+                if (duration != null && duration > budget.getValue()) {
+                    over.add(budget.getKey() + ": " + duration + " мс > " + budget.getValue() + " мс");
+                }
+            }
+        }
+        return over;
+    }
+
+    private void record(String phase, long start) {
+        long end = System.nanoTime();
+        long durationMs = (end - start) / 1_000_000;
+        String line = String.format("%-12s начало %5d мс, длительность %5d мс, поток %s", phase,
+                (start - originNanos) / 1_000_000, durationMs, Thread.currentThread().getName());
+        synchronized (phases) {
+            phases.add(line);
+            phaseDurations.put(phase, durationMs);
+        }
+        logger.info("Этап запуска: {}", line);
+    }
+
+    /**
+     * Отмечает первый кадр; повторные вызовы ничего не делают.
+     */
+    public void firstFrameShown() {
+        long elapsedMs = (System.nanoTime() - originNanos) / 1_000_000;
+        if (!firstFrame.complete(elapsedMs)) {
+            return;
+        }
+        StringBuilder report = new StringBuilder();
+        synchronized (phases) {
+            for (String phase : phases) {
+                report.append(System.lineSeparator()).append("  ").append(phase);
+            }
+        }
+        logger.info("Первый кадр через {} мс от старта JVM{}", elapsedMs, report);
+    }
+
+    /**
+     * Время до первого кадра от старта JVM, мс; завершается при {@link #firstFrameShown()}.
+     */
+    public CompletableFuture<Long> getFirstFrame() {
+        return firstFrame;
+    }
+
+    public boolean isWithinBudget(long firstFrameMs) {
+        return budgetMs <= 0 || firstFrameMs <= budgetMs;
+    }
+}
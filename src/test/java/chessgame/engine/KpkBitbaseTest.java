@@ -0,0 +1,42 @@
+package chessgame.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Битовая база KPK на учебных позициях: оппозиция, король перед пешкой, ладейная пешка, правило квадрата.
+ */
+class KpkBitbaseTest {
+
+    @Test
+    void kingInFrontOfPawnOnSixthRankWins() {
+        // Кр e6, п e5 против Кр e8 - выигрыш при любой очереди хода
+        assertTrue(KpkBitbase.probe(sq("e6"), sq("e5"), sq("e8"), true));
+        assertTrue(KpkBitbase.probe(sq("e6"), sq("e5"), sq("e8"), false));
+    }
+
+    @Test
+    void oppositionDecides() {
+        // Кр e5, п e4 против Кр e7: оппозиция у того, кто не ходит
+        assertFalse(KpkBitbase.probe(sq("e5"), sq("e4"), sq("e7"), true));
+        assertTrue(KpkBitbase.probe(sq("e5"), sq("e4"), sq("e7"), false));
+    }
+
+    @Test
+    void rookPawnWithDefenderInCornerDraws() {
+        assertFalse(KpkBitbase.probe(sq("e1"), sq("a2"), sq("a8"), true));
+        assertFalse(KpkBitbase.probe(sq("e1"), sq("h2"), sq("h8"), false));
+    }
+
+    @Test
+    void pawnOutsideSquareWins() {
+        assertTrue(KpkBitbase.probe(sq("h1"), sq("a4"), sq("h8"), true));
+        assertFalse(KpkBitbase.probe(sq("h1"), sq("a4"), sq("c6"), false));
+    }
+
+    private static int sq(String name) {
+        return (name.charAt(0) - 'a') + 8 * (name.charAt(1) - '1');
+    }
+}
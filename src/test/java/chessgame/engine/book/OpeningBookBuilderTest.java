@@ -0,0 +1,82 @@
+package chessgame.engine.book;
+
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Книга сверяется побайтно с форматом Polyglot: стандартные ключи, кодировка ходов, рокировка как взятие ладьи.
+ */
+class OpeningBookBuilderTest {
+
+    private static final String PGN = String.join("\n",
+            "[Result \"1-0\"]", "", "1. e4 e5 2. Nf3 Nc6 3. Bc4 Nf6 4. O-O 1-0", "",
+            "[Result \"0-1\"]", "", "1. e4 c5 0-1", "",
+            "[Result \"1/2-1/2\"]", "", "1. d4 d5 1/2-1/2", "");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesStandardPolyglotEntries() throws IOException {
+        Path pgn = directory.resolve("games.pgn");
+        Files.write(pgn, PGN.getBytes(StandardCharsets.UTF_8));
+        Path book = directory.resolve("book.bin");
+        // Маленькая таблица в памяти: записи проходят через несколько прогонов и слияние
+        new OpeningBookBuilder(8, 4).build(List.of(pgn), book);
+
+        ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(book));
+        assertEquals(0, entries.capacity() % PolyglotBook.ENTRY_BYTES);
+        long previous = 0;
+        for (int offset = 0; offset < entries.capacity(); offset += PolyglotBook.ENTRY_BYTES) {
+            long key = entries.getLong(offset);
+            assertTrue(Long.compareUnsigned(previous, key) <= 0, "записи отсортированы по ключу");
+            previous = key;
+        }
+
+        // Начальная позиция: e2e4 (победа и поражение белых) и d2d4 (ничья)
+        assertEquals(2, weight(entries, 0x463B96181691FC9CL, 0x031C));
+        assertEquals(1, weight(entries, 0x463B96181691FC9CL, 0x02DB));
+        // После 1. e4: c7c5 из выигранной черными партии, проигравший ход e7e5 в книгу не попадает
+        assertEquals(2, weight(entries, 0x823C9B50FD114196L, 0x0CA2));
+        assertEquals(-1, weight(entries, 0x823C9B50FD114196L, 0x0D24));
+        // Рокировка записывается ходом короля на ладью: e1h1
+        assertEquals(2, weight(entries, 0x409027D3923AEAAEL, 0x0107));
+    }
+
+    @Test
+    void bookIsReadBack() throws IOException {
+        Path pgn = directory.resolve("games.pgn");
+        Files.write(pgn, PGN.getBytes(StandardCharsets.UTF_8));
+        Path book = directory.resolve("book.bin");
+        new OpeningBookBuilder(8, OpeningBookBuilder.DEFAULT_MEMORY_ENTRIES).build(List.of(pgn), book);
+
+        Position position = new Position();
+        assertEquals(Move.parseUci("e2e4"), PolyglotBook.open(book).bestMove(position));
+        position.setFen("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+        assertEquals("e1g1", Move.toUci(PolyglotBook.open(book).bestMove(position)));
+    }
+
+    /**
+     * Вес записи (ключ, ход) или -1, если записи нет.
+     */
+    private static int weight(ByteBuffer entries, long key, int move) {
+        for (int offset = 0; offset < entries.capacity(); offset += PolyglotBook.ENTRY_BYTES) {
+            if (entries.getLong(offset) == key && (entries.getShort(offset + 8) & 0xFFFF) == move) {
+                return entries.getShort(offset + 10) & 0xFFFF;
+            }
+        }
+        return -1;
+    }
+}
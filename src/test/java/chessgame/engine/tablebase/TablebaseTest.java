@@ -0,0 +1,97 @@
+package chessgame.engine.tablebase;
+
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Таблицы из трех фигур: индексация с симметриями и известные расстояния до мата.
+ */
+class TablebaseTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void indexSurvivesDecodeAndSymmetry() {
+        EndgameTable table = EndgameTable.create(Material.parse("KRvK"));
+        int[] squares = new int[4];
+        int[] pieceCodes = new int[4];
+        int decoded = 0;
+        for (int index = 0; index < table.size(); index++) {
+            int side = table.decode(index, squares, pieceCodes);
+            if (side < 0) {
+                continue;
+            }
+            decoded++;
+            assertEquals(index, table.index(squares, side));
+            // Отражения доски не меняют индекс таблицы без пешек; отражение по диагонали a1-h8
+            // сводится к тому же индексу, только если сильный король не стоит на этой диагонали
+            boolean diagonalKing = (squares[0] >>> 3) == (squares[0] & 7);
+            for (int transform = 1; transform < (diagonalKing ? 4 : 8); transform++) {
+                int[] moved = new int[3];
+                for (int i = 0; i < 3; i++) {
+                    moved[i] = transform(squares[i], transform);
+                }
+                assertEquals(index, table.index(moved, side), "преобразование " + transform);
+            }
+        }
+        assertEquals(2 * 10 * 63 * 62, decoded, "все фигуры на разных клетках");
+    }
+
+    @Test
+    void longestMatesMatchKnownValues() throws IOException, InterruptedException {
+        new TablebaseGenerator(directory, 2).generate(3);
+        // Ферзь матует не более чем за 10 ходов, ладья - за 16; пол-хода добавляет сторона, которую матуют
+        assertEquals(20, maxPlies("KQvK"));
+        assertEquals(32, maxPlies("KRvK"));
+        assertEquals(0, maxPlies("KBvK"));
+        assertEquals(0, maxPlies("KNvK"));
+
+        TablebaseProber prober = TablebaseProber.open(directory);
+        int mated = prober.probe(Position.fromFen("k6R/8/1K6/8/8/8/8/8 b - - 0 1"));
+        assertTrue(TablebaseProber.isLoss(mated));
+        assertEquals(0, TablebaseProber.plies(mated));
+
+        Position mateInOne = Position.fromFen("k7/8/1K6/8/8/8/8/7R w - - 0 1");
+        int code = prober.probe(mateInOne);
+        assertTrue(TablebaseProber.isWin(code));
+        assertEquals(1, TablebaseProber.plies(code));
+        assertEquals("h1h8", Move.toUci(prober.bestMove(mateInOne)));
+
+        // Черные с ладьей: таблица берется с перестановкой цветов
+        int black = prober.probe(Position.fromFen("7r/8/8/8/8/1k6/8/K7 b - - 0 1"));
+        assertTrue(TablebaseProber.isWin(black));
+        assertEquals(1, TablebaseProber.plies(black));
+
+        assertEquals(EndgameTable.DRAW, prober.probe(Position.fromFen("k7/8/8/8/8/8/P7/4K3 w - - 0 1")));
+        assertEquals(EndgameTable.DRAW, prober.probe(Position.fromFen("8/8/8/4k3/8/8/8/K6N w - - 0 1")));
+    }
+
+    private int maxPlies(String material) throws IOException {
+        return EndgameTable.map(directory.resolve(material + EndgameTable.FILE_SUFFIX)).maxPlies();
+    }
+
+    /**
+     * Одна из восьми симметрий доски: биты 0-2 - отражение по вертикали, горизонтали и диагонали a1-h8.
+     */
+    private static int transform(int sq, int transform) {
+        if ((transform & 1) != 0) {
+            sq ^= 7;
+        }
+        if ((transform & 2) != 0) {
+            sq ^= 56;
+        }
+        if ((transform & 4) != 0) {
+            sq = ((sq & 7) << 3) | (sq >>> 3);
+        }
+        return sq;
+    }
+}
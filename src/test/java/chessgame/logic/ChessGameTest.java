@@ -0,0 +1,77 @@
+package chessgame.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Легальные ходы партии: подсветка ходов фигуры, проверка хода, мат, шах, взятие на проходе, рокировка.
+ */
+class ChessGameTest {
+
+    @Test
+    void startPositionMoves() {
+        ChessGame game = new ChessGame();
+        assertEquals(Set.of("e3", "e4"), moves(game, "e2"));
+        assertEquals(Set.of("f3", "h3"), moves(game, "g1"));
+        assertEquals(Set.of(), moves(game, "e1"));
+        assertEquals(1L << 20 | 1L << 28, game.getLegalTargets("e2"));
+        assertTrue(game.isValidMove("e2", "e4", true));
+        assertFalse(game.isValidMove("e2", "e5", true));
+        assertFalse(game.isValidMove("e7", "e5", true));
+        assertTrue(game.hasLegalMoves(true));
+    }
+
+    @Test
+    void checkLimitsMoves() {
+        ChessGame game = play("e2e4", "e7e5", "d2d4", "f8b4");
+        assertTrue(game.isInCheck(true));
+        assertEquals(Set.of(), moves(game, "g1"));
+        assertEquals(Set.of("c3", "d2"), moves(game, "b1"));
+        assertEquals(Set.of("c3"), moves(game, "c2"));
+        assertEquals(Set.of("e2"), moves(game, "e1"));
+        assertFalse(game.isValidMove("g1", "f3", true));
+    }
+
+    @Test
+    void enPassantAndCastling() {
+        ChessGame game = play("e2e4", "a7a6", "e4e5", "d7d5");
+        assertEquals(Set.of("d6", "e6"), moves(game, "e5"));
+
+        game = play("e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "f8c5");
+        assertEquals(Set.of("e2", "f1", "g1"), moves(game, "e1"));
+        game.makeMove("e1", "g1");
+        assertEquals("wr", game.getPieceAt("f1"));
+        assertEquals("wk", game.getPieceAt("g1"));
+    }
+
+    @Test
+    void foolsMate() {
+        ChessGame game = play("f2f3", "e7e5", "g2g4", "d8h4");
+        assertTrue(game.isInCheck(true));
+        assertFalse(game.hasLegalMoves(true));
+        assertEquals("checkmate", game.getGameStatus());
+    }
+
+    private static ChessGame play(String... moves) {
+        ChessGame game = new ChessGame();
+        for (String move : moves) {
+            assertTrue(game.isValidMove(move.substring(0, 2), move.substring(2, 4), game.isWhiteToMove()), move);
+            game.makeMove(move.substring(0, 2), move.substring(2, 4));
+        }
+        return game;
+    }
+
+    private static Set<String> moves(ChessGame game, String square) {
+        List<String> moves = game.getPossibleMoves(square, game.isWhiteToMove());
+        Set<String> result = new HashSet<>(moves);
+        assertEquals(moves.size(), result.size(), "ходы не повторяются");
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package chessgame.logic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Синтаксическая проверка FEN: по одной строке на каждый код ошибки.
+ */
+class FenValidatorTest {
+
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR";
+
+    @Test
+    void validFens() {
+        assertValid(Position.START_FEN);
+        assertValid(START + " w KQkq -");
+        assertValid("  " + START + "\tb  Kq   e3 0 1  ");
+        assertValid("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        assertValid("8/8/8/3pP3/8/8/8/k6K w - d6 0 57");
+        assertValid("8/8/8/8/8/8/8/8 w - - 123456789 999999999");
+    }
+
+    @Test
+    void eachErrorIsReported() {
+        assertError(FenError.EMPTY, "");
+        assertError(FenError.EMPTY, " \t");
+        assertError(FenError.EMPTY, null);
+        assertError(FenError.BAD_PIECE_CHARACTER, "rnbqkbnr/ppppxppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertError(FenError.BAD_PIECE_CHARACTER, "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertError(FenError.RANK_TOO_LONG, "rnbqkbnr/ppppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertError(FenError.RANK_TOO_LONG, "rnbqkbnr/pppppppp/44p/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertError(FenError.RANK_TOO_SHORT, "rnbqkbnr/ppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertError(FenError.RANK_TOO_SHORT, "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBN w KQkq - 0 1");
+        assertError(FenError.WRONG_RANK_COUNT, "rnbqkbnr/pppppppp/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertError(FenError.WRONG_RANK_COUNT, START + "/8 w KQkq - 0 1");
+        assertError(FenError.MISSING_SIDE_TO_MOVE, START);
+        assertError(FenError.BAD_SIDE_TO_MOVE, START + " x KQkq - 0 1");
+        assertError(FenError.BAD_SIDE_TO_MOVE, START + " wb KQkq - 0 1");
+        assertError(FenError.MISSING_CASTLING, START + " w ");
+        assertError(FenError.BAD_CASTLING, START + " w KQkk - 0 1");
+        assertError(FenError.BAD_CASTLING, START + " w KA - 0 1");
+        assertError(FenError.BAD_CASTLING, START + " w -K - 0 1");
+        assertError(FenError.MISSING_EN_PASSANT, START + " w KQkq");
+        assertError(FenError.BAD_EN_PASSANT, START + " w KQkq e3 0 1");
+        assertError(FenError.BAD_EN_PASSANT, START + " b KQkq e6 0 1");
+        assertError(FenError.BAD_EN_PASSANT, START + " w KQkq i6 0 1");
+        assertError(FenError.BAD_EN_PASSANT, START + " w KQkq e");
+        assertError(FenError.BAD_HALFMOVE_CLOCK, START + " w KQkq - x 1");
+        assertError(FenError.BAD_HALFMOVE_CLOCK, START + " w KQkq - 1234567890 1");
+        assertError(FenError.BAD_FULLMOVE_NUMBER, START + " w KQkq - 0 -1");
+        assertError(FenError.TRAILING_CHARACTERS, START + " w KQkq - 0 1 extra");
+    }
+
+    @Test
+    void validatesPartOfSequence() {
+        String epd = START + " w KQkq - bm e4; id \"start\";";
+        int end = START.length() + " w KQkq -".length();
+        assertEquals(FenError.OK, FenValidator.validate(epd, 0, end));
+        // Вся строка EPD не FEN: операции стоят на месте счетчика полуходов
+        assertEquals(FenError.BAD_HALFMOVE_CLOCK, FenValidator.validate(epd));
+    }
+
+    private static void assertValid(String fen) {
+        assertEquals(FenError.OK, FenValidator.validate(fen), fen);
+    }
+
+    private static void assertError(FenError expected, String fen) {
+        assertEquals(expected, FenValidator.validate(fen), fen);
+    }
+}
@@ -0,0 +1,54 @@
+package chessgame.logic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Легальность позиций: по одной позиции на каждый код ошибки и совпадение проверки FEN и {@link Position}.
+ */
+class LegalityCheckerTest {
+
+    private static final String[] LEGAL = {
+            Position.START_FEN,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/8/8/3pP3/8/8/8/k6K w - d6 0 57",
+            "rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR w KQkq - 0 3",
+            // Двойной шах допустим
+            "4k3/8/3N4/8/8/8/8/4R1K1 b - - 0 1",
+            // Три ферзя: две пешки превратились
+            "8/8/7k/8/8/8/QQQPPPPP/K7 w - - 0 1"};
+
+    @Test
+    void legalPositions() {
+        for (String fen : LEGAL) {
+            assertEquals(PositionError.OK, LegalityChecker.check(fen), fen);
+            assertEquals(PositionError.OK, LegalityChecker.check(Position.fromFen(fen)), fen);
+        }
+    }
+
+    @Test
+    void eachErrorIsReported() {
+        assertError(PositionError.INVALID_FEN, "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1");
+        assertError(PositionError.WRONG_KING_COUNT, "8/8/8/8/8/8/8/K7 w - - 0 1");
+        assertError(PositionError.WRONG_KING_COUNT, "k7/8/8/8/8/8/8/KK6 w - - 0 1");
+        assertError(PositionError.PAWN_ON_BACK_RANK, "k6P/8/8/8/8/8/8/K7 w - - 0 1");
+        assertError(PositionError.PAWN_ON_BACK_RANK, "k7/8/8/8/8/8/8/K6p b - - 0 1");
+        assertError(PositionError.TOO_MANY_PAWNS, "k7/8/8/8/8/P7/PPPPPPPP/K7 w - - 0 1");
+        assertError(PositionError.TOO_MANY_PIECES, "k7/8/8/8/NNNNNNNN/8/PPPPPPPP/K7 w - - 0 1");
+        assertError(PositionError.TOO_MANY_PROMOTED_PIECES, "k7/8/8/8/8/NNN5/PPPPPPPP/K7 w - - 0 1");
+        assertError(PositionError.TOO_MANY_PROMOTED_PIECES, "8/8/7k/8/8/8/QQQPPPPP/KQQ5 w - - 0 1");
+        assertError(PositionError.OPPONENT_IN_CHECK, "k6R/8/8/8/8/8/8/K7 w - - 0 1");
+        assertError(PositionError.OPPONENT_IN_CHECK, "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR b KQkq - 1 3");
+        assertError(PositionError.TOO_MANY_CHECKERS, "4k3/8/3N4/1B6/8/8/8/4R1K1 b - - 0 1");
+        assertError(PositionError.BAD_CASTLING_RIGHTS, "r3k2r/8/8/8/8/8/8/R3K1R1 w KQkq - 0 1");
+        assertError(PositionError.BAD_CASTLING_RIGHTS, "r3k2r/8/8/8/8/8/8/R4K1R w KQ - 0 1");
+        assertError(PositionError.BAD_CASTLING_RIGHTS, "1r2k2r/8/8/8/8/8/8/R3K2R w q - 0 1");
+        assertError(PositionError.BAD_EN_PASSANT, "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e6 0 1");
+        assertError(PositionError.BAD_EN_PASSANT, "rnbqkbnr/ppp2ppp/4p3/4p3/8/8/PPPPPPPP/RNBQKBNR w KQkq e6 0 2");
+    }
+
+    private static void assertError(PositionError expected, String fen) {
+        assertEquals(expected, LegalityChecker.check(fen), fen);
+    }
+}
@@ -0,0 +1,68 @@
+package chessgame.logic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Генератор ходов сверяется с известными числами perft: рокировки, взятие на проходе, превращения, связки.
+ */
+class PositionTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @Test
+    void startPosition() {
+        assertPerft(Position.START_FEN, 20, 400, 8902, 197281);
+    }
+
+    @Test
+    void kiwipete() {
+        assertPerft(KIWIPETE, 48, 2039, 97862);
+    }
+
+    @Test
+    void enPassantPins() {
+        assertPerft("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 14, 191, 2812, 43238);
+    }
+
+    @Test
+    void promotionsAndCastlingRights() {
+        assertPerft("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 6, 264, 9467);
+        assertPerft("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 44, 1486, 62379);
+    }
+
+    @Test
+    void unmakeRestoresPosition() {
+        Position position = Position.fromFen(KIWIPETE);
+        long key = position.key();
+        perft(position, 3);
+        assertEquals(KIWIPETE, position.toFen());
+        assertEquals(key, position.key());
+    }
+
+    /**
+     * Сверяет perft для глубин 1, 2, ... с ожидаемыми числами.
+     */
+    private static void assertPerft(String fen, long... expected) {
+        Position position = Position.fromFen(fen);
+        for (int depth = 1; depth <= expected.length; depth++) {
+            assertEquals(expected[depth - 1], perft(position, depth), fen + ", глубина " + depth);
+        }
+    }
+
+    private static long perft(Position position, int depth) {
+        int[] moves = new int[Position.MAX_MOVES];
+        int count = position.generateLegalMoves(moves);
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            nodes += perft(position, depth - 1);
+            position.unmakeMove();
+        }
+        return nodes;
+    }
+}
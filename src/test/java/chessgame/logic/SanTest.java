@@ -0,0 +1,68 @@
+package chessgame.logic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Запись SAN: уточнение исходной клетки, связки, рокировки, превращения, шах и мат; разбор обратно.
+ */
+class SanTest {
+
+    @Test
+    void disambiguation() {
+        assertSan("4k3/8/8/8/8/8/4K3/1N3N2 w - - 0 1", "b1d2", "Nbd2");
+        assertSan("4k3/8/8/8/8/8/4K3/R6R w - - 0 1", "a1d1", "Rad1");
+        assertSan("4k3/8/8/R7/8/8/4K3/R7 w - - 0 1", "a1a3", "R1a3");
+        assertSan("1k6/8/8/8/4Q2Q/8/8/K6Q w - - 0 1", "h4e1", "Qh4e1");
+        // Конь e2 связан ладьей, поэтому ход b1c3 не уточняется
+        assertSan("4r1k1/8/8/8/8/8/4N3/1N2K3 w - - 0 1", "b1c3", "Nc3");
+    }
+
+    @Test
+    void specialMoves() {
+        assertSan("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1", "e1g1", "O-O");
+        assertSan("r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 0 1", "e8c8", "O-O-O");
+        assertSan("k7/4P3/8/8/8/8/8/4K3 w - - 0 1", "e7e8q", "e8=Q+");
+        assertSan("k7/4P3/8/8/8/8/8/4K3 w - - 0 1", "e7e8n", "e8=N");
+        assertSan("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 2", "e5d6", "exd6");
+        assertSan("rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR b KQkq g3 0 2", "d8h4", "Qh4#");
+    }
+
+    @Test
+    void everyLegalMoveParsesBack() {
+        String[] fens = {
+                Position.START_FEN,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "1k6/8/8/8/4Q2Q/8/8/K6Q w - - 0 1"};
+        int[] moves = new int[Position.MAX_MOVES];
+        int[] legal = new int[Position.MAX_MOVES];
+        for (String fen : fens) {
+            Position position = Position.fromFen(fen);
+            int count = position.generateLegalMoves(moves);
+            for (int i = 0; i < count; i++) {
+                String san = San.toSan(position, moves[i]);
+                assertEquals(moves[i], San.parse(position, san, legal), fen + " " + san);
+            }
+            assertEquals(fen, position.toFen());
+        }
+    }
+
+    @Test
+    void invalidSanIsRejected() {
+        Position position = new Position();
+        assertEquals(Move.NONE, San.parse(position, "e5"));
+        assertEquals(Move.NONE, San.parse(position, "Nd2"));
+        assertEquals(Move.NONE, San.parse(position, "O-O"));
+        assertEquals(Move.parseUci("g1f3"), San.parse(position, "Nf3"));
+        assertEquals(Move.parseUci("g1f3"), San.parse(position, "Ngf3"));
+    }
+
+    private static void assertSan(String fen, String uci, String san) {
+        Position position = Position.fromFen(fen);
+        int move = Move.parseUci(uci);
+        assertEquals(san, San.toSan(position, move), fen);
+        assertEquals(move, San.parse(position, san), fen);
+    }
+}
@@ -0,0 +1,99 @@
+package chessgame.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Симметрии позиции: известные преобразования FEN, ключи без копирования, канонический ключ и перевод ходов.
+ */
+class SymmetryTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @Test
+    void knownTransforms() {
+        assertEquals("r3k2r/pppbbppp/2n2q1P/1P2p3/3pn3/BN2PNP1/P1PPQPB1/R3K2R b KQkq - 0 1",
+                Symmetry.transform(Position.fromFen(KIWIPETE), Symmetry.FLIP_COLORS).toFen());
+        Position endgame = Position.fromFen("8/8/8/3k4/8/8/5P2/K7 w - - 0 1");
+        assertEquals("8/8/8/4k3/8/8/2P5/7K w - - 0 1", Symmetry.transform(endgame, Symmetry.MIRROR).toFen());
+        assertEquals("7k/2p5/8/8/4K3/8/8/8 b - - 0 1",
+                Symmetry.transform(endgame, Symmetry.FLIP_COLORS | Symmetry.MIRROR).toFen());
+        assertThrows(IllegalArgumentException.class, () -> Symmetry.key(new Position(), Symmetry.MIRROR));
+    }
+
+    @Test
+    void keysMatchTransformedPositions() {
+        Random random = new Random(42);
+        int[] moves = new int[Position.MAX_MOVES];
+        for (int game = 0; game < 20; game++) {
+            Position position = new Position();
+            for (int ply = 0; ply < 120; ply++) {
+                int count = position.generateLegalMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+                position.makeMove(moves[random.nextInt(count)]);
+                long canonical = Symmetry.canonicalKey(position);
+                for (int symmetry = 0; symmetry < 4; symmetry++) {
+                    if (!Symmetry.isAllowed(position, symmetry)) {
+                        continue;
+                    }
+                    Position transformed = Symmetry.transform(position, symmetry);
+                    assertEquals(transformed.key(), Symmetry.key(position, symmetry), position.toFen());
+                    assertEquals(canonical, Symmetry.canonicalKey(transformed), position.toFen());
+                    if (symmetry != Symmetry.IDENTITY) {
+                        assertTrue(Symmetry.isSymmetric(position, transformed), position.toFen());
+                    }
+                }
+                assertEquals(canonical, Symmetry.canonical(position).key());
+            }
+        }
+    }
+
+    @Test
+    void movesMapBetweenSymmetricPositions() {
+        String[] fens = {KIWIPETE, "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", "8/8/8/3pP3/8/8/8/k6K w - d6 0 57"};
+        int[] moves = new int[Position.MAX_MOVES];
+        int[] transformedMoves = new int[Position.MAX_MOVES];
+        for (String fen : fens) {
+            Position position = Position.fromFen(fen);
+            for (int symmetry = 1; symmetry < 4; symmetry++) {
+                if (!Symmetry.isAllowed(position, symmetry)) {
+                    continue;
+                }
+                Position transformed = Symmetry.transform(position, symmetry);
+                int count = position.generateLegalMoves(moves);
+                assertEquals(count, transformed.generateLegalMoves(transformedMoves), fen);
+                int[] mapped = new int[count];
+                for (int i = 0; i < count; i++) {
+                    mapped[i] = Symmetry.transformMove(moves[i], symmetry);
+                    assertEquals(moves[i], Symmetry.transformMove(mapped[i], symmetry));
+                }
+                Arrays.sort(mapped);
+                int[] expected = Arrays.copyOf(transformedMoves, count);
+                Arrays.sort(expected);
+                assertArrayEquals(expected, mapped, fen + ", симметрия " + symmetry);
+            }
+        }
+    }
+
+    @Test
+    void differentPositionsAreNotSymmetric() {
+        Position start = new Position();
+        Position afterE4 = Position.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1");
+        Position afterD4 = Position.fromFen("rnbqkbnr/pppppppp/8/8/3P4/8/PPP1PPPP/RNBQKBNR b KQkq - 0 1");
+        assertFalse(Symmetry.isSymmetric(start, afterE4));
+        // Отражение вертикалей поменяло бы местами короля и ферзя, и оно запрещено правами рокировки
+        assertFalse(Symmetry.isSymmetric(afterE4, afterD4));
+        // Начальная позиция переходит в себя при обмене цветов только вместе со сменой очереди хода
+        assertFalse(Symmetry.isSymmetric(start, start));
+    }
+}
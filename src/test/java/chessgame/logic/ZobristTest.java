@@ -0,0 +1,61 @@
+package chessgame.logic;
+
+import chessgame.engine.book.PolyglotBook;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Ключи позиций сверяются с контрольными значениями из описания формата Polyglot.
+ */
+class ZobristTest {
+
+    @Test
+    void startPositionHasPolyglotKey() {
+        assertEquals(Zobrist.POLYGLOT_START_KEY, new Position().key());
+        assertEquals(0x463B96181691FC9CL, PolyglotBook.key(new Position()));
+    }
+
+    @Test
+    void keysAfterMovesMatchPolyglotReference() {
+        // e2e4 d7d5 e4e5 f7f5 e1e2 e8f7: взятие на проходе, потеря рокировок
+        assertKeys(new String[] {"e2e4", "d7d5", "e4e5", "f7f5", "e1e2", "e8f7"}, new long[] {
+                0x823C9B50FD114196L, 0x0756B94461C50FB0L, 0x662FAFB965DB29D4L,
+                0x22A48B5A8E47FF78L, 0x652A607CA3F242C1L, 0x00FDD303C946BDD9L});
+        // a2a4 b7b5 h2h4 b5b4 c2c4 b4c3 a1a3: взятие на проходе сделано, потеря рокировки ладьей
+        assertKeys(new String[] {"a2a4", "b7b5", "h2h4", "b5b4", "c2c4", "b4c3", "a1a3"}, new long[] {
+                0, 0, 0, 0, 0x3C8123EA7B067637L, 0, 0x5C3F9B829B279560L});
+    }
+
+    @Test
+    void fenKeyMatchesIncrementalKey() {
+        Position position = new Position();
+        for (String move : new String[] {"e2e4", "d7d5", "e4e5", "f7f5"}) {
+            position.makeMove(Move.parseUci(move));
+        }
+        assertEquals(0x22A48B5A8E47FF78L, Position.fromFen(position.toFen()).key());
+        assertEquals(0x22A48B5A8E47FF78L,
+                Position.fromFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3").key());
+    }
+
+    @Test
+    void unmakeRestoresKey() {
+        Position position = new Position();
+        position.makeMove(Move.parseUci("e2e4"));
+        position.unmakeMove();
+        assertEquals(Zobrist.POLYGLOT_START_KEY, position.key());
+    }
+
+    /**
+     * Играет ходы от начальной позиции и сверяет ключи после каждого хода (0 - не проверять).
+     */
+    private static void assertKeys(String[] moves, long[] keys) {
+        Position position = new Position();
+        for (int i = 0; i < moves.length; i++) {
+            position.makeMove(Move.parseUci(moves[i]));
+            if (keys[i] != 0) {
+                assertEquals(keys[i], position.key(), "ключ после " + moves[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package chessgame.match;
+
+import chessgame.logic.Position;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Встроенные дебюты матча: легальны и не повторяются, иначе пары партий детерминированных движков совпадут.
+ */
+class MatchRunnerTest {
+
+    @Test
+    void builtinOpeningsAreLegalAndDistinct() {
+        List<int[]> openings = MatchRunner.builtinOpenings();
+        assertTrue(openings.size() >= 50, "дебютов " + openings.size());
+        assertEquals(openings.size(), MatchRunner.countUnique(openings));
+        int[] moves = new int[Position.MAX_MOVES];
+        for (int[] opening : openings) {
+            Position position = new Position();
+            for (int move : opening) {
+                assertTrue(isLegal(position, move, moves), position.toFen());
+                position.makeMove(move);
+            }
+        }
+    }
+
+    @Test
+    void duplicatesAreCounted() {
+        List<int[]> openings = new ArrayList<>(MatchRunner.builtinOpenings().subList(0, 3));
+        openings.add(openings.get(1).clone());
+        openings.add(new int[0]);
+        openings.add(new int[0]);
+        assertEquals(4, MatchRunner.countUnique(openings));
+    }
+
+    private static boolean isLegal(Position position, int move, int[] moves) {
+        int count = position.generateLegalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,56 @@
+package chessgame.match;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Elo и SPRT сверяются со значениями, посчитанными по формулам вручную.
+ */
+class MatchScoreTest {
+
+    @Test
+    void boundsAndEloConversion() {
+        assertEquals(-2.944439, MatchScore.lowerBound(0.05, 0.05), 1e-6);
+        assertEquals(2.944439, MatchScore.upperBound(0.05, 0.05), 1e-6);
+        assertEquals(0.5, MatchScore.expectedScore(0), 1e-12);
+        assertEquals(190.8485, MatchScore.elo(0.75), 1e-4);
+        assertEquals(0.75, MatchScore.expectedScore(MatchScore.elo(0.75)), 1e-12);
+    }
+
+    @Test
+    void llrAndEloError() {
+        MatchScore score = score(60, 20, 20);
+        assertEquals(100, score.getGames());
+        assertEquals(0.7, score.getScore(), 1e-12);
+        assertEquals(1.733713, score.getLlr(0, 10), 1e-6);
+        assertEquals(66.0134, score.getEloError(), 1e-4);
+        // Гипотезы меняются местами - знак LLR меняется
+        assertEquals(-1.733713, score.getLlr(10, 0), 1e-6);
+    }
+
+    @Test
+    void degenerateScores() {
+        assertEquals(0, new MatchScore().getLlr(0, 5), 0);
+        assertEquals(0, score(0, 10, 0).getLlr(0, 5), 0);
+        // Одни победы: дисперсия считается с одной условной ничьей
+        assertTrue(score(10, 0, 0).getLlr(0, 5) > 0);
+        assertTrue(score(0, 0, 10).getLlr(0, 5) < 0);
+        assertEquals(Double.POSITIVE_INFINITY, score(10, 0, 0).getEloError(), 0);
+    }
+
+    private static MatchScore score(int wins, int draws, int losses) {
+        MatchScore score = new MatchScore();
+        for (int i = 0; i < wins; i++) {
+            score.add(1);
+        }
+        for (int i = 0; i < draws; i++) {
+            score.add(0.5);
+        }
+        for (int i = 0; i < losses; i++) {
+            score.add(0);
+        }
+        return score;
+    }
+}
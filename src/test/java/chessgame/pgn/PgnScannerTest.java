@@ -0,0 +1,144 @@
+package chessgame.pgn;
+
+import chessgame.logic.Move;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Потоковый разбор PGN: теги, комментарии и варианты, ошибки ходов и деление файла между потоками.
+ */
+class PgnScannerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void mainLineSkipsCommentsVariationsAndNags() throws IOException {
+        Path file = write(String.join("\n",
+                "[Event \"Test\"]",
+                "[White \"O\\\"Brien\"]",
+                "[Result \"1-0\"]",
+                "",
+                "1. e4 {лучший ход} e5 (1... c5 2. Nf3 (2. c3) d6) 2. Nf3 $1 Nc6 ; до конца строки",
+                "3.Bb5 a6 4. Ba4 1-0",
+                ""));
+        List<PgnRecord> games = read(file, false);
+        assertEquals(1, games.size());
+        PgnRecord game = games.get(0);
+        assertTrue(game.isValid());
+        assertEquals("O\"Brien", game.getTag("White"));
+        assertNull(game.getTag("Black"));
+        assertEquals(3, game.getTagCount());
+        assertEquals("1-0", game.getResult());
+        assertEquals(0, game.getOffset());
+        assertEquals("e2e4 e7e5 g1f3 b8c6 f1b5 a7a6 b5a4", uci(game.getMoves()));
+    }
+
+    @Test
+    void setUpAndErrorsAreReported() throws IOException {
+        String second = "[Event \"Bad move\"]\n\n1. e4 e5 2. Ke3 Nc6 *\n\n";
+        String first = "[Event \"FEN\"]\n[SetUp \"1\"]\n[FEN \"4k3/8/8/8/8/8/4P3/4K3 w - - 0 1\"]\n\n1. e4 Kd7 1/2-1/2\n\n";
+        String third = "[Event \"Bad FEN\"]\n[FEN \"8/8/8/8 w - - 0 1\"]\n\n1. e4 *\n";
+        Path file = write(first + second + third);
+        List<PgnRecord> games = read(file, false);
+        assertEquals(3, games.size());
+
+        assertTrue(games.get(0).isValid());
+        assertEquals("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1", games.get(0).getStartFen());
+        assertEquals("e2e4 e8d7", uci(games.get(0).getMoves()));
+        assertEquals("1/2-1/2", games.get(0).getResult());
+
+        PgnRecord bad = games.get(1);
+        assertFalse(bad.isValid());
+        assertEquals(first.length(), bad.getOffset());
+        assertEquals(2, bad.getErrorPly());
+        assertEquals(first.length() + second.indexOf("Ke3"), bad.getErrorOffset());
+        assertEquals("e2e4 e7e5", uci(bad.getMoves()));
+
+        assertEquals(0, games.get(2).getErrorPly());
+        assertEquals(0, games.get(2).getMoves().length);
+
+        PgnRecord again = PgnScanner.readGame(file, bad.getOffset());
+        assertNotNull(again);
+        assertEquals("Bad move", again.getTag("Event"));
+    }
+
+    @Test
+    void splitGivesEveryGameOnce() throws IOException {
+        Path file = directory.resolve("many.pgn");
+        int count = 0;
+        // Больше двух минимальных отрезков деления, чтобы файл делился несколько раз
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.ISO_8859_1)) {
+            while (Files.size(file) < 10L << 20 || count % 1000 != 0) {
+                out.write("[Event \"" + count + "\"]\n[Result \"*\"]\n\n"
+                        + "1. d4 Nf6 2. c4 e6 3. Nc3 Bb4 4. Qc2 O-O 5. a3 Bxc3+ 6. Qxc3 b6 7. Bg5 Bb7 *\n\n");
+                count++;
+                if (count % 1000 == 0) {
+                    out.flush();
+                }
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            PgnScanner rest = new PgnScanner(channel, 0, channel.size());
+            rest.tryAdvance(game -> assertEquals("0", game.getTag("Event")));
+            Spliterator<PgnRecord> prefix = rest.trySplit();
+            assertNotNull(prefix, "файл больше минимального отрезка");
+            List<Integer> events = new ArrayList<>();
+            events.add(0);
+            prefix.forEachRemaining(game -> events.add(Integer.parseInt(game.getTag("Event"))));
+            int boundary = events.size();
+            assertTrue(boundary > 1 && boundary < count, "граница внутри файла: " + boundary);
+            rest.forEachRemaining(game -> events.add(Integer.parseInt(game.getTag("Event"))));
+            assertEquals(count, events.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals(i, events.get(i).intValue());
+            }
+        }
+
+        List<PgnRecord> parallel = read(file, true);
+        assertEquals(count, parallel.size());
+        assertEquals(count, parallel.stream().map(game -> game.getTag("Event")).distinct().count());
+        assertTrue(parallel.stream().allMatch(game -> game.isValid() && game.getMoves().length == 14));
+    }
+
+    private Path write(String text) throws IOException {
+        Path file = directory.resolve("games.pgn");
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<PgnRecord> read(Path file, boolean parallel) throws IOException {
+        try (Stream<PgnRecord> games = PgnScanner.games(file, parallel)) {
+            return games.collect(Collectors.toList());
+        }
+    }
+
+    private static String uci(int[] moves) {
+        StringBuilder text = new StringBuilder();
+        for (int move : moves) {
+            text.append(text.length() == 0 ? "" : " ").append(Move.toUci(move));
+        }
+        return text.toString();
+    }
+}
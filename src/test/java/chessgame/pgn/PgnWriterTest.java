@@ -0,0 +1,118 @@
+package chessgame.pgn;
+
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Партии, записанные {@link PgnWriter}, читаются {@link PgnScanner} без потерь.
+ */
+class PgnWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void exportFormat() throws IOException {
+        StringWriter out = new StringWriter();
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("White", "Игрок \"1\"");
+        tags.put("Annotator", "test");
+        int[] moves = play("4k3/8/8/8/8/8/4P3/4K3 b - - 0 12", "e8d7", "e2e4");
+        try (PgnWriter writer = new PgnWriter(out)) {
+            writer.write(tags, "4k3/8/8/8/8/8/4P3/4K3 b - - 0 12", moves, "*");
+        }
+        assertEquals(String.join("\n",
+                "[Event \"?\"]",
+                "[Site \"?\"]",
+                "[Date \"?\"]",
+                "[Round \"?\"]",
+                "[White \"Игрок \\\"1\\\"\"]",
+                "[Black \"?\"]",
+                "[Result \"*\"]",
+                "[SetUp \"1\"]",
+                "[FEN \"4k3/8/8/8/8/8/4P3/4K3 b - - 0 12\"]",
+                "[Annotator \"test\"]",
+                "",
+                "12... Kd7 13. e4 *",
+                "", ""), out.toString());
+    }
+
+    @Test
+    void randomGamesRoundTrip() throws IOException {
+        Random random = new Random(20240601);
+        List<int[]> games = new ArrayList<>();
+        Path file = directory.resolve("export.pgn");
+        try (PgnWriter writer = new PgnWriter(file, false)) {
+            for (int g = 0; g < 200; g++) {
+                int[] moves = randomGame(random, 1 + random.nextInt(200));
+                games.add(moves);
+                writer.write(Map.of("Event", "Игра " + g), Position.START_FEN, moves, g % 2 == 0 ? "1-0" : "1/2-1/2");
+            }
+            assertEquals(200, writer.getGames());
+        }
+
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            assertTrue(line.length() <= PgnWriter.LINE_WIDTH, line);
+        }
+        List<PgnRecord> records;
+        try (Stream<PgnRecord> stream = PgnScanner.games(file, false)) {
+            records = stream.collect(Collectors.toList());
+        }
+        assertEquals(games.size(), records.size());
+        for (int g = 0; g < games.size(); g++) {
+            PgnRecord record = records.get(g);
+            assertTrue(record.isValid(), "партия " + g);
+            assertArrayEquals(games.get(g), record.getMoves(), "партия " + g);
+            assertEquals(g % 2 == 0 ? "1-0" : "1/2-1/2", record.getResult());
+        }
+    }
+
+    private static int[] play(String fen, String... moves) {
+        Position position = Position.fromFen(fen);
+        int[] result = new int[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            result[i] = Move.parseUci(moves[i]);
+            position.makeMove(result[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Случайная партия из легальных ходов; заканчивается раньше, если ходов нет.
+     */
+    private static int[] randomGame(Random random, int plies) {
+        Position position = new Position();
+        int[] legal = new int[Position.MAX_MOVES];
+        int[] moves = new int[plies];
+        int count = 0;
+        while (count < plies) {
+            int n = position.generateLegalMoves(legal);
+            if (n == 0) {
+                break;
+            }
+            moves[count] = legal[random.nextInt(n)];
+            position.makeMove(moves[count++]);
+        }
+        return Arrays.copyOf(moves, count);
+    }
+}
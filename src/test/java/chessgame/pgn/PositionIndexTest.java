@@ -0,0 +1,91 @@
+package chessgame.pgn;
+
+import chessgame.logic.Move;
+import chessgame.logic.Position;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Индекс позиций на трех партиях из двух файлов: перестановка ходов, начальная позиция, канонические ключи.
+ */
+class PositionIndexTest {
+
+    private static final String AFTER_E4 = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1";
+    private static final String FOUR_KNIGHTS = "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3";
+    // После 1. e4 с обменом цветов: черная пешка на e5, ход белых
+    private static final String AFTER_E4_FLIPPED = "rnbqkbnr/pppp1ppp/8/4p3/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsTranspositionsAcrossFiles() throws IOException {
+        List<Path> files = writeGames();
+        Path file = directory.resolve("games.idx");
+        // Прогоны по 4 записи: индекс собирается слиянием многих прогонов
+        new PositionIndexBuilder(4).build(files, file);
+
+        try (PositionIndex index = PositionIndex.open(file)) {
+            assertFalse(index.isCanonical());
+            assertEquals(3, index.getGameCount());
+            assertEquals(5 + 5 + 3, index.getPositionCount());
+
+            assertEquals("0:0 1:0 2:0", hits(index.find(Position.START_FEN, 10)));
+            assertEquals(3, index.count(index.keyOf(new Position())));
+            assertEquals("0:4 1:4", hits(index.find(FOUR_KNIGHTS, 10)));
+            assertEquals("0:4", hits(index.find(FOUR_KNIGHTS, 1)));
+            assertEquals("0:1", hits(index.find(AFTER_E4, 10)));
+            assertTrue(index.find(AFTER_E4_FLIPPED, 10).isEmpty());
+            assertEquals(0, index.count(index.keyOf(Position.fromFen(AFTER_E4_FLIPPED))));
+
+            assertEquals(files.get(1), index.getGameFile(2));
+            assertEquals(files.get(0), index.getGameFile(1));
+            PgnRecord game = index.readGame(1);
+            assertEquals("Second", game.getTag("Event"));
+            assertArrayEquals(new int[] {Move.parseUci("g1f3"), Move.parseUci("b8c6"),
+                    Move.parseUci("e2e4"), Move.parseUci("e7e5")}, game.getMoves());
+        }
+    }
+
+    @Test
+    void canonicalIndexFindsColorFlippedPositions() throws IOException {
+        Path file = directory.resolve("canonical.idx");
+        new PositionIndexBuilder(PositionIndexBuilder.DEFAULT_RUN_RECORDS, true).build(writeGames(), file);
+        try (PositionIndex index = PositionIndex.open(file)) {
+            assertTrue(index.isCanonical());
+            assertEquals("0:1", hits(index.find(AFTER_E4, 10)));
+            assertEquals("0:1", hits(index.find(AFTER_E4_FLIPPED, 10)));
+            assertEquals("0:4 1:4", hits(index.find(FOUR_KNIGHTS, 10)));
+        }
+    }
+
+    private List<Path> writeGames() throws IOException {
+        Path first = directory.resolve("first.pgn");
+        Files.write(first, String.join("\n",
+                "[Event \"First\"]", "", "1. e4 e5 2. Nf3 Nc6 *", "",
+                "[Event \"Second\"]", "", "1. Nf3 Nc6 2. e4 e5 *", "").getBytes(StandardCharsets.UTF_8));
+        Path second = directory.resolve("second.pgn");
+        Files.write(second, String.join("\n",
+                "[Event \"Third\"]", "", "1. d4 d5 *", "").getBytes(StandardCharsets.UTF_8));
+        return List.of(first, second);
+    }
+
+    private static String hits(List<PositionIndex.Hit> hits) {
+        StringBuilder text = new StringBuilder();
+        for (PositionIndex.Hit hit : hits) {
+            text.append(text.length() == 0 ? "" : " ").append(hit.getGameId()).append(':').append(hit.getPly());
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package chessgame.ui;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Эталон времени запуска: бюджеты с допуском, проверка этапов и запись эталона. Дисплей не нужен.
+ */
+class StartupProfileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void budgetsIncludeTolerance() throws IOException {
+        StartupProfile profile = StartupProfile.fromBaseline(write(
+                "firstFrameMs=1000", "phase.engine=200", "phase.manifest=100000", "tolerancePercent=25"));
+        assertEquals(1250, profile.getBudgetMs());
+        assertTrue(profile.isWithinBudget(1250));
+        assertFalse(profile.isWithinBudget(1251));
+        assertFalse(profile.needsBaseline());
+
+        profile.measure("engine", () -> sleep(300));
+        profile.measure("manifest", () -> { });
+        profile.measure("sounds", () -> sleep(10));
+        List<String> over = profile.phasesOverBudget();
+        assertEquals(1, over.size());
+        assertTrue(over.get(0).startsWith("engine: "), over.get(0));
+    }
+
+    @Test
+    void firstRunRecordsBaseline() throws IOException {
+        Path file = write("# комментарий", "firstFrameMs=", "phase.engine=", "tolerancePercent=10");
+        StartupProfile profile = StartupProfile.fromBaseline(file);
+        assertTrue(profile.needsBaseline());
+        assertTrue(profile.isWithinBudget(Long.MAX_VALUE));
+
+        profile.measure("engine", () -> { });
+        profile.recordBaseline(1234);
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals("# комментарий", lines.get(0));
+        assertTrue(lines.contains("firstFrameMs=1234"), lines.toString());
+        assertTrue(lines.stream().anyMatch(line -> line.matches("phase\\.engine=\\d+")), lines.toString());
+        assertEquals(4, lines.size());
+
+        StartupProfile recorded = StartupProfile.fromBaseline(file);
+        assertFalse(recorded.needsBaseline());
+        assertEquals(1357, recorded.getBudgetMs());
+    }
+
+    @Test
+    void committedBaselineHasPhaseBudgets() throws IOException {
+        StartupProfile profile = StartupProfile.fromBaseline(Paths.get("startup-baseline.properties"));
+        profile.measure("engine", () -> { });
+        profile.measure("manifest", () -> { });
+        assertTrue(profile.phasesOverBudget().isEmpty());
+    }
+
+    @Test
+    void invalidBaselineIsRejected() throws IOException {
+        Path file = write("firstFrameMs=fast");
+        assertThrows(IOException.class, () -> StartupProfile.fromBaseline(file));
+    }
+
+    private Path write(String... lines) throws IOException {
+        Path file = directory.resolve("startup-baseline.properties");
+        Files.write(file, List.of(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}